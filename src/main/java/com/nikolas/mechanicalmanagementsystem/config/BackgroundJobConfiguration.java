@@ -0,0 +1,31 @@
+package com.nikolas.mechanicalmanagementsystem.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+@Configuration
+public class BackgroundJobConfiguration {
+
+    /**
+     * Executor of the long-running administrative jobs (migrations, exports, bulk updates).
+     * Jobs are started explicitly and tracked by {@code BackgroundJobService}; a job that does not fit the queue
+     * is rejected instead of running on the request thread.
+     *
+     * @param poolSize      the number of jobs running at the same time
+     * @param queueCapacity the number of jobs waiting to start
+     * @return the background job executor
+     */
+    @Bean(name = "backgroundJobExecutor")
+    public ThreadPoolTaskExecutor backgroundJobExecutor(@Value("${app.jobs.pool-size:2}") int poolSize,
+                                                        @Value("${app.jobs.queue-capacity:10}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("background-job-");
+        executor.initialize();
+        return executor;
+    }
+}
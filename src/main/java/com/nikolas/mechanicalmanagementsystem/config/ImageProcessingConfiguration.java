@@ -0,0 +1,58 @@
+package com.nikolas.mechanicalmanagementsystem.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+@Configuration
+public class ImageProcessingConfiguration {
+
+    /**
+     * Executor generating the image variants after upload. Decoding and scaling large photos is CPU and memory heavy,
+     * so the pool and its queue are bounded; when both are full the submitting thread does the work itself,
+     * which slows down uploads instead of piling up decoded images.
+     *
+     * @param poolSize      the number of worker threads
+     * @param queueCapacity the number of waiting tasks
+     * @return the image processing executor
+     */
+    @Bean(name = "imageProcessingExecutor")
+    public ThreadPoolTaskExecutor imageProcessingExecutor(@Value("${app.images.processing.pool-size:2}") int poolSize,
+                                                          @Value("${app.images.processing.queue-capacity:50}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("image-processing-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Executor streaming the files of an upload request into the image storage in parallel. The pool is shared by
+     * all requests and bounded, so a burst of uploads cannot open an unbounded number of streams and connections;
+     * when it is saturated the request thread stores its files itself.
+     *
+     * @param poolSize      the number of worker threads
+     * @param queueCapacity the number of waiting files
+     * @return the image upload executor
+     */
+    @Bean(name = "imageUploadExecutor")
+    public ThreadPoolTaskExecutor imageUploadExecutor(@Value("${app.images.upload.pool-size:4}") int poolSize,
+                                                      @Value("${app.images.upload.queue-capacity:20}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("image-upload-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.initialize();
+        return executor;
+    }
+}
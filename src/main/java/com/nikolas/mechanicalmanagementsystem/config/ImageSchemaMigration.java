@@ -0,0 +1,74 @@
+package com.nikolas.mechanicalmanagementsystem.config;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Drops the image columns the entities no longer map, as the schema update adds columns but never drops them.
+ * <ul>
+ *     <li>{@code image_variants.content}, of databases created while the variant bytes were kept in the row. As it is
+ *     NOT NULL no new variant could be inserted. Variants are derived data, so the old rows are deleted and their
+ *     images generate them again.</li>
+ *     <li>{@code images.base64_image}, a base64 copy of the image bytes once inlined into the machine details page.
+ *     The legacy bytes moved into the image storage by {@code ImageStorageMigrationServiceImpl} are read from the
+ *     {@code images.image} column, never from this copy, so it is dropped whether that migration has finished or not.
+ *     The {@code images.image} column itself is left in place: it serves the images not migrated yet.</li>
+ * </ul>
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ImageSchemaMigration {
+
+    private static final String PROBE_CONTENT_COLUMN = "SELECT COUNT(content) FROM image_variants WHERE 1 = 0";
+    private static final String DELETE_OLD_VARIANTS = "DELETE FROM image_variants WHERE content IS NOT NULL";
+    private static final String DROP_CONTENT_COLUMN = "ALTER TABLE image_variants DROP COLUMN content";
+    private static final String RESET_IMAGES_WITHOUT_VARIANTS = "UPDATE images SET variants_done = FALSE " +
+            "WHERE NOT EXISTS (SELECT 1 FROM image_variants v WHERE v.image_id = images.id)";
+    private static final String PROBE_BASE64_COLUMN = "SELECT COUNT(base64_image) FROM images WHERE 1 = 0";
+    private static final String DROP_BASE64_COLUMN = "ALTER TABLE images DROP COLUMN base64_image";
+
+    private final JdbcTemplate jdbcTemplate;
+
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void dropUnmappedColumns() {
+        dropVariantContentColumn();
+        dropBase64ImageColumn();
+    }
+
+    public void dropVariantContentColumn() {
+        if (!hasColumn(PROBE_CONTENT_COLUMN)) {
+            // Created after the variant bytes moved to the image storage, or already migrated
+            return;
+        }
+        int deleted = jdbcTemplate.update(DELETE_OLD_VARIANTS);
+        jdbcTemplate.execute(DROP_CONTENT_COLUMN);
+        int reset = jdbcTemplate.update(RESET_IMAGES_WITHOUT_VARIANTS);
+        log.info("ImageSchemaMigration::dropVariantContentColumn - Column dropped, {} old variant(s) deleted, {} image(s) will get them again",
+                deleted, reset);
+    }
+
+    public void dropBase64ImageColumn() {
+        if (!hasColumn(PROBE_BASE64_COLUMN)) {
+            // Created after the images were served from /images/{id}, or already migrated
+            return;
+        }
+        jdbcTemplate.execute(DROP_BASE64_COLUMN);
+        log.info("ImageSchemaMigration::dropBase64ImageColumn - Column dropped");
+    }
+
+    private boolean hasColumn(String probe) {
+        try {
+            jdbcTemplate.queryForObject(probe, Long.class);
+            return true;
+        } catch (DataAccessException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.nikolas.mechanicalmanagementsystem.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+@Configuration
+public class InvoiceExportConfiguration {
+
+    /**
+     * Executor rendering the invoices of an export. The export job submits one batch of machines at a time and
+     * writes the rendered invoices into the ZIP in order; when the pool is saturated the job renders itself,
+     * so the number of rendered invoices waiting for the ZIP never exceeds a batch.
+     *
+     * @param poolSize      the number of worker threads
+     * @param queueCapacity the number of waiting invoices
+     * @return the invoice rendering executor
+     */
+    @Bean(name = "invoiceRenderingExecutor")
+    public ThreadPoolTaskExecutor invoiceRenderingExecutor(@Value("${app.invoices.export.pool-size:2}") int poolSize,
+                                                           @Value("${app.invoices.export.queue-capacity:50}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("invoice-rendering-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.initialize();
+        return executor;
+    }
+}
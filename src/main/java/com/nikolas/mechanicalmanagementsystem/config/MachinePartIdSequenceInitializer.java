@@ -0,0 +1,45 @@
+package com.nikolas.mechanicalmanagementsystem.config;
+
+import com.nikolas.mechanicalmanagementsystem.entity.MachinePart;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Moves the machine part ID sequence past the existing parts. The parts used to get their IDs from the auto-increment
+ * column, so in databases created before the sequence the sequence table starts at 1.
+ * It runs once all singletons, the entity manager factory and its schema update included, are created, and before
+ * the web server is started: no request can insert a part with an ID taken from the old sequence value.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class MachinePartIdSequenceInitializer implements SmartInitializingSingleton {
+
+    private static final String MAX_ID = "SELECT COALESCE(MAX(id), 0) FROM machine_parts";
+    // The pooled optimizer hands out the IDs below the value read from the table
+    private static final String MOVE_SEQUENCE = "UPDATE " + MachinePart.ID_SEQUENCE + " SET next_val = ? WHERE next_val < ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        moveSequencePastExistingParts();
+    }
+
+    public void moveSequencePastExistingParts() {
+        try {
+            long nextValue = jdbcTemplate.queryForObject(MAX_ID, Long.class) + MachinePart.ID_ALLOCATION_SIZE;
+            if (jdbcTemplate.update(MOVE_SEQUENCE, nextValue, nextValue) > 0) {
+                log.info("MachinePartIdSequenceInitializer::moveSequencePastExistingParts - Sequence moved to {}", nextValue);
+            }
+        } catch (DataAccessException e) {
+            // Databases with native sequences have no sequence table
+            log.debug("MachinePartIdSequenceInitializer::moveSequencePastExistingParts - No sequence table: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.nikolas.mechanicalmanagementsystem.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+@Configuration
+public class PasswordHashingConfiguration {
+
+    /**
+     * Executor hashing and checking the passwords of logins, registrations and password changes.
+     * The pool bounds the cores spent on hashing; a hash that does not fit the queue is rejected instead of running
+     * on the request thread, so a login storm cannot starve the rendering of pages.
+     *
+     * @param poolSize      the number of passwords hashed at the same time
+     * @param queueCapacity the number of passwords waiting to be hashed
+     * @return the password hashing executor
+     */
+    @Bean(name = "passwordHashingExecutor")
+    public ThreadPoolTaskExecutor passwordHashingExecutor(@Value("${app.security.password.hashing.pool-size:2}") int poolSize,
+                                                          @Value("${app.security.password.hashing.queue-capacity:100}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("password-hashing-");
+        executor.initialize();
+        return executor;
+    }
+}
@@ -1,10 +1,16 @@
 package com.nikolas.mechanicalmanagementsystem.controller;
 
+import com.nikolas.mechanicalmanagementsystem.dtos.CompanyDashboard;
+import com.nikolas.mechanicalmanagementsystem.dtos.CompanyProfile;
+import com.nikolas.mechanicalmanagementsystem.dtos.JobStatus;
 import com.nikolas.mechanicalmanagementsystem.entity.Company;
-import com.nikolas.mechanicalmanagementsystem.entity.JobApplication;
 import com.nikolas.mechanicalmanagementsystem.entity.User;
 import com.nikolas.mechanicalmanagementsystem.exception.CompanyNotFoundException;
+import com.nikolas.mechanicalmanagementsystem.security.UserSnapshot;
+import com.nikolas.mechanicalmanagementsystem.service.BackgroundJobService;
+import com.nikolas.mechanicalmanagementsystem.service.CompanyDeletionService;
 import com.nikolas.mechanicalmanagementsystem.service.CompanyService;
+import com.nikolas.mechanicalmanagementsystem.service.CompanyTaxService;
 import com.nikolas.mechanicalmanagementsystem.service.UserService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
@@ -16,8 +22,8 @@ import org.springframework.ui.Model;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.*;
 
+import java.math.BigDecimal;
 import java.util.List;
-import java.util.Set;
 
 @Slf4j
 @Controller
@@ -26,14 +32,22 @@ public class CompanyController {
 
     private final UserService userService;
     private final CompanyService companyService;
+    private final CompanyTaxService companyTaxService;
+    private final CompanyDeletionService companyDeletionService;
+    private final BackgroundJobService backgroundJobService;
 
 
     //get all companies by user
     @GetMapping("/company")
-    public String getAllCompanies(Model model) {
-        User user = userService.getLoggedInUser();
+    public String getAllCompanies(@RequestParam(name = "deletionJob", required = false) String deletionJobId, Model model) {
+        UserSnapshot user = userService.getLoggedInUserSnapshot();
         List<Company> companies = companyService.getAllCompaniesByUser(user);
         model.addAttribute("companies", companies);
+        if (user.isAdmin() && deletionJobId != null) {
+            model.addAttribute("deletionJob", backgroundJobService.getJob(deletionJobId)
+                    .filter(job -> job.getName().endsWith("-deletion"))
+                    .orElse(null));
+        }
         return "company";
     }
 
@@ -59,22 +73,25 @@ public class CompanyController {
 
     // get company information's/details
     @GetMapping("/company/{companyId}")
-    public String getCompanyDetails(@PathVariable Long companyId, Model model) {
+    public String getCompanyDetails(@PathVariable Long companyId,
+                                    @RequestParam(name = "taxJob", required = false) String taxJobId,
+                                    Model model) {
         try {
-            User loggedInUser = userService.getLoggedInUser();
-            Company company = companyService.findById(companyId);
-            companyService.checkAccessRightsToOneCompany(loggedInUser, company);
-            //we can improve code with DTO!!!
-            boolean isLeaderOrDeputyLeader = companyService.isLeaderOrDeputyLeader(loggedInUser, company);
-            Set<JobApplication> jobApplications = companyService.getJobApplicationsByCompanyId(companyId);
-            Set<User> employeesExceptCurrentUserAndOwner = companyService.getAllEmployeesExceptCurrentUserAndOwner(loggedInUser, companyId);
-            Set<User> allEmployees = companyService.getEmployeesByCompanyId(companyId);
+            UserSnapshot loggedInUser = userService.getLoggedInUserSnapshot();
+            CompanyDashboard dashboard = companyService.getCompanyDashboard(loggedInUser, companyId);
+            CompanyProfile company = dashboard.getProfile();
+            boolean isLeaderOrDeputyLeader = dashboard.isLeaderOrDeputyLeader();
 
             model.addAttribute("isLeaderOrDeputyLeader", isLeaderOrDeputyLeader);
             model.addAttribute("companyDetails", company);
-            model.addAttribute("applications", jobApplications);
-            model.addAttribute("employeesExceptCurrentUserAndOwner", employeesExceptCurrentUserAndOwner);
-            model.addAttribute("allEmployees", allEmployees);
+            model.addAttribute("applications", dashboard.getPendingApplications());
+            model.addAttribute("employeesExceptCurrentUserAndOwner", dashboard.getColleagues());
+            model.addAttribute("allEmployees", dashboard.getEmployees());
+            if (isLeaderOrDeputyLeader && taxJobId != null) {
+                model.addAttribute("taxJob", backgroundJobService.getJob(taxJobId)
+                        .filter(job -> job.getName().startsWith("company-" + companyId + "-tax-"))
+                        .orElse(null));
+            }
 
             log.info("CompanyController::getCompanyDetails - Opened company: {} by: {}!", company.getCompanyName() + ' ' + company.getCountry(),
                     loggedInUser.getFirstName() + ' ' + loggedInUser.getLastName());
@@ -93,14 +110,15 @@ public class CompanyController {
         }
     }
 
-    // Delete Company
+    // Delete Company: hidden at once, its data is deleted by a background job
     @PreAuthorize("hasRole('ADMIN')")
     @GetMapping("/company/deleteCompany/{companyId}")
     public String deleteCompanyById(@PathVariable Long companyId) {
         try {
-            companyService.deleteCompanyById(companyId);
-            return "redirect:/company?successfullyDeleted";
+            JobStatus job = companyDeletionService.startDeletion(companyId);
+            return "redirect:/company?deletionJob=" + job.getId();
         } catch (RuntimeException e) {
+            log.error("CompanyController::deleteCompanyById - Deletion of company {} failed: {}", companyId, e.getMessage());
             return "redirect:/company?deleteFailed";
         }
     }
@@ -117,6 +135,27 @@ public class CompanyController {
         }
     }
 
+    // Apply a new tax rate to every active machine of the company (leader or deputy leader)
+    @PostMapping("/company/updateTax/{companyId}")
+    public String updateCompanyTax(@PathVariable Long companyId, @RequestParam("taxInPercent") BigDecimal taxInPercent) {
+        try {
+            UserSnapshot loggedInUser = userService.getLoggedInUserSnapshot();
+            Company company = companyService.findById(companyId);
+            if (!companyService.isLeaderOrDeputyLeader(loggedInUser, company)) {
+                log.warn("CompanyController::updateCompanyTax - {} is not a leader of company {}", loggedInUser.getEmail(), companyId);
+                return "redirect:/accessDenied";
+            }
+            JobStatus job = companyTaxService.startTaxChange(companyId, taxInPercent);
+            return "redirect:/company/" + companyId + "?taxJob=" + job.getId();
+        } catch (CompanyNotFoundException e) {
+            log.error("CompanyController::updateCompanyTax - Company not found with id: " + companyId);
+            return "redirect:/error?companyNotFound";
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            log.warn("CompanyController::updateCompanyTax - " + e.getMessage());
+            return "redirect:/company/" + companyId + "?taxChangeRejected";
+        }
+    }
+
     // Updating the company's deputy leader
     @PostMapping("/company/updateCompanyDeputyLeader/{companyId}")
     public String updateCompanyDeputyLeader(@PathVariable Long companyId, @RequestParam(required = false) Long deputyLeaderId) {
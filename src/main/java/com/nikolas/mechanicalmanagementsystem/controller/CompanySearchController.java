@@ -0,0 +1,35 @@
+package com.nikolas.mechanicalmanagementsystem.controller;
+
+import com.nikolas.mechanicalmanagementsystem.dtos.CompanyDirectoryRow;
+import com.nikolas.mechanicalmanagementsystem.service.CompanySearchService;
+import com.nikolas.mechanicalmanagementsystem.service.UserService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@Slf4j
+@RestController
+@RequiredArgsConstructor
+public class CompanySearchController {
+
+    private final CompanySearchService companySearchService;
+    private final UserService userService;
+
+    //Companies the user can join matching the words typed so far, for the type-ahead of the company search field
+    @GetMapping("/searchAndJoinCompany/suggest")
+    public ResponseEntity<List<CompanyDirectoryRow>> suggestCompanies(@RequestParam(name = "q", defaultValue = "") String query) {
+        Long userId = userService.getLoggedInUserSnapshot().getId();
+        return ResponseEntity.ok(companySearchService.suggest(userId, query));
+    }
+
+    //Companies the user can join matching the searched words, the best matches first
+    @GetMapping("/searchAndJoinCompany/search")
+    public ResponseEntity<List<CompanyDirectoryRow>> searchCompanies(@RequestParam(name = "q", defaultValue = "") String query,
+                                                                     @RequestParam(name = "limit", defaultValue = "50") int limit) {
+        Long userId = userService.getLoggedInUserSnapshot().getId();
+        return ResponseEntity.ok(companySearchService.search(userId, query, limit));
+    }
+}
@@ -0,0 +1,83 @@
+package com.nikolas.mechanicalmanagementsystem.controller;
+
+import com.nikolas.mechanicalmanagementsystem.dtos.JobStatus;
+import com.nikolas.mechanicalmanagementsystem.entity.Company;
+import com.nikolas.mechanicalmanagementsystem.exception.NotFoundException;
+import com.nikolas.mechanicalmanagementsystem.security.UserSnapshot;
+import com.nikolas.mechanicalmanagementsystem.service.CompanyService;
+import com.nikolas.mechanicalmanagementsystem.service.InvoiceExportService;
+import com.nikolas.mechanicalmanagementsystem.service.UserService;
+import jakarta.servlet.http.HttpSession;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.Resource;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Controller;
+import org.springframework.ui.Model;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+
+import java.util.List;
+
+@Controller
+@RequiredArgsConstructor
+@Slf4j
+@RequestMapping("/invoices/exports")
+public class InvoiceExportController {
+    private final InvoiceExportService invoiceExportService;
+    private final UserService userService;
+    private final CompanyService companyService;
+
+    //export the invoices of the year, month and companies selected on the machines page
+    @PostMapping
+    public String startExport(HttpSession session) {
+        UserSnapshot loggedInUser = userService.getLoggedInUserSnapshot();
+        List<Company> userCompanies = companyService.getAllCompaniesByUser(loggedInUser);
+        List<Long> selectedCompanies = companyService.getSelectedCompaniesByIds(session, null, userCompanies);
+        Integer selectedYear = companyService.getMachinesByYear(session, null);
+        Integer selectedMonth = companyService.getMachinesByMonth(session, null);
+        try {
+            JobStatus job = invoiceExportService.startExport(loggedInUser, selectedYear, selectedMonth, selectedCompanies);
+            return "redirect:/invoices/exports/" + job.getId();
+        } catch (IllegalStateException e) {
+            log.warn("InvoiceExportController::startExport - " + e.getMessage());
+            return "redirect:/machines?exportRejected";
+        }
+    }
+
+    //progress of an export, with the download link when it is done
+    @GetMapping("/{jobId}")
+    public String getExport(@PathVariable String jobId, Model model) {
+        try {
+            model.addAttribute("job", invoiceExportService.getExportStatus(userService.getLoggedInUserSnapshot(), jobId));
+            return "invoice_export";
+        } catch (NotFoundException e) {
+            log.warn("InvoiceExportController::getExport - " + e.getMessage());
+            return "redirect:/error?invoiceNotFound";
+        }
+    }
+
+    //the ZIP of a finished export
+    @GetMapping("/{jobId}/download")
+    public ResponseEntity<Resource> downloadExport(@PathVariable String jobId) {
+        try {
+            UserSnapshot loggedInUser = userService.getLoggedInUserSnapshot();
+            JobStatus job = invoiceExportService.getExportStatus(loggedInUser, jobId);
+            Resource file = invoiceExportService.getExportFile(loggedInUser, jobId);
+            return ResponseEntity.ok()
+                    .contentType(MediaType.parseMediaType("application/zip"))
+                    .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                            .filename(job.getName() + ".zip")
+                            .build().toString())
+                    .body(file);
+        } catch (NotFoundException e) {
+            log.warn("InvoiceExportController::downloadExport - " + e.getMessage());
+            return ResponseEntity.notFound().build();
+        }
+    }
+}
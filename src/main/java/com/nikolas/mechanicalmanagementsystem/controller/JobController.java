@@ -0,0 +1,54 @@
+package com.nikolas.mechanicalmanagementsystem.controller;
+
+import com.nikolas.mechanicalmanagementsystem.dtos.JobStatus;
+import com.nikolas.mechanicalmanagementsystem.service.BackgroundJobService;
+import com.nikolas.mechanicalmanagementsystem.service.ImageStorageMigrationService;
+import com.nikolas.mechanicalmanagementsystem.service.PartsSumVerificationService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@Slf4j
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/admin/jobs")
+public class JobController {
+
+    private final BackgroundJobService backgroundJobService;
+    private final ImageStorageMigrationService imageStorageMigrationService;
+    private final PartsSumVerificationService partsSumVerificationService;
+
+    //List of the recent background jobs
+    @GetMapping
+    public List<JobStatus> getJobs() {
+        return backgroundJobService.getJobs();
+    }
+
+    //Progress of one background job
+    @GetMapping("/{jobId}")
+    public ResponseEntity<JobStatus> getJob(@PathVariable String jobId) {
+        return ResponseEntity.of(backgroundJobService.getJob(jobId));
+    }
+
+    //Move the legacy image LOBs into the configured image storage
+    @PostMapping("/image-storage-migration")
+    public ResponseEntity<JobStatus> startImageStorageMigration() {
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(imageStorageMigrationService.startMigration());
+    }
+
+    //Compare the maintained parts sums with the sum of the parts and repair the differences
+    @PostMapping("/parts-sum-verification")
+    public ResponseEntity<JobStatus> startPartsSumVerification() {
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(partsSumVerificationService.startVerification());
+    }
+
+    @ExceptionHandler(IllegalStateException.class)
+    public ResponseEntity<String> jobRejected(IllegalStateException e) {
+        log.warn("JobController::jobRejected - " + e.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(e.getMessage());
+    }
+}
@@ -1,30 +1,50 @@
 package com.nikolas.mechanicalmanagementsystem.controller;
 
-import com.nikolas.mechanicalmanagementsystem.dtos.InvoiceDataDTO;
+import com.nikolas.mechanicalmanagementsystem.dtos.ImageMetadata;
+import com.nikolas.mechanicalmanagementsystem.dtos.MachineListPage;
+import com.nikolas.mechanicalmanagementsystem.dtos.MachineListSort;
+import com.nikolas.mechanicalmanagementsystem.dtos.MonthlyMachineSummary;
+import com.nikolas.mechanicalmanagementsystem.dtos.YearlyMachineReport;
 import com.nikolas.mechanicalmanagementsystem.entity.*;
 import com.nikolas.mechanicalmanagementsystem.exception.InvoiceNotFoundException;
 import com.nikolas.mechanicalmanagementsystem.exception.MachineNotFoundException;
+import com.nikolas.mechanicalmanagementsystem.exception.NotFoundException;
+import com.nikolas.mechanicalmanagementsystem.security.UserSnapshot;
 import com.nikolas.mechanicalmanagementsystem.service.*;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.servlet.http.HttpSession;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Sort;
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.validation.BindingResult;
 import org.springframework.validation.FieldError;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MaxUploadSizeExceededException;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.util.UriUtils;
 
 import java.io.IOException;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.time.Month;
 import java.time.Year;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
@@ -39,6 +59,10 @@ public class MachineController {
     private final MachinePartService machinePartService;
     private final CompanyService companyService;
     private final InvoiceService invoiceService;
+    private final CompanyMonthlyRollupService companyMonthlyRollupService;
+    private final ImageVariantService imageVariantService;
+
+    private static final CacheControl IMMUTABLE_CONTENT = CacheControl.maxAge(365, TimeUnit.DAYS).cachePrivate().immutable();
 
     //    handler method to create new machine
     @PostMapping("/machines/addNew")
@@ -68,13 +92,24 @@ public class MachineController {
         return "redirect:/deleted_machines";
     }
 
+    //recompute the monthly totals from the machines (admin)
+    @PostMapping("/machines/rollup/rebuild")
+    public String rebuildMonthlyRollup() {
+        companyMonthlyRollupService.rebuild();
+        return "redirect:/machines?rollupRebuilt";
+    }
+
     //get machines by year, month and selected company
     @RequestMapping(value = "/machines", method = {RequestMethod.GET, RequestMethod.POST})
     public String getMachinesBySelectedYearMonthCompanyIds(@RequestParam(name = "year", required = false) Integer year,
                                      @RequestParam(name = "month", required = false) Integer month,
                                      @RequestParam(name = "companyIds", required = false) List<Long> selectedCompanyIds,
+                                     @RequestParam(name = "sort", required = false) MachineListSort sort,
+                                     @RequestParam(name = "direction", required = false) Sort.Direction direction,
+                                     @RequestParam(name = "cursor", required = false) String cursor,
+                                     @RequestParam(name = "size", defaultValue = "50") int size,
                                      Model model, HttpSession session) {
-        User loggedInUser = userService.getLoggedInUser();
+        UserSnapshot loggedInUser = userService.getLoggedInUserSnapshot();
 
         List<Year> years = IntStream.rangeClosed(LocalDateTime.now().getYear() - 5, Year.now().getValue())
                 .mapToObj(Year::of)
@@ -85,10 +120,8 @@ public class MachineController {
         List<Long> selectedCompanies = companyService.getSelectedCompaniesByIds(session, selectedCompanyIds, userCompanies);
         Integer selectedYear = companyService.getMachinesByYear(session, year);
         Integer selectedMonth = companyService.getMachinesByMonth(session, month);
-        List<Machine> machines = machineService.getActiveMachinesByYearMonthAndCompanyId(selectedYear, selectedMonth, selectedCompanies);
-        BigDecimal totalPartsAmount = machineService.calculateTotalPartsAmountByMonthAndYearAndCompanies(selectedYear, selectedMonth, selectedCompanies);
-        BigDecimal totalChargedAmount = machineService.calculateTotalChargedAmountByMonthAndYearAndCompanies(selectedYear, selectedMonth, selectedCompanies);
-        BigDecimal totalProfit = machineService.calculateTotalProfitByMonthAndYearAndCompanies(selectedYear, selectedMonth, selectedCompanies);
+        MachineListPage machinePage = machineService.getActiveMachinePage(selectedYear, selectedMonth, selectedCompanies, sort, direction, cursor, size);
+        MonthlyMachineSummary machineSummary = machineService.getMonthlyMachineSummary(selectedYear, selectedMonth, selectedCompanies);
 
         model.addAttribute("companies", userCompanies);
         model.addAttribute("selectedCompanies", selectedCompanies);
@@ -96,23 +129,47 @@ public class MachineController {
         model.addAttribute("selectedYear", selectedYear);
         model.addAttribute("months", months);
         model.addAttribute("selectedMonth", selectedMonth);
-        model.addAttribute("machines", machines);
-        model.addAttribute("totalPartsAmount", totalPartsAmount);
-        model.addAttribute("totalChargedAmount", totalChargedAmount);
-        model.addAttribute("totalProfit", totalProfit);
+        model.addAttribute("machines", machinePage.getRows());
+        model.addAttribute("machinePage", machinePage);
+        model.addAttribute("pageSize", size);
+        model.addAttribute("machineSummary", machineSummary);
+        model.addAttribute("totalPartsAmount", machineSummary.getTotalPartsAmount());
+        model.addAttribute("totalChargedAmount", machineSummary.getTotalChargedAmount());
+        model.addAttribute("totalProfit", machineSummary.getTotalProfit());
 
         return "machines";
     }
 
 
+    //yearly totals of the selected companies, the last five years by default
+    @GetMapping("/machines/report")
+    public String getYearlyMachineReport(@RequestParam(name = "fromYear", required = false) Integer fromYear,
+                                         @RequestParam(name = "toYear", required = false) Integer toYear,
+                                         Model model, HttpSession session) {
+        UserSnapshot loggedInUser = userService.getLoggedInUserSnapshot();
+        int currentYear = Year.now().getValue();
+        int lastYear = toYear != null ? Math.min(toYear, currentYear) : currentYear;
+        int firstYear = fromYear != null ? Math.min(fromYear, lastYear) : lastYear - 4;
+
+        List<Company> userCompanies = companyService.getAllCompaniesByUser(loggedInUser);
+        List<Long> selectedCompanies = companyService.getSelectedCompaniesByIds(session, null, userCompanies);
+        YearlyMachineReport report = machineService.getYearlyMachineReport(firstYear, lastYear, selectedCompanies);
+
+        model.addAttribute("companies", userCompanies.stream().collect(Collectors.toMap(Company::getId, Company::getCompanyName)));
+        model.addAttribute("years", IntStream.rangeClosed(currentYear - 10, currentYear).boxed().toList());
+        model.addAttribute("report", report);
+        return "machine_report";
+    }
+
+
     //one machine view form
     @GetMapping("/machines/view/{id}")
     public String getMachineDetails(@PathVariable Long id, Model model) {
         try {
-            User loggedInUser = userService.getLoggedInUser();
+            UserSnapshot loggedInUser = userService.getLoggedInUserSnapshot();
             Machine machine = machineService.getMachineForUser(loggedInUser, id);
-            machineService.convertImagesToBase64(machine);
             model.addAttribute("machine", machine);
+            model.addAttribute("images", imagesService.getImagesOfMachine(machine.getId()));
             return "machine_details";
         } catch (MachineNotFoundException e) {
             log.warn("MachineController::getMachineDetails - Machine not found with id: " + id);
@@ -140,24 +197,74 @@ public class MachineController {
     //Update Tax
     @PostMapping("/updateTax/{id}")
     public String updateTax(@PathVariable("id") Long machineId, @RequestParam("taxInPercent") BigDecimal taxInPercent) {
-        User loggedInUser = userService.getLoggedInUser();
-        Machine machine = machineService.getMachineForUser(loggedInUser, machineId);
-        machineService.updateMachinePartsTax(machine, taxInPercent);
+        UserSnapshot loggedInUser = userService.getLoggedInUserSnapshot();
+        machineService.checkAccessToMachine(loggedInUser, machineId);
+        machineService.updateMachinePartsTax(machineId, taxInPercent);
         return "redirect:/machines/view/" + machineId;
     }
 
     //add machinePart to machine
     @PostMapping("/addMachinePart/{id}")
     public String saveNewPart(@PathVariable("id") Long machineId, @ModelAttribute("machinePart") MachinePart machinePart) {
-        User loggedInUser = userService.getLoggedInUser();
+        UserSnapshot loggedInUser = userService.getLoggedInUserSnapshot();
         Machine machine = machineService.getMachineForUser(loggedInUser, machineId);
         machinePartService.addMachinePartToMachine(machine, machinePart);
         return "redirect:/machines/view/" + machineId;
     }
 
+    //add several machineParts to machine, rows without a name are skipped
+    @PostMapping("/addMachineParts/{id}")
+    public String saveNewParts(@PathVariable("id") Long machineId,
+                               @RequestParam(value = "partName", required = false) List<String> partNames,
+                               @RequestParam(value = "partPrice", required = false) List<BigDecimal> partPrices) {
+        UserSnapshot loggedInUser = userService.getLoggedInUserSnapshot();
+        Machine machine = machineService.getMachineForUser(loggedInUser, machineId);
+        List<MachinePart> machineParts = new ArrayList<>();
+        for (int i = 0; partNames != null && i < partNames.size(); i++) {
+            if (partNames.get(i).isBlank()) {
+                continue;
+            }
+            if (partPrices == null || i >= partPrices.size() || partPrices.get(i) == null) {
+                return partsRejected(machineId, new IllegalArgumentException("No price for machine part " + partNames.get(i)));
+            }
+            MachinePart machinePart = new MachinePart();
+            machinePart.setPartName(partNames.get(i));
+            machinePart.setPartPrice(partPrices.get(i));
+            machineParts.add(machinePart);
+        }
+        try {
+            int added = machinePartService.addMachineParts(machine, machineParts);
+            return "redirect:/machines/view/" + machineId + "?partsAdded=" + added;
+        } catch (IllegalArgumentException e) {
+            log.warn("MachineController::saveNewParts - {}", e.getMessage());
+            return partsRejected(machineId, e);
+        }
+    }
+
+    //add machineParts pasted as CSV (name;price per line) to machine
+    @PostMapping("/addMachineParts/{id}/csv")
+    public String saveNewPartsFromCsv(@PathVariable("id") Long machineId, @RequestParam("csv") String csv) {
+        UserSnapshot loggedInUser = userService.getLoggedInUserSnapshot();
+        Machine machine = machineService.getMachineForUser(loggedInUser, machineId);
+        try {
+            int added = machinePartService.addMachinePartsFromCsv(machine, csv);
+            return "redirect:/machines/view/" + machineId + "?partsAdded=" + added;
+        } catch (IllegalArgumentException e) {
+            log.warn("MachineController::saveNewPartsFromCsv - {}", e.getMessage());
+            return partsRejected(machineId, e);
+        }
+    }
+
+    private static String partsRejected(Long machineId, IllegalArgumentException e) {
+        return "redirect:/machines/view/" + machineId + "?partsRejected="
+                + UriUtils.encodeQueryParam(e.getMessage(), StandardCharsets.UTF_8);
+    }
+
     //Delete machinePart from Machine
     @GetMapping("/deleteMachinePart/{machineId}/{partId}")
     public String deleteMachinePart(@PathVariable("machineId") Long machineId, @PathVariable("partId") Long partId) {
+        UserSnapshot loggedInUser = userService.getLoggedInUserSnapshot();
+        machineService.checkAccessToMachine(loggedInUser, machineId);
         machineService.deleteMachinePart(machineId, partId);
         return "redirect:/machines/view/" + machineId;
     }
@@ -174,7 +281,7 @@ public class MachineController {
     //Upload Image
     @PostMapping("/machines/view/{machineId}/uploadImage")
     public String uploadImage(@PathVariable Long machineId, @RequestParam("image") List<MultipartFile> file) {
-        User loggedInUser = userService.getLoggedInUser();
+        UserSnapshot loggedInUser = userService.getLoggedInUserSnapshot();
         Machine machine = machineService.getMachineForUser(loggedInUser, machineId);
         try {
             imagesService.uploadAndSaveImage(file, machine);
@@ -187,25 +294,108 @@ public class MachineController {
     }
 
 
-    // Invoice generation
+    // Invoice of the machine: the latest issued one, or a page offering to issue the first one
     @GetMapping("/invoice/{id}")
     public String redirectToInvoice(@PathVariable Long id, Model model) {
         try {
-            InvoiceDataDTO invoiceDataDTO = invoiceService.generateInvoice(id);
-            model.addAttribute("invoiceData", invoiceDataDTO);
-            return "invoice";
-        } catch (InvoiceNotFoundException e) {
-            log.warn("MachineController::redirectToInvoice - No such invoice");
-            return "redirect:/error?invoiceNotFound";
+            Optional<Long> invoiceId = invoiceService.findLatestInvoiceId(id);
+            if (invoiceId.isPresent()) {
+                return "redirect:/invoices/" + invoiceId.get();
+            }
+            model.addAttribute("machineId", id);
+            return "invoice_missing";
         } catch (MachineNotFoundException e) {
             log.warn("MachineController::redirectToInvoice - Invoice not found to this machine!");
             return "redirect:/error?invoiceNotFound";
         }
     }
 
+    // Issue the first invoice of the machine, or show the one issued meanwhile
+    @PostMapping("/invoice/{id}/issue")
+    public String issueInvoice(@PathVariable Long id) {
+        try {
+            return "redirect:/invoices/" + invoiceService.getOrIssueInvoice(id);
+        } catch (MachineNotFoundException e) {
+            log.warn("MachineController::issueInvoice - Invoice not found to this machine!");
+            return "redirect:/error?invoiceNotFound";
+        }
+    }
+
+    // Issue a new invoice for the machine, e.g. after its parts changed
+    @PostMapping("/invoice/{id}/reissue")
+    public String reissueInvoice(@PathVariable Long id) {
+        try {
+            return "redirect:/invoices/" + invoiceService.issueInvoice(id).getId();
+        } catch (MachineNotFoundException e) {
+            log.warn("MachineController::reissueInvoice - Invoice not found to this machine!");
+            return "redirect:/error?invoiceNotFound";
+        }
+    }
+
+    // Issued invoices never change, the rendered page is cached by the browser
+    @GetMapping("/invoices/{invoiceId}")
+    public String viewInvoice(@PathVariable Long invoiceId, WebRequest webRequest, HttpServletResponse response, Model model) {
+        try {
+            UserSnapshot loggedInUser = userService.getLoggedInUserSnapshot();
+            Invoice invoice = invoiceService.getInvoiceForUser(loggedInUser, invoiceId);
+            if (webRequest.checkNotModified("\"invoice-" + invoice.getId() + '"')) {
+                return null;
+            }
+            response.setHeader(HttpHeaders.CACHE_CONTROL, IMMUTABLE_CONTENT.getHeaderValue());
+            model.addAttribute("invoice", invoice);
+            return "invoice";
+        } catch (InvoiceNotFoundException e) {
+            log.warn("MachineController::viewInvoice - No such invoice");
+            return "redirect:/error?invoiceNotFound";
+        }
+    }
+
+    // Serve image content (or its thumbnail/preview variant), cached by the browser
+    @GetMapping("/images/{imageId}")
+    public ResponseEntity<Resource> getImage(@PathVariable Long imageId,
+                                           @RequestParam(name = "variant", required = false) ImageVariantType variant,
+                                           WebRequest webRequest) {
+        try {
+            UserSnapshot loggedInUser = userService.getLoggedInUserSnapshot();
+            ImageMetadata metadata = imagesService.getImageMetadataForUser(loggedInUser, imageId);
+
+            Optional<String> variantType = variant != null ? imageVariantService.getVariantType(imageId, variant) : Optional.empty();
+            if (variantType.isPresent()) {
+                String eTag = metadata.getETag(variant);
+                if (webRequest.checkNotModified(eTag)) {
+                    return null;
+                }
+                return ResponseEntity.ok()
+                        .contentType(MediaType.parseMediaType(variantType.get()))
+                        .eTag(eTag)
+                        .cacheControl(IMMUTABLE_CONTENT)
+                        .body(imageVariantService.getVariantContent(imageId, variant));
+            }
+
+            // The browser already has this image, answer 304 without loading the content
+            if (webRequest.checkNotModified(metadata.getETag())) {
+                return null;
+            }
+            return ResponseEntity.ok()
+                    .contentType(MediaType.parseMediaType(metadata.getType()))
+                    .eTag(metadata.getETag())
+                    // A requested variant may not be generated yet, do not pin the original to its URL
+                    .cacheControl(variant == null ? IMMUTABLE_CONTENT : CacheControl.maxAge(1, TimeUnit.MINUTES).cachePrivate())
+                    .body(imagesService.getImageContent(imageId));
+        } catch (NotFoundException e) {
+            log.warn("MachineController::getImage - Image not found with id: " + imageId);
+            return ResponseEntity.notFound().build();
+        } catch (AccessDeniedException e) {
+            log.warn("MachineController::getImage - No access to the image: " + imageId);
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+    }
+
     // Delete image
     @GetMapping("/deleteImage/{imageId}")
     public String deleteImage(@PathVariable Long imageId, @RequestParam(name = "machineId") Long machineId) {
+        UserSnapshot loggedInUser = userService.getLoggedInUserSnapshot();
+        imagesService.checkAccessToImage(loggedInUser, imageId);
         imagesService.deleteImage(imageId);
         return "redirect:/machines/view/" + machineId;
     }
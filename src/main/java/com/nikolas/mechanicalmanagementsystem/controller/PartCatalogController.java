@@ -0,0 +1,43 @@
+package com.nikolas.mechanicalmanagementsystem.controller;
+
+import com.nikolas.mechanicalmanagementsystem.dtos.PartSuggestion;
+import com.nikolas.mechanicalmanagementsystem.exception.MachineNotFoundException;
+import com.nikolas.mechanicalmanagementsystem.security.UserSnapshot;
+import com.nikolas.mechanicalmanagementsystem.service.MachineOwnershipCache;
+import com.nikolas.mechanicalmanagementsystem.service.MachineService;
+import com.nikolas.mechanicalmanagementsystem.service.PartCatalogService;
+import com.nikolas.mechanicalmanagementsystem.service.UserService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@Slf4j
+@RestController
+@RequiredArgsConstructor
+public class PartCatalogController {
+
+    private final PartCatalogService partCatalogService;
+    private final MachineService machineService;
+    private final MachineOwnershipCache machineOwnershipCache;
+    private final UserService userService;
+
+    //Part names used before in the company of the machine, for the type-ahead of the part name fields
+    //Called on every keystroke, so the machine is not loaded: its company comes from the ownership cache
+    @GetMapping("/machines/view/{machineId}/partSuggestions")
+    public ResponseEntity<List<PartSuggestion>> getPartSuggestions(@PathVariable Long machineId,
+                                                                   @RequestParam(name = "q", defaultValue = "") String prefix) {
+        try {
+            UserSnapshot loggedInUser = userService.getLoggedInUserSnapshot();
+            machineService.checkAccessToMachine(loggedInUser, machineId);
+            Long companyId = machineOwnershipCache.getOwnership(machineId).getCompanyId();
+            return ResponseEntity.ok(partCatalogService.suggest(companyId, prefix));
+        } catch (MachineNotFoundException | AccessDeniedException e) {
+            log.warn("PartCatalogController::getPartSuggestions - No access to the machine: " + machineId);
+            return ResponseEntity.notFound().build();
+        }
+    }
+}
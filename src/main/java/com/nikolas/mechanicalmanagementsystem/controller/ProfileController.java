@@ -3,6 +3,7 @@ package com.nikolas.mechanicalmanagementsystem.controller;
 import com.nikolas.mechanicalmanagementsystem.entity.Company;
 import com.nikolas.mechanicalmanagementsystem.entity.User;
 import com.nikolas.mechanicalmanagementsystem.registration.baseToken.changePassword.ChangePasswordService;
+import com.nikolas.mechanicalmanagementsystem.security.UserSnapshot;
 import com.nikolas.mechanicalmanagementsystem.service.CompanyService;
 import com.nikolas.mechanicalmanagementsystem.service.UserService;
 import jakarta.servlet.http.HttpServletRequest;
@@ -31,7 +32,7 @@ public class ProfileController {
     @GetMapping("/profile")
     public String showProfile(Model model) {
         User user = userService.getLoggedInUser();
-        List<Company> allCompanies = companyService.getAllCompaniesByUser(user);
+        List<Company> allCompanies = companyService.getAllCompaniesByUser(userService.getLoggedInUserSnapshot());
         model.addAttribute("companies", allCompanies);
         model.addAttribute("user", user);
         return "profile";
@@ -1,7 +1,8 @@
 package com.nikolas.mechanicalmanagementsystem.controller;
 
 import com.nikolas.mechanicalmanagementsystem.dtos.CompanyDTO;
-import com.nikolas.mechanicalmanagementsystem.entity.Company;
+import com.nikolas.mechanicalmanagementsystem.dtos.CompanyDirectoryPage;
+import com.nikolas.mechanicalmanagementsystem.dtos.CompanyDirectorySort;
 import com.nikolas.mechanicalmanagementsystem.entity.JobApplication;
 import com.nikolas.mechanicalmanagementsystem.entity.User;
 import com.nikolas.mechanicalmanagementsystem.exception.AlreadyAppliedException;
@@ -10,6 +11,7 @@ import com.nikolas.mechanicalmanagementsystem.service.JobApplicationService;
 import com.nikolas.mechanicalmanagementsystem.service.UserService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
@@ -26,15 +28,20 @@ public class SearchAndJoinCompanyController {
 
 
 
-    //get all companies
+    //get one page of the companies to join
     @GetMapping("/searchAndJoinCompany")
-    public String getAllCompaniesToJoin(Model model) {
+    public String getAllCompaniesToJoin(@RequestParam(name = "sort", required = false) CompanyDirectorySort sort,
+                                        @RequestParam(name = "direction", required = false) Sort.Direction direction,
+                                        @RequestParam(name = "page", defaultValue = "0") int page,
+                                        @RequestParam(name = "size", defaultValue = "25") int size,
+                                        Model model) {
         User user = userService.getLoggedInUser();
 
         List<JobApplication> companiesIApplied = jobApplicationService.findByEmployee(user);
-        List<Company> companiesICanJoin = jobApplicationService.getCompaniesICanJoin(user);
+        CompanyDirectoryPage companiesICanJoin = jobApplicationService.getCompaniesICanJoin(user, sort, direction, page, size);
 
-        model.addAttribute("companiesICanJoin", companiesICanJoin);
+        model.addAttribute("companyPage", companiesICanJoin);
+        model.addAttribute("pageSize", size);
         model.addAttribute("userJobApplications", companiesIApplied);
         return "searchAndJoinCompany";
     }
@@ -0,0 +1,21 @@
+package com.nikolas.mechanicalmanagementsystem.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * Everything the page of a company shows to one of its users, read with a fixed number of queries.
+ * The colleagues are the employees without the user and the owner, the ones the user can see and manage; the pending
+ * applications are only read for the owner and the deputy leader, who can accept or reject them.
+ */
+@Getter
+@AllArgsConstructor
+public class CompanyDashboard {
+    private CompanyProfile profile;
+    private List<CompanyMemberRow> employees;
+    private List<CompanyMemberRow> colleagues;
+    private List<PendingApplicationRow> pendingApplications;
+    private boolean leaderOrDeputyLeader;
+}
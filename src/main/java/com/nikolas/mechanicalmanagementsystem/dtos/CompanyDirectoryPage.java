@@ -0,0 +1,28 @@
+package com.nikolas.mechanicalmanagementsystem.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.data.domain.Sort;
+
+import java.util.List;
+
+/**
+ * One page of the directory of the companies a user can join, numbered from 0.
+ */
+@Getter
+@AllArgsConstructor
+public class CompanyDirectoryPage {
+    private List<CompanyDirectoryRow> rows;
+    private CompanyDirectorySort sort;
+    private Sort.Direction direction;
+    private int number;
+    private int totalPages;
+
+    public boolean hasNext() {
+        return number + 1 < totalPages;
+    }
+
+    public boolean hasPrevious() {
+        return number > 0;
+    }
+}
@@ -0,0 +1,19 @@
+package com.nikolas.mechanicalmanagementsystem.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * One row of the directory of the companies a user can join, holding only the columns shown in the table.
+ * Instances are created directly by the JPQL constructor expressions of the directory and the search index queries.
+ */
+@Getter
+@AllArgsConstructor
+public class CompanyDirectoryRow {
+    private Long id;
+    private String companyName;
+    private String country;
+    private String location;
+    private String street;
+    private int postCode;
+}
@@ -0,0 +1,18 @@
+package com.nikolas.mechanicalmanagementsystem.dtos;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * The columns the company directory can be sorted by, with the property of the company used for ordering.
+ */
+@Getter
+@RequiredArgsConstructor
+public enum CompanyDirectorySort {
+    NAME("companyName"),
+    COUNTRY("country"),
+    LOCATION("location"),
+    DATE("registrationDate");
+
+    private final String property;
+}
@@ -0,0 +1,20 @@
+package com.nikolas.mechanicalmanagementsystem.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+
+/**
+ * Aggregated machine figures of one company for a selected period.
+ * Instances are created directly by the JPQL constructor expression in {@code MachineRepository}.
+ */
+@Getter
+@AllArgsConstructor
+public class CompanyMachineTotals {
+    private Long companyId;
+    private BigDecimal partsAmount;
+    private BigDecimal chargedAmount;
+    private BigDecimal profit;
+    private Long machineCount;
+}
@@ -0,0 +1,21 @@
+package com.nikolas.mechanicalmanagementsystem.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+
+/**
+ * One user listed on the page of a company, an employee or an applicant, holding only the columns shown in the tables.
+ * Instances are created directly by the JPQL constructor expressions of the dashboard queries, so the roles and the
+ * job applications of the user are not loaded.
+ */
+@Getter
+@AllArgsConstructor
+public class CompanyMemberRow {
+    private Long id;
+    private String firstName;
+    private String lastName;
+    private String email;
+    private LocalDateTime registrationDate;
+}
@@ -0,0 +1,33 @@
+package com.nikolas.mechanicalmanagementsystem.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+
+/**
+ * The details of a company shown and edited on its page, with the names of its owner and deputy leader.
+ * Instances are created directly by the JPQL constructor expression of the dashboard query, without loading the
+ * company or its leaders.
+ */
+@Getter
+@AllArgsConstructor
+public class CompanyProfile {
+    private Long id;
+    private String companyName;
+    private String description;
+    private String country;
+    private String location;
+    private String street;
+    private int postCode;
+    private Long identificationNumber;
+    private Long taxIdentificationNumber;
+    private String valueAddedTaxIdentificationNumber;
+    private LocalDateTime registrationDate;
+    private Long ownerId;
+    private String ownerFirstName;
+    private String ownerLastName;
+    private Long deputyLeaderId;
+    private String deputyLeaderFirstName;
+    private String deputyLeaderLastName;
+}
@@ -0,0 +1,21 @@
+package com.nikolas.mechanicalmanagementsystem.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+
+/**
+ * Aggregated machine figures of one company in one year.
+ * Instances are created by {@code MachineReportRepository} from the monthly rollup rows.
+ */
+@Getter
+@AllArgsConstructor
+public class CompanyYearTotals {
+    private Long companyId;
+    private int year;
+    private BigDecimal partsAmount;
+    private BigDecimal chargedAmount;
+    private BigDecimal profit;
+    private long machineCount;
+}
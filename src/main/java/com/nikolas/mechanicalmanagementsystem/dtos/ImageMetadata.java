@@ -0,0 +1,39 @@
+package com.nikolas.mechanicalmanagementsystem.dtos;
+
+import com.nikolas.mechanicalmanagementsystem.entity.ImageVariantType;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Descriptive data of a stored image without its content, with the IDs needed for the access check.
+ * Instances are created directly by the JPQL constructor expressions in {@code ImagesRepository}.
+ */
+@Getter
+@AllArgsConstructor
+public class ImageMetadata {
+    private Long id;
+    private String name;
+    private String type;
+    private String contentHash;
+    private Long machineId;
+    private Long companyId;
+    private boolean machineActive;
+
+    /**
+     * The entity tag of the image, its content hash. Images without content yet fall back to the ID,
+     * stored images are never modified.
+     *
+     * @return The quoted entity tag.
+     */
+    public String getETag() {
+        return contentHash != null ? "\"" + contentHash + "\"" : "\"image-" + id + "\"";
+    }
+
+    /**
+     * @param variant The variant of the image.
+     * @return The quoted entity tag of the variant.
+     */
+    public String getETag(ImageVariantType variant) {
+        return "\"image-" + id + "-" + variant.name().toLowerCase() + "\"";
+    }
+}
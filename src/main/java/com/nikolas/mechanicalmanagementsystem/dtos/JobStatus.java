@@ -0,0 +1,62 @@
+package com.nikolas.mechanicalmanagementsystem.dtos;
+
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Progress of a background job. The job updates it from its worker thread while requests read it,
+ * so the mutable state is atomic or volatile.
+ */
+@Getter
+public class JobStatus {
+
+    public enum State {RUNNING, COMPLETED, FAILED}
+
+    private final String id;
+    private final String name;
+    private final LocalDateTime startedAt = LocalDateTime.now();
+    private final AtomicLong processed = new AtomicLong();
+    private volatile long total = -1;
+    private volatile State state = State.RUNNING;
+    private volatile String message;
+    private volatile LocalDateTime finishedAt;
+
+    public JobStatus(String id, String name) {
+        this.id = id;
+        this.name = name;
+    }
+
+    public long getProcessed() {
+        return processed.get();
+    }
+
+    public void setTotal(long total) {
+        this.total = total;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+
+    public void advance(long count) {
+        processed.addAndGet(count);
+    }
+
+    public void complete(String message) {
+        this.message = message;
+        this.finishedAt = LocalDateTime.now();
+        this.state = State.COMPLETED;
+    }
+
+    public void fail(String message) {
+        this.message = message;
+        this.finishedAt = LocalDateTime.now();
+        this.state = State.FAILED;
+    }
+
+    public boolean isFinished() {
+        return state != State.RUNNING;
+    }
+}
@@ -0,0 +1,68 @@
+package com.nikolas.mechanicalmanagementsystem.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+/**
+ * Position of the last row of a listing page: the value of the sort column and the machine ID breaking the ties.
+ * It is passed between pages as an opaque, URL safe string.
+ */
+@Getter
+@AllArgsConstructor
+public class MachineListCursor {
+    private static final String SEPARATOR = "|";
+
+    private Object sortValue;
+    private Long id;
+
+    /**
+     * Creates the cursor pointing after the given row.
+     *
+     * @param row  The last row of the page.
+     * @param sort The sort column of the listing.
+     * @return The cursor of the row.
+     */
+    public static MachineListCursor of(MachineListRow row, MachineListSort sort) {
+        Object value = switch (sort) {
+            case DATE -> row.getRegistrationDate();
+            case PROFIT -> zeroIfNull(row.getProfit());
+            case CHARGED -> zeroIfNull(row.getChargedAmount());
+        };
+        return new MachineListCursor(value, row.getId());
+    }
+
+    public String encode() {
+        String raw = sortValue + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Parses a cursor created by {@link #encode()}.
+     *
+     * @param cursor The encoded cursor.
+     * @param sort   The sort column of the listing, determines the type of the sort value.
+     * @return The decoded cursor.
+     * @throws IllegalArgumentException If the cursor is malformed.
+     */
+    public static MachineListCursor decode(String cursor, MachineListSort sort) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.lastIndexOf(SEPARATOR);
+            String value = raw.substring(0, separator);
+            Long id = Long.valueOf(raw.substring(separator + 1));
+            Object sortValue = sort == MachineListSort.DATE ? LocalDateTime.parse(value) : new BigDecimal(value);
+            return new MachineListCursor(sortValue, id);
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid machine list cursor: " + cursor, e);
+        }
+    }
+
+    private static BigDecimal zeroIfNull(BigDecimal value) {
+        return value != null ? value : BigDecimal.ZERO;
+    }
+}
@@ -0,0 +1,24 @@
+package com.nikolas.mechanicalmanagementsystem.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.data.domain.Sort;
+
+import java.util.List;
+
+/**
+ * One page of the machine listing. The next page is requested with {@link #getNextCursor()},
+ * which is {@code null} on the last page.
+ */
+@Getter
+@AllArgsConstructor
+public class MachineListPage {
+    private List<MachineListRow> rows;
+    private MachineListSort sort;
+    private Sort.Direction direction;
+    private String nextCursor;
+
+    public boolean hasNext() {
+        return nextCursor != null;
+    }
+}
@@ -0,0 +1,25 @@
+package com.nikolas.mechanicalmanagementsystem.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * One row of the machine listing, holding only the columns shown in the machines table.
+ * Instances are created directly by the JPQL constructor expression of the listing query.
+ */
+@Getter
+@AllArgsConstructor
+public class MachineListRow {
+    private Long id;
+    private String machineBrand;
+    private String machineModel;
+    private BigDecimal machinePartsSum;
+    private BigDecimal chargedAmount;
+    private BigDecimal profit;
+    private LocalDateTime registrationDate;
+    private LocalDateTime finishedDate;
+    private String companyCountry;
+}
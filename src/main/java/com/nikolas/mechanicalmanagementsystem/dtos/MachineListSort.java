@@ -0,0 +1,18 @@
+package com.nikolas.mechanicalmanagementsystem.dtos;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * The columns the machine listing can be sorted by, with the JPQL expression used for ordering and for the keyset.
+ * Amounts may be null, they are ordered as zero.
+ */
+@Getter
+@RequiredArgsConstructor
+public enum MachineListSort {
+    DATE("m.registrationDate"),
+    PROFIT("COALESCE(m.profit, 0)"),
+    CHARGED("COALESCE(m.chargedAmount, 0)");
+
+    private final String expression;
+}
@@ -0,0 +1,16 @@
+package com.nikolas.mechanicalmanagementsystem.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * The company and the state of a machine, all that the access check needs.
+ * Instances are created directly by the JPQL constructor expression in {@code MachineRepository}.
+ */
+@Getter
+@AllArgsConstructor
+public class MachineOwnership {
+    private Long machineId;
+    private Long companyId;
+    private boolean active;
+}
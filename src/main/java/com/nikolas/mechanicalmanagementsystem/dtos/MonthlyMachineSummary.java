@@ -0,0 +1,40 @@
+package com.nikolas.mechanicalmanagementsystem.dtos;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Totals of the active machines of the selected companies in one month, with the per company breakdown.
+ */
+@Getter
+@RequiredArgsConstructor
+public class MonthlyMachineSummary {
+    private BigDecimal totalPartsAmount = BigDecimal.ZERO;
+    private BigDecimal totalChargedAmount = BigDecimal.ZERO;
+    private BigDecimal totalProfit = BigDecimal.ZERO;
+    private long machineCount;
+    private final Map<Long, CompanyMachineTotals> companyTotals = new LinkedHashMap<>();
+
+    /**
+     * Builds the summary from the per company rows returned by the aggregate query.
+     *
+     * @param rows The per company totals.
+     * @return The summary containing the grand totals and the per company breakdown.
+     */
+    public static MonthlyMachineSummary of(List<CompanyMachineTotals> rows) {
+        MonthlyMachineSummary summary = new MonthlyMachineSummary();
+        for (CompanyMachineTotals row : rows) {
+            summary.totalPartsAmount = summary.totalPartsAmount.add(row.getPartsAmount());
+            summary.totalChargedAmount = summary.totalChargedAmount.add(row.getChargedAmount());
+            summary.totalProfit = summary.totalProfit.add(row.getProfit());
+            summary.machineCount += row.getMachineCount();
+            summary.companyTotals.put(row.getCompanyId(), row);
+        }
+        return summary;
+    }
+}
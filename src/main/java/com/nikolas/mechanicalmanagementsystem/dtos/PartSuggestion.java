@@ -0,0 +1,17 @@
+package com.nikolas.mechanicalmanagementsystem.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+
+/**
+ * A part name used before in a company, with the price (without tax) it was last entered with.
+ * Instances are created directly by the JPQL constructor expression in {@code MachinePartRepository}.
+ */
+@Getter
+@AllArgsConstructor
+public class PartSuggestion {
+    private String name;
+    private BigDecimal lastPrice;
+}
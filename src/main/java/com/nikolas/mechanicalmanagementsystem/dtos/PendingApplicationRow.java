@@ -0,0 +1,21 @@
+package com.nikolas.mechanicalmanagementsystem.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+
+/**
+ * A job application of a company not accepted yet, with the columns of its applicant shown in the table.
+ * Instances are created directly by the JPQL constructor expression of the dashboard query.
+ */
+@Getter
+@AllArgsConstructor
+public class PendingApplicationRow {
+    private Long id;
+    private Long applicantId;
+    private String firstName;
+    private String lastName;
+    private String email;
+    private LocalDateTime registrationDate;
+}
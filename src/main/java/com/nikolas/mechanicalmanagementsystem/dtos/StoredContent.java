@@ -0,0 +1,14 @@
+package com.nikolas.mechanicalmanagementsystem.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * The result of storing image content: its SHA-256 hash, which is also its key in the storage, and its size in bytes.
+ */
+@Getter
+@AllArgsConstructor
+public class StoredContent {
+    private String hash;
+    private long size;
+}
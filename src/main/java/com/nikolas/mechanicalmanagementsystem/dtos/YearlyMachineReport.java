@@ -0,0 +1,46 @@
+package com.nikolas.mechanicalmanagementsystem.dtos;
+
+import com.nikolas.mechanicalmanagementsystem.utility.MoneyAccumulator;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Totals of the active machines of the selected companies over a range of years, per company and year.
+ */
+@Getter
+public class YearlyMachineReport {
+    private final int fromYear;
+    private final int toYear;
+    private final List<CompanyYearTotals> rows;
+    private final BigDecimal totalPartsAmount;
+    private final BigDecimal totalChargedAmount;
+    private final BigDecimal totalProfit;
+    private final long machineCount;
+
+    /**
+     * @param fromYear The first year of the report.
+     * @param toYear   The last year of the report.
+     * @param rows     The per company and year totals.
+     */
+    public YearlyMachineReport(int fromYear, int toYear, List<CompanyYearTotals> rows) {
+        this.fromYear = fromYear;
+        this.toYear = toYear;
+        this.rows = rows;
+        MoneyAccumulator parts = new MoneyAccumulator();
+        MoneyAccumulator charged = new MoneyAccumulator();
+        MoneyAccumulator profit = new MoneyAccumulator();
+        long count = 0;
+        for (CompanyYearTotals row : rows) {
+            parts.add(row.getPartsAmount());
+            charged.add(row.getChargedAmount());
+            profit.add(row.getProfit());
+            count += row.getMachineCount();
+        }
+        this.totalPartsAmount = parts.toBigDecimal();
+        this.totalChargedAmount = charged.toBigDecimal();
+        this.totalProfit = profit.toBigDecimal();
+        this.machineCount = count;
+    }
+}
@@ -9,6 +9,7 @@ import lombok.NoArgsConstructor;
 import lombok.Setter;
 import org.hibernate.Hibernate;
 import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.OptimisticLock;
 
 import java.time.LocalDateTime;
 import java.util.HashSet;
@@ -28,6 +29,11 @@ public class Company {
     @Column(name = "company_id")
     private Long id;
 
+    // Checked by the changes of the company details and of the employees
+    @Version
+    @Column(name = "version", nullable = false)
+    private Long version;
+
     @NotBlank(message = "Company name is required")
     @Size(min = 3, message = "Company name must be at least 3 characters long")
     @Column(name = "company_name")
@@ -55,6 +61,10 @@ public class Company {
     @Column(name = "registration_date", updatable = false)
     private LocalDateTime registrationDate;
 
+    // Set when the deletion starts: the company is hidden while its data is purged in the background
+    @Column(name = "deleted", nullable = false)
+    private boolean deleted;
+
     @ManyToMany(cascade = {CascadeType.PERSIST, CascadeType.MERGE})
     @JoinTable(
             name = "company_employees",
@@ -73,6 +83,7 @@ public class Company {
 
 
     @OneToMany(mappedBy = "company")
+    @OptimisticLock(excluded = true)
     private Set<JobApplication> jobApplications;
 
     public Set<JobApplication> getJobApplications() {
@@ -80,9 +91,11 @@ public class Company {
     }
 
     @OneToMany(mappedBy = "company")
+    @OptimisticLock(excluded = true)
     private Set<CompanyRole> companyRoles;
 
     @OneToMany(mappedBy = "company", cascade = CascadeType.ALL)
+    @OptimisticLock(excluded = true)
     private Set<Machine> machines = new HashSet<>();
 
     @Override
@@ -0,0 +1,50 @@
+package com.nikolas.mechanicalmanagementsystem.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+
+/**
+ * Running totals of the active machines of a company, registered in one month.
+ * Rows are maintained as deltas by the machine write paths, see {@code CompanyMonthlyRollupService}.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "company_monthly_rollup", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_company_monthly_rollup", columnNames = {"company_id", "rollup_year", "rollup_month"})
+})
+public class CompanyMonthlyRollup {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "company_id", nullable = false)
+    private Long companyId;
+
+    @Column(name = "rollup_year", nullable = false)
+    private int year;
+
+    @Column(name = "rollup_month", nullable = false)
+    private int month;
+
+    @Column(name = "parts_sum", nullable = false)
+    private BigDecimal partsSum = BigDecimal.ZERO;
+
+    @Column(name = "charged_sum", nullable = false)
+    private BigDecimal chargedSum = BigDecimal.ZERO;
+
+    @Column(name = "profit_sum", nullable = false)
+    private BigDecimal profitSum = BigDecimal.ZERO;
+
+    @Column(name = "machine_count", nullable = false)
+    private long machineCount;
+
+}
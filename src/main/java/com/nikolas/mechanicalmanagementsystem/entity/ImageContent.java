@@ -0,0 +1,28 @@
+package com.nikolas.mechanicalmanagementsystem.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+/**
+ * Image bytes of the database image storage backend, keyed by their SHA-256 hash.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "image_contents")
+public class ImageContent {
+
+    @Id
+    @Column(length = 64)
+    private String hash;
+
+    @Lob
+    @Column(name = "content", length = Images.MAX_IMAGE_SIZE, nullable = false)
+    private byte[] content;
+
+    @Column(name = "content_size", nullable = false)
+    private long size;
+
+}
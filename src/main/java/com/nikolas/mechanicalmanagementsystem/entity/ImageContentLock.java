@@ -0,0 +1,22 @@
+package com.nikolas.mechanicalmanagementsystem.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+/**
+ * The row locked by the transactions referring to or releasing stored image content of the same hash,
+ * see {@code ImageContentReleaseService}. It exists for both image storage backends.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "image_content_locks")
+public class ImageContentLock {
+
+    @Id
+    @Column(length = 64)
+    private String hash;
+
+}
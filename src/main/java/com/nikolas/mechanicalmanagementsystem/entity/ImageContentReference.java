@@ -0,0 +1,9 @@
+package com.nikolas.mechanicalmanagementsystem.entity;
+
+/**
+ * An entity referring to content in the image storage by its hash.
+ * The content is released by {@code ImageContentReleaseListener} when the last reference is removed.
+ */
+public interface ImageContentReference {
+    String getContentHash();
+}
@@ -0,0 +1,46 @@
+package com.nikolas.mechanicalmanagementsystem.entity;
+
+import com.nikolas.mechanicalmanagementsystem.service.ImageContentReleaseListener;
+import jakarta.persistence.*;
+import lombok.*;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@EntityListeners(ImageContentReleaseListener.class)
+@Table(name = "image_variants", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_image_variants_image_variant", columnNames = {"image_id", "variant"})
+}, indexes = {
+        @Index(name = "idx_image_variants_content_hash", columnList = "content_hash")
+})
+public class ImageVariant implements ImageContentReference {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "image_id")
+    private Images image;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "variant", length = 20, nullable = false)
+    private ImageVariantType variant;
+
+    @Column(length = 100, nullable = false)
+    private String type;
+
+    private int width;
+
+    private int height;
+
+    // The bytes are in the ImageStorage, so loading or cascading variants never reads them
+    @Column(name = "content_hash", length = 64, nullable = false)
+    private String contentHash;
+
+    @Column(name = "content_size", nullable = false)
+    private long contentSize;
+
+}
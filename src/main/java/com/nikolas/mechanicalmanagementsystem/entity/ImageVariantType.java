@@ -0,0 +1,16 @@
+package com.nikolas.mechanicalmanagementsystem.entity;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * The downscaled renditions generated for every uploaded image, with the maximum size of their longer side in pixels.
+ */
+@Getter
+@RequiredArgsConstructor
+public enum ImageVariantType {
+    THUMBNAIL(320),
+    PREVIEW(1280);
+
+    private final int maxDimension;
+}
@@ -1,17 +1,24 @@
 package com.nikolas.mechanicalmanagementsystem.entity;
 
+import com.nikolas.mechanicalmanagementsystem.service.ImageContentReleaseListener;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.Pattern;
 import jakarta.validation.constraints.Size;
 import lombok.*;
 
+import java.util.ArrayList;
+import java.util.List;
+
 @Getter
 @Setter
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
-@Table(name = "images")
-public class Images {
+@EntityListeners(ImageContentReleaseListener.class)
+@Table(name = "images", indexes = {
+        @Index(name = "idx_images_content_hash", columnList = "content_hash")
+})
+public class Images implements ImageContentReference {
 
     public static final int MAX_IMAGE_SIZE = 5 * 1024 * 1024; //5MB
     @Id
@@ -24,17 +31,23 @@ public class Images {
     @Pattern(regexp = "image/[a-zA-Z]+")
     private String type;
 
-    @Lob
-    @Column(name = "image", length = MAX_IMAGE_SIZE)
-    private byte[] picByte;
+    // SHA-256 of the content, the key of the content in the ImageStorage
+    @Column(name = "content_hash", length = 64)
+    private String contentHash;
 
+    @Column(name = "content_size")
+    private Long contentSize;
 
-    @Column(name = "base64_image", columnDefinition = "LONGTEXT")
-    private String base64Image;
+    // Set once every variant is stored, not needed or impossible to generate, the image is not processed again
+    @Column(name = "variants_done", nullable = false)
+    private boolean variantsDone;
 
     @ManyToOne
     @JoinColumn(name = "machine_id")
     private Machine machine;
 
+    @OneToMany(mappedBy = "image", cascade = CascadeType.ALL, orphanRemoval = true)
+    private List<ImageVariant> variants = new ArrayList<>();
+
 
 }
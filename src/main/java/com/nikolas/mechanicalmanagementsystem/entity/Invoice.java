@@ -0,0 +1,109 @@
+package com.nikolas.mechanicalmanagementsystem.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.Immutable;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An issued invoice. Everything shown on the invoice is copied from the company, the machine and its parts
+ * when the invoice is issued, so later changes of them never change an issued invoice.
+ * The company and the machine are referenced by ID only, the invoice outlives the deletion of the machine.
+ */
+@Getter
+@Builder
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@AllArgsConstructor
+@Immutable
+@Entity
+@Table(name = "invoices", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_invoices_company_number", columnNames = {"company_id", "invoice_number"})
+}, indexes = {
+        @Index(name = "idx_invoices_machine", columnList = "machine_id, id")
+})
+public class Invoice {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "company_id", nullable = false)
+    private Long companyId;
+
+    @Column(name = "machine_id", nullable = false)
+    private Long machineId;
+
+    // Gap-free sequence number within the company
+    @Column(name = "invoice_number", nullable = false)
+    private long invoiceNumber;
+
+    @Column(name = "issued_at", nullable = false)
+    private LocalDateTime issuedAt;
+
+    @Column(name = "due_date", nullable = false)
+    private LocalDateTime dueDate;
+
+    @Column(name = "issued_by")
+    private String issuedBy;
+
+    // Company at issue time
+    @Column(name = "company_name")
+    private String companyName;
+
+    @Column(name = "owner_name")
+    private String ownerName;
+
+    @Column(name = "deputy_leader_name")
+    private String deputyLeaderName;
+
+    @Column(name = "company_street")
+    private String companyStreet;
+
+    @Column(name = "company_location")
+    private String companyLocation;
+
+    @Column(name = "company_post_code")
+    private int companyPostCode;
+
+    @Column(name = "company_country")
+    private String companyCountry;
+
+    @Column(name = "company_id_number")
+    private Long companyIdentificationNumber;
+
+    @Column(name = "company_tin")
+    private Long companyTaxIdentificationNumber;
+
+    @Column(name = "company_vat_id")
+    private String companyVatIdentificationNumber;
+
+    // Machine at issue time
+    @Column(name = "machine_brand")
+    private String machineBrand;
+
+    @Column(name = "machine_model")
+    private String machineModel;
+
+    @Column(name = "machine_description", length = 1024)
+    private String machineDescription;
+
+    @Column(name = "machine_registration_date")
+    private LocalDateTime machineRegistrationDate;
+
+    @Column(name = "parts_sum")
+    private BigDecimal partsSum;
+
+    @Column(name = "charged_amount")
+    private BigDecimal chargedAmount;
+
+    @Builder.Default
+    @ElementCollection
+    @CollectionTable(name = "invoice_lines", joinColumns = @JoinColumn(name = "invoice_id"))
+    @OrderColumn(name = "line_number")
+    private List<InvoiceLine> lines = new ArrayList<>();
+
+}
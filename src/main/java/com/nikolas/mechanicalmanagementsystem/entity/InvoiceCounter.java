@@ -0,0 +1,25 @@
+package com.nikolas.mechanicalmanagementsystem.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+/**
+ * The last invoice number issued by a company, see {@code InvoiceCounterRepository}.
+ */
+@Getter
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "invoice_counters")
+public class InvoiceCounter {
+
+    @Id
+    @Column(name = "company_id")
+    private Long companyId;
+
+    @Column(name = "last_number", nullable = false)
+    private long lastNumber;
+
+}
@@ -0,0 +1,35 @@
+package com.nikolas.mechanicalmanagementsystem.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * A line item of an issued invoice, copied from a {@link MachinePart} at issue time.
+ */
+@Getter
+@NoArgsConstructor
+@AllArgsConstructor
+@Embeddable
+public class InvoiceLine {
+
+    @Column(name = "part_name")
+    private String partName;
+
+    @Column(name = "part_price")
+    private BigDecimal partPrice;
+
+    @Column(name = "unit_tax")
+    private BigDecimal unitTax;
+
+    @Column(name = "tax_in_percent")
+    private BigDecimal taxInPercent;
+
+    @Column(name = "part_price_with_tax")
+    private BigDecimal partPriceWithTax;
+
+}
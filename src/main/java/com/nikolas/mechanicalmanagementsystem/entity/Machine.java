@@ -8,6 +8,8 @@ import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.DynamicUpdate;
+import org.hibernate.annotations.OptimisticLock;
 import org.hibernate.annotations.UpdateTimestamp;
 
 import java.math.BigDecimal;
@@ -20,13 +22,25 @@ import java.util.List;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
-@Table(name = "machines")
+// Only the changed columns are written, so saving a machine does not overwrite the parts sum maintained in SQL
+@DynamicUpdate
+@Table(name = "machines", indexes = {
+        @Index(name = "idx_machines_company_active_registration", columnList = "company_id, is_active, registration_date")
+})
 public class Machine {
 
+    // Returned for the missing amounts; BigDecimal is immutable, so one instance is shared
+    public static final BigDecimal ZERO_AMOUNT = BigDecimal.valueOf(0.0);
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
+    // Checked by the updates of the machine details; the parts sum is changed in SQL by deltas and does not need it
+    @Version
+    @Column(name = "version", nullable = false)
+    private Long version;
+
     @NotBlank(message = "Machine brand is required")
     @Column(name = "machine_brand")
     private String machineBrand;
@@ -44,6 +58,7 @@ public class Machine {
 
 
     @OneToMany(mappedBy = "machine", cascade = CascadeType.ALL, orphanRemoval = true)
+    @OptimisticLock(excluded = true)
     private List<MachinePart> machineParts = new ArrayList<>();
 
     @Column(name = "charged_amount")
@@ -68,31 +83,33 @@ public class Machine {
     private BigDecimal taxInPercent;
 
     @OneToMany(mappedBy = "machine", cascade = {CascadeType.ALL})
+    @OptimisticLock(excluded = true)
     private List<Images> images = new ArrayList<>();
 
 
-    @ManyToOne
+    // Lazy: the access checks only need the ID, which the proxy has without loading the company
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "company_id")
     private Company company;
 
 
     public BigDecimal getTaxInPercent() {
         if (taxInPercent == null) {
-            return BigDecimal.valueOf(0.0);
+            return ZERO_AMOUNT;
         }
         return taxInPercent;
     }
 
     public BigDecimal getChargedAmount() {
         if (chargedAmount == null) {
-            return BigDecimal.valueOf(0.0);
+            return ZERO_AMOUNT;
         }
         return chargedAmount;
     }
 
     public BigDecimal getMachinePartsSum() {
         if (machinePartsSum == null) {
-            return BigDecimal.valueOf(0.0);
+            return ZERO_AMOUNT;
         }
         return machinePartsSum;
     }
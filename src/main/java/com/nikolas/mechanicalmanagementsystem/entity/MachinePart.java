@@ -21,8 +21,14 @@ import java.time.LocalDateTime;
 @Table(name = "machine_parts")
 public class MachinePart {
 
+    public static final String ID_SEQUENCE = "machine_parts_seq";
+    public static final int ID_ALLOCATION_SIZE = 50;
+
+    // IDs are allocated in blocks instead of by the insert, so the inserts of a bulk part entry can be batched
+    // (on MySQL the sequence is emulated with a table)
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "machine_part_id")
+    @SequenceGenerator(name = "machine_part_id", sequenceName = ID_SEQUENCE, allocationSize = ID_ALLOCATION_SIZE)
     private Long id;
 
     @NotBlank(message = "Machine part name is required")
@@ -52,14 +58,14 @@ public class MachinePart {
 
     public BigDecimal getPartPrice() {
         if (partPrice == null) {
-            return BigDecimal.valueOf(0.0);
+            return Machine.ZERO_AMOUNT;
         }
         return partPrice;
     }
 
     public BigDecimal getTaxInPercent() {
         if ( taxInPercent == null) {
-            return BigDecimal.valueOf(0.0);
+            return Machine.ZERO_AMOUNT;
         }
         return taxInPercent;
     }
@@ -0,0 +1,9 @@
+package com.nikolas.mechanicalmanagementsystem.exception;
+
+import org.springframework.security.authentication.AuthenticationServiceException;
+
+public class PasswordHashingBusyException extends AuthenticationServiceException {
+    public PasswordHashingBusyException(String message) {
+        super(message);
+    }
+}
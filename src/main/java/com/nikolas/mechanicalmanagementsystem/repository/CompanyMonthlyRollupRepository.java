@@ -0,0 +1,69 @@
+package com.nikolas.mechanicalmanagementsystem.repository;
+
+import com.nikolas.mechanicalmanagementsystem.dtos.CompanyMachineTotals;
+import com.nikolas.mechanicalmanagementsystem.entity.CompanyMonthlyRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+@Repository
+public interface CompanyMonthlyRollupRepository extends JpaRepository<CompanyMonthlyRollup, Long> {
+
+    @Query("SELECT new com.nikolas.mechanicalmanagementsystem.dtos.CompanyMachineTotals(r.companyId, r.partsSum, r.chargedSum, r.profitSum, r.machineCount) " +
+            "FROM CompanyMonthlyRollup r WHERE r.year = :year AND r.month = :month AND r.companyId IN :companies")
+    List<CompanyMachineTotals> findTotalsByYearAndMonthAndCompanyIdIn(@Param("year") int year,
+                                                                      @Param("month") int month,
+                                                                      @Param("companies") List<Long> companies);
+
+    // Upsert: creates the row of the month or adds the delta to the existing one (MySQL)
+    @Modifying
+    @Query(value = "INSERT INTO company_monthly_rollup (company_id, rollup_year, rollup_month, parts_sum, charged_sum, profit_sum, machine_count) " +
+            "VALUES (:companyId, :year, :month, :partsDelta, :chargedDelta, :profitDelta, :countDelta) " +
+            "ON DUPLICATE KEY UPDATE parts_sum = parts_sum + :partsDelta, charged_sum = charged_sum + :chargedDelta, " +
+            "profit_sum = profit_sum + :profitDelta, machine_count = machine_count + :countDelta", nativeQuery = true)
+    void applyDelta(@Param("companyId") Long companyId,
+                    @Param("year") int year,
+                    @Param("month") int month,
+                    @Param("partsDelta") BigDecimal partsDelta,
+                    @Param("chargedDelta") BigDecimal chargedDelta,
+                    @Param("profitDelta") BigDecimal profitDelta,
+                    @Param("countDelta") long countDelta);
+
+    @Modifying
+    @Query("DELETE FROM CompanyMonthlyRollup r WHERE r.companyId = :companyId AND r.year = :year AND r.month = :month")
+    void deleteByCompanyIdAndYearAndMonth(@Param("companyId") Long companyId, @Param("year") int year, @Param("month") int month);
+
+    @Modifying
+    @Query("DELETE FROM CompanyMonthlyRollup r WHERE r.companyId = :companyId")
+    void deleteByCompanyId(@Param("companyId") Long companyId);
+
+    @Modifying
+    @Query("DELETE FROM CompanyMonthlyRollup")
+    void deleteAllRows();
+
+    // Recomputes every row from the machines table (backfill and repair)
+    @Modifying
+    @Query(value = "INSERT INTO company_monthly_rollup (company_id, rollup_year, rollup_month, parts_sum, charged_sum, profit_sum, machine_count) " +
+            "SELECT m.company_id, YEAR(m.registration_date), MONTH(m.registration_date), " +
+            "SUM(COALESCE(m.machine_parts_sum, 0)), SUM(COALESCE(m.charged_amount, 0)), " +
+            "SUM(COALESCE(m.charged_amount, 0) - COALESCE(m.machine_parts_sum, 0)), COUNT(*) " +
+            "FROM machines m WHERE m.is_active = true AND m.company_id IS NOT NULL AND m.registration_date IS NOT NULL " +
+            "GROUP BY m.company_id, YEAR(m.registration_date), MONTH(m.registration_date)", nativeQuery = true)
+    int insertAllFromMachines();
+
+    // Recomputes the rows of one company from the machines table
+    @Modifying
+    @Query(value = "INSERT INTO company_monthly_rollup (company_id, rollup_year, rollup_month, parts_sum, charged_sum, profit_sum, machine_count) " +
+            "SELECT m.company_id, YEAR(m.registration_date), MONTH(m.registration_date), " +
+            "SUM(COALESCE(m.machine_parts_sum, 0)), SUM(COALESCE(m.charged_amount, 0)), " +
+            "SUM(COALESCE(m.charged_amount, 0) - COALESCE(m.machine_parts_sum, 0)), COUNT(*) " +
+            "FROM machines m WHERE m.is_active = true AND m.company_id = :companyId AND m.registration_date IS NOT NULL " +
+            "GROUP BY m.company_id, YEAR(m.registration_date), MONTH(m.registration_date)", nativeQuery = true)
+    int insertFromMachinesByCompanyId(@Param("companyId") Long companyId);
+
+}
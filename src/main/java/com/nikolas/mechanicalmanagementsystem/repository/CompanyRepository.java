@@ -1,10 +1,68 @@
 package com.nikolas.mechanicalmanagementsystem.repository;
 
+import com.nikolas.mechanicalmanagementsystem.dtos.CompanyDirectoryRow;
+import com.nikolas.mechanicalmanagementsystem.dtos.CompanyMemberRow;
+import com.nikolas.mechanicalmanagementsystem.dtos.CompanyProfile;
 import com.nikolas.mechanicalmanagementsystem.entity.Company;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+import java.util.Optional;
+
 @Repository
 public interface CompanyRepository extends JpaRepository<Company, Long> {
 
+    // The companies the user does not own, does not work at and has not applied to, as anti-joins:
+    // one query for the page and one for the count, whatever the number of companies
+    String JOINABLE_BY_USER = "FROM Company c WHERE c.deleted = false AND (c.owner IS NULL OR c.owner.id <> :userId) " +
+            "AND NOT EXISTS (SELECT 1 FROM JobApplication ja WHERE ja.company.id = c.id AND ja.employee.id = :userId) " +
+            "AND NOT EXISTS (SELECT 1 FROM Company ce JOIN ce.employees e WHERE ce.id = c.id AND e.id = :userId)";
+
+    @Query(value = "SELECT new com.nikolas.mechanicalmanagementsystem.dtos.CompanyDirectoryRow(c.id, c.companyName, c.country, c.location, c.street, c.postCode) " + JOINABLE_BY_USER,
+            countQuery = "SELECT COUNT(c) " + JOINABLE_BY_USER)
+    Page<CompanyDirectoryRow> findJoinableByUserId(@Param("userId") Long userId, Pageable pageable);
+
+    // The complement of the joinable companies: owned by the user, applied to or employing them
+    @Query("SELECT c.id FROM Company c LEFT JOIN c.owner o WHERE c.deleted = false AND (o.id = :userId " +
+            "OR EXISTS (SELECT 1 FROM JobApplication ja WHERE ja.company.id = c.id AND ja.employee.id = :userId) " +
+            "OR EXISTS (SELECT 1 FROM Company ce JOIN ce.employees e WHERE ce.id = c.id AND e.id = :userId))")
+    List<Long> findNotJoinableIdsByUserId(@Param("userId") Long userId);
+
+    // The details of the company page, with the names of the leaders joined instead of loading them with their roles
+    @Query("SELECT new com.nikolas.mechanicalmanagementsystem.dtos.CompanyProfile(c.id, c.companyName, c.description, c.country, c.location, c.street, c.postCode, " +
+            "c.identificationNumber, c.taxIdentificationNumber, c.valueAddedTaxIdentificationNumber, c.registrationDate, " +
+            "o.id, o.firstName, o.lastName, d.id, d.firstName, d.lastName) " +
+            "FROM Company c LEFT JOIN c.owner o LEFT JOIN c.deputyLeader d WHERE c.id = :companyId AND c.deleted = false")
+    Optional<CompanyProfile> findProfileById(@Param("companyId") Long companyId);
+
+    @Query("SELECT new com.nikolas.mechanicalmanagementsystem.dtos.CompanyMemberRow(e.id, e.firstName, e.lastName, e.email, e.registrationDate) " +
+            "FROM Company c JOIN c.employees e WHERE c.id = :companyId ORDER BY e.lastName, e.firstName, e.id")
+    List<CompanyMemberRow> findEmployeeRowsByCompanyId(@Param("companyId") Long companyId);
+
+    // Every company, for the search index
+    @Query("SELECT new com.nikolas.mechanicalmanagementsystem.dtos.CompanyDirectoryRow(c.id, c.companyName, c.country, c.location, c.street, c.postCode) FROM Company c WHERE c.deleted = false")
+    List<CompanyDirectoryRow> findAllDirectoryRows();
+
+    List<Company> findAllByDeletedFalse();
+
+    //------------------
+    // Deletion of a company: hidden first, purged later by the deletion job
+    @Modifying
+    @Query("UPDATE Company c SET c.deleted = true, c.version = c.version + 1 WHERE c.id = :companyId AND c.deleted = false")
+    int markDeletedById(@Param("companyId") Long companyId);
+
+    @Modifying
+    @Query(value = "DELETE FROM company_employees WHERE company_id = :companyId", nativeQuery = true)
+    int deleteEmployeeLinksByCompanyId(@Param("companyId") Long companyId);
+
+    @Modifying
+    @Query("DELETE FROM Company c WHERE c.id = :companyId AND c.deleted = true")
+    int deleteMarkedById(@Param("companyId") Long companyId);
+
 }
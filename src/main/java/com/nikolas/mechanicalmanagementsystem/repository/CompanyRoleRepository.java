@@ -2,9 +2,21 @@ package com.nikolas.mechanicalmanagementsystem.repository;
 
 import com.nikolas.mechanicalmanagementsystem.entity.CompanyRole;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+
 @Repository
 public interface CompanyRoleRepository extends JpaRepository<CompanyRole, Long> {
 
+    @Query("SELECT cr.role.id FROM CompanyRole cr WHERE cr.company.id = :companyId")
+    List<Long> findRoleIdsByCompanyId(@Param("companyId") Long companyId);
+
+    @Modifying
+    @Query("DELETE FROM CompanyRole cr WHERE cr.company.id = :companyId")
+    int deleteByCompanyId(@Param("companyId") Long companyId);
+
 }
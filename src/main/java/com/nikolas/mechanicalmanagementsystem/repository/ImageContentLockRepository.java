@@ -0,0 +1,22 @@
+package com.nikolas.mechanicalmanagementsystem.repository;
+
+import com.nikolas.mechanicalmanagementsystem.entity.ImageContentLock;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface ImageContentLockRepository extends JpaRepository<ImageContentLock, String> {
+
+    // Creates the row of the hash if it is missing and locks it until the transaction ends
+    @Modifying
+    @Query(value = "INSERT INTO image_content_locks (hash) VALUES (:hash) ON DUPLICATE KEY UPDATE hash = hash", nativeQuery = true)
+    void lock(@Param("hash") String hash);
+
+    @Modifying
+    @Query("DELETE FROM ImageContentLock l WHERE l.hash = :hash")
+    void deleteByHash(@Param("hash") String hash);
+
+}
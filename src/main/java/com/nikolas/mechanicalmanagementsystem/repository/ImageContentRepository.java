@@ -0,0 +1,17 @@
+package com.nikolas.mechanicalmanagementsystem.repository;
+
+import com.nikolas.mechanicalmanagementsystem.entity.ImageContent;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface ImageContentRepository extends JpaRepository<ImageContent, String> {
+
+    @Query("SELECT c.content FROM ImageContent c WHERE c.hash = :hash")
+    Optional<byte[]> findContentByHash(@Param("hash") String hash);
+
+}
@@ -0,0 +1,39 @@
+package com.nikolas.mechanicalmanagementsystem.repository;
+
+import com.nikolas.mechanicalmanagementsystem.entity.ImageVariant;
+import com.nikolas.mechanicalmanagementsystem.entity.ImageVariantType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface ImageVariantRepository extends JpaRepository<ImageVariant, Long> {
+
+    @Query("SELECT v.type FROM ImageVariant v WHERE v.image.id = :imageId AND v.variant = :variant")
+    Optional<String> findTypeByImageIdAndVariant(@Param("imageId") Long imageId, @Param("variant") ImageVariantType variant);
+
+    @Query("SELECT v.contentHash FROM ImageVariant v WHERE v.image.id = :imageId AND v.variant = :variant")
+    Optional<String> findContentHashByImageIdAndVariant(@Param("imageId") Long imageId, @Param("variant") ImageVariantType variant);
+
+    // IDs of the machine's images whose variants are not done yet
+    @Query("SELECT i.id FROM Images i WHERE i.machine.id = :machineId AND i.variantsDone = false ORDER BY i.id")
+    List<Long> findImageIdsWithMissingVariants(@Param("machineId") Long machineId);
+
+    boolean existsByImageIdAndVariant(Long imageId, ImageVariantType variant);
+
+    boolean existsByContentHash(String contentHash);
+
+    @Query("SELECT v.contentHash FROM ImageVariant v WHERE v.image.machine.id IN :machineIds AND v.contentHash IS NOT NULL")
+    List<String> findContentHashesByMachineIdIn(@Param("machineIds") List<Long> machineIds);
+
+    // Bulk delete: the content release listener is not called, the caller releases the content
+    @Modifying
+    @Query("DELETE FROM ImageVariant v WHERE v.image.id IN (SELECT i.id FROM Images i WHERE i.machine.id IN :machineIds)")
+    int deleteByMachineIdIn(@Param("machineIds") List<Long> machineIds);
+
+}
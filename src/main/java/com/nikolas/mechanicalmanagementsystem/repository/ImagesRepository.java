@@ -1,11 +1,45 @@
 package com.nikolas.mechanicalmanagementsystem.repository;
 
+import com.nikolas.mechanicalmanagementsystem.dtos.ImageMetadata;
 import com.nikolas.mechanicalmanagementsystem.entity.Images;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+import java.util.Optional;
+
 @Repository
 public interface ImagesRepository extends JpaRepository<Images, Long> {
 
+    @Query("SELECT new com.nikolas.mechanicalmanagementsystem.dtos.ImageMetadata(i.id, i.name, i.type, i.contentHash, m.id, m.company.id, m.isActive) " +
+            "FROM Images i JOIN i.machine m WHERE i.id = :imageId")
+    Optional<ImageMetadata> findMetadataById(@Param("imageId") Long imageId);
+
+    @Query("SELECT new com.nikolas.mechanicalmanagementsystem.dtos.ImageMetadata(i.id, i.name, i.type, i.contentHash, m.id, m.company.id, m.isActive) " +
+            "FROM Images i JOIN i.machine m WHERE m.id = :machineId ORDER BY i.id")
+    List<ImageMetadata> findMetadataByMachineId(@Param("machineId") Long machineId);
+
+    @Query("SELECT i.contentHash FROM Images i WHERE i.id = :imageId")
+    Optional<String> findContentHashById(@Param("imageId") Long imageId);
+
+    @Query("SELECT i.machine.id FROM Images i WHERE i.id = :imageId")
+    Optional<Long> findMachineIdById(@Param("imageId") Long imageId);
+
+    boolean existsByContentHash(String contentHash);
+
+    @Modifying
+    @Query("UPDATE Images i SET i.variantsDone = true WHERE i.id = :imageId")
+    int markVariantsDone(@Param("imageId") Long imageId);
+
+    @Query("SELECT i.contentHash FROM Images i WHERE i.machine.id IN :machineIds AND i.contentHash IS NOT NULL")
+    List<String> findContentHashesByMachineIdIn(@Param("machineIds") List<Long> machineIds);
+
+    // Bulk delete: the content release listener is not called, the caller releases the content
+    @Modifying
+    @Query("DELETE FROM Images i WHERE i.machine.id IN :machineIds")
+    int deleteByMachineIdIn(@Param("machineIds") List<Long> machineIds);
 
-}
\ No newline at end of file
+}
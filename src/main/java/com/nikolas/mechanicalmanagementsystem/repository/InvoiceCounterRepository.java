@@ -0,0 +1,32 @@
+package com.nikolas.mechanicalmanagementsystem.repository;
+
+import com.nikolas.mechanicalmanagementsystem.entity.InvoiceCounter;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface InvoiceCounterRepository extends JpaRepository<InvoiceCounter, Long> {
+
+    // Creates or increments the company's counter; the row stays locked until the transaction ends
+    @Modifying
+    @Query(value = "INSERT INTO invoice_counters (company_id, last_number) VALUES (:companyId, 1) " +
+            "ON DUPLICATE KEY UPDATE last_number = last_number + 1", nativeQuery = true)
+    void increment(@Param("companyId") Long companyId);
+
+    // Creates the company's counter if it is missing and locks it until the transaction ends, without changing it
+    @Modifying
+    @Query(value = "INSERT INTO invoice_counters (company_id, last_number) VALUES (:companyId, 0) " +
+            "ON DUPLICATE KEY UPDATE last_number = last_number", nativeQuery = true)
+    void lock(@Param("companyId") Long companyId);
+
+    @Query(value = "SELECT last_number FROM invoice_counters WHERE company_id = :companyId", nativeQuery = true)
+    long findLastNumber(@Param("companyId") Long companyId);
+
+    @Modifying
+    @Query("DELETE FROM InvoiceCounter c WHERE c.companyId = :companyId")
+    void deleteByCompanyId(@Param("companyId") Long companyId);
+
+}
@@ -0,0 +1,30 @@
+package com.nikolas.mechanicalmanagementsystem.repository;
+
+import com.nikolas.mechanicalmanagementsystem.entity.Invoice;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface InvoiceRepository extends JpaRepository<Invoice, Long> {
+
+    // The invoice with its lines in one query
+    @Query("SELECT i FROM Invoice i LEFT JOIN FETCH i.lines WHERE i.id = :id")
+    Optional<Invoice> findWithLinesById(@Param("id") Long id);
+
+    @Query("SELECT MAX(i.id) FROM Invoice i WHERE i.machineId = :machineId")
+    Optional<Long> findLatestIdByMachineId(@Param("machineId") Long machineId);
+
+    @Modifying
+    @Query(value = "DELETE FROM invoice_lines WHERE invoice_id IN (SELECT id FROM invoices WHERE company_id = :companyId)", nativeQuery = true)
+    void deleteLinesByCompanyId(@Param("companyId") Long companyId);
+
+    @Modifying
+    @Query("DELETE FROM Invoice i WHERE i.companyId = :companyId")
+    void deleteByCompanyId(@Param("companyId") Long companyId);
+
+}
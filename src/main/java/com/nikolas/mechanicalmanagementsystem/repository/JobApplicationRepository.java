@@ -1,9 +1,13 @@
 package com.nikolas.mechanicalmanagementsystem.repository;
 
+import com.nikolas.mechanicalmanagementsystem.dtos.PendingApplicationRow;
 import com.nikolas.mechanicalmanagementsystem.entity.Company;
 import com.nikolas.mechanicalmanagementsystem.entity.JobApplication;
 import com.nikolas.mechanicalmanagementsystem.entity.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -14,4 +18,13 @@ public interface JobApplicationRepository extends JpaRepository<JobApplication,
     Optional<JobApplication> findByEmployeeAndCompany(User employee, Company company);
     void deleteAllByEmployeeAndCompany(User user, Company company);
     List<JobApplication> findByEmployee(User user);
+
+    // The applications still waiting for a decision, filtered here instead of loading every application of the company
+    @Query("SELECT new com.nikolas.mechanicalmanagementsystem.dtos.PendingApplicationRow(ja.id, e.id, e.firstName, e.lastName, e.email, e.registrationDate) " +
+            "FROM JobApplication ja JOIN ja.employee e WHERE ja.company.id = :companyId AND ja.accepted = false ORDER BY ja.id")
+    List<PendingApplicationRow> findPendingRowsByCompanyId(@Param("companyId") Long companyId);
+
+    @Modifying
+    @Query("DELETE FROM JobApplication ja WHERE ja.company.id = :companyId")
+    int deleteByCompanyId(@Param("companyId") Long companyId);
 }
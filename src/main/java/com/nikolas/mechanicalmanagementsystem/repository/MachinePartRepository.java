@@ -1,16 +1,40 @@
 package com.nikolas.mechanicalmanagementsystem.repository;
 
+import com.nikolas.mechanicalmanagementsystem.dtos.PartSuggestion;
 import com.nikolas.mechanicalmanagementsystem.entity.MachinePart;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
+import java.util.List;
 
 @Repository
 public interface MachinePartRepository extends JpaRepository<MachinePart, Long> {
     @Query("SELECT SUM(mp.partPriceWithTax) FROM MachinePart mp WHERE mp.machine.id = :machineId")
     BigDecimal calculateTotalPartPriceByMachineId(@Param("machineId") Long machineId);
 
+    // Applies a tax rate to every part of the machines in one statement
+    @Modifying(flushAutomatically = true)
+    @Query(value = "UPDATE machine_parts SET tax_in_percent = :taxInPercent, " +
+            "unit_tax = machine_part_price * :taxFactor, " +
+            "part_price_with_tax = machine_part_price + machine_part_price * :taxFactor " +
+            "WHERE machine_id IN (:machineIds)", nativeQuery = true)
+    int updateTaxByMachineIdIn(@Param("machineIds") List<Long> machineIds,
+                               @Param("taxInPercent") BigDecimal taxInPercent,
+                               @Param("taxFactor") BigDecimal taxFactor);
+
+    // The last entered part of each part name of the company, the most recent first
+    @Query("SELECT new com.nikolas.mechanicalmanagementsystem.dtos.PartSuggestion(mp.partName, mp.partPrice) FROM MachinePart mp " +
+            "WHERE mp.id IN (SELECT MAX(p.id) FROM MachinePart p WHERE p.machine.company.id = :companyId GROUP BY p.partName) " +
+            "ORDER BY mp.id DESC")
+    List<PartSuggestion> findLatestPartsByCompanyId(@Param("companyId") Long companyId, Pageable pageable);
+
+    @Modifying
+    @Query("DELETE FROM MachinePart mp WHERE mp.machine.id IN :machineIds")
+    int deleteByMachineIdIn(@Param("machineIds") List<Long> machineIds);
+
 }
@@ -0,0 +1,93 @@
+package com.nikolas.mechanicalmanagementsystem.repository;
+
+import com.nikolas.mechanicalmanagementsystem.dtos.CompanyYearTotals;
+import com.nikolas.mechanicalmanagementsystem.utility.MoneyAccumulator;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Multi-year reports read with plain JDBC: the amounts are selected as whole cents and read as {@code long} columns,
+ * so summing the monthly rows into years creates no object per row.
+ */
+@Repository
+@RequiredArgsConstructor
+public class MachineReportRepository {
+
+    private static final String MONTHLY_ROWS = "SELECT r.company_id, r.rollup_year, " +
+            "ROUND(r.parts_sum * 100) AS parts_cents, ROUND(r.charged_sum * 100) AS charged_cents, " +
+            "ROUND(r.profit_sum * 100) AS profit_cents, r.machine_count " +
+            "FROM company_monthly_rollup r " +
+            "WHERE r.company_id IN (:companyIds) AND r.rollup_year BETWEEN :fromYear AND :toYear " +
+            "ORDER BY r.company_id, r.rollup_year";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+
+    /**
+     * @param companyIds The IDs of the companies, not empty.
+     * @param fromYear   The first year.
+     * @param toYear     The last year.
+     * @return The totals of each company and year having machines, ordered by company and year.
+     */
+    public List<CompanyYearTotals> findYearlyTotals(List<Long> companyIds, int fromYear, int toYear) {
+        MapSqlParameterSource parameters = new MapSqlParameterSource()
+                .addValue("companyIds", companyIds)
+                .addValue("fromYear", fromYear)
+                .addValue("toYear", toYear);
+        YearlyTotalsCollector collector = new YearlyTotalsCollector();
+        jdbcTemplate.query(MONTHLY_ROWS, parameters, collector);
+        return collector.finish();
+    }
+
+    // Sums the consecutive monthly rows of the same company and year
+    private static class YearlyTotalsCollector implements RowCallbackHandler {
+        private final List<CompanyYearTotals> totals = new ArrayList<>();
+        private boolean grouping;
+        private long companyId;
+        private int year;
+        private MoneyAccumulator parts;
+        private MoneyAccumulator charged;
+        private MoneyAccumulator profit;
+        private long machineCount;
+
+        @Override
+        public void processRow(ResultSet rs) throws SQLException {
+            long rowCompanyId = rs.getLong("company_id");
+            int rowYear = rs.getInt("rollup_year");
+            if (!grouping || companyId != rowCompanyId || year != rowYear) {
+                finishGroup();
+                grouping = true;
+                companyId = rowCompanyId;
+                year = rowYear;
+                parts = new MoneyAccumulator();
+                charged = new MoneyAccumulator();
+                profit = new MoneyAccumulator();
+                machineCount = 0;
+            }
+            parts.addCents(rs.getLong("parts_cents"));
+            charged.addCents(rs.getLong("charged_cents"));
+            profit.addCents(rs.getLong("profit_cents"));
+            machineCount += rs.getLong("machine_count");
+        }
+
+        private void finishGroup() {
+            if (grouping) {
+                totals.add(new CompanyYearTotals(companyId, year, parts.toBigDecimal(), charged.toBigDecimal(),
+                        profit.toBigDecimal(), machineCount));
+            }
+        }
+
+        private List<CompanyYearTotals> finish() {
+            finishGroup();
+            return totals;
+        }
+    }
+}
@@ -1,18 +1,33 @@
 package com.nikolas.mechanicalmanagementsystem.repository;
 
+import com.nikolas.mechanicalmanagementsystem.dtos.CompanyMachineTotals;
+import com.nikolas.mechanicalmanagementsystem.dtos.MachineListCursor;
+import com.nikolas.mechanicalmanagementsystem.dtos.MachineListRow;
+import com.nikolas.mechanicalmanagementsystem.dtos.MachineListSort;
+import com.nikolas.mechanicalmanagementsystem.dtos.MachineOwnership;
 import com.nikolas.mechanicalmanagementsystem.entity.Machine;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 
 
 @Repository
-public interface MachineRepository extends JpaRepository<Machine, Long> {
+public interface MachineRepository extends JpaRepository<Machine, Long>, MachineRepositoryCustom {
+
+    // The company ID is read from the foreign key, the company is not joined
+    @Query("SELECT new com.nikolas.mechanicalmanagementsystem.dtos.MachineOwnership(m.id, m.company.id, m.isActive) " +
+            "FROM Machine m WHERE m.id = :machineId")
+    Optional<MachineOwnership> findOwnershipById(@Param("machineId") Long machineId);
 
     @Query("SELECT m FROM Machine m WHERE m.isActive = false")
     List<Machine> findAllByRegistrationDateDeleted();
@@ -21,6 +36,59 @@ public interface MachineRepository extends JpaRepository<Machine, Long> {
     @Query(value = "UPDATE Machine SET isActive = false WHERE id = :machineId")
     void deactivateMachine(@Param("machineId") Long machineId);
 
+    // Adds the price of an added (or subtracts the price of a removed) part atomically, concurrent part changes are not lost.
+    // The profit is assigned first: MySQL evaluates the assignments from left to right
+    @Modifying(flushAutomatically = true)
+    @Query(value = "UPDATE machines SET profit = COALESCE(charged_amount, 0) - COALESCE(machine_parts_sum, 0) - :partsDelta, " +
+            "machine_parts_sum = COALESCE(machine_parts_sum, 0) + :partsDelta, last_modified_date = CURRENT_TIMESTAMP " +
+            "WHERE id = :machineId", nativeQuery = true)
+    int addToPartsSum(@Param("machineId") Long machineId, @Param("partsDelta") BigDecimal partsDelta);
+
+    // The profit from the stored amounts, after the charged amount was changed
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Machine m SET m.profit = COALESCE(m.chargedAmount, 0) - COALESCE(m.machinePartsSum, 0) WHERE m.id = :machineId")
+    int recalculateProfitById(@Param("machineId") Long machineId);
+
+    //------------------
+    // Verification and repair of the maintained parts sums: the machines whose stored parts sum or profit
+    // differs from the sum of their parts
+    @Query("SELECT m.id FROM Machine m WHERE m.id > :afterId AND (" +
+            "COALESCE(m.machinePartsSum, 0) <> COALESCE((SELECT SUM(mp.partPriceWithTax) FROM MachinePart mp WHERE mp.machine.id = m.id), 0) " +
+            "OR m.profit IS NULL OR m.profit <> COALESCE(m.chargedAmount, 0) - COALESCE(m.machinePartsSum, 0)) " +
+            "ORDER BY m.id")
+    List<Long> findIdsWithInconsistentPartsSum(@Param("afterId") Long afterId, Pageable pageable);
+
+    @Modifying
+    @Query("UPDATE Machine m SET " +
+            "m.machinePartsSum = COALESCE((SELECT SUM(mp.partPriceWithTax) FROM MachinePart mp WHERE mp.machine.id = m.id), 0), " +
+            "m.profit = COALESCE(m.chargedAmount, 0) - COALESCE((SELECT SUM(mp.partPriceWithTax) FROM MachinePart mp WHERE mp.machine.id = m.id), 0) " +
+            "WHERE m.id IN :machineIds")
+    int recalculatePartsSumsByIdIn(@Param("machineIds") List<Long> machineIds);
+
+    // Stores the tax rate and recomputes the parts sum and the profit from the parts, in one statement
+    @Modifying
+    @Query("UPDATE Machine m SET m.taxInPercent = :taxInPercent, " +
+            "m.machinePartsSum = COALESCE((SELECT SUM(mp.partPriceWithTax) FROM MachinePart mp WHERE mp.machine.id = m.id), 0), " +
+            "m.profit = COALESCE(m.chargedAmount, 0) - COALESCE((SELECT SUM(mp.partPriceWithTax) FROM MachinePart mp WHERE mp.machine.id = m.id), 0), " +
+            "m.finishedDate = CURRENT_TIMESTAMP " +
+            "WHERE m.id IN :machineIds")
+    int updateTaxAndRecalculateSumsByIdIn(@Param("machineIds") List<Long> machineIds, @Param("taxInPercent") BigDecimal taxInPercent);
+
+    @Query("SELECT m.id FROM Machine m WHERE m.company.id = :companyId AND m.isActive = true AND m.id > :afterId ORDER BY m.id")
+    List<Long> findActiveMachineIdsByCompanyId(@Param("companyId") Long companyId, @Param("afterId") Long afterId, Pageable pageable);
+
+    long countByCompanyIdAndIsActive(Long companyId, boolean isActive);
+
+    // Every machine of the company, deactivated ones included, for the deletion of the company
+    @Query("SELECT m.id FROM Machine m WHERE m.company.id = :companyId AND m.id > :afterId ORDER BY m.id")
+    List<Long> findMachineIdsByCompanyId(@Param("companyId") Long companyId, @Param("afterId") Long afterId, Pageable pageable);
+
+    long countByCompanyId(Long companyId);
+
+    @Modifying
+    @Query("DELETE FROM Machine m WHERE m.id IN :machineIds")
+    int deleteByIdIn(@Param("machineIds") List<Long> machineIds);
+
 //------------------
     default List<Machine> findByYearAndMonthAndCompanyIdInAndIsActive(Integer year, Integer month, List<Long> companies, boolean isActive) {
         LocalDateTime startOfMonth = LocalDateTime.of(year, month, 1, 0, 0);
@@ -30,4 +98,58 @@ public interface MachineRepository extends JpaRepository<Machine, Long> {
     //Spring Data JPA "query derivation"
 //    List<Machine> findByRegistrationDateBetweenAndCompanyIdInAndIsActive(LocalDateTime start, LocalDateTime end, List<Long> companies, boolean isActive);
     List<Machine> findByRegistrationDateBetweenAndCompanyIdInAndIsActive(LocalDateTime start, LocalDateTime end, List<Long> companies, boolean isActive);
+
+    //------------------
+    // The selection above, one page of IDs at a time, for jobs walking over every machine of a month
+    default List<Long> findActiveMachineIdsByYearAndMonthAndCompanyIdIn(Integer year, Integer month, List<Long> companies, Long afterId, int limit) {
+        LocalDateTime startOfMonth = LocalDateTime.of(year, month, 1, 0, 0);
+        LocalDateTime endOfMonth = startOfMonth.plusMonths(1);
+        return findActiveMachineIdsByRegistrationDateBetween(startOfMonth, endOfMonth, companies, afterId, PageRequest.of(0, limit));
+    }
+
+    @Query("SELECT m.id FROM Machine m " +
+            "WHERE m.registrationDate BETWEEN :start AND :end AND m.company.id IN :companies " +
+            "AND m.isActive = true AND m.id > :afterId " +
+            "ORDER BY m.id")
+    List<Long> findActiveMachineIdsByRegistrationDateBetween(@Param("start") LocalDateTime start,
+                                                             @Param("end") LocalDateTime end,
+                                                             @Param("companies") List<Long> companies,
+                                                             @Param("afterId") Long afterId,
+                                                             Pageable pageable);
+
+    default long countActiveMachinesByYearAndMonthAndCompanyIdIn(Integer year, Integer month, List<Long> companies) {
+        LocalDateTime startOfMonth = LocalDateTime.of(year, month, 1, 0, 0);
+        LocalDateTime endOfMonth = startOfMonth.plusMonths(1);
+        return countByRegistrationDateBetweenAndCompanyIdInAndIsActive(startOfMonth, endOfMonth, companies, true);
+    }
+
+    long countByRegistrationDateBetweenAndCompanyIdInAndIsActive(LocalDateTime start, LocalDateTime end, List<Long> companies, boolean isActive);
+
+    //------------------
+    default List<CompanyMachineTotals> sumActiveMachinesByYearAndMonthAndCompanyIdIn(Integer year, Integer month, List<Long> companies) {
+        LocalDateTime startOfMonth = LocalDateTime.of(year, month, 1, 0, 0);
+        LocalDateTime endOfMonth = startOfMonth.plusMonths(1);
+        return sumActiveMachinesByRegistrationDateAndCompanyIdIn(startOfMonth, endOfMonth, companies);
+    }
+
+    // One aggregate query (per company) instead of loading every machine of the month
+    @Query("SELECT new com.nikolas.mechanicalmanagementsystem.dtos.CompanyMachineTotals(m.company.id, " +
+            "SUM(COALESCE(m.machinePartsSum, 0)), SUM(COALESCE(m.chargedAmount, 0)), " +
+            "SUM(COALESCE(m.chargedAmount, 0) - COALESCE(m.machinePartsSum, 0)), COUNT(m)) " +
+            "FROM Machine m " +
+            "WHERE m.company.id IN :companies AND m.isActive = true " +
+            "AND m.registrationDate >= :start AND m.registrationDate < :end " +
+            "GROUP BY m.company.id")
+    List<CompanyMachineTotals> sumActiveMachinesByRegistrationDateAndCompanyIdIn(@Param("start") LocalDateTime start,
+                                                                               @Param("end") LocalDateTime end,
+                                                                               @Param("companies") List<Long> companies);
+
+    //------------------
+    default List<MachineListRow> findActiveMachineRowsByYearAndMonth(Integer year, Integer month, List<Long> companies,
+                                                                     MachineListSort sort, Sort.Direction direction,
+                                                                     MachineListCursor after, int limit) {
+        LocalDateTime startOfMonth = LocalDateTime.of(year, month, 1, 0, 0);
+        LocalDateTime endOfMonth = startOfMonth.plusMonths(1);
+        return findActiveMachineRows(startOfMonth, endOfMonth, companies, sort, direction, after, limit);
+    }
 }
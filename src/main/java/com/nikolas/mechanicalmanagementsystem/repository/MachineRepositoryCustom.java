@@ -0,0 +1,15 @@
+package com.nikolas.mechanicalmanagementsystem.repository;
+
+import com.nikolas.mechanicalmanagementsystem.dtos.MachineListCursor;
+import com.nikolas.mechanicalmanagementsystem.dtos.MachineListRow;
+import com.nikolas.mechanicalmanagementsystem.dtos.MachineListSort;
+import org.springframework.data.domain.Sort;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface MachineRepositoryCustom {
+    List<MachineListRow> findActiveMachineRows(LocalDateTime start, LocalDateTime end, List<Long> companies,
+                                               MachineListSort sort, Sort.Direction direction,
+                                               MachineListCursor after, int limit);
+}
@@ -0,0 +1,64 @@
+package com.nikolas.mechanicalmanagementsystem.repository;
+
+import com.nikolas.mechanicalmanagementsystem.dtos.MachineListCursor;
+import com.nikolas.mechanicalmanagementsystem.dtos.MachineListRow;
+import com.nikolas.mechanicalmanagementsystem.dtos.MachineListSort;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import org.springframework.data.domain.Sort;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public class MachineRepositoryCustomImpl implements MachineRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * Retrieves one page of the active machines of the selected companies registered in the given period,
+     * as row projections, using keyset pagination on (sort column, id).
+     * The sort expression comes from {@link MachineListSort}, never from the request, so it is safe to concatenate.
+     *
+     * @param start     The start of the period (inclusive).
+     * @param end       The end of the period (exclusive).
+     * @param companies The IDs of the selected companies.
+     * @param sort      The sort column.
+     * @param direction The sort direction.
+     * @param after     The position of the last row of the previous page, or {@code null} for the first page.
+     * @param limit     The maximum number of rows to return.
+     * @return The rows of the page.
+     */
+    @Override
+    public List<MachineListRow> findActiveMachineRows(LocalDateTime start, LocalDateTime end, List<Long> companies,
+                                                      MachineListSort sort, Sort.Direction direction,
+                                                      MachineListCursor after, int limit) {
+        String expression = sort.getExpression();
+        String order = direction.isAscending() ? "ASC" : "DESC";
+        String comparison = direction.isAscending() ? ">" : "<";
+
+        StringBuilder jpql = new StringBuilder("SELECT new com.nikolas.mechanicalmanagementsystem.dtos.MachineListRow(" +
+                "m.id, m.machineBrand, m.machineModel, m.machinePartsSum, m.chargedAmount, m.profit, " +
+                "m.registrationDate, m.finishedDate, c.country) " +
+                "FROM Machine m JOIN m.company c " +
+                "WHERE c.id IN :companies AND m.isActive = true " +
+                "AND m.registrationDate >= :start AND m.registrationDate < :end");
+        if (after != null) {
+            jpql.append(" AND (").append(expression).append(' ').append(comparison).append(" :afterValue")
+                    .append(" OR (").append(expression).append(" = :afterValue AND m.id ").append(comparison).append(" :afterId))");
+        }
+        jpql.append(" ORDER BY ").append(expression).append(' ').append(order).append(", m.id ").append(order);
+
+        TypedQuery<MachineListRow> query = entityManager.createQuery(jpql.toString(), MachineListRow.class)
+                .setParameter("companies", companies)
+                .setParameter("start", start)
+                .setParameter("end", end)
+                .setMaxResults(limit);
+        if (after != null) {
+            query.setParameter("afterValue", after.getSortValue());
+            query.setParameter("afterId", after.getId());
+        }
+        return query.getResultList();
+    }
+}
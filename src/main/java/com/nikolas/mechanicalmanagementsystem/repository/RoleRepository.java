@@ -2,12 +2,20 @@ package com.nikolas.mechanicalmanagementsystem.repository;
 
 import com.nikolas.mechanicalmanagementsystem.entity.Role;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface RoleRepository extends JpaRepository<Role, Long> {
     Optional<Role> findByRoleName(String roleName);
 
+    @Modifying
+    @Query("DELETE FROM Role r WHERE r.id IN :roleIds")
+    int deleteByIdIn(@Param("roleIds") List<Long> roleIds);
+
 }
\ No newline at end of file
@@ -1,9 +1,9 @@
 package com.nikolas.mechanicalmanagementsystem.repository;
 
 import com.nikolas.mechanicalmanagementsystem.entity.Company;
-import com.nikolas.mechanicalmanagementsystem.entity.Role;
 import com.nikolas.mechanicalmanagementsystem.entity.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -17,8 +17,20 @@ public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByEmail(String email);
     boolean existsByEmail(String email);
     User save(User user);
-    List<User> findByRolesContains(Role role);
-    @Query("SELECT u.workplaces FROM User u WHERE u.email = :email")
+    @Query("SELECT c FROM User u JOIN u.workplaces c WHERE u.email = :email AND c.deleted = false")
     List<Company> findWorkplacesByEmail(@Param("email") String email);
+    @Query("SELECT DISTINCT cr.company.id FROM User u JOIN u.roles r JOIN r.companyRoles cr WHERE u.id = :userId AND cr.company.deleted = false")
+    List<Long> findAccessibleCompanyIdsById(@Param("userId") Long userId);
+    @Modifying
+    @Query("UPDATE User u SET u.password = :password WHERE u.id = :userId")
+    int updatePasswordById(@Param("userId") Long userId, @Param("password") String password);
+
+    @Query("SELECT DISTINCT u.id FROM User u JOIN u.roles r WHERE r.id IN :roleIds")
+    List<Long> findIdsByRoleIdIn(@Param("roleIds") List<Long> roleIds);
+
+    // Removes the roles from every user in one statement, the users are not loaded
+    @Modifying
+    @Query(value = "DELETE FROM user_roles WHERE role_id IN (:roleIds)", nativeQuery = true)
+    int deleteRoleLinksByRoleIdIn(@Param("roleIds") List<Long> roleIds);
 
 }
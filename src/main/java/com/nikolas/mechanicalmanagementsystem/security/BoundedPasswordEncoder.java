@@ -0,0 +1,75 @@
+package com.nikolas.mechanicalmanagementsystem.security;
+
+import com.nikolas.mechanicalmanagementsystem.exception.PasswordHashingBusyException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Password encoder hashing on a dedicated, bounded executor. Password hashes are slow on purpose, so a burst of
+ * logins or registrations would take every core from the request threads rendering pages; here at most the pool size
+ * of hashes run at the same time and the requests wait for theirs. When the queue is full too, nothing is hashed and
+ * {@link PasswordHashingBusyException} is thrown.
+ * The time spent waiting and hashing is recorded in the {@code app.password.hashing} timer, the rejected requests
+ * in the {@code app.password.hashing.rejected} counter; the queue depth is the {@code executor.queued} gauge of the executor.
+ */
+@Slf4j
+public class BoundedPasswordEncoder implements PasswordEncoder {
+
+    private final PasswordEncoder delegate;
+    private final Executor executor;
+    private final Timer encodeTimer;
+    private final Timer matchesTimer;
+    private final Counter rejected;
+
+    public BoundedPasswordEncoder(PasswordEncoder delegate, Executor executor, MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.executor = executor;
+        this.encodeTimer = meterRegistry.timer("app.password.hashing", "operation", "encode");
+        this.matchesTimer = meterRegistry.timer("app.password.hashing", "operation", "matches");
+        this.rejected = meterRegistry.counter("app.password.hashing.rejected");
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return hash(encodeTimer, () -> delegate.encode(rawPassword));
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return hash(matchesTimer, () -> delegate.matches(rawPassword, encodedPassword));
+    }
+
+    // Only reads the format of the hash, nothing is hashed
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return delegate.upgradeEncoding(encodedPassword);
+    }
+
+    private <T> T hash(Timer timer, Supplier<T> hashing) {
+        long start = System.nanoTime();
+        try {
+            return CompletableFuture.supplyAsync(hashing, executor).join();
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            log.warn("BoundedPasswordEncoder::hash - Password hashing queue is full, request rejected");
+            throw new PasswordHashingBusyException("Too many password checks at the same time, try again later");
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        } finally {
+            timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+}
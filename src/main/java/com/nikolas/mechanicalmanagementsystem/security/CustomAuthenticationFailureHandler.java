@@ -1,5 +1,6 @@
 package com.nikolas.mechanicalmanagementsystem.security;
 
+import com.nikolas.mechanicalmanagementsystem.exception.PasswordHashingBusyException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.extern.slf4j.Slf4j;
@@ -52,6 +53,10 @@ public class CustomAuthenticationFailureHandler implements AuthenticationFailure
             log.error("CustomAuthenticationFailureHandler::onAuthenticationFailure - Unsuccessful login: {} User email: {}", exception.getMessage(), email);
             response.sendRedirect("/system/login?maximum_session");
         }
+        else if (exception instanceof PasswordHashingBusyException) {
+            log.error("CustomAuthenticationFailureHandler::onAuthenticationFailure - Unsuccessful login: {} User email: {}", exception.getMessage(), email);
+            response.sendRedirect("/system/login?busy");
+        }
         else {
             log.error("CustomAuthenticationFailureHandler::onAuthenticationFailure - Unsuccessful login: {}, E-mail: {}", exception.getMessage(), email);
             response.sendRedirect("/system/login?error");
@@ -1,8 +1,6 @@
 package com.nikolas.mechanicalmanagementsystem.security;
 
 import com.nikolas.mechanicalmanagementsystem.entity.User;
-import jakarta.validation.constraints.NotNull;
-import jakarta.validation.constraints.Null;
 import lombok.*;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
@@ -19,48 +17,56 @@ import java.util.stream.Collectors;
 @NoArgsConstructor
 public class CustomUserDetails implements UserDetails {
 
+    // Replaced when the roles or memberships of the user change, see PrincipalVersionRegistry
     @NonNull
-    private User user;
+    private volatile UserSnapshot snapshot;
+    private String password;
+    private boolean enabled;
+    private boolean accountNonLocked;
+
+    public CustomUserDetails(User user, UserSnapshot snapshot) {
+        this(snapshot, user.getPassword(), user.isEnabled(), user.isAccountNonLocked());
+    }
 
     public String getFirstName() {
-        return user.getFirstName();
+        return snapshot.getFirstName();
     }
 
     public String getLastName() {
-        return user.getLastName();
+        return snapshot.getLastName();
     }
 
     public String getEmail() {
-        return user.getEmail();
+        return snapshot.getEmail();
     }
 
     public Long getId() {
-        return user.getId();
+        return snapshot.getId();
     }
     @Override
     public Collection<? extends GrantedAuthority> getAuthorities() {
-        return user.getRoles().stream()
-                .map(role -> new SimpleGrantedAuthority("ROLE_" + role.getRoleName()))
+        return snapshot.getRoleNames().stream()
+                .map(roleName -> new SimpleGrantedAuthority("ROLE_" + roleName))
                 .collect(Collectors.toList());
     }
 
     @Override
     public String getPassword() {
-        return user.getPassword();
+        return password;
     }
 
     @Override
     public String getUsername() {
-        return user.getFirstName() + " " + user.getLastName();
+        return snapshot.getFullName();
     }
 
     @Override
     public boolean isEnabled() {
-        return user.isEnabled();
+        return enabled;
     }
     @Override
     public boolean isAccountNonLocked() {
-        return user.isAccountNonLocked();
+        return accountNonLocked;
     }
     @Override
     public boolean isAccountNonExpired() {
@@ -2,17 +2,22 @@ package com.nikolas.mechanicalmanagementsystem.security;
 
 import com.nikolas.mechanicalmanagementsystem.entity.User;
 import com.nikolas.mechanicalmanagementsystem.repository.UserRepository;
+import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 
+@Slf4j
 @Service
 @RequiredArgsConstructor
-public class CustomUserDetailsService implements UserDetailsService {
+public class CustomUserDetailsService implements UserDetailsService, UserDetailsPasswordService {
 
     private final UserRepository userRepository;
+    private final PrincipalVersionRegistry principalVersionRegistry;
 
     /**
      * Loads a user from the database based on the given email.
@@ -26,10 +31,37 @@ public class CustomUserDetailsService implements UserDetailsService {
         // Find the user in the database by email
         User user = userRepository.findByEmail(email)
                 .orElseThrow(() -> new UsernameNotFoundException("User not found with email: " + email));
-        // Return a UserDetails object representing the loaded user
-        return new CustomUserDetails(user);
+        // Return a UserDetails object representing the loaded user, with the snapshot kept in the session
+        return new CustomUserDetails(user, createSnapshot(user, principalVersionRegistry.currentVersion(user.getId())));
     }
 
-}
+    /**
+     * Creates the session snapshot of a user, with the companies the roles of the user give access to.
+     *
+     * @param user    the user, with its roles
+     * @param version the version of the user in {@link PrincipalVersionRegistry}, read before the companies are loaded
+     * @return the snapshot of the user
+     */
+    public UserSnapshot createSnapshot(User user, long version) {
+        return UserSnapshot.of(user, userRepository.findAccessibleCompanyIdsById(user.getId()), version);
+    }
 
+    /**
+     * Stores the password of a user hashed again after a successful login, when its hash has an older format or a lower
+     * cost than the password encoder creates now.
+     *
+     * @param user        the logged-in user
+     * @param newPassword the new hash of the password
+     * @return the user with the new hash
+     */
+    @Override
+    @Transactional
+    public UserDetails updatePassword(UserDetails user, String newPassword) {
+        CustomUserDetails userDetails = (CustomUserDetails) user;
+        userRepository.updatePasswordById(userDetails.getSnapshot().getId(), newPassword);
+        userDetails.setPassword(newPassword);
+        log.info("CustomUserDetailsService::updatePassword - Password hash of user {} upgraded", userDetails.getEmail());
+        return userDetails;
+    }
 
+}
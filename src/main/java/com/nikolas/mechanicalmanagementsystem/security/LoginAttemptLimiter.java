@@ -0,0 +1,142 @@
+package com.nikolas.mechanicalmanagementsystem.security;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throttles the login attempts per e-mail address and per client IP address with token buckets, before the user is
+ * loaded and the password is checked. Every attempt takes a token from the bucket of its e-mail and of its IP; the
+ * buckets refill continuously, so the limit decays with time. A full bucket is the same as no bucket, so only the most
+ * recently used buckets are kept.
+ * The buckets are split into stripes by the hash of their key, each stripe with its own lock and its own share of the
+ * bucket limit, so concurrent logins rarely wait for each other.
+ * The allowed and rejected attempts are counted in {@code app.login.attempts}, the tracked buckets are
+ * the {@code app.login.buckets} gauge.
+ */
+@Slf4j
+@Component
+public class LoginAttemptLimiter {
+
+    private static final int STRIPES = 16;
+    private static final long NANOS_PER_MINUTE = TimeUnit.MINUTES.toNanos(1);
+
+    private final Stripe[] stripes = new Stripe[STRIPES];
+    private final Counter allowed;
+    private final Counter rejectedByEmail;
+    private final Counter rejectedByIp;
+
+    @Value("${app.security.login-throttling.email.capacity:10}")
+    private int emailCapacity = 10;
+    @Value("${app.security.login-throttling.email.refill-per-minute:5}")
+    private double emailRefillPerMinute = 5;
+    @Value("${app.security.login-throttling.ip.capacity:50}")
+    private int ipCapacity = 50;
+    @Value("${app.security.login-throttling.ip.refill-per-minute:30}")
+    private double ipRefillPerMinute = 30;
+    @Value("${app.security.login-throttling.max-buckets:100000}")
+    private int maxBuckets = 100000;
+
+    public LoginAttemptLimiter(MeterRegistry meterRegistry) {
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe();
+        }
+        this.allowed = meterRegistry.counter("app.login.attempts", "result", "allowed");
+        this.rejectedByEmail = meterRegistry.counter("app.login.attempts", "result", "rejected", "key", "email");
+        this.rejectedByIp = meterRegistry.counter("app.login.attempts", "result", "rejected", "key", "ip");
+        meterRegistry.gauge("app.login.buckets", this, LoginAttemptLimiter::bucketCount);
+    }
+
+
+    /**
+     * Takes a token for a login attempt from the bucket of the IP address, then from the bucket of the e-mail address.
+     * An attempt rejected for its IP address takes no token of the e-mail.
+     *
+     * @param email     The e-mail address given in the login form, may be null.
+     * @param ipAddress The IP address of the client.
+     * @return true if the attempt may go on, false if there were too many attempts with the e-mail or from the IP.
+     */
+    public boolean tryAcquire(String email, String ipAddress) {
+        long now = nanoTime();
+        String ipKey = "ip:" + ipAddress;
+        if (!tryAcquire(ipKey, ipCapacity, ipRefillPerMinute, now)) {
+            rejectedByIp.increment();
+            log.warn("LoginAttemptLimiter::tryAcquire - Too many login attempts from {}", ipAddress);
+            return false;
+        }
+        if (email != null && !email.isBlank()) {
+            String emailKey = "email:" + email.trim().toLowerCase(Locale.ROOT);
+            if (!tryAcquire(emailKey, emailCapacity, emailRefillPerMinute, now)) {
+                rejectedByEmail.increment();
+                log.warn("LoginAttemptLimiter::tryAcquire - Too many login attempts with {} from {}", email, ipAddress);
+                return false;
+            }
+        }
+        allowed.increment();
+        return true;
+    }
+
+    private boolean tryAcquire(String key, int capacity, double refillPerMinute, long now) {
+        Stripe stripe = stripes[(key.hashCode() & Integer.MAX_VALUE) % STRIPES];
+        synchronized (stripe) {
+            Bucket bucket = stripe.buckets.get(key);
+            if (bucket == null) {
+                bucket = new Bucket(capacity, now);
+                stripe.buckets.put(key, bucket);
+            }
+            bucket.refill(capacity, refillPerMinute, now);
+            if (bucket.tokens < 1) {
+                return false;
+            }
+            bucket.tokens--;
+            return true;
+        }
+    }
+
+    int bucketCount() {
+        int count = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                count += stripe.buckets.size();
+            }
+        }
+        return count;
+    }
+
+    // Overridden by the tests to move the time
+    protected long nanoTime() {
+        return System.nanoTime();
+    }
+
+    private final class Stripe {
+        // Access ordered, the least recently used bucket is evicted first
+        private final Map<String, Bucket> buckets = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Bucket> eldest) {
+                return size() > Math.max(1, maxBuckets / STRIPES);
+            }
+        };
+    }
+
+    private static final class Bucket {
+        private double tokens;
+        private long refilledAt;
+
+        private Bucket(int capacity, long now) {
+            this.tokens = capacity;
+            this.refilledAt = now;
+        }
+
+        private void refill(int capacity, double refillPerMinute, long now) {
+            tokens = Math.min(capacity, tokens + (now - refilledAt) * refillPerMinute / NANOS_PER_MINUTE);
+            refilledAt = now;
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.nikolas.mechanicalmanagementsystem.security;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
+import org.springframework.security.web.util.matcher.RequestMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Rejects the login form submissions over the limits of {@link LoginAttemptLimiter} before the authentication,
+ * so they cost no user query and no password hashing. Runs in the security filter chain only, it is not a bean.
+ */
+@RequiredArgsConstructor
+public class LoginThrottlingFilter extends OncePerRequestFilter {
+
+    private static final RequestMatcher LOGIN_REQUEST = new AntPathRequestMatcher("/login", "POST");
+
+    private final LoginAttemptLimiter loginAttemptLimiter;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !LOGIN_REQUEST.matches(request);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        if (!loginAttemptLimiter.tryAcquire(request.getParameter("username"), request.getRemoteAddr())) {
+            response.sendRedirect(request.getContextPath() + "/login?too_many_attempts");
+            return;
+        }
+        filterChain.doFilter(request, response);
+    }
+}
@@ -0,0 +1,51 @@
+package com.nikolas.mechanicalmanagementsystem.security;
+
+import com.nikolas.mechanicalmanagementsystem.utility.AfterCommit;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Version stamps of the users whose roles or company memberships changed since the start of the application.
+ * A {@link UserSnapshot} remembers the version it was built with and is rebuilt once the stamp of its user differs.
+ * Users without a change have version 0; there is one entry per changed user, and the stamps are never removed,
+ * so an outdated snapshot can never match again.
+ */
+@Slf4j
+@Component
+public class PrincipalVersionRegistry {
+
+    private final AtomicLong lastVersion = new AtomicLong();
+    private final Map<Long, Long> versions = new ConcurrentHashMap<>();
+
+
+    /**
+     * @param userId The ID of the user.
+     * @return The current version of the user's roles and memberships.
+     */
+    public long currentVersion(Long userId) {
+        return versions.getOrDefault(userId, 0L);
+    }
+
+
+    /**
+     * Marks the snapshots of the user outdated. Inside a transaction this happens after the commit,
+     * so a snapshot rebuilt in the meantime cannot keep the old roles with the new version.
+     *
+     * @param userId The ID of the user whose roles or memberships changed.
+     */
+    public void invalidate(Long userId) {
+        if (userId == null) {
+            return;
+        }
+        AfterCommit.run(() -> bump(userId));
+    }
+
+    private void bump(Long userId) {
+        versions.put(userId, lastVersion.incrementAndGet());
+        log.info("PrincipalVersionRegistry::invalidate - The session data of user {} is outdated", userId);
+    }
+}
@@ -1,6 +1,9 @@
 package com.nikolas.mechanicalmanagementsystem.security;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
@@ -8,11 +11,16 @@ import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 import org.springframework.security.web.authentication.logout.SecurityContextLogoutHandler;
 import org.springframework.security.web.session.HttpSessionEventPublisher;
 
+import java.util.Map;
+import java.util.concurrent.Executor;
+
 @Configuration
 @EnableWebSecurity
 @EnableMethodSecurity(securedEnabled = true)
@@ -20,6 +28,7 @@ import org.springframework.security.web.session.HttpSessionEventPublisher;
 public class SecurityConfiguration {
 
     private final CustomAuthenticationFailureHandler customAuthenticationFailureHandler;
+    private final LoginAttemptLimiter loginAttemptLimiter;
 
     // Creating an instance of HeaderWriterLogoutHandler to clear cookie data upon user logout.
 //    HeaderWriterLogoutHandler clearSiteData = new HeaderWriterLogoutHandler(new ClearSiteDataHeaderWriter(ClearSiteDataHeaderWriter.Directive.COOKIES));
@@ -29,9 +38,19 @@ public class SecurityConfiguration {
         return new SecurityContextLogoutHandler();
     }
 
+    /**
+     * New passwords are hashed with BCrypt of the configured cost and stored with the {bcrypt} prefix. The hashes stored
+     * without prefix are BCrypt too; they, and the hashes of a lower cost, are rehashed at the next successful login
+     * by {@link CustomUserDetailsService#updatePassword}. The hashing runs on the bounded password hashing executor.
+     */
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder passwordEncoder(@Value("${app.security.password.bcrypt-strength:10}") int bcryptStrength,
+                                           @Qualifier("passwordHashingExecutor") Executor passwordHashingExecutor,
+                                           MeterRegistry meterRegistry) {
+        BCryptPasswordEncoder bcrypt = new BCryptPasswordEncoder(bcryptStrength);
+        DelegatingPasswordEncoder delegatingPasswordEncoder = new DelegatingPasswordEncoder("bcrypt", Map.of("bcrypt", bcrypt));
+        delegatingPasswordEncoder.setDefaultPasswordEncoderForMatches(bcrypt);
+        return new BoundedPasswordEncoder(delegatingPasswordEncoder, passwordHashingExecutor, meterRegistry);
     }
 
     @Bean
@@ -78,6 +97,8 @@ public class SecurityConfiguration {
                 )
                 .authorizeHttpRequests(authorize ->
                         authorize
+                                // The company directory is only searched by logged-in users, unlike the rest of the page
+                                .requestMatchers("/searchAndJoinCompany/suggest", "/searchAndJoinCompany/search").authenticated()
                                 .requestMatchers("/",
                                         "/login",
                                         "/error",
@@ -85,7 +106,9 @@ public class SecurityConfiguration {
                                         "/registration", "/registration/**", "/forgotPassword/**", "/company/**",
                                         "/searchAndJoinCompany/**", "/actuator").permitAll()
                                 .requestMatchers("/users/**").hasRole("ADMIN")
+                                .requestMatchers("/admin/**").hasRole("ADMIN")
                                 .requestMatchers("/deleted_machines/**").hasAnyRole("ADMIN")
+                                .requestMatchers("/machines/rollup/**").hasRole("ADMIN")
                                 .requestMatchers("/machines/**").hasAnyRole("ADMIN", "USER")
                                 .anyRequest().authenticated())
 
@@ -104,6 +127,8 @@ public class SecurityConfiguration {
                                 .logoutSuccessUrl("/login?logout"))
 
                 .exceptionHandling(e -> e.accessDeniedHandler(customAccessDeniedHandler()))
+                // Too many attempts are rejected before the user is loaded and the password checked
+                .addFilterBefore(new LoginThrottlingFilter(loginAttemptLimiter), UsernamePasswordAuthenticationFilter.class)
                 .build();
     }
 }
\ No newline at end of file
@@ -0,0 +1,65 @@
+package com.nikolas.mechanicalmanagementsystem.security;
+
+import com.nikolas.mechanicalmanagementsystem.entity.Role;
+import com.nikolas.mechanicalmanagementsystem.entity.User;
+import com.nikolas.mechanicalmanagementsystem.entity.UserRoleEnum;
+import com.nikolas.mechanicalmanagementsystem.utility.LongHashSet;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Immutable view of the logged-in user, kept in the session by {@link CustomUserDetails}.
+ * It holds what the access checks and the pages need, so most requests do not load the user entity.
+ * It is rebuilt when {@link PrincipalVersionRegistry} has a newer version of the user.
+ */
+@Getter
+@ToString
+public final class UserSnapshot implements Serializable {
+
+    private final Long id;
+    private final String email;
+    private final String firstName;
+    private final String lastName;
+    private final Set<String> roleNames;
+    // The companies the roles of the user give access to
+    private final LongHashSet companyIds;
+    private final long version;
+
+    public UserSnapshot(Long id, String email, String firstName, String lastName,
+                        Collection<String> roleNames, Collection<Long> companyIds, long version) {
+        this.id = id;
+        this.email = email;
+        this.firstName = firstName;
+        this.lastName = lastName;
+        this.roleNames = Collections.unmodifiableSet(new HashSet<>(roleNames));
+        this.companyIds = new LongHashSet(companyIds);
+        this.version = version;
+    }
+
+    public static UserSnapshot of(User user, Collection<Long> companyIds, long version) {
+        Set<String> roleNames = user.getRoles().stream()
+                .map(Role::getRoleName)
+                .collect(Collectors.toSet());
+        return new UserSnapshot(user.getId(), user.getEmail(), user.getFirstName(), user.getLastName(),
+                roleNames, companyIds, version);
+    }
+
+    public String getFullName() {
+        return firstName + ' ' + lastName;
+    }
+
+    public boolean isAdmin() {
+        return roleNames.contains(UserRoleEnum.ADMIN.name());
+    }
+
+    public boolean hasAccessToCompany(Long companyId) {
+        return companyId != null && companyIds.contains(companyId);
+    }
+}
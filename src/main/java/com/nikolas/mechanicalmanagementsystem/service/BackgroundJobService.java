@@ -0,0 +1,13 @@
+package com.nikolas.mechanicalmanagementsystem.service;
+
+import com.nikolas.mechanicalmanagementsystem.dtos.JobStatus;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+public interface BackgroundJobService {
+    JobStatus start(String name, Consumer<JobStatus> work);
+    Optional<JobStatus> getJob(String jobId);
+    List<JobStatus> getJobs();
+}
@@ -0,0 +1,87 @@
+package com.nikolas.mechanicalmanagementsystem.service;
+
+import com.nikolas.mechanicalmanagementsystem.dtos.JobStatus;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
+
+@Slf4j
+@Service
+public class BackgroundJobServiceImpl implements BackgroundJobService {
+
+    static final int MAX_TRACKED_JOBS = 50;
+
+    private final Executor backgroundJobExecutor;
+    // The most recent jobs, the oldest ones are forgotten
+    private final Map<String, JobStatus> jobs = new LinkedHashMap<>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, JobStatus> eldest) {
+            return size() > MAX_TRACKED_JOBS;
+        }
+    };
+
+    public BackgroundJobServiceImpl(@Qualifier("backgroundJobExecutor") Executor backgroundJobExecutor) {
+        this.backgroundJobExecutor = backgroundJobExecutor;
+    }
+
+
+    /**
+     * Starts the work on the background job executor and returns its status right away.
+     * The work reports its progress on the status; when it returns without completing it, the job is completed,
+     * when it throws, the job fails.
+     *
+     * @param name The name of the job, shown in its status.
+     * @param work The work of the job.
+     * @return The status of the started job.
+     * @throws IllegalStateException if too many jobs are already waiting.
+     */
+    @Override
+    public JobStatus start(String name, Consumer<JobStatus> work) {
+        JobStatus status = new JobStatus(UUID.randomUUID().toString(), name);
+        synchronized (jobs) {
+            jobs.put(status.getId(), status);
+        }
+        try {
+            backgroundJobExecutor.execute(() -> run(status, work));
+        } catch (RejectedExecutionException e) {
+            status.fail("Too many jobs are running, try again later");
+            throw new IllegalStateException("Background job queue is full, job " + name + " rejected", e);
+        }
+        log.info("BackgroundJobServiceImpl::start - Job {} started with id {}", name, status.getId());
+        return status;
+    }
+
+    private void run(JobStatus status, Consumer<JobStatus> work) {
+        try {
+            work.accept(status);
+            if (!status.isFinished()) {
+                status.complete("Processed " + status.getProcessed() + " item(s)");
+            }
+            log.info("BackgroundJobServiceImpl::run - Job {} ({}) finished: {}", status.getName(), status.getId(), status.getMessage());
+        } catch (RuntimeException e) {
+            status.fail(e.getMessage());
+            log.error("BackgroundJobServiceImpl::run - Job {} ({}) failed", status.getName(), status.getId(), e);
+        }
+    }
+
+    @Override
+    public Optional<JobStatus> getJob(String jobId) {
+        synchronized (jobs) {
+            return Optional.ofNullable(jobs.get(jobId));
+        }
+    }
+
+    @Override
+    public List<JobStatus> getJobs() {
+        synchronized (jobs) {
+            List<JobStatus> result = new ArrayList<>(jobs.values());
+            Collections.reverse(result);
+            return result;
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package com.nikolas.mechanicalmanagementsystem.service;
+
+import com.nikolas.mechanicalmanagementsystem.dtos.JobStatus;
+
+public interface CompanyDeletionService {
+    JobStatus startDeletion(Long companyId);
+    void purgeCompany(JobStatus status, Long companyId);
+}
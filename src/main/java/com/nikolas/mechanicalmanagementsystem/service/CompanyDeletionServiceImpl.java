@@ -0,0 +1,136 @@
+package com.nikolas.mechanicalmanagementsystem.service;
+
+import com.nikolas.mechanicalmanagementsystem.dtos.JobStatus;
+import com.nikolas.mechanicalmanagementsystem.exception.CompanyNotFoundException;
+import com.nikolas.mechanicalmanagementsystem.repository.*;
+import com.nikolas.mechanicalmanagementsystem.security.PrincipalVersionRegistry;
+import com.nikolas.mechanicalmanagementsystem.utility.AfterCommit;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Deletes a company in two steps. The company is marked deleted in a short transaction, which hides it at once,
+ * then its data is purged by a background job in chunks, each committed on its own, so no lock is held for the
+ * whole deletion.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class CompanyDeletionServiceImpl implements CompanyDeletionService {
+
+    private final CompanyRepository companyRepository;
+    private final CompanyRoleRepository companyRoleRepository;
+    private final RoleRepository roleRepository;
+    private final JobApplicationRepository jobApplicationRepository;
+    private final UserRepository userRepository;
+    private final MachineRepository machineRepository;
+    private final MachinePartRepository machinePartRepository;
+    private final ImagesRepository imagesRepository;
+    private final ImageVariantRepository imageVariantRepository;
+    private final UserService userService;
+    private final CompanyMonthlyRollupService companyMonthlyRollupService;
+    private final InvoiceService invoiceService;
+    private final CompanySearchService companySearchService;
+    private final ImageContentReleaseService imageContentReleaseService;
+    private final MachineOwnershipCache machineOwnershipCache;
+    private final PrincipalVersionRegistry principalVersionRegistry;
+    private final BackgroundJobService backgroundJobService;
+    private final TransactionOperations transactionOperations;
+
+    @Value("${app.companies.deletion.batch-size:100}")
+    private int batchSize = 100;
+
+
+    /**
+     * Hides the company and starts the job purging its data. The members lose their access to the company
+     * with the commit of the first step. A company already hidden by an earlier, failed deletion is purged again.
+     *
+     * @param companyId The ID of the company.
+     * @return The status of the job.
+     * @throws CompanyNotFoundException if the company does not exist.
+     * @throws IllegalStateException    if too many jobs are already waiting.
+     */
+    @Override
+    public JobStatus startDeletion(Long companyId) {
+        transactionOperations.executeWithoutResult(transaction -> hideCompany(companyId));
+        log.info("CompanyDeletionServiceImpl::startDeletion - Company {} is hidden, its data is being deleted", companyId);
+        return backgroundJobService.start("company-" + companyId + "-deletion", status -> purgeCompany(status, companyId));
+    }
+
+    private void hideCompany(Long companyId) {
+        // No row updated: the company is missing or already hidden
+        if (companyRepository.markDeletedById(companyId) == 0 && !companyRepository.existsById(companyId)) {
+            throw new CompanyNotFoundException("Company doesn't exist with id: " + companyId);
+        }
+        List<Long> roleIds = companyRoleRepository.findRoleIdsByCompanyId(companyId);
+        if (!roleIds.isEmpty()) {
+            userRepository.findIdsByRoleIdIn(roleIds).forEach(principalVersionRegistry::invalidate);
+        }
+        companySearchService.companyDeleted(companyId);
+    }
+
+
+    /**
+     * Purges the data of a hidden company. The role links are removed by one statement, then the machines with their
+     * parts, images and image variants are deleted in chunks of {@code app.companies.deletion.batch-size} machines,
+     * paging by ID, each chunk in its own transaction. The rest of the company goes in a last transaction.
+     * The content of the deleted images is released after the commit of each chunk, as bulk deletes do not call
+     * the entity listeners.
+     *
+     * @param status    The status of the job, counting the deleted machines.
+     * @param companyId The ID of the company.
+     */
+    @Override
+    public void purgeCompany(JobStatus status, Long companyId) {
+        List<Long> roleIds = companyRoleRepository.findRoleIdsByCompanyId(companyId);
+        transactionOperations.executeWithoutResult(transaction -> userService.removeRolesFromUsers(roleIds));
+
+        status.setTotal(machineRepository.countByCompanyId(companyId));
+        long lastId = 0;
+        List<Long> machineIds = machineRepository.findMachineIdsByCompanyId(companyId, lastId, PageRequest.of(0, batchSize));
+        while (!machineIds.isEmpty()) {
+            List<Long> batch = machineIds;
+            transactionOperations.executeWithoutResult(transaction -> deleteMachines(batch));
+            status.advance(batch.size());
+            lastId = batch.get(batch.size() - 1);
+            machineIds = machineRepository.findMachineIdsByCompanyId(companyId, lastId, PageRequest.of(0, batchSize));
+        }
+
+        transactionOperations.executeWithoutResult(transaction -> {
+            jobApplicationRepository.deleteByCompanyId(companyId);
+            companyRepository.deleteEmployeeLinksByCompanyId(companyId);
+            companyRoleRepository.deleteByCompanyId(companyId);
+            if (!roleIds.isEmpty()) {
+                roleRepository.deleteByIdIn(roleIds);
+            }
+            companyMonthlyRollupService.deleteByCompanyId(companyId);
+            invoiceService.deleteByCompanyId(companyId);
+            companyRepository.deleteMarkedById(companyId);
+        });
+
+        log.info("CompanyDeletionServiceImpl::purgeCompany - Company {} is deleted from the system with {} machine(s)",
+                companyId, status.getProcessed());
+        status.complete("Company deleted with " + status.getProcessed() + " machine(s)");
+    }
+
+    private void deleteMachines(List<Long> machineIds) {
+        Set<String> contentHashes = new LinkedHashSet<>(imagesRepository.findContentHashesByMachineIdIn(machineIds));
+        contentHashes.addAll(imageVariantRepository.findContentHashesByMachineIdIn(machineIds));
+
+        imageVariantRepository.deleteByMachineIdIn(machineIds);
+        imagesRepository.deleteByMachineIdIn(machineIds);
+        machinePartRepository.deleteByMachineIdIn(machineIds);
+        machineRepository.deleteByIdIn(machineIds);
+
+        machineIds.forEach(machineOwnershipCache::evictMachine);
+        AfterCommit.run(() -> contentHashes.forEach(imageContentReleaseService::releaseIfUnreferenced));
+    }
+}
@@ -0,0 +1,19 @@
+package com.nikolas.mechanicalmanagementsystem.service;
+
+import com.nikolas.mechanicalmanagementsystem.dtos.CompanyMachineTotals;
+import com.nikolas.mechanicalmanagementsystem.entity.Machine;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+public interface CompanyMonthlyRollupService {
+    List<CompanyMachineTotals> getMonthlyTotals(int year, int month, List<Long> companyIds);
+    void recordMachineAdded(Machine machine);
+    void recordMachineRemoved(Machine machine);
+    void recordMachineChanged(Machine machine, BigDecimal previousPartsSum, BigDecimal previousChargedAmount);
+    void recordPartsSumChanged(Machine machine, BigDecimal partsDelta);
+    void refresh(Long companyId, int year, int month);
+    int refresh(Long companyId);
+    int rebuild();
+    void deleteByCompanyId(Long companyId);
+}
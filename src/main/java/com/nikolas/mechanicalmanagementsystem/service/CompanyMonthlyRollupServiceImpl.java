@@ -0,0 +1,199 @@
+package com.nikolas.mechanicalmanagementsystem.service;
+
+import com.nikolas.mechanicalmanagementsystem.dtos.CompanyMachineTotals;
+import com.nikolas.mechanicalmanagementsystem.entity.CompanyMonthlyRollup;
+import com.nikolas.mechanicalmanagementsystem.entity.Machine;
+import com.nikolas.mechanicalmanagementsystem.repository.CompanyMonthlyRollupRepository;
+import com.nikolas.mechanicalmanagementsystem.repository.MachineRepository;
+import jakarta.transaction.Transactional;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+
+@Slf4j
+@RequiredArgsConstructor
+@Service
+public class CompanyMonthlyRollupServiceImpl implements CompanyMonthlyRollupService {
+
+    private final CompanyMonthlyRollupRepository rollupRepository;
+    private final MachineRepository machineRepository;
+
+
+    /**
+     * Retrieves the pre-aggregated totals of the selected companies in the specified year and month.
+     *
+     * @param year       The selected year.
+     * @param month      The selected month.
+     * @param companyIds The list of selected company IDs.
+     * @return The per company totals; companies without machines in the month are not included.
+     */
+    @Override
+    public List<CompanyMachineTotals> getMonthlyTotals(int year, int month, List<Long> companyIds) {
+        if (companyIds == null || companyIds.isEmpty()) {
+            return List.of();
+        }
+        return rollupRepository.findTotalsByYearAndMonthAndCompanyIdIn(year, month, companyIds);
+    }
+
+
+    /**
+     * Adds a newly registered active machine to the rollup of its company and registration month.
+     *
+     * @param machine The machine that has been added.
+     */
+    @Transactional
+    @Override
+    public void recordMachineAdded(Machine machine) {
+        if (!machine.isActive()) {
+            return;
+        }
+        applyDelta(machine, nullToZero(machine.getMachinePartsSum()), nullToZero(machine.getChargedAmount()), 1);
+    }
+
+
+    /**
+     * Subtracts an active machine from the rollup of its company and registration month,
+     * used when the machine is inactivated.
+     *
+     * @param machine The machine that has been removed.
+     */
+    @Transactional
+    @Override
+    public void recordMachineRemoved(Machine machine) {
+        if (!machine.isActive()) {
+            return;
+        }
+        applyDelta(machine, nullToZero(machine.getMachinePartsSum()).negate(), nullToZero(machine.getChargedAmount()).negate(), -1);
+    }
+
+
+    /**
+     * Applies the difference between the previous and the current amounts of an active machine to its rollup.
+     *
+     * @param machine               The machine holding the current amounts.
+     * @param previousPartsSum      The parts sum before the change.
+     * @param previousChargedAmount The charged amount before the change.
+     */
+    @Transactional
+    @Override
+    public void recordMachineChanged(Machine machine, BigDecimal previousPartsSum, BigDecimal previousChargedAmount) {
+        if (!machine.isActive()) {
+            return;
+        }
+        BigDecimal partsDelta = nullToZero(machine.getMachinePartsSum()).subtract(nullToZero(previousPartsSum));
+        BigDecimal chargedDelta = nullToZero(machine.getChargedAmount()).subtract(nullToZero(previousChargedAmount));
+        if (partsDelta.signum() == 0 && chargedDelta.signum() == 0) {
+            return;
+        }
+        applyDelta(machine, partsDelta, chargedDelta, 0);
+    }
+
+
+    /**
+     * Applies the price of an added or removed part of an active machine to its rollup.
+     *
+     * @param machine    The machine of the part.
+     * @param partsDelta The change of the parts sum of the machine.
+     */
+    @Transactional
+    @Override
+    public void recordPartsSumChanged(Machine machine, BigDecimal partsDelta) {
+        if (!machine.isActive() || partsDelta.signum() == 0) {
+            return;
+        }
+        applyDelta(machine, partsDelta, BigDecimal.ZERO, 0);
+    }
+
+
+    /**
+     * Recomputes the rollup row of one company and month from the machines table.
+     *
+     * @param companyId The ID of the company.
+     * @param year      The year of the row.
+     * @param month     The month of the row.
+     */
+    @Transactional
+    @Override
+    public void refresh(Long companyId, int year, int month) {
+        rollupRepository.deleteByCompanyIdAndYearAndMonth(companyId, year, month);
+        machineRepository.sumActiveMachinesByYearAndMonthAndCompanyIdIn(year, month, List.of(companyId))
+                .forEach(totals -> rollupRepository.save(new CompanyMonthlyRollup(null, companyId, year, month,
+                        totals.getPartsAmount(), totals.getChargedAmount(), totals.getProfit(), totals.getMachineCount())));
+        log.info("CompanyMonthlyRollupServiceImpl::refresh - Rollup of company {} refreshed for {}-{}", companyId, year, month);
+    }
+
+
+    /**
+     * Recomputes every rollup row of one company from the machines table, used after changes touching
+     * many machines of the company at once.
+     *
+     * @param companyId The ID of the company.
+     * @return The number of rollup rows created.
+     */
+    @Transactional
+    @Override
+    public int refresh(Long companyId) {
+        rollupRepository.deleteByCompanyId(companyId);
+        int rows = rollupRepository.insertFromMachinesByCompanyId(companyId);
+        log.info("CompanyMonthlyRollupServiceImpl::refresh - Rollup of company {} refreshed, {} rows created", companyId, rows);
+        return rows;
+    }
+
+
+    /**
+     * Drops every rollup row and recomputes them from the machines table.
+     *
+     * @return The number of rollup rows created.
+     */
+    @Transactional
+    @Override
+    public int rebuild() {
+        rollupRepository.deleteAllRows();
+        int rows = rollupRepository.insertAllFromMachines();
+        log.info("CompanyMonthlyRollupServiceImpl::rebuild - Monthly rollup rebuilt, {} rows created", rows);
+        return rows;
+    }
+
+
+    @Transactional
+    @Override
+    public void deleteByCompanyId(Long companyId) {
+        rollupRepository.deleteByCompanyId(companyId);
+    }
+
+
+    /**
+     * Backfills the rollup on the first start after it was introduced, when machines exist but no rollup row does.
+     */
+    @Transactional
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillIfEmpty() {
+        if (rollupRepository.count() == 0 && machineRepository.count() > 0) {
+            log.info("CompanyMonthlyRollupServiceImpl::backfillIfEmpty - Monthly rollup is empty, rebuilding from machines");
+            rebuild();
+        }
+    }
+
+
+    private void applyDelta(Machine machine, BigDecimal partsDelta, BigDecimal chargedDelta, long countDelta) {
+        if (machine.getCompany() == null) {
+            return;
+        }
+        // The registration date is set on flush, a machine being added in the current transaction may not have it yet
+        LocalDateTime registrationDate = machine.getRegistrationDate() != null ? machine.getRegistrationDate() : LocalDateTime.now();
+        rollupRepository.applyDelta(machine.getCompany().getId(), registrationDate.getYear(), registrationDate.getMonthValue(),
+                partsDelta, chargedDelta, chargedDelta.subtract(partsDelta), countDelta);
+    }
+
+    private static BigDecimal nullToZero(BigDecimal value) {
+        return value != null ? value : BigDecimal.ZERO;
+    }
+
+}
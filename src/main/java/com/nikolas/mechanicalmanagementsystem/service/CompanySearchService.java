@@ -0,0 +1,15 @@
+package com.nikolas.mechanicalmanagementsystem.service;
+
+import com.nikolas.mechanicalmanagementsystem.dtos.CompanyDirectoryRow;
+import com.nikolas.mechanicalmanagementsystem.entity.Company;
+
+import java.util.List;
+
+public interface CompanySearchService {
+
+    List<CompanyDirectoryRow> suggest(Long userId, String query);
+    List<CompanyDirectoryRow> search(Long userId, String query, int limit);
+    void companySaved(Company company);
+    void companyDeleted(Long companyId);
+
+}
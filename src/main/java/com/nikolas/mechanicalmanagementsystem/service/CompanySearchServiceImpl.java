@@ -0,0 +1,110 @@
+package com.nikolas.mechanicalmanagementsystem.service;
+
+import com.nikolas.mechanicalmanagementsystem.dtos.CompanyDirectoryRow;
+import com.nikolas.mechanicalmanagementsystem.entity.Company;
+import com.nikolas.mechanicalmanagementsystem.repository.CompanyRepository;
+import com.nikolas.mechanicalmanagementsystem.utility.AfterCommit;
+import com.nikolas.mechanicalmanagementsystem.utility.CompanySearchIndex;
+import com.nikolas.mechanicalmanagementsystem.utility.LongHashSet;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+/**
+ * Searches the companies by their name, country, location and postcode without querying the companies.
+ * All companies are loaded into a {@link CompanySearchIndex} at the first search and kept up to date by the company
+ * service once its changes are committed. The companies the user cannot join are left out of the results, as they are
+ * left out of the paged directory.
+ */
+@Slf4j
+@RequiredArgsConstructor
+@Service
+public class CompanySearchServiceImpl implements CompanySearchService {
+
+    private final CompanyRepository companyRepository;
+    private final Object loadLock = new Object();
+    private volatile CompanySearchIndex index;
+
+    @Value("${app.companies.search.suggestion-limit:10}")
+    private int suggestionLimit = 10;
+    @Value("${app.companies.search.max-results:100}")
+    private int maxResults = 100;
+
+
+    /**
+     * @param userId The ID of the user searching.
+     * @param query  The words typed so far, the last one usually incomplete.
+     * @return The best matching companies the user can join, at most as many as the suggestion limit.
+     */
+    @Override
+    public List<CompanyDirectoryRow> suggest(Long userId, String query) {
+        return search(userId, query, suggestionLimit);
+    }
+
+    /**
+     * @param userId The ID of the user searching.
+     * @param query  The words to search for, each one matching the beginning of a word of the name, the country or
+     *               the location, or of the postcode.
+     * @param limit  The maximum number of results, capped at the configured maximum.
+     * @return The matching companies the user does not own, does not work at and has not applied to, the ones
+     * matching more whole words first, then by name.
+     */
+    @Override
+    public List<CompanyDirectoryRow> search(Long userId, String query, int limit) {
+        if (query == null || query.isBlank() || limit <= 0) {
+            return List.of();
+        }
+        LongHashSet notJoinable = new LongHashSet(companyRepository.findNotJoinableIdsByUserId(userId));
+        return getIndex().search(query, Math.min(limit, maxResults), notJoinable);
+    }
+
+    /**
+     * Indexes a created or updated company, if the index is loaded, once the transaction saving it is committed.
+     *
+     * @param company The saved company.
+     */
+    @Override
+    public void companySaved(Company company) {
+        // Copied now, the entity may change or be detached by the time of the commit
+        CompanyDirectoryRow row = new CompanyDirectoryRow(company.getId(), company.getCompanyName(), company.getCountry(),
+                company.getLocation(), company.getStreet(), company.getPostCode());
+        AfterCommit.run(() -> {
+            CompanySearchIndex current = index;
+            if (current != null) {
+                current.put(row);
+            }
+        });
+    }
+
+    /**
+     * Removes a deleted company from the index, if it is loaded, once the transaction deleting it is committed.
+     *
+     * @param companyId The ID of the deleted company.
+     */
+    @Override
+    public void companyDeleted(Long companyId) {
+        AfterCommit.run(() -> {
+            CompanySearchIndex current = index;
+            if (current != null) {
+                current.remove(companyId);
+            }
+        });
+    }
+
+    private CompanySearchIndex getIndex() {
+        CompanySearchIndex current = index;
+        if (current != null) {
+            return current;
+        }
+        synchronized (loadLock) {
+            if (index == null) {
+                index = new CompanySearchIndex(companyRepository.findAllDirectoryRows());
+                log.info("CompanySearchServiceImpl::getIndex - {} companies loaded", index.size());
+            }
+            return index;
+        }
+    }
+}
@@ -1,11 +1,17 @@
 package com.nikolas.mechanicalmanagementsystem.service;
 
 import com.nikolas.mechanicalmanagementsystem.dtos.CompanyDTO;
+import com.nikolas.mechanicalmanagementsystem.dtos.CompanyDashboard;
+import com.nikolas.mechanicalmanagementsystem.dtos.CompanyMemberRow;
+import com.nikolas.mechanicalmanagementsystem.dtos.CompanyProfile;
+import com.nikolas.mechanicalmanagementsystem.dtos.PendingApplicationRow;
 import com.nikolas.mechanicalmanagementsystem.entity.*;
 import com.nikolas.mechanicalmanagementsystem.exception.CompanyNotFoundException;
 import com.nikolas.mechanicalmanagementsystem.exception.JobApplicationNotFoundException;
 import com.nikolas.mechanicalmanagementsystem.exception.NotFoundException;
 import com.nikolas.mechanicalmanagementsystem.repository.*;
+import com.nikolas.mechanicalmanagementsystem.security.PrincipalVersionRegistry;
+import com.nikolas.mechanicalmanagementsystem.security.UserSnapshot;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import jakarta.servlet.http.HttpSession;
@@ -36,15 +42,22 @@ public class CompanyServiceImpl implements CompanyService {
     private final CompanyRoleRepository companyRoleRepository;
     private final UserRepository userRepository;
     private final MachineService machineService;
+    private final CompanyMonthlyRollupService companyMonthlyRollupService;
+    private final OptimisticLockRetry optimisticLockRetry;
+    private final PrincipalVersionRegistry principalVersionRegistry;
+    private final CompanySearchService companySearchService;
 
     @Override
     public Company findById(Long companyId) {
-        return companyRepository.findById(companyId).orElseThrow(() -> new CompanyNotFoundException("Company not found with id: " + companyId));
+        // A company being deleted is already hidden
+        return companyRepository.findById(companyId)
+                .filter(company -> !company.isDeleted())
+                .orElseThrow(() -> new CompanyNotFoundException("Company not found with id: " + companyId));
     }
 
     @Override
     public List<Company> getAllCompanies() {
-        return companyRepository.findAll();
+        return companyRepository.findAllByDeletedFalse();
     }
 
 
@@ -56,13 +69,8 @@ public class CompanyServiceImpl implements CompanyService {
      * @throws AccessDeniedException if the logged-in user does not have access rights to the company.
      */
     @Override
-    public void checkAccessRightsToOneCompany(User loggedInUser, Company company) {
-        List<Company> userCompanies = loggedInUser.getRoles().stream()
-                .flatMap(role -> role.getCompanyRoles().stream())
-                .map(CompanyRole::getCompany)
-                .toList();
-
-        if (userCompanies.stream().noneMatch(userCompany -> userCompany.getId().equals(company.getId()))) {
+    public void checkAccessRightsToOneCompany(UserSnapshot loggedInUser, Company company) {
+        if (!loggedInUser.hasAccessToCompany(company.getId())) {
             throw new AccessDeniedException("Access denied to company with id: " + company.getId());
         }
     }
@@ -76,9 +84,9 @@ public class CompanyServiceImpl implements CompanyService {
      * @return {@code true} if the user is the owner or deputy leader of the company, {@code false} otherwise.
      */
     @Override
-    public boolean isLeaderOrDeputyLeader(User loggedInUser, Company company) {
-        return company.getOwner().equals(loggedInUser) ||
-                (company.getDeputyLeader() != null && company.getDeputyLeader().equals(loggedInUser));
+    public boolean isLeaderOrDeputyLeader(UserSnapshot loggedInUser, Company company) {
+        return loggedInUser.getId().equals(company.getOwner().getId()) ||
+                (company.getDeputyLeader() != null && loggedInUser.getId().equals(company.getDeputyLeader().getId()));
     }
 
 
@@ -88,29 +96,31 @@ public class CompanyServiceImpl implements CompanyService {
      * @param company The updated company details.
      * @throws CompanyNotFoundException if the company with the given ID is not found in the database.
      */
-    @Transactional
     @Override
     public void updateCompany(Company company) {
-        // Retrieve the existing company entity from the database by ID or throw an exception if not found
-        Company existingCompany = companyRepository.findById(company.getId())
-                .orElseThrow(() -> new CompanyNotFoundException("Company not found with id: " + company.getId()));
-
-        // Update the company details with the provided information
-        if (company.getOwner() != null) {
-            existingCompany.setOwner(company.getOwner());
-        }
-        existingCompany.setCompanyName(company.getCompanyName());
-        existingCompany.setDescription(company.getDescription());
-        existingCompany.setCountry(company.getCountry());
-        existingCompany.setLocation(company.getLocation());
-        existingCompany.setStreet(company.getStreet());
-        existingCompany.setPostCode(company.getPostCode());
-        existingCompany.setIdentificationNumber(company.getIdentificationNumber());
-        existingCompany.setTaxIdentificationNumber(company.getTaxIdentificationNumber());
-        existingCompany.setValueAddedTaxIdentificationNumber(company.getValueAddedTaxIdentificationNumber());
-        log.info("CompanyServiceImpl::updateCompany - Company details: {} updated successfully!", company.getCompanyName() + ' ' + company.getCountry());
-
-        companyRepository.save(existingCompany);
+        optimisticLockRetry.run("updateCompany", () -> {
+            // Retrieve the existing company entity from the database by ID or throw an exception if not found
+            Company existingCompany = companyRepository.findById(company.getId())
+                    .orElseThrow(() -> new CompanyNotFoundException("Company not found with id: " + company.getId()));
+
+            // Update the company details with the provided information
+            if (company.getOwner() != null) {
+                existingCompany.setOwner(company.getOwner());
+            }
+            existingCompany.setCompanyName(company.getCompanyName());
+            existingCompany.setDescription(company.getDescription());
+            existingCompany.setCountry(company.getCountry());
+            existingCompany.setLocation(company.getLocation());
+            existingCompany.setStreet(company.getStreet());
+            existingCompany.setPostCode(company.getPostCode());
+            existingCompany.setIdentificationNumber(company.getIdentificationNumber());
+            existingCompany.setTaxIdentificationNumber(company.getTaxIdentificationNumber());
+            existingCompany.setValueAddedTaxIdentificationNumber(company.getValueAddedTaxIdentificationNumber());
+            log.info("CompanyServiceImpl::updateCompany - Company details: {} updated successfully!", company.getCompanyName() + ' ' + company.getCountry());
+
+            companyRepository.save(existingCompany);
+            companySearchService.companySaved(existingCompany);
+        });
     }
 
 
@@ -180,12 +190,14 @@ public class CompanyServiceImpl implements CompanyService {
             // Assign the role to the owner user and save the user
             owner.getRoles().add(role);
             userService.saveUser(owner);
+            principalVersionRegistry.invalidate(owner.getId());
 
             // Set up the connection between the company and the role
             CompanyRole companyRole = new CompanyRole();
             companyRole.setCompany(company);
             companyRole.setRole(role);
             companyRoleRepository.save(companyRole);
+            companySearchService.companySaved(company);
 
             log.info("CompanyServiceImpl::createCompany - Company {} is created with company role {}, by {}!", company.getCompanyName(), roleName, user.getFirstName() + ' ' + user.getLastName());
         } catch (Exception e) {
@@ -195,40 +207,6 @@ public class CompanyServiceImpl implements CompanyService {
     }
 
 
-    /**
-     * Deletes a company and all associated data from the system based on the provided company ID.
-     *
-     * @param companyId The ID of the company to be deleted.
-     * @throws CompanyNotFoundException if the company with the provided ID is not found.
-     */
-    @Transactional
-    @Override
-    public void deleteCompanyById(Long companyId) {
-        Company company = companyRepository.findById(companyId)
-                .orElseThrow(() -> new CompanyNotFoundException("Company doesn't exist with id: " + companyId));
-        try {
-            // Get the company roles to delete
-            Set<CompanyRole> companyRolesToDelete = company.getCompanyRoles();
-            // Get the IDs of the company roles for further processing
-            Set<Long> roleIdsToDeleteFromEmployee = companyRoleIds(company);
-            // Retrieve the Role objects corresponding to the role IDs
-            List<Role> rolesToDelete = roleRepository.findAllById(roleIdsToDeleteFromEmployee);
-
-            // Delete associated job applications, user roles, company roles, roles, and finally the company
-            jobApplicationRepository.deleteAll(company.getJobApplications());
-            userService.removeRolesFromUsers(rolesToDelete);
-            companyRoleRepository.deleteAll(companyRolesToDelete);
-            roleRepository.deleteAll(rolesToDelete);
-            companyRepository.delete(company);
-            log.info("CompanyServiceImpl::deleteCompanyById - Company {} is deleted from the system!", company.getCompanyName() + ' ' + company.getCountry());
-
-        } catch (Exception e) {
-            log.error("Unexpected error occurred while deleting company");
-            throw new RuntimeException("Unexpected error occurred while creating company", e);
-        }
-    }
-
-
     /**
      * Retrieves all companies associated with the provided user.
      *
@@ -236,18 +214,14 @@ public class CompanyServiceImpl implements CompanyService {
      * @return A list of companies associated with the user.
      */
     @Override
-    public List<Company> getAllCompaniesByUser(User user) {
+    public List<Company> getAllCompaniesByUser(UserSnapshot user) {
         String userEmail = user.getEmail();
-        // Extract user authorities and collect them into a set
-        Set<String> userAuthorities = user.getRoles().stream()
-                .map(Role::getRoleName)
-                .collect(Collectors.toSet());
 
         List<Company> companies = new ArrayList<>();
         try {
-            if (userAuthorities.contains("ADMIN")) {
+            if (user.isAdmin()) {
                 // User with admin privileges
-                companies = companyRepository.findAll();
+                companies = companyRepository.findAllByDeletedFalse();
                 log.info("CompanyServiceImpl::getAllCompaniesByUser - All companies retrieved by admin user: {}", userEmail);
             } else {
                 // User without admin privileges
@@ -263,102 +237,75 @@ public class CompanyServiceImpl implements CompanyService {
 
 
     /**
-     * Retrieves the set of job applications associated with the provided company ID.
-     *
-     * @param companyId The ID of the company whose job applications are to be retrieved.
-     * @return The set of job applications associated with the company.
-     * @throws CompanyNotFoundException if no company is found with the provided ID.
-     */
-    @Override
-    public Set<JobApplication> getJobApplicationsByCompanyId(Long companyId) {
-        // Retrieve the company by ID from the repository
-        Company company = companyRepository.findById(companyId)
-                .orElseThrow(() -> new CompanyNotFoundException("Company not found with id: " + companyId));
-
-        // Filter the job applications to include only pending ones (not yet accepted)
-        return company.getJobApplications()
-                .stream()
-                .filter(application -> !application.isAccepted())
-                .collect(Collectors.toSet());
-    }
-
-
-    /**
-     * Retrieves the set of employees associated with the provided company ID.
-     *
-     * @param companyId The ID of the company whose employees are to be retrieved.
-     * @return The set of employees associated with the company.
-     * @throws CompanyNotFoundException if no company is found with the provided ID.
-     */
-    @Override
-    public Set<User> getEmployeesByCompanyId(Long companyId) {
-        Company company = companyRepository.findById(companyId)
-                .orElseThrow(() -> new CompanyNotFoundException("Company not found with id: " + companyId));
-        return company.getEmployees();
-    }
-
-
-    /**
-     * Retrieves all employees associated with the provided company ID, excluding the current user and the owner of the company.
+     * Reads everything the page of a company shows to the logged-in user: the details of the company, its employees
+     * as slim rows, and its pending job applications if the user is the owner or the deputy leader.
+     * It costs three queries at most, whatever the number of employees and applications; no company or user entity
+     * is loaded.
      *
-     * @param currentUser The current user for whom the employees are being retrieved.
-     * @param companyId   The ID of the company whose employees are to be retrieved.
-     * @return The set of employees associated with the company, excluding the current user and the owner.
+     * @param loggedInUser The logged-in user opening the page.
+     * @param companyId    The ID of the company.
+     * @return The dashboard of the company for the user.
+     * @throws AccessDeniedException    if the user does not belong to the company.
      * @throws CompanyNotFoundException if no company is found with the provided ID.
      */
     @Override
-    public Set<User> getAllEmployeesExceptCurrentUserAndOwner(User currentUser, Long companyId) {
-        Company company = companyRepository.findById(companyId)
-                .orElseThrow(() -> new CompanyNotFoundException("Company not found with id: " + companyId));
-        Set<User> companyEmployees = new HashSet<>(company.getEmployees());
-
-        // Remove the current user from the list
-        companyEmployees.removeIf(user -> user.equals(currentUser));
-
-        // Remove the company owner from the list if available
-        User owner = company.getOwner();
-        if (owner != null) {
-            companyEmployees.removeIf(user -> user.getId().equals(owner.getId()));
+    public CompanyDashboard getCompanyDashboard(UserSnapshot loggedInUser, Long companyId) {
+        if (!loggedInUser.hasAccessToCompany(companyId)) {
+            throw new AccessDeniedException("Access denied to company with id: " + companyId);
         }
+        CompanyProfile profile = companyRepository.findProfileById(companyId)
+                .orElseThrow(() -> new CompanyNotFoundException("Company not found with id: " + companyId));
+        boolean leaderOrDeputyLeader = loggedInUser.getId().equals(profile.getOwnerId()) ||
+                loggedInUser.getId().equals(profile.getDeputyLeaderId());
 
-        return companyEmployees;
+        List<CompanyMemberRow> employees = companyRepository.findEmployeeRowsByCompanyId(companyId);
+        List<CompanyMemberRow> colleagues = employees.stream()
+                .filter(employee -> !employee.getId().equals(loggedInUser.getId()) && !employee.getId().equals(profile.getOwnerId()))
+                .toList();
+        List<PendingApplicationRow> pendingApplications = leaderOrDeputyLeader
+                ? jobApplicationRepository.findPendingRowsByCompanyId(companyId)
+                : List.of();
+        return new CompanyDashboard(profile, employees, colleagues, pendingApplications, leaderOrDeputyLeader);
     }
 
 
     /**
      * Accepts a job application by setting its status to accepted and adding the applicant to the company's employees.
      * It also assigns appropriate roles to the newly recruited employee.
+     * Retried when the company was changed concurrently, e.g. by another accepted application.
      *
      * @param jobApplicationId The ID of the job application to accept.
      * @throws JobApplicationNotFoundException if no job application is found with the provided ID.
      */
     @Override
-    @Transactional
     public void acceptJobApplication(Long jobApplicationId) {
-        JobApplication jobApplication = jobApplicationRepository.findById(jobApplicationId)
-                .orElseThrow(() -> new JobApplicationNotFoundException("Job application not found with id: " + jobApplicationId));
+        optimisticLockRetry.run("acceptJobApplication", () -> {
+            JobApplication jobApplication = jobApplicationRepository.findById(jobApplicationId)
+                    .orElseThrow(() -> new JobApplicationNotFoundException("Job application not found with id: " + jobApplicationId));
 
-        jobApplication.setAccepted(true);
+            jobApplication.setAccepted(true);
 
-        Company company = jobApplication.getCompany();
-        User applicant = jobApplication.getEmployee();
+            Company company = jobApplication.getCompany();
+            User applicant = jobApplication.getEmployee();
 
-        // Get the company role's IDs
-        Set<Long> roleIdsAddToEmployee = companyRoleIds(company);
-        // Query the corresponding Role objects by roleIdsAddToEmployee
-        List<Role> rolesAddToEmployee = roleRepository.findAllById(roleIdsAddToEmployee);
+            // Get the company role's IDs
+            Set<Long> roleIdsAddToEmployee = companyRoleIds(company);
+            // Query the corresponding Role objects by roleIdsAddToEmployee
+            List<Role> rolesAddToEmployee = roleRepository.findAllById(roleIdsAddToEmployee);
 
-        // Add the accepted candidate to the company employees
-        company.getEmployees().add(applicant);
-        // Assign appropriate roles to the newly recruited employee
-        applicant.getRoles().addAll(rolesAddToEmployee);
+            // Add the accepted candidate to the company employees
+            company.getEmployees().add(applicant);
+            // Assign appropriate roles to the newly recruited employee
+            applicant.getRoles().addAll(rolesAddToEmployee);
+            principalVersionRegistry.invalidate(applicant.getId());
 
-        // save to DB
-        jobApplicationRepository.save(jobApplication);
-        companyRepository.save(company);
+            // save to DB
+            jobApplicationRepository.save(jobApplication);
+            companyRepository.save(company);
 
-        log.info("CompanyServiceImpl::acceptJobApplication - {} has been successfully recruited to the company {}!",
-                applicant.getFirstName() + ' ' + applicant.getLastName(), company.getCompanyName());
+            log.info("CompanyServiceImpl::acceptJobApplication - {} has been successfully recruited to the company {}!",
+                    applicant.getFirstName() + ' ' + applicant.getLastName(), company.getCompanyName());
+        });
     }
 
 
@@ -395,7 +342,7 @@ public class CompanyServiceImpl implements CompanyService {
 
     /**
      * Removes an employee from a company by deleting their roles, removing them from the company's employee list,
-     * and deleting their job applications for the company.
+     * and deleting their job applications for the company. Retried when the company was changed concurrently.
      *
      * @param companyId  The ID of the company from which the employee is to be removed.
      * @param employeeId The ID of the employee to be removed.
@@ -403,34 +350,36 @@ public class CompanyServiceImpl implements CompanyService {
      * @throws NotFoundException        if the employee with the specified ID is not found.
      */
     @Override
-    @Transactional
     public void removeEmployeeFromCompany(Long companyId, Long employeeId) {
-        Company company = companyRepository.findById(companyId)
-                .orElseThrow(() -> new CompanyNotFoundException("Company not found with id: " + companyId));
-        User user = userService.findById(employeeId)
-                .orElseThrow(() -> new NotFoundException("Employee not found with id: " + employeeId));
+        optimisticLockRetry.run("removeEmployeeFromCompany", () -> {
+            Company company = companyRepository.findById(companyId)
+                    .orElseThrow(() -> new CompanyNotFoundException("Company not found with id: " + companyId));
+            User user = userService.findById(employeeId)
+                    .orElseThrow(() -> new NotFoundException("Employee not found with id: " + employeeId));
 
-        Set<User> employees = getEmployeesByCompanyId(companyId);
+            Set<User> employees = company.getEmployees();
 
-        if (!employees.contains(user)) {
-            log.error("Employee with id {} is not part of the company with id {}", employeeId, companyId);
-            return;
-        }
+            if (!employees.contains(user)) {
+                log.error("Employee with id {} is not part of the company with id {}", employeeId, companyId);
+                return;
+            }
 
-        // Get the company role's IDs
-        Set<Long> roleIdsToDeleteFromEmployee = companyRoleIds(company);
-        // Query the corresponding Role objects by roleIdsToDeleteFromEmployee
-        List<Role> rolesToDelete = roleRepository.findAllById(roleIdsToDeleteFromEmployee);
-        // Remove roles from the employee
-        rolesToDelete.forEach(user.getRoles()::remove);
-        // Remove the employee from the company's employee list
-        employees.remove(user);
+            // Get the company role's IDs
+            Set<Long> roleIdsToDeleteFromEmployee = companyRoleIds(company);
+            // Query the corresponding Role objects by roleIdsToDeleteFromEmployee
+            List<Role> rolesToDelete = roleRepository.findAllById(roleIdsToDeleteFromEmployee);
+            // Remove roles from the employee
+            rolesToDelete.forEach(user.getRoles()::remove);
+            principalVersionRegistry.invalidate(employeeId);
+            // Remove the employee from the company's employee list
+            employees.remove(user);
 
-        companyRepository.save(company);
-        // Delete job applications for the removed employee and company
-        deleteJobApplicationsForCompanyAndUser(user, company);
+            companyRepository.save(company);
+            // Delete job applications for the removed employee and company
+            deleteJobApplicationsForCompanyAndUser(user, company);
 
-        log.info("CompanyServiceImpl::removeEmployeeFromCompany - {} dismissed from the COMPANY {}!", user.getFirstName() + ' ' + user.getLastName(), company.getCompanyName());
+            log.info("CompanyServiceImpl::removeEmployeeFromCompany - {} dismissed from the COMPANY {}!", user.getFirstName() + ' ' + user.getLastName(), company.getCompanyName());
+        });
     }
 
 
@@ -466,6 +415,7 @@ public class CompanyServiceImpl implements CompanyService {
         List<Role> rolesToDelete = roleRepository.findAllById(roleIdsToDeleteFromEmployee);
         // Remove roles from the user
         rolesToDelete.forEach(user.getRoles()::remove);
+        principalVersionRegistry.invalidate(userId);
         // Remove user from company
         company.getEmployees().remove(user);
         // Delete job applications for the user and company
@@ -526,6 +476,8 @@ public class CompanyServiceImpl implements CompanyService {
         machineService.calculateAndSetProfit(machine);
         // Add the machine to the company and save
         addMachineToCompanyAndSave(machine, company);
+        // Add the machine to the monthly rollup of the company
+        companyMonthlyRollupService.recordMachineAdded(machine);
         // Log the addition of the machine to the company
         log.info("CompanyServiceImpl::addNewMachineToCompany - {} successfully added this MACHINE: {} to this COMPANY: {}!", user.getFirstName() + ' ' + user.getLastName(),
                 machine.getMachineBrand() + ' ' + machine.getMachineModel(),
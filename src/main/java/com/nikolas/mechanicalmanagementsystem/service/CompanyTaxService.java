@@ -0,0 +1,10 @@
+package com.nikolas.mechanicalmanagementsystem.service;
+
+import com.nikolas.mechanicalmanagementsystem.dtos.JobStatus;
+
+import java.math.BigDecimal;
+
+public interface CompanyTaxService {
+    JobStatus startTaxChange(Long companyId, BigDecimal newTaxInPercent);
+    void changeTax(JobStatus status, Long companyId, BigDecimal newTaxInPercent);
+}
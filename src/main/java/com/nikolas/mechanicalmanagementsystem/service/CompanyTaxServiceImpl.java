@@ -0,0 +1,76 @@
+package com.nikolas.mechanicalmanagementsystem.service;
+
+import com.nikolas.mechanicalmanagementsystem.dtos.JobStatus;
+import com.nikolas.mechanicalmanagementsystem.repository.MachineRepository;
+import com.nikolas.mechanicalmanagementsystem.utility.TaxRates;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Applies a new tax rate to every active machine of a company in a background job.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class CompanyTaxServiceImpl implements CompanyTaxService {
+
+    private final MachineRepository machineRepository;
+    private final MachineService machineService;
+    private final CompanyMonthlyRollupService companyMonthlyRollupService;
+    private final BackgroundJobService backgroundJobService;
+
+    @Value("${app.tax.batch-size:200}")
+    private int batchSize = 200;
+
+
+    /**
+     * Starts the tax change of a company.
+     *
+     * @param companyId       The ID of the company.
+     * @param newTaxInPercent The new tax rate of the parts.
+     * @return The status of the job.
+     * @throws IllegalArgumentException if the new tax rate is null or outside the valid range (0 to 100).
+     * @throws IllegalStateException    if too many jobs are already waiting.
+     */
+    @Override
+    public JobStatus startTaxChange(Long companyId, BigDecimal newTaxInPercent) {
+        TaxRates.validate(newTaxInPercent);
+        return backgroundJobService.start("company-" + companyId + "-tax-" + newTaxInPercent.toPlainString(),
+                status -> changeTax(status, companyId, newTaxInPercent));
+    }
+
+
+    /**
+     * Applies the tax rate to the active machines of the company in batches of {@code app.tax.batch-size} machines,
+     * paging by ID. Each batch is updated by two statements in its own transaction, so the parts are never loaded and
+     * the rows are only locked for one batch. The monthly rollup of the company is recomputed at the end.
+     *
+     * @param status          The status of the job, updated after each batch.
+     * @param companyId       The ID of the company.
+     * @param newTaxInPercent The new tax rate of the parts.
+     */
+    @Override
+    public void changeTax(JobStatus status, Long companyId, BigDecimal newTaxInPercent) {
+        status.setTotal(machineRepository.countByCompanyIdAndIsActive(companyId, true));
+
+        long lastId = 0;
+        List<Long> machineIds = machineRepository.findActiveMachineIdsByCompanyId(companyId, lastId, PageRequest.of(0, batchSize));
+        while (!machineIds.isEmpty()) {
+            machineService.applyTaxToMachines(machineIds, newTaxInPercent);
+            status.advance(machineIds.size());
+            lastId = machineIds.get(machineIds.size() - 1);
+            machineIds = machineRepository.findActiveMachineIdsByCompanyId(companyId, lastId, PageRequest.of(0, batchSize));
+        }
+
+        companyMonthlyRollupService.refresh(companyId);
+        log.info("CompanyTaxServiceImpl::changeTax - Tax of {} machine(s) of company {} changed to {} percent",
+                status.getProcessed(), companyId, newTaxInPercent);
+        status.complete(status.getProcessed() + " machine(s) updated to " + newTaxInPercent.toPlainString() + "%");
+    }
+}
@@ -0,0 +1,93 @@
+package com.nikolas.mechanicalmanagementsystem.service;
+
+import com.nikolas.mechanicalmanagementsystem.dtos.StoredContent;
+import com.nikolas.mechanicalmanagementsystem.exception.NotFoundException;
+import com.nikolas.mechanicalmanagementsystem.repository.ImageContentRepository;
+import com.nikolas.mechanicalmanagementsystem.utility.ContentHash;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.Resource;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+
+/**
+ * Image storage keeping the bytes in the {@code image_contents} table. This is the default backend.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "app.images.storage", havingValue = "database", matchIfMissing = true)
+public class DatabaseImageStorage implements ImageStorage {
+
+    private static final String INSERT_CONTENT = "INSERT INTO image_contents (hash, content, content_size) VALUES (?, ?, ?)";
+
+    private final ImageContentRepository imageContentRepository;
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Stores the content unless content with the same hash is already stored.
+     * The content is hashed while it is copied into a temporary file in fixed size buffers, as the hash is the key
+     * of the row; the row is then inserted from the file, so the image is never held in memory as a whole.
+     *
+     * @param content The image bytes.
+     * @return The hash and size of the content.
+     * @throws IOException If the content cannot be read.
+     */
+    @Override
+    public StoredContent store(InputStream content) throws IOException {
+        MessageDigest digest = ContentHash.newDigest();
+        Path temp = Files.createTempFile("image-", ".tmp");
+        try {
+            long size;
+            try (InputStream in = new DigestInputStream(content, digest);
+                 OutputStream out = Files.newOutputStream(temp)) {
+                size = in.transferTo(out);
+            }
+            String hash = ContentHash.toHex(digest);
+
+            if (!imageContentRepository.existsById(hash)) {
+                try (InputStream in = Files.newInputStream(temp)) {
+                    jdbcTemplate.update(INSERT_CONTENT, ps -> {
+                        ps.setString(1, hash);
+                        ps.setBinaryStream(2, in, size);
+                        ps.setLong(3, size);
+                    });
+                } catch (DataIntegrityViolationException e) {
+                    // Stored concurrently by another upload of the same image
+                    log.info("DatabaseImageStorage::store - Content {} already stored", hash);
+                }
+            }
+            return new StoredContent(hash, size);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    @Override
+    public Resource load(String hash) {
+        return imageContentRepository.findContentByHash(hash)
+                .map(ByteArrayResource::new)
+                .orElseThrow(() -> new NotFoundException("Image content not found: " + hash));
+    }
+
+    @Override
+    public boolean exists(String hash) {
+        return imageContentRepository.existsById(hash);
+    }
+
+    @Override
+    public void delete(String hash) {
+        imageContentRepository.deleteById(hash);
+    }
+}
@@ -0,0 +1,105 @@
+package com.nikolas.mechanicalmanagementsystem.service;
+
+import com.nikolas.mechanicalmanagementsystem.dtos.StoredContent;
+import com.nikolas.mechanicalmanagementsystem.exception.NotFoundException;
+import com.nikolas.mechanicalmanagementsystem.utility.ContentHash;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.*;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+
+/**
+ * Image storage keeping the bytes in files under {@code app.images.directory}, named by their SHA-256 hash
+ * and spread over two levels of sub directories ({@code ab/cd/abcd...}) to keep directories small.
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "app.images.storage", havingValue = "filesystem")
+public class FileSystemImageStorage implements ImageStorage {
+
+    private final Path root;
+    private final Path incoming;
+
+    public FileSystemImageStorage(@Value("${app.images.directory:./data/images}") String directory) throws IOException {
+        this.root = Paths.get(directory).toAbsolutePath().normalize();
+        this.incoming = root.resolve("incoming");
+        Files.createDirectories(incoming);
+        log.info("FileSystemImageStorage - Storing images in {}", root);
+    }
+
+
+    /**
+     * Streams the content into a temporary file while hashing it, then moves the file to its content address.
+     * If the same content is already stored, the temporary file is dropped.
+     *
+     * @param content The image bytes.
+     * @return The hash and size of the content.
+     * @throws IOException If the content cannot be read or written.
+     */
+    @Override
+    public StoredContent store(InputStream content) throws IOException {
+        MessageDigest digest = ContentHash.newDigest();
+        Path temp = Files.createTempFile(incoming, "upload-", ".tmp");
+        try {
+            long size;
+            try (InputStream in = new DigestInputStream(content, digest);
+                 OutputStream out = Files.newOutputStream(temp)) {
+                size = in.transferTo(out);
+            }
+            String hash = ContentHash.toHex(digest);
+            Path target = pathOf(hash);
+            if (!Files.exists(target)) {
+                Files.createDirectories(target.getParent());
+                try {
+                    Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+                } catch (FileAlreadyExistsException e) {
+                    // Stored concurrently by another upload of the same image
+                    log.info("FileSystemImageStorage::store - Content {} already stored", hash);
+                }
+            }
+            return new StoredContent(hash, size);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    @Override
+    public Resource load(String hash) {
+        Path path = pathOf(hash);
+        if (!Files.isRegularFile(path)) {
+            throw new NotFoundException("Image content not found: " + hash);
+        }
+        return new FileSystemResource(path);
+    }
+
+    @Override
+    public boolean exists(String hash) {
+        return Files.isRegularFile(pathOf(hash));
+    }
+
+    @Override
+    public void delete(String hash) {
+        try {
+            Files.deleteIfExists(pathOf(hash));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private Path pathOf(String hash) {
+        if (!ContentHash.isValid(hash)) {
+            throw new IllegalArgumentException("Invalid content hash: " + hash);
+        }
+        return root.resolve(hash.substring(0, 2)).resolve(hash.substring(2, 4)).resolve(hash);
+    }
+}
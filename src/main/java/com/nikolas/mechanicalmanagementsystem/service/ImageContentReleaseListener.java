@@ -0,0 +1,31 @@
+package com.nikolas.mechanicalmanagementsystem.service;
+
+import com.nikolas.mechanicalmanagementsystem.entity.ImageContentReference;
+import com.nikolas.mechanicalmanagementsystem.utility.AfterCommit;
+import jakarta.persistence.PostRemove;
+import org.springframework.beans.factory.ObjectProvider;
+
+/**
+ * Entity listener of the entities referring to image storage content ({@code Images} and {@code ImageVariant}),
+ * releasing the stored content once nothing refers to it any more.
+ * It covers every removal path (single image, machine and company deletion through cascades).
+ * The check runs after the commit, so a rolled back deletion never loses content.
+ */
+public class ImageContentReleaseListener {
+
+    private final ObjectProvider<ImageContentReleaseService> imageContentReleaseService;
+
+    // Created by Hibernate through the Spring bean container, the provider avoids an initialization cycle
+    public ImageContentReleaseListener(ObjectProvider<ImageContentReleaseService> imageContentReleaseService) {
+        this.imageContentReleaseService = imageContentReleaseService;
+    }
+
+    @PostRemove
+    public void contentReferenceRemoved(ImageContentReference reference) {
+        String hash = reference.getContentHash();
+        if (hash == null) {
+            return;
+        }
+        AfterCommit.run(() -> imageContentReleaseService.getObject().releaseIfUnreferenced(hash));
+    }
+}
@@ -0,0 +1,6 @@
+package com.nikolas.mechanicalmanagementsystem.service;
+
+public interface ImageContentReleaseService {
+    void releaseIfUnreferenced(String hash);
+    boolean lockContent(String hash);
+}
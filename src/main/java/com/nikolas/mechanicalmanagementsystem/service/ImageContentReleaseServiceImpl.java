@@ -0,0 +1,67 @@
+package com.nikolas.mechanicalmanagementsystem.service;
+
+import com.nikolas.mechanicalmanagementsystem.repository.ImageContentLockRepository;
+import com.nikolas.mechanicalmanagementsystem.repository.ImageVariantRepository;
+import com.nikolas.mechanicalmanagementsystem.repository.ImagesRepository;
+import jakarta.transaction.Transactional;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+/**
+ * Releases stored image content nobody refers to any more. The content is stored before the row referring to it is
+ * committed, and an upload of existing content does not store it again, so a release could delete content that an
+ * uncommitted row is about to refer to. The release and the transactions adding a reference therefore lock the
+ * {@code image_content_locks} row of the hash: the release sees the committed reference, or the referring transaction
+ * sees that the content is gone and stores it again.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ImageContentReleaseServiceImpl implements ImageContentReleaseService {
+
+    private final ImagesRepository imagesRepository;
+    private final ImageVariantRepository imageVariantRepository;
+    private final ImageContentLockRepository imageContentLockRepository;
+    private final ImageStorage imageStorage;
+
+
+    /**
+     * Deletes the content from the image storage unless an image or an image variant still refers to it.
+     * Failures are only logged: the content then stays as an orphan, which is better than losing referenced content.
+     * It runs in a new transaction, as it is called after the commit of the removing transaction, whose resources
+     * are still bound to the thread.
+     *
+     * @param hash The hash of the content.
+     */
+    @Override
+    @Transactional(Transactional.TxType.REQUIRES_NEW)
+    public void releaseIfUnreferenced(String hash) {
+        try {
+            // Taken before the checks, so a reference committed while waiting is seen by them
+            imageContentLockRepository.lock(hash);
+            if (!imagesRepository.existsByContentHash(hash) && !imageVariantRepository.existsByContentHash(hash)) {
+                imageStorage.delete(hash);
+                imageContentLockRepository.deleteByHash(hash);
+                log.info("ImageContentReleaseServiceImpl::releaseIfUnreferenced - Image content {} released", hash);
+            }
+        } catch (RuntimeException e) {
+            log.error("ImageContentReleaseServiceImpl::releaseIfUnreferenced - Releasing image content {} failed: {}", hash, e.getMessage());
+        }
+    }
+
+
+    /**
+     * Protects the content from being released until the current transaction ends. Every transaction adding a
+     * reference to content stored before it started calls it before committing the reference.
+     *
+     * @param hash The hash of the content.
+     * @return false if the content was released in the meantime, the caller has to store it again.
+     */
+    @Override
+    @Transactional(Transactional.TxType.MANDATORY)
+    public boolean lockContent(String hash) {
+        imageContentLockRepository.lock(hash);
+        return imageStorage.exists(hash);
+    }
+}
@@ -0,0 +1,19 @@
+package com.nikolas.mechanicalmanagementsystem.service;
+
+import com.nikolas.mechanicalmanagementsystem.dtos.StoredContent;
+import org.springframework.core.io.Resource;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Content-addressed storage of image bytes. Content is keyed by its SHA-256 hash,
+ * so identical images are stored once no matter how many {@code Images} rows refer to them.
+ * The backend is chosen with the {@code app.images.storage} property ({@code database} or {@code filesystem}).
+ */
+public interface ImageStorage {
+    StoredContent store(InputStream content) throws IOException;
+    Resource load(String hash);
+    boolean exists(String hash);
+    void delete(String hash);
+}
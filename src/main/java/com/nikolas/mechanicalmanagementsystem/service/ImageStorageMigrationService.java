@@ -0,0 +1,12 @@
+package com.nikolas.mechanicalmanagementsystem.service;
+
+import com.nikolas.mechanicalmanagementsystem.dtos.JobStatus;
+import org.springframework.core.io.Resource;
+
+import java.util.Optional;
+
+public interface ImageStorageMigrationService {
+    JobStatus startMigration();
+    void migrate(JobStatus status);
+    Optional<Resource> loadLegacyContent(Long imageId);
+}
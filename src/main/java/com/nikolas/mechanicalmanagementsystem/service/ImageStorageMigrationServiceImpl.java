@@ -0,0 +1,157 @@
+package com.nikolas.mechanicalmanagementsystem.service;
+
+import com.nikolas.mechanicalmanagementsystem.dtos.JobStatus;
+import com.nikolas.mechanicalmanagementsystem.dtos.StoredContent;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.Resource;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Moves the image bytes of the legacy {@code images.image} LOB column into the configured {@link ImageStorage}.
+ * The column is no longer mapped, so it is read with plain JDBC, one LOB stream at a time. The migration starts
+ * by itself when the application starts with images left to migrate, and those images are served from the legacy
+ * column until their batch is committed.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ImageStorageMigrationServiceImpl implements ImageStorageMigrationService {
+
+    private static final String COUNT_PENDING = "SELECT COUNT(*) FROM images WHERE content_hash IS NULL AND image IS NOT NULL";
+    private static final String SELECT_BATCH = "SELECT id, image FROM images " +
+            "WHERE content_hash IS NULL AND image IS NOT NULL AND id > ? ORDER BY id LIMIT ?";
+    private static final String SELECT_LEGACY_CONTENT = "SELECT image FROM images WHERE id = ? AND content_hash IS NULL";
+    // The legacy bytes are cleared in the same statement, they are in the storage from now on
+    private static final String MARK_MIGRATED = "UPDATE images SET content_hash = ?, content_size = ?, image = NULL WHERE id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ImageStorage imageStorage;
+    private final BackgroundJobService backgroundJobService;
+    private final ImageContentReleaseService imageContentReleaseService;
+    private final TransactionOperations transactionOperations;
+
+    @Value("${app.images.migration.batch-size:20}")
+    private int batchSize = 20;
+
+    @Value("${app.images.migration.on-startup:true}")
+    private boolean migrateOnStartup = true;
+
+
+    @Override
+    public JobStatus startMigration() {
+        return backgroundJobService.start("image-storage-migration", this::migrate);
+    }
+
+
+    /**
+     * Starts the migration when the application starts with legacy image bytes left, so existing images do not
+     * wait for an administrator to start it. A restart continues an interrupted migration.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void startMigrationIfPending() {
+        if (!migrateOnStartup) {
+            return;
+        }
+        long pending;
+        try {
+            pending = jdbcTemplate.queryForObject(COUNT_PENDING, Long.class);
+        } catch (DataAccessException e) {
+            // No legacy column, nothing to migrate
+            return;
+        }
+        if (pending > 0) {
+            log.info("ImageStorageMigrationServiceImpl::startMigrationIfPending - {} images are not migrated yet, starting the migration", pending);
+            startMigration();
+        }
+    }
+
+
+    /**
+     * Reads the legacy bytes of an image that is not migrated yet.
+     *
+     * @param imageId The ID of the image.
+     * @return The legacy content, or empty if the image does not exist, has no legacy bytes or is migrated.
+     */
+    @Override
+    public Optional<Resource> loadLegacyContent(Long imageId) {
+        try {
+            byte[] content = jdbcTemplate.query(SELECT_LEGACY_CONTENT, rs -> rs.next() ? rs.getBytes("image") : null, imageId);
+            return Optional.ofNullable(content).map(ByteArrayResource::new);
+        } catch (DataAccessException e) {
+            // Databases created after the switch to the image storage have no legacy column
+            return Optional.empty();
+        }
+    }
+
+
+    /**
+     * Migrates the legacy image bytes in batches of {@code app.images.migration.batch-size} rows, paging by ID.
+     * Only one batch of LOBs is read at a time and each row is streamed into the storage, so memory use does not
+     * depend on the number of images. Every batch is committed on its own, an interrupted migration can be restarted.
+     * A row whose content was released by a deletion of the same content before the batch was committed keeps its
+     * legacy bytes, and is migrated by the next run.
+     *
+     * @param status The status of the job, updated after each batch.
+     */
+    @Override
+    public void migrate(JobStatus status) {
+        long pending;
+        try {
+            pending = jdbcTemplate.queryForObject(COUNT_PENDING, Long.class);
+        } catch (DataAccessException e) {
+            // Databases created after the switch to the image storage have no legacy column
+            status.complete("No legacy image column, nothing to migrate");
+            return;
+        }
+        status.setTotal(pending);
+
+        long lastId = 0;
+        while (true) {
+            List<Object[]> migrated = new ArrayList<>();
+            long[] batchLastId = {lastId};
+            jdbcTemplate.query(SELECT_BATCH, rs -> {
+                long id = rs.getLong("id");
+                batchLastId[0] = id;
+                try (InputStream content = rs.getBinaryStream("image")) {
+                    StoredContent stored = imageStorage.store(content);
+                    migrated.add(new Object[]{stored.getHash(), stored.getSize(), id});
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Image " + id + " could not be migrated", e);
+                }
+            }, lastId, batchSize);
+
+            if (batchLastId[0] == lastId) {
+                break;
+            }
+            int marked = transactionOperations.execute(transaction -> markMigrated(migrated));
+            status.advance(marked);
+            lastId = batchLastId[0];
+            log.info("ImageStorageMigrationServiceImpl::migrate - {} of {} images migrated", status.getProcessed(), pending);
+        }
+        status.complete("Migrated " + status.getProcessed() + " image(s)");
+    }
+
+    // The content is locked before the rows refer to it, see ImageContentReleaseService
+    private int markMigrated(List<Object[]> migrated) {
+        List<Object[]> stored = migrated.stream()
+                .filter(row -> imageContentReleaseService.lockContent((String) row[0]))
+                .toList();
+        jdbcTemplate.batchUpdate(MARK_MIGRATED, stored);
+        return stored.size();
+    }
+}
@@ -0,0 +1,14 @@
+package com.nikolas.mechanicalmanagementsystem.service;
+
+import com.nikolas.mechanicalmanagementsystem.entity.ImageVariantType;
+import org.springframework.core.io.Resource;
+
+import java.util.Optional;
+
+public interface ImageVariantService {
+    void scheduleMissingVariants(Long machineId);
+    void generateMissingVariants(Long machineId);
+    void generateVariants(Long imageId);
+    Optional<String> getVariantType(Long imageId, ImageVariantType variant);
+    Resource getVariantContent(Long imageId, ImageVariantType variant);
+}
@@ -0,0 +1,209 @@
+package com.nikolas.mechanicalmanagementsystem.service;
+
+import com.nikolas.mechanicalmanagementsystem.dtos.StoredContent;
+import com.nikolas.mechanicalmanagementsystem.entity.ImageVariant;
+import com.nikolas.mechanicalmanagementsystem.entity.ImageVariantType;
+import com.nikolas.mechanicalmanagementsystem.exception.NotFoundException;
+import com.nikolas.mechanicalmanagementsystem.repository.ImageVariantRepository;
+import com.nikolas.mechanicalmanagementsystem.repository.ImagesRepository;
+import com.nikolas.mechanicalmanagementsystem.utility.AfterCommit;
+import com.nikolas.mechanicalmanagementsystem.utility.ImageScaler;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.io.Resource;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionOperations;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Executor;
+
+@Slf4j
+@Service
+public class ImageVariantServiceImpl implements ImageVariantService {
+
+    private final ImagesRepository imagesRepository;
+    private final ImageVariantRepository imageVariantRepository;
+    private final ImageStorage imageStorage;
+    private final ImageContentReleaseService imageContentReleaseService;
+    private final TransactionOperations transactionOperations;
+    private final Executor imageProcessingExecutor;
+
+    public ImageVariantServiceImpl(ImagesRepository imagesRepository,
+                                   ImageVariantRepository imageVariantRepository,
+                                   ImageStorage imageStorage,
+                                   ImageContentReleaseService imageContentReleaseService,
+                                   TransactionOperations transactionOperations,
+                                   @Qualifier("imageProcessingExecutor") Executor imageProcessingExecutor) {
+        this.imagesRepository = imagesRepository;
+        this.imageVariantRepository = imageVariantRepository;
+        this.imageStorage = imageStorage;
+        this.imageContentReleaseService = imageContentReleaseService;
+        this.transactionOperations = transactionOperations;
+        this.imageProcessingExecutor = imageProcessingExecutor;
+    }
+
+
+    /**
+     * Generates the missing variants of the machine's images on the image processing executor.
+     * When called inside a transaction the work is submitted after the commit, so the worker can see the new images.
+     *
+     * @param machineId The ID of the machine whose images are processed.
+     */
+    @Override
+    public void scheduleMissingVariants(Long machineId) {
+        AfterCommit.run(() -> imageProcessingExecutor.execute(() -> generateMissingVariants(machineId)));
+    }
+
+
+    /**
+     * Generates every variant that is still missing for the images of the given machine.
+     *
+     * @param machineId The ID of the machine whose images are processed.
+     */
+    @Override
+    public void generateMissingVariants(Long machineId) {
+        List<Long> imageIds = imageVariantRepository.findImageIdsWithMissingVariants(machineId);
+        for (Long imageId : imageIds) {
+            try {
+                generateVariants(imageId);
+            } catch (RuntimeException e) {
+                log.error("ImageVariantServiceImpl::generateMissingVariants - Variants of image {} failed: {}", imageId, e.getMessage());
+            }
+        }
+    }
+
+
+    /**
+     * Decodes the original image once and stores a downscaled rendition for every {@link ImageVariantType} not stored yet.
+     * Images that already fit a variant's size get no such variant, the original is served instead.
+     * The image is marked done unless storing a variant failed, so images that cannot be decoded or encoded,
+     * or need no variant, are not processed again; a failed store is retried by the next run.
+     *
+     * @param imageId The ID of the image.
+     */
+    @Override
+    public void generateVariants(Long imageId) {
+        Optional<String> hash = imagesRepository.findContentHashById(imageId);
+        if (hash.isEmpty()) {
+            // Deleted before the worker got to it, or its content is not migrated yet
+            return;
+        }
+        BufferedImage source;
+        try (InputStream original = imageStorage.load(hash.get()).getInputStream()) {
+            source = ImageIO.read(original);
+        } catch (IOException e) {
+            log.warn("ImageVariantServiceImpl::generateVariants - Image {} could not be decoded: {}", imageId, e.getMessage());
+            markDone(imageId);
+            return;
+        }
+        if (source == null) {
+            log.info("ImageVariantServiceImpl::generateVariants - No decoder for image {}, the original will be served", imageId);
+            markDone(imageId);
+            return;
+        }
+
+        boolean done = true;
+        for (ImageVariantType variantType : ImageVariantType.values()) {
+            if (imageVariantRepository.existsByImageIdAndVariant(imageId, variantType)) {
+                continue;
+            }
+            BufferedImage scaled = ImageScaler.scaleToFit(source, variantType.getMaxDimension());
+            if (scaled == source) {
+                continue;
+            }
+            byte[] content;
+            try {
+                content = ImageScaler.encode(scaled);
+            } catch (IOException e) {
+                log.warn("ImageVariantServiceImpl::generateVariants - {} of image {} could not be encoded: {}", variantType, imageId, e.getMessage());
+                continue;
+            }
+            try {
+                saveVariant(imageId, variantType, ImageScaler.contentType(scaled), scaled, content);
+                log.info("ImageVariantServiceImpl::generateVariants - {} of image {} created ({}x{}, {} bytes)",
+                        variantType, imageId, scaled.getWidth(), scaled.getHeight(), content.length);
+            } catch (IOException e) {
+                log.warn("ImageVariantServiceImpl::generateVariants - {} of image {} could not be stored: {}", variantType, imageId, e.getMessage());
+                done = false;
+            }
+        }
+        if (done) {
+            markDone(imageId);
+        }
+    }
+
+    private void markDone(Long imageId) {
+        transactionOperations.executeWithoutResult(status -> imagesRepository.markVariantsDone(imageId));
+    }
+
+    // The bytes go to the image storage first, the row only refers to them
+    private void saveVariant(Long imageId, ImageVariantType variantType, String type, BufferedImage scaled, byte[] content) throws IOException {
+        StoredContent stored = imageStorage.store(new ByteArrayInputStream(content));
+        boolean saved = false;
+        try {
+            saved = Boolean.TRUE.equals(transactionOperations.execute(status -> {
+                if (!imagesRepository.existsById(imageId)) {
+                    return false;
+                }
+                if (!imageContentReleaseService.lockContent(stored.getHash())) {
+                    // Released by a deletion of the same content since it was stored
+                    storeAgain(content);
+                }
+                ImageVariant variant = new ImageVariant(null, imagesRepository.getReferenceById(imageId), variantType,
+                        type, scaled.getWidth(), scaled.getHeight(), stored.getHash(), stored.getSize());
+                imageVariantRepository.save(variant);
+                return true;
+            }));
+        } catch (DataIntegrityViolationException e) {
+            // Another worker stored the same variant, or the image was deleted meanwhile
+            log.info("ImageVariantServiceImpl::saveVariant - {} of image {} not stored: {}", variantType, imageId, e.getMessage());
+        } finally {
+            if (!saved) {
+                imageContentReleaseService.releaseIfUnreferenced(stored.getHash());
+            }
+        }
+    }
+
+
+    private void storeAgain(byte[] content) {
+        try {
+            imageStorage.store(new ByteArrayInputStream(content));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+
+    /**
+     * @param imageId The ID of the image.
+     * @param variant The requested variant.
+     * @return The content type of the variant, or empty if the variant does not exist.
+     */
+    @Override
+    public Optional<String> getVariantType(Long imageId, ImageVariantType variant) {
+        return imageVariantRepository.findTypeByImageIdAndVariant(imageId, variant);
+    }
+
+
+    /**
+     * @param imageId The ID of the image.
+     * @param variant The requested variant.
+     * @return The content of the variant, readable as a stream.
+     * @throws NotFoundException if the variant or its content does not exist.
+     */
+    @Override
+    public Resource getVariantContent(Long imageId, ImageVariantType variant) {
+        String hash = imageVariantRepository.findContentHashByImageIdAndVariant(imageId, variant)
+                .orElseThrow(() -> new NotFoundException("Image variant " + variant + " not found for image: " + imageId));
+        return imageStorage.load(hash);
+    }
+
+}
@@ -1,6 +1,9 @@
 package com.nikolas.mechanicalmanagementsystem.service;
 
+import com.nikolas.mechanicalmanagementsystem.dtos.ImageMetadata;
 import com.nikolas.mechanicalmanagementsystem.entity.Machine;
+import com.nikolas.mechanicalmanagementsystem.security.UserSnapshot;
+import org.springframework.core.io.Resource;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
@@ -13,4 +16,8 @@ public interface ImagesService {
     void uploadAndSaveImage(List<MultipartFile> file, Machine machine) throws IOException;
     boolean isAllowedImageType(String contentType);
     void deleteImage(Long imageId);
+    void checkAccessToImage(UserSnapshot user, Long imageId);
+    ImageMetadata getImageMetadataForUser(UserSnapshot user, Long imageId);
+    Resource getImageContent(Long imageId);
+    List<ImageMetadata> getImagesOfMachine(Long machineId);
 }
@@ -1,40 +1,83 @@
 package com.nikolas.mechanicalmanagementsystem.service;
 
-import com.nikolas.mechanicalmanagementsystem.entity.Images;
-import com.nikolas.mechanicalmanagementsystem.entity.Machine;
+import com.nikolas.mechanicalmanagementsystem.dtos.ImageMetadata;
+import com.nikolas.mechanicalmanagementsystem.dtos.StoredContent;
+import com.nikolas.mechanicalmanagementsystem.entity.*;
 import com.nikolas.mechanicalmanagementsystem.exception.NotFoundException;
 import com.nikolas.mechanicalmanagementsystem.repository.ImagesRepository;
-import jakarta.transaction.Transactional;
-import lombok.RequiredArgsConstructor;
+import com.nikolas.mechanicalmanagementsystem.security.UserSnapshot;
+import com.nikolas.mechanicalmanagementsystem.utility.ImageTypeDetector;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.io.Resource;
+import org.springframework.security.access.AccessDeniedException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionOperations;
 import org.springframework.web.multipart.MaxUploadSizeExceededException;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.BufferedInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 
 import static com.nikolas.mechanicalmanagementsystem.entity.Images.MAX_IMAGE_SIZE;
 
 @Slf4j
-@RequiredArgsConstructor
 @Service
 public class ImagesServiceImpl implements ImagesService {
 
     private final ImagesRepository imagesRepository;
     private final MachineService machineService;
+    private final MachineOwnershipCache machineOwnershipCache;
+    private final ImageVariantService imageVariantService;
+    private final ImageStorage imageStorage;
+    private final ImageContentReleaseService imageContentReleaseService;
+    private final ImageStorageMigrationService imageStorageMigrationService;
+    private final TransactionOperations transactionOperations;
+    private final Executor imageUploadExecutor;
+
+    public ImagesServiceImpl(ImagesRepository imagesRepository,
+                             MachineService machineService,
+                             MachineOwnershipCache machineOwnershipCache,
+                             ImageVariantService imageVariantService,
+                             ImageStorage imageStorage,
+                             ImageContentReleaseService imageContentReleaseService,
+                             ImageStorageMigrationService imageStorageMigrationService,
+                             TransactionOperations transactionOperations,
+                             @Qualifier("imageUploadExecutor") Executor imageUploadExecutor) {
+        this.imagesRepository = imagesRepository;
+        this.machineService = machineService;
+        this.machineOwnershipCache = machineOwnershipCache;
+        this.imageVariantService = imageVariantService;
+        this.imageStorage = imageStorage;
+        this.imageContentReleaseService = imageContentReleaseService;
+        this.imageStorageMigrationService = imageStorageMigrationService;
+        this.transactionOperations = transactionOperations;
+        this.imageUploadExecutor = imageUploadExecutor;
+    }
 
     /**
      * Uploads and saves multiple images for a given machine.
+     * The files are streamed into the image storage in parallel on the image upload executor, before the transaction
+     * saving the images starts, so no database connection is held while the uploads are read.
+     * If saving the images fails, the content stored for them is released again. The transaction saving the images
+     * locks their content, so a concurrent release of the same content cannot delete it, see {@link ImageContentReleaseService}.
      *
      * @param files   The list of MultipartFile objects representing the uploaded images.
      * @param machine The Machine object to which the images belong.
-     * @throws IOException If an I/O exception occurs.
+     * @throws IOException If an I/O exception occurs or a file is not a supported image.
      */
     // MAX 5 MB image size
     @Override
-    @Transactional
     public void uploadAndSaveImage(List<MultipartFile> files, Machine machine) throws IOException {
         try {
             // Check if the machine and files are valid
@@ -44,22 +87,14 @@ public class ImagesServiceImpl implements ImagesService {
                     if (file.getSize() > MAX_IMAGE_SIZE) {
                         throw new MaxUploadSizeExceededException(MAX_IMAGE_SIZE);
                     }
-                    // Check if the file type is allowed
-                    if (!isAllowedImageType(file.getContentType())) {
-                        throw new IOException("Invalid image type!");
-                    }
-                    // Create an Images object to store the image data
-                    Images image = new Images();
-                    image.setName(file.getOriginalFilename());
-                    image.setType(file.getContentType());
-                    image.setPicByte(file.getBytes());
-                    image.setMachine(machine);
-                    // Add the image to the machine's list of images
-                    machine.getImages().add(image);
-                    log.info("ImagesServiceImpl::uploadAndSaveImage - Image {} uploaded successfully to machine {}!", image.getName(), machine.getMachineBrand() + ' ' + machine.getMachineModel());
                 }
-                // Save the machine only once after adding all images
-                machineService.saveMachine(machine);
+                List<UploadedImage> uploadedImages = storeAll(files);
+                try {
+                    transactionOperations.executeWithoutResult(status -> saveImages(uploadedImages, machine));
+                } catch (RuntimeException e) {
+                    releaseUnreferenced(uploadedImages);
+                    throw e;
+                }
             }
         } catch (IOException | MaxUploadSizeExceededException e) {
             log.error("ImagesServiceImpl::uploadAndSaveImage - Error: " + e.getMessage());
@@ -67,6 +102,107 @@ public class ImagesServiceImpl implements ImagesService {
         }
     }
 
+    private void saveImages(List<UploadedImage> uploadedImages, Machine machine) {
+        for (UploadedImage uploadedImage : uploadedImages) {
+            protectContent(uploadedImage);
+            // Create an Images object, only the hash is kept on it, the bytes are in the image storage
+            Images image = new Images();
+            image.setName(uploadedImage.getName());
+            image.setType(uploadedImage.getType());
+            image.setContentHash(uploadedImage.getContent().getHash());
+            image.setContentSize(uploadedImage.getContent().getSize());
+            image.setMachine(machine);
+            // Add the image to the machine's list of images
+            machine.getImages().add(image);
+            log.info("ImagesServiceImpl::uploadAndSaveImage - Image {} uploaded successfully to machine {}!", image.getName(), machine.getMachineBrand() + ' ' + machine.getMachineModel());
+        }
+        // Save the machine only once after adding all images
+        machineService.saveMachine(machine);
+        // Thumbnails and previews are generated in the background once the images are committed
+        imageVariantService.scheduleMissingVariants(machine.getId());
+    }
+
+
+    // Content released by a deletion since it was stored (when it already existed) is stored again from the upload
+    private void protectContent(UploadedImage uploadedImage) {
+        String hash = uploadedImage.getContent().getHash();
+        if (imageContentReleaseService.lockContent(hash)) {
+            return;
+        }
+        try (InputStream content = uploadedImage.getFile().getInputStream()) {
+            imageStorage.store(content);
+            log.info("ImagesServiceImpl::uploadAndSaveImage - Content {} was released meanwhile, stored again", hash);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+
+    /**
+     * Stores every file, waiting for all of them even if one fails, so the content of the others can be released.
+     *
+     * @param files The uploaded files.
+     * @return The stored files, in the order of the request.
+     * @throws IOException If a file cannot be read or is not a supported image.
+     */
+    private List<UploadedImage> storeAll(List<MultipartFile> files) throws IOException {
+        List<CompletableFuture<UploadedImage>> futures = files.stream()
+                .map(file -> CompletableFuture.supplyAsync(() -> storeFile(file), imageUploadExecutor))
+                .toList();
+
+        List<UploadedImage> uploadedImages = new ArrayList<>();
+        Throwable failure = null;
+        for (CompletableFuture<UploadedImage> future : futures) {
+            try {
+                uploadedImages.add(future.join());
+            } catch (CompletionException e) {
+                if (failure == null) {
+                    failure = e.getCause();
+                }
+            }
+        }
+        if (failure != null) {
+            releaseUnreferenced(uploadedImages);
+            if (failure instanceof UncheckedIOException ioFailure) {
+                throw ioFailure.getCause();
+            }
+            if (failure instanceof RuntimeException runtimeFailure) {
+                throw runtimeFailure;
+            }
+            throw new IllegalStateException(failure);
+        }
+        return uploadedImages;
+    }
+
+
+    /**
+     * Streams one file into the image storage. Its type is detected from its first bytes, the content type sent by
+     * the client is not trusted.
+     *
+     * @param file The uploaded file.
+     * @return The name, detected type and stored content of the file.
+     * @throws UncheckedIOException If the file cannot be read or is not a supported image.
+     */
+    private UploadedImage storeFile(MultipartFile file) {
+        try (InputStream content = new BufferedInputStream(file.getInputStream())) {
+            String type = ImageTypeDetector.detect(content)
+                    .filter(this::isAllowedImageType)
+                    .orElseThrow(() -> new IOException("Invalid image type!"));
+            return new UploadedImage(file, file.getOriginalFilename(), type, imageStorage.store(content));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+
+    // Content of a failed upload is deleted unless an existing image has the same content
+    private void releaseUnreferenced(List<UploadedImage> uploadedImages) {
+        uploadedImages.stream()
+                .map(uploadedImage -> uploadedImage.getContent().getHash())
+                .distinct()
+                .forEach(imageContentReleaseService::releaseIfUnreferenced);
+    }
+
 
     /**
      * Checks if the given image content type is allowed for upload.
@@ -89,11 +225,91 @@ public class ImagesServiceImpl implements ImagesService {
      */
     @Override
     public void deleteImage(Long imageId) {
-        Images image = imagesRepository.findById(imageId)
+        ImageMetadata image = imagesRepository.findMetadataById(imageId)
                 .orElseThrow(() -> new NotFoundException("Image not found with id: " + imageId));
         imagesRepository.deleteById(imageId);
-        log.info("ImagesServiceImpl::deleteImage - {} image removed from machine {}!", image.getName(),
-                image.getMachine().getMachineBrand() + ' ' + image.getMachine().getMachineModel());
+        machineOwnershipCache.evictImage(imageId);
+        log.info("ImagesServiceImpl::deleteImage - {} image removed from machine {}!", image.getName(), image.getMachineId());
+    }
+
+
+    /**
+     * Checks that the user may change the image with the given ID, without loading the image or its machine.
+     *
+     * @param user    The user changing the image.
+     * @param imageId The ID of the image.
+     * @throws NotFoundException     if the image with the given ID is not found.
+     * @throws AccessDeniedException if the machine of the image belongs to none of the user's companies,
+     *                               or the machine is inactive and the user does not have admin role.
+     */
+    @Override
+    public void checkAccessToImage(UserSnapshot user, Long imageId) {
+        machineService.checkAccessToMachine(user, machineOwnershipCache.getMachineIdOfImage(imageId));
+    }
+
+
+    /**
+     * Retrieves the metadata of the image with the given ID, after checking that the user may see it.
+     * The image content is not loaded.
+     *
+     * @param user    The user requesting the image.
+     * @param imageId The ID of the image.
+     * @return The metadata of the image.
+     * @throws NotFoundException     if the image with the given ID is not found.
+     * @throws AccessDeniedException if the machine of the image belongs to none of the user's companies,
+     *                               or the machine is inactive and the user does not have admin role.
+     */
+    @Override
+    public ImageMetadata getImageMetadataForUser(UserSnapshot user, Long imageId) {
+        ImageMetadata metadata = imagesRepository.findMetadataById(imageId)
+                .orElseThrow(() -> new NotFoundException("Image not found with id: " + imageId));
+
+        if (!user.hasAccessToCompany(metadata.getCompanyId()) || (!metadata.isMachineActive() && !user.isAdmin())) {
+            log.info("ImagesServiceImpl::getImageMetadataForUser - User {} has no access to image {}", user.getEmail(), imageId);
+            throw new AccessDeniedException("Access denied to image with id: " + imageId);
+        }
+        return metadata;
+    }
+
+
+    /**
+     * Retrieves the content of the image with the given ID from the image storage. An image whose bytes are not
+     * migrated to the image storage yet is served from the legacy column.
+     *
+     * @param imageId The ID of the image.
+     * @return The content of the image, readable as a stream.
+     * @throws NotFoundException if the image with the given ID or its content is not found.
+     */
+    @Override
+    public Resource getImageContent(Long imageId) {
+        return imagesRepository.findContentHashById(imageId)
+                .map(imageStorage::load)
+                .or(() -> imageStorageMigrationService.loadLegacyContent(imageId))
+                // Migrated between the two reads
+                .or(() -> imagesRepository.findContentHashById(imageId).map(imageStorage::load))
+                .orElseThrow(() -> new NotFoundException("Image not found with id: " + imageId));
+    }
+
+
+    /**
+     * Retrieves the metadata of the images of the given machine, without their content.
+     *
+     * @param machineId The ID of the machine.
+     * @return The metadata of the machine's images.
+     */
+    @Override
+    public List<ImageMetadata> getImagesOfMachine(Long machineId) {
+        return imagesRepository.findMetadataByMachineId(machineId);
+    }
+
+
+    @Getter
+    @AllArgsConstructor
+    private static class UploadedImage {
+        private final MultipartFile file;
+        private final String name;
+        private final String type;
+        private final StoredContent content;
     }
 
 }
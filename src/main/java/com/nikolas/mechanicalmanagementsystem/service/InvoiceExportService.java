@@ -0,0 +1,13 @@
+package com.nikolas.mechanicalmanagementsystem.service;
+
+import com.nikolas.mechanicalmanagementsystem.dtos.JobStatus;
+import com.nikolas.mechanicalmanagementsystem.security.UserSnapshot;
+import org.springframework.core.io.Resource;
+
+import java.util.List;
+
+public interface InvoiceExportService {
+    JobStatus startExport(UserSnapshot user, Integer year, Integer month, List<Long> companyIds);
+    JobStatus getExportStatus(UserSnapshot user, String jobId);
+    Resource getExportFile(UserSnapshot user, String jobId);
+}
@@ -0,0 +1,277 @@
+package com.nikolas.mechanicalmanagementsystem.service;
+
+import com.nikolas.mechanicalmanagementsystem.dtos.JobStatus;
+import com.nikolas.mechanicalmanagementsystem.entity.Company;
+import com.nikolas.mechanicalmanagementsystem.entity.Invoice;
+import com.nikolas.mechanicalmanagementsystem.exception.NotFoundException;
+import com.nikolas.mechanicalmanagementsystem.repository.MachineRepository;
+import com.nikolas.mechanicalmanagementsystem.security.UserSnapshot;
+import jakarta.annotation.PreDestroy;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Service;
+import org.thymeleaf.ITemplateEngine;
+import org.thymeleaf.context.Context;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Renders every invoice of a month into one ZIP file in a background job, with the template of the invoice page.
+ * The machines are read one batch of IDs at a time and rendered on the invoice rendering executor, and each batch is
+ * written into the ZIP before the next one is read, so memory use does not depend on the number of machines.
+ */
+@Slf4j
+@Service
+public class InvoiceExportServiceImpl implements InvoiceExportService {
+
+    private final BackgroundJobService backgroundJobService;
+    private final MachineRepository machineRepository;
+    private final InvoiceService invoiceService;
+    private final CompanyService companyService;
+    private final ITemplateEngine templateEngine;
+    private final Executor invoiceRenderingExecutor;
+    // The most recent exports of every user in starting order, the files of the forgotten ones are deleted
+    private final Map<String, InvoiceExport> exports = new LinkedHashMap<>();
+
+    @Value("${app.invoices.export.batch-size:50}")
+    private int batchSize = 50;
+
+    @Value("${app.invoices.export.max-exports-per-user:10}")
+    private int maxExportsPerUser = 10;
+
+    public InvoiceExportServiceImpl(BackgroundJobService backgroundJobService,
+                                    MachineRepository machineRepository,
+                                    InvoiceService invoiceService,
+                                    CompanyService companyService,
+                                    ITemplateEngine templateEngine,
+                                    @Qualifier("invoiceRenderingExecutor") Executor invoiceRenderingExecutor) {
+        this.backgroundJobService = backgroundJobService;
+        this.machineRepository = machineRepository;
+        this.invoiceService = invoiceService;
+        this.companyService = companyService;
+        this.templateEngine = templateEngine;
+        this.invoiceRenderingExecutor = invoiceRenderingExecutor;
+    }
+
+
+    /**
+     * Starts exporting the invoices of the active machines registered in the month by the given companies.
+     * Companies the user is no longer a member of are left out; the job itself runs without a logged-in user.
+     *
+     * @param user       The user starting the export, the only one who can download it.
+     * @param year       The year of the registration of the machines.
+     * @param month      The month of the registration of the machines.
+     * @param companyIds The IDs of the selected companies.
+     * @return The status of the export job.
+     * @throws IllegalStateException if too many jobs are already waiting.
+     */
+    @Override
+    public JobStatus startExport(UserSnapshot user, Integer year, Integer month, List<Long> companyIds) {
+        List<Long> userCompanyIds = companyService.getAllCompaniesByUser(user).stream()
+                .map(Company::getId)
+                .toList();
+        List<Long> exportedCompanyIds = companyIds.stream()
+                .filter(userCompanyIds::contains)
+                .toList();
+        InvoiceExport export = new InvoiceExport(user.getEmail(), user.getFullName());
+        String name = String.format("invoices-%d-%02d", year, month);
+
+        JobStatus status = backgroundJobService.start(name, job -> {
+            track(job.getId(), export);
+            export(job, export, year, month, exportedCompanyIds);
+        });
+        // The job may not have registered the export yet when the user opens its page
+        track(status.getId(), export);
+        log.info("InvoiceExportServiceImpl::startExport - {} started by {} for companies {}", name, user.getEmail(), exportedCompanyIds);
+        return status;
+    }
+
+    /**
+     * Keeps the export, forgetting the oldest exports of the same user beyond {@code app.invoices.export.max-exports-per-user},
+     * so the exports of one user never delete the files of another.
+     */
+    private void track(String jobId, InvoiceExport export) {
+        synchronized (exports) {
+            if (exports.putIfAbsent(jobId, export) != null) {
+                return;
+            }
+            List<String> ownJobIds = exports.entrySet().stream()
+                    .filter(entry -> entry.getValue().getOwnerEmail().equals(export.getOwnerEmail()))
+                    .map(Map.Entry::getKey)
+                    .toList();
+            for (int i = 0; i < ownJobIds.size() - maxExportsPerUser; i++) {
+                exports.remove(ownJobIds.get(i)).delete();
+            }
+        }
+    }
+
+    void export(JobStatus status, InvoiceExport export, Integer year, Integer month, List<Long> companyIds) {
+        if (companyIds.isEmpty()) {
+            status.setTotal(0);
+        } else {
+            status.setTotal(machineRepository.countActiveMachinesByYearAndMonthAndCompanyIdIn(year, month, companyIds));
+        }
+        Path file;
+        try {
+            file = Files.createTempFile(status.getName() + "-", ".zip");
+        } catch (IOException e) {
+            throw new UncheckedIOException("The export file could not be created", e);
+        }
+
+        long exported = 0;
+        long skipped = 0;
+        try (ZipOutputStream zip = new ZipOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+            long lastId = 0;
+            List<Long> machineIds = companyIds.isEmpty() ? List.of()
+                    : machineRepository.findActiveMachineIdsByYearAndMonthAndCompanyIdIn(year, month, companyIds, lastId, batchSize);
+            while (!machineIds.isEmpty()) {
+                List<CompletableFuture<RenderedInvoice>> batch = machineIds.stream()
+                        .map(machineId -> CompletableFuture.supplyAsync(() -> render(machineId, export.getIssuedBy()), invoiceRenderingExecutor))
+                        .toList();
+                // Written in the order of the machines, while the rest of the batch is still rendering
+                for (int i = 0; i < batch.size(); i++) {
+                    try {
+                        RenderedInvoice invoice = batch.get(i).join();
+                        zip.putNextEntry(new ZipEntry(invoice.getFileName()));
+                        zip.write(invoice.getContent());
+                        zip.closeEntry();
+                        exported++;
+                    } catch (CompletionException e) {
+                        // e.g. the machine was deleted since the batch was read
+                        log.warn("InvoiceExportServiceImpl::export - Invoice of machine {} skipped: {}", machineIds.get(i), e.getCause().getMessage());
+                        skipped++;
+                    }
+                    status.advance(1);
+                }
+                lastId = machineIds.get(machineIds.size() - 1);
+                machineIds = machineRepository.findActiveMachineIdsByYearAndMonthAndCompanyIdIn(year, month, companyIds, lastId, batchSize);
+            }
+        } catch (IOException e) {
+            deleteQuietly(file);
+            throw new UncheckedIOException("The export file could not be written", e);
+        } catch (RuntimeException e) {
+            deleteQuietly(file);
+            throw e;
+        }
+
+        export.setFile(file);
+        synchronized (exports) {
+            if (exports.get(status.getId()) != export) {
+                // Forgotten while it was running
+                export.delete();
+            }
+        }
+        status.complete(exported + " invoice(s) exported" + (skipped > 0 ? ", " + skipped + " skipped" : ""));
+    }
+
+    private RenderedInvoice render(Long machineId, String issuedBy) {
+        Invoice invoice = invoiceService.getOrIssueInvoiceForExport(machineId, issuedBy);
+        Context context = new Context();
+        context.setVariable("invoice", invoice);
+        context.setVariable("exported", true);
+        String html = templateEngine.process("invoice", context);
+        String fileName = "invoice-" + invoice.getCompanyId() + "-" + invoice.getInvoiceNumber() + ".html";
+        return new RenderedInvoice(fileName, html.getBytes(StandardCharsets.UTF_8));
+    }
+
+
+    /**
+     * @param user  The user requesting the status.
+     * @param jobId The ID of the export job.
+     * @return The status of the export.
+     * @throws NotFoundException if there is no such export of the user.
+     */
+    @Override
+    public JobStatus getExportStatus(UserSnapshot user, String jobId) {
+        getExport(user, jobId);
+        return backgroundJobService.getJob(jobId)
+                .orElseThrow(() -> new NotFoundException("Invoice export not found with id: " + jobId));
+    }
+
+
+    /**
+     * @param user  The user downloading the export.
+     * @param jobId The ID of the export job.
+     * @return The ZIP file of the finished export.
+     * @throws NotFoundException if there is no such export of the user, or it is not finished yet.
+     */
+    @Override
+    public Resource getExportFile(UserSnapshot user, String jobId) {
+        Path file = getExport(user, jobId).getFile();
+        if (file == null || !Files.exists(file)) {
+            throw new NotFoundException("Invoice export is not ready: " + jobId);
+        }
+        return new FileSystemResource(file);
+    }
+
+    private InvoiceExport getExport(UserSnapshot user, String jobId) {
+        InvoiceExport export;
+        synchronized (exports) {
+            export = exports.get(jobId);
+        }
+        if (export == null || !export.getOwnerEmail().equals(user.getEmail())) {
+            throw new NotFoundException("Invoice export not found with id: " + jobId);
+        }
+        return export;
+    }
+
+    @PreDestroy
+    void deleteExports() {
+        synchronized (exports) {
+            exports.values().forEach(InvoiceExport::delete);
+            exports.clear();
+        }
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("InvoiceExportServiceImpl::deleteQuietly - Could not delete {}", file, e);
+        }
+    }
+
+    @Getter
+    @RequiredArgsConstructor
+    static class InvoiceExport {
+        private final String ownerEmail;
+        private final String issuedBy;
+        private volatile Path file;
+
+        void setFile(Path file) {
+            this.file = file;
+        }
+
+        void delete() {
+            if (file != null) {
+                deleteQuietly(file);
+            }
+        }
+    }
+
+    @Getter
+    @AllArgsConstructor
+    private static class RenderedInvoice {
+        private final String fileName;
+        private final byte[] content;
+    }
+}
@@ -1,7 +1,15 @@
 package com.nikolas.mechanicalmanagementsystem.service;
 
-import com.nikolas.mechanicalmanagementsystem.dtos.InvoiceDataDTO;
+import com.nikolas.mechanicalmanagementsystem.entity.Invoice;
+import com.nikolas.mechanicalmanagementsystem.security.UserSnapshot;
+
+import java.util.Optional;
 
 public interface InvoiceService {
-    InvoiceDataDTO generateInvoice(Long machineId);
+    Optional<Long> findLatestInvoiceId(Long machineId);
+    Long getOrIssueInvoice(Long machineId);
+    Invoice issueInvoice(Long machineId);
+    Invoice getOrIssueInvoiceForExport(Long machineId, String issuedBy);
+    Invoice getInvoiceForUser(UserSnapshot user, Long invoiceId);
+    void deleteByCompanyId(Long companyId);
 }
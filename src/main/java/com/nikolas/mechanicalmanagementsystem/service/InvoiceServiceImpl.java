@@ -1,53 +1,203 @@
 package com.nikolas.mechanicalmanagementsystem.service;
 
-import com.nikolas.mechanicalmanagementsystem.dtos.InvoiceDataDTO;
-import com.nikolas.mechanicalmanagementsystem.entity.Machine;
-import com.nikolas.mechanicalmanagementsystem.entity.User;
+import com.nikolas.mechanicalmanagementsystem.entity.*;
+import com.nikolas.mechanicalmanagementsystem.exception.InvoiceNotFoundException;
+import com.nikolas.mechanicalmanagementsystem.repository.InvoiceCounterRepository;
+import com.nikolas.mechanicalmanagementsystem.repository.InvoiceRepository;
+import com.nikolas.mechanicalmanagementsystem.security.UserSnapshot;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.security.access.AccessDeniedException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Optional;
 
 @RequiredArgsConstructor
 @Slf4j
 @Service
-public class InvoiceServiceImpl implements InvoiceService{
+public class InvoiceServiceImpl implements InvoiceService {
     private final MachineService machineService;
     private final UserService userService;
+    private final InvoiceRepository invoiceRepository;
+    private final InvoiceCounterRepository invoiceCounterRepository;
 
     /**
-     * Generates invoice data for a machine owned by the logged-in user.
+     * Returns the latest invoice issued for the machine, without issuing one.
      *
-     * @param machineId The ID of the machine for which to generate the invoice data.
-     * @return An {@code InvoiceDataDTO} object containing the generated invoice data.
+     * @param machineId The ID of the machine.
+     * @return The ID of the latest invoice, or empty if none was issued yet.
      */
     @Override
-    public InvoiceDataDTO generateInvoice(Long machineId) {
-        // Get the logged-in user
-        User loggedInUser = userService.getLoggedInUser();
-        // Get the machine access by the logged-in user
+    public Optional<Long> findLatestInvoiceId(Long machineId) {
+        machineService.checkAccessToMachine(userService.getLoggedInUserSnapshot(), machineId);
+        return invoiceRepository.findLatestIdByMachineId(machineId);
+    }
+
+
+    /**
+     * Returns the latest invoice issued for the machine, issuing the first one if there is none yet.
+     * Called on an explicit request to issue, a repeated request does not issue a second invoice.
+     * The first issue is serialised per company, see {@link #findLatestIdLocked(Long, Long)}.
+     *
+     * @param machineId The ID of the machine.
+     * @return The ID of the invoice.
+     */
+    @Override
+    @Transactional(isolation = Isolation.READ_COMMITTED)
+    public Long getOrIssueInvoice(Long machineId) {
+        // Get the logged-in user and check the access to the machine
+        UserSnapshot loggedInUser = userService.getLoggedInUserSnapshot();
+        machineService.checkAccessToMachine(loggedInUser, machineId);
+        Optional<Long> latestId = invoiceRepository.findLatestIdByMachineId(machineId);
+        if (latestId.isPresent()) {
+            return latestId.get();
+        }
+        Machine machine = machineService.getMachineById(machineId);
+        Invoice.InvoiceBuilder invoice = snapshot(machine, loggedInUser.getFullName());
+        Long companyId = machine.getCompany().getId();
+        return findLatestIdLocked(machineId, companyId)
+                .orElseGet(() -> number(invoice, companyId, machineId).getId());
+    }
+
+
+    /**
+     * Issues a new invoice for a machine owned by the logged-in user: the company, the machine and its parts
+     * are copied into an immutable snapshot, numbered within the company.
+     * The snapshot is built before the number is allocated, so the company's counter row is only locked for
+     * the insert of the invoice and the commit.
+     *
+     * @param machineId The ID of the machine to invoice.
+     * @return The issued invoice.
+     */
+    @Override
+    @Transactional
+    public Invoice issueInvoice(Long machineId) {
+        // Get the logged-in user and the machine accessed by them
+        UserSnapshot loggedInUser = userService.getLoggedInUserSnapshot();
         Machine machine = machineService.getMachineForUser(loggedInUser, machineId);
+        return number(snapshot(machine, loggedInUser.getFullName()), machine.getCompany().getId(), machineId);
+    }
+
+
+    /**
+     * Returns the latest invoice of a machine with its lines, issuing the first one if there is none yet.
+     * Used by the invoice export, which runs without a logged-in user: the caller has already restricted
+     * the machines to the companies of the user who started it.
+     *
+     * @param machineId The ID of the machine.
+     * @param issuedBy  The name shown as issuer if a new invoice is issued.
+     * @return The invoice with its lines.
+     */
+    @Override
+    @Transactional(isolation = Isolation.READ_COMMITTED)
+    public Invoice getOrIssueInvoiceForExport(Long machineId, String issuedBy) {
+        Optional<Invoice> latest = invoiceRepository.findLatestIdByMachineId(machineId)
+                .flatMap(invoiceRepository::findWithLinesById);
+        if (latest.isPresent()) {
+            return latest.get();
+        }
+        Machine machine = machineService.getMachineById(machineId);
+        Invoice.InvoiceBuilder invoice = snapshot(machine, issuedBy);
+        Long companyId = machine.getCompany().getId();
+        return findLatestIdLocked(machineId, companyId)
+                .flatMap(invoiceRepository::findWithLinesById)
+                .orElseGet(() -> number(invoice, companyId, machineId));
+    }
+
 
-        // Generate current and future dates
-        LocalDateTime currentDate = LocalDateTime.now();
-        LocalDateTime futureDate = currentDate.plusDays(7);
-
-        // Format dates
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy.MM.dd HH:mm");
-        String formattedCurrentDate = currentDate.format(formatter);
-        String formattedFutureDate = futureDate.format(formatter);
-
-        // Compile data in the InvoiceDataDTO object
-        InvoiceDataDTO invoiceDataDTO = new InvoiceDataDTO();
-        invoiceDataDTO.setCompany(machine.getCompany());
-        invoiceDataDTO.setEmployeeFirstName(loggedInUser.getFirstName());
-        invoiceDataDTO.setEmployeeLastName(loggedInUser.getLastName());
-        invoiceDataDTO.setMachine(machine);
-        invoiceDataDTO.setCurrentDate(formattedCurrentDate);
-        invoiceDataDTO.setFutureDate(formattedFutureDate);
-        log.info("InvoiceServiceImpl::generateInvoice - Invoice generated");
-        return invoiceDataDTO;
-    }
-}
\ No newline at end of file
+    /**
+     * Repeats the lookup of the latest invoice once the counter row of the company is locked. The callers have found
+     * none and have already loaded and copied the machine, so the lock is only held for this lookup, the numbering
+     * and the commit: concurrent first issues wait for each other, and only the first one finds no invoice.
+     * It needs the READ_COMMITTED isolation, so the repeated lookup sees the invoice committed in the meantime.
+     */
+    private Optional<Long> findLatestIdLocked(Long machineId, Long companyId) {
+        invoiceCounterRepository.lock(companyId);
+        return invoiceRepository.findLatestIdByMachineId(machineId);
+    }
+
+    private Invoice.InvoiceBuilder snapshot(Machine machine, String issuedBy) {
+        Company company = machine.getCompany();
+
+        LocalDateTime issuedAt = LocalDateTime.now();
+        List<InvoiceLine> lines = machine.getMachineParts().stream()
+                .map(part -> new InvoiceLine(part.getPartName(), part.getPartPrice(), part.getUnitTax(),
+                        part.getTaxInPercent(), part.getPartPriceWithTax()))
+                .toList();
+        return Invoice.builder()
+                .companyId(company.getId())
+                .machineId(machine.getId())
+                .issuedAt(issuedAt)
+                .dueDate(issuedAt.plusDays(7))
+                .issuedBy(issuedBy)
+                .companyName(company.getCompanyName())
+                .ownerName(fullName(company.getOwner()))
+                .deputyLeaderName(fullName(company.getDeputyLeader()))
+                .companyStreet(company.getStreet())
+                .companyLocation(company.getLocation())
+                .companyPostCode(company.getPostCode())
+                .companyCountry(company.getCountry())
+                .companyIdentificationNumber(company.getIdentificationNumber())
+                .companyTaxIdentificationNumber(company.getTaxIdentificationNumber())
+                .companyVatIdentificationNumber(company.getValueAddedTaxIdentificationNumber())
+                .machineBrand(machine.getMachineBrand())
+                .machineModel(machine.getMachineModel())
+                .machineDescription(machine.getDescription())
+                .machineRegistrationDate(machine.getRegistrationDate())
+                .partsSum(machine.getMachinePartsSum())
+                .chargedAmount(machine.getChargedAmount())
+                .lines(lines);
+    }
+
+    private Invoice number(Invoice.InvoiceBuilder invoice, Long companyId, Long machineId) {
+        // Gap-free: the number is taken in this transaction, a rollback gives it back
+        invoiceCounterRepository.increment(companyId);
+        long invoiceNumber = invoiceCounterRepository.findLastNumber(companyId);
+        Invoice issued = invoiceRepository.save(invoice.invoiceNumber(invoiceNumber).build());
+        log.info("InvoiceServiceImpl::issueInvoice - Invoice {} of company {} issued for machine {}", invoiceNumber, companyId, machineId);
+        return issued;
+    }
+
+    private static String fullName(User user) {
+        return user != null ? user.getFirstName() + ' ' + user.getLastName() : null;
+    }
+
+
+    /**
+     * Retrieves an issued invoice with its lines in a single query, after checking that the user may see it.
+     *
+     * @param user      The user requesting the invoice.
+     * @param invoiceId The ID of the invoice.
+     * @return The invoice.
+     * @throws InvoiceNotFoundException if the invoice with the given ID is not found.
+     * @throws AccessDeniedException    if the invoice belongs to none of the user's companies.
+     */
+    @Override
+    public Invoice getInvoiceForUser(UserSnapshot user, Long invoiceId) {
+        Invoice invoice = invoiceRepository.findWithLinesById(invoiceId)
+                .orElseThrow(() -> new InvoiceNotFoundException("Invoice not found with id: " + invoiceId));
+        if (!user.hasAccessToCompany(invoice.getCompanyId())) {
+            log.info("InvoiceServiceImpl::getInvoiceForUser - User {} has no access to invoice {}", user.getEmail(), invoiceId);
+            throw new AccessDeniedException("Access denied to invoice with id: " + invoiceId);
+        }
+        return invoice;
+    }
+
+
+    /**
+     * Deletes the invoices and the invoice counter of a company, used when the company is deleted.
+     *
+     * @param companyId The ID of the company.
+     */
+    @Override
+    @Transactional
+    public void deleteByCompanyId(Long companyId) {
+        invoiceRepository.deleteLinesByCompanyId(companyId);
+        invoiceRepository.deleteByCompanyId(companyId);
+        invoiceCounterRepository.deleteByCompanyId(companyId);
+    }
+}
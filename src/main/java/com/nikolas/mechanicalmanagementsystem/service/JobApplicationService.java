@@ -1,8 +1,11 @@
 package com.nikolas.mechanicalmanagementsystem.service;
 
+import com.nikolas.mechanicalmanagementsystem.dtos.CompanyDirectoryPage;
+import com.nikolas.mechanicalmanagementsystem.dtos.CompanyDirectorySort;
 import com.nikolas.mechanicalmanagementsystem.entity.Company;
 import com.nikolas.mechanicalmanagementsystem.entity.JobApplication;
 import com.nikolas.mechanicalmanagementsystem.entity.User;
+import org.springframework.data.domain.Sort;
 
 import java.util.List;
 
@@ -11,7 +14,7 @@ public interface JobApplicationService {
     void withdrawJobApplication(Long jobApplicationId);
     List<JobApplication> findByEmployee(User user);
     JobApplication findByEmployeeAndCompany(User user, Company company);
-    List<Company> getCompaniesICanJoin(User user);
+    CompanyDirectoryPage getCompaniesICanJoin(User user, CompanyDirectorySort sort, Sort.Direction direction, int page, int size);
     void applyToCompany(User user, Long companyId);
 
 }
@@ -1,17 +1,23 @@
 package com.nikolas.mechanicalmanagementsystem.service;
 
+import com.nikolas.mechanicalmanagementsystem.dtos.CompanyDirectoryPage;
+import com.nikolas.mechanicalmanagementsystem.dtos.CompanyDirectoryRow;
+import com.nikolas.mechanicalmanagementsystem.dtos.CompanyDirectorySort;
 import com.nikolas.mechanicalmanagementsystem.entity.Company;
 import com.nikolas.mechanicalmanagementsystem.entity.JobApplication;
 import com.nikolas.mechanicalmanagementsystem.entity.User;
 import com.nikolas.mechanicalmanagementsystem.exception.AlreadyAppliedException;
 import com.nikolas.mechanicalmanagementsystem.exception.JobApplicationNotFoundException;
+import com.nikolas.mechanicalmanagementsystem.repository.CompanyRepository;
 import com.nikolas.mechanicalmanagementsystem.repository.JobApplicationRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.stereotype.Service;
 
-import java.util.ArrayList;
 import java.util.List;
 
 @Service
@@ -22,6 +28,9 @@ public class JobApplicationServiceImpl implements JobApplicationService {
     private final JobApplicationRepository jobApplicationRepository;
     private final UserService userService;
     private final CompanyService companyService;
+    private final CompanyRepository companyRepository;
+
+    static final int MAX_PAGE_SIZE = 200;
 
     /**
      * Withdraws a job application submitted by the logged-in user.
@@ -54,29 +63,26 @@ public class JobApplicationServiceImpl implements JobApplicationService {
 
 
     /**
-     * Retrieves a list of companies that the specified user can join based on existing job applications.
+     * Retrieves one page of the companies that the specified user can join: the companies the user does not own,
+     * does not work at and has not applied to. The page is read with one query and counted with another,
+     * however many companies there are.
      *
-     * @param user The user for whom to retrieve the list of joinable companies.
-     * @return A list of companies that the user can join.
+     * @param user      The user for whom to retrieve the joinable companies.
+     * @param sort      The column to sort by, the company name if null.
+     * @param direction The sort direction, ascending if null.
+     * @param page      The number of the page, from 0.
+     * @param size      The number of companies on a page, at most {@value #MAX_PAGE_SIZE}.
+     * @return The page of companies that the user can join.
      */
     @Override
-    public List<Company> getCompaniesICanJoin(User user) {
-        // Retrieve all companies
-        List<Company> allCompanies = companyService.getAllCompanies();
-
-        // List to store companies that the user can join
-        List<Company> companiesToJoin = new ArrayList<>();
-
-        // Iterate through all companies
-        for (Company company : allCompanies) {
-            // Check if the user already has a job application for the company
-            JobApplication existingApplication = findByEmployeeAndCompany(user, company);
-            if (existingApplication == null) {
-                // If the user doesn't have an existing application, add the company to the list of joinable companies
-                companiesToJoin.add(company);
-            }
-        }
-        return companiesToJoin;
+    public CompanyDirectoryPage getCompaniesICanJoin(User user, CompanyDirectorySort sort, Sort.Direction direction, int page, int size) {
+        CompanyDirectorySort sortBy = sort != null ? sort : CompanyDirectorySort.NAME;
+        Sort.Direction sortDirection = direction != null ? direction : Sort.Direction.ASC;
+        // The ID keeps the order of equal values stable between pages
+        PageRequest pageRequest = PageRequest.of(Math.max(page, 0), Math.min(Math.max(size, 1), MAX_PAGE_SIZE),
+                Sort.by(sortDirection, sortBy.getProperty()).and(Sort.by(Sort.Direction.ASC, "id")));
+        Page<CompanyDirectoryRow> companies = companyRepository.findJoinableByUserId(user.getId(), pageRequest);
+        return new CompanyDirectoryPage(companies.getContent(), sortBy, sortDirection, companies.getNumber(), companies.getTotalPages());
     }
 
 
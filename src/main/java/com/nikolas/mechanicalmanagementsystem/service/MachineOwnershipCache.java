@@ -0,0 +1,112 @@
+package com.nikolas.mechanicalmanagementsystem.service;
+
+import com.nikolas.mechanicalmanagementsystem.dtos.MachineOwnership;
+import com.nikolas.mechanicalmanagementsystem.exception.MachineNotFoundException;
+import com.nikolas.mechanicalmanagementsystem.exception.NotFoundException;
+import com.nikolas.mechanicalmanagementsystem.repository.ImagesRepository;
+import com.nikolas.mechanicalmanagementsystem.repository.MachineRepository;
+import com.nikolas.mechanicalmanagementsystem.utility.AfterCommit;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * The company and state of recently checked machines, and the machine of recently checked images, so the access
+ * checks run before any entity is loaded. Missing entries are read with a projection query; only the most recently
+ * used entries are kept. A machine never changes company, so the entries only have to be evicted when a machine
+ * is deactivated or an image is deleted.
+ */
+@RequiredArgsConstructor
+@Component
+public class MachineOwnershipCache {
+
+    private final MachineRepository machineRepository;
+    private final ImagesRepository imagesRepository;
+    // Access ordered, the least recently used entry is evicted first
+    private final Map<Long, MachineOwnership> machines = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, MachineOwnership> eldest) {
+            return size() > maxMachines;
+        }
+    };
+    private final Map<Long, Long> imageMachines = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Long> eldest) {
+            return size() > maxImages;
+        }
+    };
+    // Counts the evictions, an entry read before an eviction is not cached after it
+    private long evictions;
+
+    @Value("${app.access-cache.max-machines:10000}")
+    private int maxMachines = 10000;
+    @Value("${app.access-cache.max-images:10000}")
+    private int maxImages = 10000;
+
+
+    /**
+     * @param machineId The ID of the machine.
+     * @return The company and state of the machine.
+     * @throws MachineNotFoundException if the machine with the given ID is not found.
+     */
+    public MachineOwnership getOwnership(Long machineId) {
+        return get(machines, machineId, id -> machineRepository.findOwnershipById(id)
+                .orElseThrow(() -> new MachineNotFoundException("Machine not found with id: " + id)));
+    }
+
+    /**
+     * @param imageId The ID of the image.
+     * @return The ID of the machine of the image.
+     * @throws NotFoundException if the image with the given ID is not found.
+     */
+    public Long getMachineIdOfImage(Long imageId) {
+        return get(imageMachines, imageId, id -> imagesRepository.findMachineIdById(id)
+                .orElseThrow(() -> new NotFoundException("Image not found with id: " + id)));
+    }
+
+    /**
+     * Forgets the machine once the transaction changing it is committed.
+     *
+     * @param machineId The ID of the deactivated machine.
+     */
+    public void evictMachine(Long machineId) {
+        AfterCommit.run(() -> evict(machines, machineId));
+    }
+
+    /**
+     * Forgets the image once the transaction deleting it is committed.
+     *
+     * @param imageId The ID of the deleted image.
+     */
+    public void evictImage(Long imageId) {
+        AfterCommit.run(() -> evict(imageMachines, imageId));
+    }
+
+    private <T> T get(Map<Long, T> entries, Long id, Function<Long, T> loader) {
+        long evictionsBefore;
+        synchronized (this) {
+            T entry = entries.get(id);
+            if (entry != null) {
+                return entry;
+            }
+            evictionsBefore = evictions;
+        }
+        // Loaded without holding the lock, so the checks of other machines do not wait for the query
+        T loaded = loader.apply(id);
+        synchronized (this) {
+            if (evictions == evictionsBefore) {
+                entries.put(id, loaded);
+            }
+        }
+        return loaded;
+    }
+
+    private synchronized void evict(Map<Long, ?> entries, Long id) {
+        evictions++;
+        entries.remove(id);
+    }
+}
@@ -3,8 +3,12 @@ package com.nikolas.mechanicalmanagementsystem.service;
 import com.nikolas.mechanicalmanagementsystem.entity.Machine;
 import com.nikolas.mechanicalmanagementsystem.entity.MachinePart;
 
+import java.util.List;
+
 public interface MachinePartService {
 
     void addMachinePartToMachine(Machine machine, MachinePart machinePart);
+    int addMachineParts(Machine machine, List<MachinePart> machineParts);
+    int addMachinePartsFromCsv(Machine machine, String csv);
 
 }
@@ -2,21 +2,27 @@ package com.nikolas.mechanicalmanagementsystem.service;
 
 import com.nikolas.mechanicalmanagementsystem.entity.Machine;
 import com.nikolas.mechanicalmanagementsystem.entity.MachinePart;
-import com.nikolas.mechanicalmanagementsystem.repository.MachineRepository;
+import com.nikolas.mechanicalmanagementsystem.repository.MachinePartRepository;
+import com.nikolas.mechanicalmanagementsystem.utility.TaxRates;
+import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
-import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.List;
 
 @Slf4j
 @RequiredArgsConstructor
 @Service
 public class MachinePartServiceImpl implements MachinePartService {
 
-    private final MachineRepository machineRepository;
+    static final int MAX_PARTS_PER_REQUEST = 1000;
+
+    private final MachinePartRepository machinePartRepository;
     private final MachineService machineService;
+    private final PartCatalogService partCatalogService;
 
     /**
      * Adds a machine part to the specified machine.
@@ -24,28 +30,107 @@ public class MachinePartServiceImpl implements MachinePartService {
      * @param machine     The machine to which the part will be added.
      * @param machinePart The machine part to be added.
      */
+    @Transactional
     @Override
     public void addMachinePartToMachine(Machine machine, MachinePart machinePart) {
+        addMachineParts(machine, List.of(machinePart));
+        log.info("MachinePartServiceImpl::addMachinePartToMachine - {} machine part added to {} machine", machinePart.getPartName(), machine.getMachineBrand() + ' ' + machine.getMachineModel());
+    }
 
-        // Create a new machine part instance with the provided details
-        MachinePart newMachinePart = new MachinePart();
-        newMachinePart.setMachine(machine);
-        newMachinePart.setPartName(machinePart.getPartName());
-        newMachinePart.setPartPrice(machinePart.getPartPrice());
 
-        // Calculate tax-related details for the new machine part
-        newMachinePart.setTaxInPercent(machine.getTaxInPercent());
-        newMachinePart.setUnitTax(machinePart.getPartPrice().multiply(machine.getTaxInPercent().divide(new BigDecimal(100), 2, RoundingMode.HALF_EVEN)));
-        newMachinePart.setPartPriceWithTax(newMachinePart.getUnitTax().add(machinePart.getPartPrice()));
+    /**
+     * Adds machine parts to the specified machine in one transaction. The parts are inserted in JDBC batches
+     * and their total price is added to the parts sum of the machine once, at the end; the machine itself is not saved.
+     *
+     * @param machine      The machine to which the parts will be added.
+     * @param machineParts The names and prices of the parts to be added.
+     * @return The number of parts added.
+     * @throws IllegalArgumentException if a part has no name or a negative price, or there are too many parts.
+     */
+    @Transactional
+    @Override
+    public int addMachineParts(Machine machine, List<MachinePart> machineParts) {
+        if (machineParts.size() > MAX_PARTS_PER_REQUEST) {
+            throw new IllegalArgumentException("At most " + MAX_PARTS_PER_REQUEST + " parts can be added at once");
+        }
+        BigDecimal taxFactor = TaxRates.toFactor(machine.getTaxInPercent());
+        List<MachinePart> newMachineParts = new ArrayList<>(machineParts.size());
+        BigDecimal partsDelta = BigDecimal.ZERO;
+        for (MachinePart machinePart : machineParts) {
+            validate(machinePart);
+            // Create a new machine part instance with the provided details
+            MachinePart newMachinePart = new MachinePart();
+            newMachinePart.setMachine(machine);
+            newMachinePart.setPartName(machinePart.getPartName().trim());
+            newMachinePart.setPartPrice(machinePart.getPartPrice());
 
-        // Add the new machine part to the machine's list of parts
-        machine.getMachineParts().add(newMachinePart);
-        log.info("MachinePartServiceImpl::addMachinePartToMachine - {} machine part added to {} machine", machinePart.getPartName(), machine.getMachineBrand() + ' ' + machine.getMachineModel());
+            // Calculate tax-related details for the new machine part
+            newMachinePart.setTaxInPercent(machine.getTaxInPercent());
+            newMachinePart.setUnitTax(machinePart.getPartPrice().multiply(taxFactor));
+            newMachinePart.setPartPriceWithTax(newMachinePart.getUnitTax().add(machinePart.getPartPrice()));
+            newMachineParts.add(newMachinePart);
+            partsDelta = partsDelta.add(newMachinePart.getPartPriceWithTax());
+        }
+
+        if (newMachineParts.isEmpty()) {
+            return 0;
+        }
+        machinePartRepository.saveAll(newMachineParts);
+        machineService.applyPartsSumDelta(machine, partsDelta);
+        partCatalogService.partsAdded(machine.getCompany().getId(), newMachineParts);
+        return newMachineParts.size();
+    }
+
+    private static void validate(MachinePart machinePart) {
+        if (machinePart.getPartName() == null || machinePart.getPartName().isBlank()) {
+            throw new IllegalArgumentException("Machine part name is required");
+        }
+        if (machinePart.getPartPrice().signum() < 0) {
+            throw new IllegalArgumentException("Invalid price of machine part " + machinePart.getPartName() + ": " + machinePart.getPartPrice());
+        }
+    }
 
-        // Save the machine with the new part
-        machineRepository.save(machine);
-        machineService.updateMachine(machine);
 
+    /**
+     * Adds the machine parts pasted as CSV, one part per line: the name, then the price after the last separator
+     * (semicolon, tab or comma). With a semicolon or a tab the price may use a decimal comma. Blank lines are skipped.
+     *
+     * @param machine The machine to which the parts will be added.
+     * @param csv     The pasted lines.
+     * @return The number of parts added.
+     * @throws IllegalArgumentException if a line has no name or no valid price; no part is added then.
+     */
+    @Transactional
+    @Override
+    public int addMachinePartsFromCsv(Machine machine, String csv) {
+        List<MachinePart> machineParts = new ArrayList<>();
+        String[] lines = csv.split("\\R");
+        for (int i = 0; i < lines.length; i++) {
+            if (!lines[i].isBlank()) {
+                machineParts.add(parseLine(lines[i], i + 1));
+            }
+        }
+        return addMachineParts(machine, machineParts);
+    }
+
+    private static MachinePart parseLine(String line, int lineNumber) {
+        int separator = Math.max(line.lastIndexOf(';'), line.lastIndexOf('\t'));
+        boolean decimalComma = separator >= 0;
+        if (separator < 0) {
+            separator = line.lastIndexOf(',');
+        }
+        if (separator < 0) {
+            throw new IllegalArgumentException("Line " + lineNumber + ": no price after the name");
+        }
+        String price = line.substring(separator + 1).trim();
+        MachinePart machinePart = new MachinePart();
+        machinePart.setPartName(line.substring(0, separator).trim());
+        try {
+            machinePart.setPartPrice(new BigDecimal(decimalComma ? price.replace(',', '.') : price));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Line " + lineNumber + ": invalid price " + price);
+        }
+        return machinePart;
     }
 
 }
@@ -1,29 +1,37 @@
 package com.nikolas.mechanicalmanagementsystem.service;
 
+import com.nikolas.mechanicalmanagementsystem.dtos.MachineListPage;
+import com.nikolas.mechanicalmanagementsystem.dtos.MachineListSort;
+import com.nikolas.mechanicalmanagementsystem.dtos.MonthlyMachineSummary;
+import com.nikolas.mechanicalmanagementsystem.dtos.YearlyMachineReport;
 import com.nikolas.mechanicalmanagementsystem.entity.Machine;
 import com.nikolas.mechanicalmanagementsystem.entity.MachinePart;
-import com.nikolas.mechanicalmanagementsystem.entity.User;
+import com.nikolas.mechanicalmanagementsystem.security.UserSnapshot;
+
+import org.springframework.data.domain.Sort;
 
 import java.math.BigDecimal;
 import java.util.List;
 
 public interface MachineService {
-    BigDecimal calculateTotalPartsAmountByMonthAndYearAndCompanies(Integer selectedMonth, Integer selectedYear, List<Long> selectedCompanies);
-    BigDecimal calculateTotalChargedAmountByMonthAndYearAndCompanies(Integer selectedMonth, Integer selectedYear, List<Long> selectedCompanies);
-    BigDecimal calculateTotalProfitByMonthAndYearAndCompanies(Integer selectedMonth, Integer selectedYear, List<Long> selectedCompanies);
+    MonthlyMachineSummary getMonthlyMachineSummary(int year, int month, List<Long> companyIds);
+    YearlyMachineReport getYearlyMachineReport(int fromYear, int toYear, List<Long> companyIds);
     void calculateAndSetProfit(Machine machine);
     void saveMachine(Machine machine);
     Machine getMachineById(Long id);
-    Machine getMachineForUser(User user, Long machineId);
+    Machine getMachineForUser(UserSnapshot user, Long machineId);
+    void checkAccessToMachine(UserSnapshot user, Long machineId);
     void updateMachine(Machine machine);
-    void updateMachinePartsTax(Machine machine, BigDecimal newTaxInPercent);
+    void updateMachinePartsTax(Long machineId, BigDecimal newTaxInPercent);
+    int applyTaxToMachines(List<Long> machineIds, BigDecimal newTaxInPercent);
     void deleteMachineById(Long id);
     void deleteInactiveMachineById(Long id);
     void deleteMachinePart(Long machineId, Long machinePartId);
     BigDecimal calculateAndSetPartsSum(Machine machine);
+    void applyPartsSumDelta(Machine machine, BigDecimal partsDelta);
     MachinePart getMachinePartById(Long partId);
-    void convertImagesToBase64(Machine machine);
     List<Machine> getActiveMachinesByYearMonthAndCompanyId(int year, int month, List<Long> companyIds);
+    MachineListPage getActiveMachinePage(int year, int month, List<Long> companyIds, MachineListSort sort, Sort.Direction direction, String cursor, int pageSize);
     List<Machine> getDeletedMachines();
 
 }
@@ -1,19 +1,22 @@
 package com.nikolas.mechanicalmanagementsystem.service;
 
+import com.nikolas.mechanicalmanagementsystem.dtos.*;
 import com.nikolas.mechanicalmanagementsystem.entity.*;
 import com.nikolas.mechanicalmanagementsystem.exception.MachineNotFoundException;
 import com.nikolas.mechanicalmanagementsystem.exception.NotFoundException;
 import com.nikolas.mechanicalmanagementsystem.repository.MachinePartRepository;
+import com.nikolas.mechanicalmanagementsystem.repository.MachineReportRepository;
 import com.nikolas.mechanicalmanagementsystem.repository.MachineRepository;
+import com.nikolas.mechanicalmanagementsystem.security.UserSnapshot;
+import com.nikolas.mechanicalmanagementsystem.utility.TaxRates;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Sort;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
-import java.math.RoundingMode;
-import java.util.Base64;
 import java.util.List;
 
 
@@ -24,6 +27,12 @@ public class MachineServiceImpl implements MachineService {
 
     private final MachineRepository machineRepository;
     private final MachinePartRepository machinePartRepository;
+    private final CompanyMonthlyRollupService companyMonthlyRollupService;
+    private final MachineReportRepository machineReportRepository;
+    private final OptimisticLockRetry optimisticLockRetry;
+    private final MachineOwnershipCache machineOwnershipCache;
+
+    static final int MAX_PAGE_SIZE = 200;
 
     // Saving machine
     @Transactional
@@ -40,6 +49,7 @@ public class MachineServiceImpl implements MachineService {
 
     /**
      * Retrieves the machine associated with the provided machine ID for the given user, performing necessary access checks.
+     * The access is checked before the machine is loaded.
      *
      * @param user      The user for whom the machine access is being checked.
      * @param machineId The ID of the machine to retrieve.
@@ -47,85 +57,64 @@ public class MachineServiceImpl implements MachineService {
      * @throws MachineNotFoundException If no machine is found with the provided machine ID.
      * @throws AccessDeniedException    If the user does not have access to the machine or if the machine is inactive and the user does not have admin role.
      */
-    public Machine getMachineForUser(User user, Long machineId) {
-        Machine machine = machineRepository.findById(machineId)
-                .orElseThrow(() -> new MachineNotFoundException("Machine not found with id: " + machineId));
-
-        // Check access rights for the user
-        checkAccessRights(user, machine);
-
-        // If the machine is not active and the user does not have an admin role, deny access
-        if (!machine.isActive() && !userHasAdminRole(user)) {
-            throw new AccessDeniedException("Access denied to machine with id: " + machine.getId());
-        }
-
+    public Machine getMachineForUser(UserSnapshot user, Long machineId) {
+        checkAccessToMachine(user, machineId);
 //        log.info("MachineServiceImpl::getMachineForUser - Opened machine: " + machine.getMachineModel() + ' ' + machine.getMachineBrand());
-        return machine;
+        return getMachineById(machineId);
     }
 
 
     /**
-     * Checks if the provided user has access rights to the given machine.
+     * Checks if the provided user has access rights to the machine with the given ID, without loading the machine:
+     * its company and state come from the {@link MachineOwnershipCache}.
      *
-     * @param loggedInUser The user whose access rights are being checked.
-     * @param machine      The machine for which access rights are being checked.
-     * @throws AccessDeniedException If the user does not have access rights to the machine.
+     * @param user      The user whose access rights are being checked.
+     * @param machineId The ID of the machine for which access rights are being checked.
+     * @throws MachineNotFoundException If no machine is found with the provided machine ID.
+     * @throws AccessDeniedException    If the machine belongs to none of the user's companies,
+     *                                  or the machine is inactive and the user does not have admin role.
      */
-    protected void checkAccessRights(User loggedInUser, Machine machine) {
-        // Retrieve the companies associated with the user's roles
-        List<Company> userCompanies = loggedInUser.getRoles().stream()
-                .flatMap(role -> role.getCompanyRoles().stream())
-                .map(CompanyRole::getCompany)
-                .toList();
+    @Override
+    public void checkAccessToMachine(UserSnapshot user, Long machineId) {
+        MachineOwnership ownership = machineOwnershipCache.getOwnership(machineId);
         // Check if any of the user's companies match the machine's company
-        if (!userCompanies.contains(machine.getCompany())) {
-            log.info("MachineServiceImpl::checkAccessRights - User {} has no access to machine {}", loggedInUser.getEmail(), machine.getId());
-            throw new AccessDeniedException("Access denied to machine with id: " + machine.getId());
+        if (!user.hasAccessToCompany(ownership.getCompanyId()) || (!ownership.isActive() && !user.isAdmin())) {
+            log.info("MachineServiceImpl::checkAccessToMachine - User {} has no access to machine {}", user.getEmail(), machineId);
+            throw new AccessDeniedException("Access denied to machine with id: " + machineId);
         }
     }
 
 
-    /**
-     * Checks whether the specified user has the admin role.
-     *
-     * @param user The user whose roles are being checked.
-     * @return {@code true} if the user has the admin role, {@code false} otherwise.
-     */
-    private boolean userHasAdminRole(User user) {
-        log.info("MachineServiceImpl::userHasAdminRole - User roles: " + user.getRoles().stream()
-                .map(Role::getRoleName).toList());
-
-        return user.getRoles().stream()
-                .anyMatch(role -> "ADMIN".equals(role.getRoleName()));
-    }
-
-
     /**
      * Updates the details of the specified machine.
+     * The parts sum is maintained by the part changes, only the profit follows the new charged amount.
+     * The update is retried when the machine was changed concurrently, so the monthly rollup gets the right difference.
      *
      * @param machine The machine object containing the updated details.
      * @throws MachineNotFoundException if the machine with the specified ID is not found.
      */
-    @Transactional
     @Override
     public void updateMachine(Machine machine) {
-        Machine existingMachine = machineRepository.findById(machine.getId())
-                .orElseThrow(() -> new MachineNotFoundException("Machine not found with id: " + machine.getId()));
-        // Update the machine details with the new values
-        existingMachine.setMachineBrand(machine.getMachineBrand());
-        existingMachine.setMachineModel(machine.getMachineModel());
-        existingMachine.setDescription(machine.getDescription());
-        existingMachine.setChargedAmount(machine.getChargedAmount());
-
-        existingMachine = machineRepository.save(existingMachine);
-
-        // Calculate and set the sum of machine parts
-        existingMachine.setMachinePartsSum(calculateAndSetPartsSum(existingMachine));
-        // Calculate and set the profit for the machine
-        calculateAndSetProfit(existingMachine);
-
-        log.info("MachineServiceImpl::updateMachine - {} machine updated successfully!", existingMachine.getMachineBrand() + ' ' + existingMachine.getMachineModel());
-        machineRepository.save(existingMachine);
+        optimisticLockRetry.run("updateMachine", () -> {
+            Machine existingMachine = machineRepository.findById(machine.getId())
+                    .orElseThrow(() -> new MachineNotFoundException("Machine not found with id: " + machine.getId()));
+            // Keep the previous amounts, the monthly rollup is adjusted by the difference
+            BigDecimal previousPartsSum = existingMachine.getMachinePartsSum();
+            BigDecimal previousChargedAmount = existingMachine.getChargedAmount();
+            // Update the machine details with the new values
+            existingMachine.setMachineBrand(machine.getMachineBrand());
+            existingMachine.setMachineModel(machine.getMachineModel());
+            existingMachine.setDescription(machine.getDescription());
+            existingMachine.setChargedAmount(machine.getChargedAmount());
+            calculateAndSetProfit(existingMachine);
+
+            machineRepository.save(existingMachine);
+            // Recomputed from the stored parts sum, a part may have been added since the machine was read
+            machineRepository.recalculateProfitById(existingMachine.getId());
+
+            log.info("MachineServiceImpl::updateMachine - {} machine updated successfully!", existingMachine.getMachineBrand() + ' ' + existingMachine.getMachineModel());
+            companyMonthlyRollupService.recordMachineChanged(existingMachine, previousPartsSum, previousChargedAmount);
+        });
     }
 
 
@@ -145,8 +134,10 @@ public class MachineServiceImpl implements MachineService {
         String machineBrand = machine.getMachineBrand();
         // Log that the machine is being inactivated
         log.info("MachineServiceImpl::deleteMachineById - Machine {} is inactivated!", machineModel + ' ' + machineBrand);
-        // Deactivate the machine in the database
+        // Deactivate the machine in the database and remove it from the monthly rollup
         machineRepository.deactivateMachine(id);
+        machineOwnershipCache.evictMachine(id);
+        companyMonthlyRollupService.recordMachineRemoved(machine);
     }
 
 
@@ -162,6 +153,7 @@ public class MachineServiceImpl implements MachineService {
                 .orElseThrow(() -> new MachineNotFoundException("Machine not found with id: " + id));
         // Delete the machine from the database
         machineRepository.deleteById(id);
+        machineOwnershipCache.evictMachine(id);
         // Log that the machine has been permanently deleted
         log.info("MachineServiceImpl::deleteInactiveMachineById - Machine {} permanently deleted!", machine.getMachineModel() + ' ' + machine.getMachineBrand());
     }
@@ -185,43 +177,56 @@ public class MachineServiceImpl implements MachineService {
 
     /**
      * Updates the tax information for the machine parts of the specified machine.
-     * Calculates and sets the new unit tax and price with tax for each machine part based on the new tax rate.
-     * Updates the machine's tax rate and saves the changes to the database.
+     * The parts, the parts sum and the profit are updated by set-based statements instead of saving the entities,
+     * then the monthly rollup is adjusted by the change of the parts sum. The machine is read in this transaction
+     * and not changed, so neither a stale copy nor the amounts already stored by the statements are written back.
      *
-     * @param machine         The machine whose machine parts' tax information is to be updated.
+     * @param machineId       The ID of the machine whose machine parts' tax information is to be updated.
      * @param newTaxInPercent The new tax rate to be applied to the machine parts.
+     * @throws MachineNotFoundException if the machine with the specified ID is not found.
      * @throws IllegalArgumentException if the new tax rate is null or outside the valid range (0 to 100).
      */
+    @Transactional
     @Override
-    public void updateMachinePartsTax(Machine machine, BigDecimal newTaxInPercent) {
-        List<MachinePart> machineParts = machine.getMachineParts();
+    public void updateMachinePartsTax(Long machineId, BigDecimal newTaxInPercent) {
+        TaxRates.validate(newTaxInPercent);
+        Machine machine = machineRepository.findById(machineId)
+                .orElseThrow(() -> new MachineNotFoundException("Machine not found with id: " + machineId));
+        // Keep the previous parts sum, the monthly rollup is adjusted by the difference
+        BigDecimal previousPartsSum = machine.getMachinePartsSum() != null ? machine.getMachinePartsSum() : Machine.ZERO_AMOUNT;
 
-        // Validate the new tax rate
-        if (newTaxInPercent == null || newTaxInPercent.compareTo(BigDecimal.ZERO) < 0 || newTaxInPercent.compareTo(BigDecimal.valueOf(100)) > 0) {
-            throw new IllegalArgumentException("Invalid tax rate: " + newTaxInPercent);
-        }
-        // Iterate through each machine part
-        for (MachinePart machinePart : machineParts) {
-            BigDecimal partPrice = machinePart.getPartPrice();
-
-            // Calculate the new unit tax based on the new tax rate
-            BigDecimal newUnitTax = partPrice.multiply(newTaxInPercent.divide(new BigDecimal(100), 2, RoundingMode.HALF_EVEN));
-            // Calculate the new part price with tax
-            BigDecimal newPartPriceWithTax = partPrice.add(newUnitTax);
-
-            // Update the tax-related properties of the machine part
-            machinePart.setTaxInPercent(newTaxInPercent);
-            machinePart.setUnitTax(newUnitTax);
-            machinePart.setPartPriceWithTax(newPartPriceWithTax);
-        }
+        applyTaxToMachines(List.of(machineId), newTaxInPercent);
 
-        // Update the machine's tax rate
-        machine.setTaxInPercent(newTaxInPercent);
-        updateMachine(machine);
+        BigDecimal partsSum = machinePartRepository.calculateTotalPartPriceByMachineId(machineId);
+        BigDecimal partsDelta = (partsSum != null ? partsSum : Machine.ZERO_AMOUNT).subtract(previousPartsSum);
+        companyMonthlyRollupService.recordPartsSumChanged(machine, partsDelta);
         log.info("MachineServiceImpl::updateMachinePartsTax - {} machine TAX updated successfully to {} percent!", machine.getMachineBrand() + ' ' + machine.getMachineModel(), newTaxInPercent);
     }
 
 
+    /**
+     * Applies a new tax rate to every part of the given machines with two statements, whatever the number of parts:
+     * the unit tax and the price with tax of the parts are recomputed, then the tax rate, the parts sum and the profit
+     * of the machines. The unit tax is the part price multiplied by the rate rounded to two decimals (HALF_EVEN).
+     * The monthly rollup is not updated, callers refresh it.
+     *
+     * @param machineIds      The IDs of the machines.
+     * @param newTaxInPercent The new tax rate to be applied to the machine parts.
+     * @return The number of machines updated.
+     * @throws IllegalArgumentException if the new tax rate is null or outside the valid range (0 to 100).
+     */
+    @Transactional
+    @Override
+    public int applyTaxToMachines(List<Long> machineIds, BigDecimal newTaxInPercent) {
+        TaxRates.validate(newTaxInPercent);
+        if (machineIds.isEmpty()) {
+            return 0;
+        }
+        machinePartRepository.updateTaxByMachineIdIn(machineIds, newTaxInPercent, TaxRates.toFactor(newTaxInPercent));
+        return machineRepository.updateTaxAndRecalculateSumsByIdIn(machineIds, newTaxInPercent);
+    }
+
+
     /**
      * Calculates the total price of all parts associated with the specified machine
      * and sets the sum to the machine's 'machinePartsSum' property.
@@ -235,85 +240,64 @@ public class MachineServiceImpl implements MachineService {
         // Calculate the total price of all parts associated with the machine
         BigDecimal totalPartPrice = machinePartRepository.calculateTotalPartPriceByMachineId(machineId);
         // Set the sum of the parts to the machine
-        BigDecimal partsSum = totalPartPrice != null ? totalPartPrice : BigDecimal.valueOf(0.0);
+        BigDecimal partsSum = totalPartPrice != null ? totalPartPrice : Machine.ZERO_AMOUNT;
         machine.setMachinePartsSum(partsSum);
         return partsSum;
     }
 
     /**
-     * Calculates the total price of parts for active machines belonging to the selected companies in the specified month and year.
+     * Retrieves the parts, charged amount and profit totals of the active machines belonging to the selected companies
+     * in the specified year and month, broken down per company.
+     * The totals are read from the incrementally maintained monthly rollup instead of aggregating the machines.
      *
-     * @param selectedMonth     The selected month.
-     * @param selectedYear      The selected year.
-     * @param selectedCompanies The list of selected company IDs.
-     * @return The total amount of parts for active machines belonging to the selected companies in the specified month and year.
+     * @param year       The selected year.
+     * @param month      The selected month.
+     * @param companyIds The list of selected company IDs.
+     * @return The monthly summary of the selected companies.
      */
     @Override
-    public BigDecimal calculateTotalPartsAmountByMonthAndYearAndCompanies(Integer selectedMonth, Integer selectedYear, List<Long> selectedCompanies) {
-        List<Machine> machines = getActiveMachinesByMonthAndYear(selectedMonth, selectedYear, selectedCompanies);
-        BigDecimal totalPartsAmount = BigDecimal.ZERO;
-
-        for (Machine machine : machines) {
-            totalPartsAmount = totalPartsAmount.add(machine.getMachinePartsSum());
+    public MonthlyMachineSummary getMonthlyMachineSummary(int year, int month, List<Long> companyIds) {
+        if (companyIds == null || companyIds.isEmpty()) {
+            return MonthlyMachineSummary.of(List.of());
         }
-        return totalPartsAmount;
+        return MonthlyMachineSummary.of(companyMonthlyRollupService.getMonthlyTotals(year, month, companyIds));
     }
 
 
     /**
-     * Calculates the total charged amount for active machines belonging to the selected companies in the specified month and year.
+     * Retrieves the parts, charged amount and profit totals of the active machines belonging to the selected companies
+     * in a range of years, per company and year. The monthly rollup rows are summed in cents.
      *
-     * @param selectedMonth     The selected month.
-     * @param selectedYear      The selected year.
-     * @param selectedCompanies The list of selected company IDs.
-     * @return The total charged amount for active machines belonging to the selected companies in the specified month and year.
+     * @param fromYear   The first year.
+     * @param toYear     The last year.
+     * @param companyIds The list of selected company IDs.
+     * @return The yearly report of the selected companies.
      */
     @Override
-    public BigDecimal calculateTotalChargedAmountByMonthAndYearAndCompanies(Integer selectedMonth, Integer selectedYear, List<Long> selectedCompanies) {
-        List<Machine> machines = getActiveMachinesByMonthAndYear(selectedMonth, selectedYear, selectedCompanies);
-        BigDecimal totalChargedAmount = BigDecimal.ZERO;
-
-        for (Machine machine : machines) {
-            BigDecimal chargedAmount = machine.getChargedAmount();
-            totalChargedAmount = totalChargedAmount.add(chargedAmount);
+    public YearlyMachineReport getYearlyMachineReport(int fromYear, int toYear, List<Long> companyIds) {
+        if (companyIds == null || companyIds.isEmpty()) {
+            return new YearlyMachineReport(fromYear, toYear, List.of());
         }
-        return totalChargedAmount;
+        return new YearlyMachineReport(fromYear, toYear, machineReportRepository.findYearlyTotals(companyIds, fromYear, toYear));
     }
 
 
     /**
-     * Calculates the total profit for active machines belonging to the selected companies in the specified month and year.
+     * Adds the price of an added part to the parts sum of the machine and subtracts it from the profit, or the other way
+     * round for a removed part, in one atomic statement instead of summing every part of the machine again.
+     * The loaded machine is not modified, so saving it later cannot overwrite a concurrent change.
      *
-     * @param selectedMonth     The selected month.
-     * @param selectedYear      The selected year.
-     * @param selectedCompanies The list of selected company IDs.
-     * @return The total profit for active machines belonging to the selected companies in the specified month and year.
+     * @param machine    The machine of the part.
+     * @param partsDelta The price with tax of the added part, negative for a removed part.
      */
+    @Transactional
     @Override
-    public BigDecimal calculateTotalProfitByMonthAndYearAndCompanies(Integer selectedMonth, Integer selectedYear, List<Long> selectedCompanies) {
-        List<Machine> machines = getActiveMachinesByMonthAndYear(selectedMonth, selectedYear, selectedCompanies);
-        BigDecimal totalProfit = BigDecimal.ZERO;
-
-        for (Machine machine : machines) {
-            BigDecimal chargedAmount = machine.getChargedAmount();
-            BigDecimal partsSum = machine.getMachinePartsSum();
-            BigDecimal profit = chargedAmount.subtract(partsSum);
-            totalProfit = totalProfit.add(profit);
+    public void applyPartsSumDelta(Machine machine, BigDecimal partsDelta) {
+        if (partsDelta.signum() == 0) {
+            return;
         }
-        return totalProfit;
-    }
-
-
-    /**
-     * Retrieves the list of active machines belonging to the selected companies in the specified month and year.
-     *
-     * @param selectedMonth     The selected month.
-     * @param selectedYear      The selected year.
-     * @param selectedCompanies The list of selected company IDs.
-     * @return The list of active machines belonging to the selected companies in the specified month and year.
-     */
-    protected List<Machine> getActiveMachinesByMonthAndYear(Integer selectedMonth, Integer selectedYear, List<Long> selectedCompanies) {
-        return machineRepository.findByYearAndMonthAndCompanyIdInAndIsActive(selectedMonth, selectedYear, selectedCompanies, true);
+        machineRepository.addToPartsSum(machine.getId(), partsDelta);
+        companyMonthlyRollupService.recordPartsSumChanged(machine, partsDelta);
     }
 
 
@@ -324,6 +308,7 @@ public class MachineServiceImpl implements MachineService {
      * @param machinePartId The ID of the machine part to be deleted.
      * @throws NotFoundException if the machine part with the specified ID is not associated with the specified machine.
      */
+    @Transactional
     @Override
     public void deleteMachinePart(Long machineId, Long machinePartId) {
         Machine machine = getMachineById(machineId);
@@ -336,7 +321,8 @@ public class MachineServiceImpl implements MachineService {
         // Remove the machine part from the machine's list of parts
         machine.getMachineParts().remove(machinePart);
         machinePartRepository.delete(machinePart);
-        updateMachine(machine);
+        BigDecimal partPriceWithTax = machinePart.getPartPriceWithTax() != null ? machinePart.getPartPriceWithTax() : BigDecimal.ZERO;
+        applyPartsSumDelta(machine, partPriceWithTax.negate());
         log.info("MachineServiceImpl::deleteMachinePart - Machine part {} deleted successfully from {} machine!", machinePart.getPartName(), machine.getMachineBrand() + ' ' + machine.getMachineModel());
     }
 
@@ -347,32 +333,6 @@ public class MachineServiceImpl implements MachineService {
     }
 
 
-    /**
-     * Converts images to base64 format for the given machine.
-     *
-     * @param machine The machine whose images will be converted.
-     */
-    @Override
-    public void convertImagesToBase64(Machine machine) {
-        for (Images image : machine.getImages()) {
-//            We retrieve the binary value of the image and convert it to base64, then set it as the image's representation.
-//            However, since we have saved both forms (base64 and binary, which is not recommended),
-//            we simply retrieve the base64 value and set it for the image.
-
-            byte[] imageData = image.getPicByte();
-            if (imageData == null || imageData.length == 0) {
-                throw new IllegalArgumentException("Image data is null or empty.");
-            }
-            String base64Image = Base64.getEncoder().encodeToString(imageData);
-            image.setBase64Image(base64Image);
-
-            // Set the base64 representation of the image if it's already available
-//            image.setBase64Image(image.getBase64Image());
-        }
-//        log.info("MachineServiceImpl::convertImagesToBase64 - ID of images belonging to the machine: " + machine.getImages().stream().map(Images::getId).toList());
-    }
-
-
     /**
      * Retrieves a list of active machines for the specified year, month, and company IDs.
      * Only active machines are included in the result.
@@ -389,6 +349,50 @@ public class MachineServiceImpl implements MachineService {
         return machineRepository.findByYearAndMonthAndCompanyIdInAndIsActive(year, month, companyIds, true);
     }
 
+
+    /**
+     * Retrieves one page of the active machines for the specified year, month, and company IDs as lightweight rows,
+     * sorted on the server. Pages are addressed by a keyset cursor instead of an offset, so every page costs the same.
+     *
+     * @param year       The year for which to retrieve machines.
+     * @param month      The month for which to retrieve machines.
+     * @param companyIds The list of company IDs for which to retrieve machines.
+     * @param sort       The sort column, defaults to the registration date.
+     * @param direction  The sort direction, defaults to descending.
+     * @param cursor     The cursor returned with the previous page, or {@code null} for the first page.
+     * @param pageSize   The number of rows per page, limited to {@value #MAX_PAGE_SIZE}.
+     * @return The requested page; an invalid cursor yields the first page.
+     */
+    @Override
+    public MachineListPage getActiveMachinePage(int year, int month, List<Long> companyIds, MachineListSort sort,
+                                                Sort.Direction direction, String cursor, int pageSize) {
+        MachineListSort listSort = sort != null ? sort : MachineListSort.DATE;
+        Sort.Direction listDirection = direction != null ? direction : Sort.Direction.DESC;
+        if (companyIds == null || companyIds.isEmpty()) {
+            return new MachineListPage(List.of(), listSort, listDirection, null);
+        }
+        int limit = Math.max(1, Math.min(pageSize, MAX_PAGE_SIZE));
+
+        MachineListCursor after = null;
+        if (cursor != null && !cursor.isBlank()) {
+            try {
+                after = MachineListCursor.decode(cursor, listSort);
+            } catch (IllegalArgumentException e) {
+                log.warn("MachineServiceImpl::getActiveMachinePage - {}", e.getMessage());
+            }
+        }
+
+        // One row more than requested tells whether there is a next page
+        List<MachineListRow> rows = machineRepository.findActiveMachineRowsByYearAndMonth(year, month, companyIds,
+                listSort, listDirection, after, limit + 1);
+        String nextCursor = null;
+        if (rows.size() > limit) {
+            rows = rows.subList(0, limit);
+            nextCursor = MachineListCursor.of(rows.get(limit - 1), listSort).encode();
+        }
+        return new MachineListPage(rows, listSort, listDirection, nextCursor);
+    }
+
 //    get all deleted(inactivated) machines
     @Override
     public List<Machine> getDeletedMachines() {
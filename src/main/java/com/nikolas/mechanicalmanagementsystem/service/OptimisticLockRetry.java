@@ -0,0 +1,82 @@
+package com.nikolas.mechanicalmanagementsystem.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionOperations;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+/**
+ * Runs read-modify-write operations on versioned entities ({@code Machine}, {@code Company}) in a transaction, and
+ * runs them again in a new transaction when a concurrent change was committed in between (the version check failed).
+ * Every attempt reads the entities again, the rollback of the failed attempt clears the persistence context.
+ * Inside a transaction of the caller the operation joins it and is not retried: that transaction is already marked
+ * for rollback, so the conflict is left to the caller.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class OptimisticLockRetry {
+
+    private final TransactionOperations transactionOperations;
+
+    @Value("${app.optimistic-lock.max-attempts:3}")
+    private int maxAttempts = 3;
+    @Value("${app.optimistic-lock.backoff-millis:20}")
+    private long backoffMillis = 20;
+
+
+    /**
+     * @param operation The name of the operation, for the log.
+     * @param work      The operation, reading the entities it changes.
+     * @return The result of the operation.
+     * @throws OptimisticLockingFailureException if every attempt met a concurrent change.
+     */
+    public <T> T execute(String operation, Supplier<T> work) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return work.get();
+        }
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transactionOperations.execute(status -> work.get());
+            } catch (OptimisticLockingFailureException e) {
+                if (attempt >= maxAttempts) {
+                    log.warn("OptimisticLockRetry::execute - {} failed after {} attempts: {}", operation, attempt, e.getMessage());
+                    throw e;
+                }
+                log.info("OptimisticLockRetry::execute - {} met a concurrent change, attempt {} of {}", operation, attempt + 1, maxAttempts);
+                backOff(attempt);
+            }
+        }
+    }
+
+    /**
+     * @param operation The name of the operation, for the log.
+     * @param work      The operation, reading the entities it changes.
+     * @throws OptimisticLockingFailureException if every attempt met a concurrent change.
+     */
+    public void run(String operation, Runnable work) {
+        execute(operation, () -> {
+            work.run();
+            return null;
+        });
+    }
+
+    // Random wait growing with the attempts, so the conflicting writers do not meet again
+    private void backOff(int attempt) {
+        if (backoffMillis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(backoffMillis * attempt + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting to retry", e);
+        }
+    }
+}
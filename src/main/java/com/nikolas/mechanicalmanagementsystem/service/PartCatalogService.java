@@ -0,0 +1,13 @@
+package com.nikolas.mechanicalmanagementsystem.service;
+
+import com.nikolas.mechanicalmanagementsystem.dtos.PartSuggestion;
+import com.nikolas.mechanicalmanagementsystem.entity.MachinePart;
+
+import java.util.List;
+
+public interface PartCatalogService {
+
+    List<PartSuggestion> suggest(Long companyId, String prefix);
+    void partsAdded(Long companyId, List<MachinePart> machineParts);
+
+}
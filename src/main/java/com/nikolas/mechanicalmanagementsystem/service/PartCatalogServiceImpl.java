@@ -0,0 +1,97 @@
+package com.nikolas.mechanicalmanagementsystem.service;
+
+import com.nikolas.mechanicalmanagementsystem.dtos.PartSuggestion;
+import com.nikolas.mechanicalmanagementsystem.entity.MachinePart;
+import com.nikolas.mechanicalmanagementsystem.repository.MachinePartRepository;
+import com.nikolas.mechanicalmanagementsystem.utility.AfterCommit;
+import com.nikolas.mechanicalmanagementsystem.utility.PartNameIndex;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Suggests the part names used before in a company while a part name is typed.
+ * The names of a company are loaded into a {@link PartNameIndex} at its first lookup and kept up to date by the part
+ * entry. Only the indexes of the most recently used companies are kept in memory.
+ */
+@Slf4j
+@RequiredArgsConstructor
+@Service
+public class PartCatalogServiceImpl implements PartCatalogService {
+
+    private final MachinePartRepository machinePartRepository;
+    // Access ordered, the least recently used company is evicted first
+    private final Map<Long, PartNameIndex> indexes = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, PartNameIndex> eldest) {
+            return size() > maxCompanies;
+        }
+    };
+
+    @Value("${app.parts.catalog.max-companies:100}")
+    private int maxCompanies = 100;
+    @Value("${app.parts.catalog.max-names-per-company:2000}")
+    private int maxNamesPerCompany = 2000;
+    @Value("${app.parts.catalog.suggestion-limit:10}")
+    private int suggestionLimit = 10;
+
+
+    /**
+     * @param companyId The ID of the company.
+     * @param prefix    The beginning of the part name, in any case.
+     * @return The part names of the company starting with the prefix, with their last prices.
+     */
+    @Override
+    public List<PartSuggestion> suggest(Long companyId, String prefix) {
+        if (prefix == null || prefix.isBlank()) {
+            return List.of();
+        }
+        return getIndex(companyId).suggest(prefix, suggestionLimit);
+    }
+
+    /**
+     * Adds the names of new parts to the index of the company, if it is loaded, once the transaction adding them is
+     * committed.
+     *
+     * @param companyId    The ID of the company of the machine.
+     * @param machineParts The added parts.
+     */
+    @Override
+    public void partsAdded(Long companyId, List<MachinePart> machineParts) {
+        AfterCommit.run(() -> record(companyId, machineParts));
+    }
+
+    private void record(Long companyId, List<MachinePart> machineParts) {
+        PartNameIndex index;
+        synchronized (indexes) {
+            index = indexes.get(companyId);
+        }
+        if (index != null) {
+            for (MachinePart machinePart : machineParts) {
+                index.record(machinePart.getPartName(), machinePart.getPartPrice());
+            }
+        }
+    }
+
+    private PartNameIndex getIndex(Long companyId) {
+        synchronized (indexes) {
+            PartNameIndex index = indexes.get(companyId);
+            if (index != null) {
+                return index;
+            }
+        }
+        // Loaded without holding the lock, so the lookups of other companies do not wait for the query
+        PartNameIndex loaded = new PartNameIndex(maxNamesPerCompany,
+                machinePartRepository.findLatestPartsByCompanyId(companyId, PageRequest.of(0, maxNamesPerCompany)));
+        log.info("PartCatalogServiceImpl::getIndex - {} part names of company {} loaded", loaded.size(), companyId);
+        synchronized (indexes) {
+            return indexes.merge(companyId, loaded, (current, ignored) -> current);
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package com.nikolas.mechanicalmanagementsystem.service;
+
+import com.nikolas.mechanicalmanagementsystem.dtos.JobStatus;
+
+public interface PartsSumVerificationService {
+    JobStatus startVerification();
+    void verify(JobStatus status);
+}
@@ -0,0 +1,63 @@
+package com.nikolas.mechanicalmanagementsystem.service;
+
+import com.nikolas.mechanicalmanagementsystem.dtos.JobStatus;
+import com.nikolas.mechanicalmanagementsystem.repository.MachineRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.util.List;
+
+/**
+ * Verifies the parts sums and profits maintained by deltas against the sum of the parts, and repairs the machines
+ * where they differ. The full sum is only computed here, the part changes never run it.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class PartsSumVerificationServiceImpl implements PartsSumVerificationService {
+
+    private final MachineRepository machineRepository;
+    private final CompanyMonthlyRollupService companyMonthlyRollupService;
+    private final BackgroundJobService backgroundJobService;
+    private final TransactionOperations transactionOperations;
+
+    @Value("${app.machines.verification.batch-size:200}")
+    private int batchSize = 200;
+
+
+    @Override
+    public JobStatus startVerification() {
+        return backgroundJobService.start("parts-sum-verification", this::verify);
+    }
+
+
+    /**
+     * Walks over the machines by ID, repairing the inconsistent ones in batches of
+     * {@code app.machines.verification.batch-size}, each batch in its own transaction.
+     * When a machine was repaired, the monthly rollup is rebuilt as it was derived from the wrong amounts.
+     *
+     * @param status The status of the job, counting the repaired machines.
+     */
+    @Override
+    public void verify(JobStatus status) {
+        long lastId = 0;
+        List<Long> machineIds = machineRepository.findIdsWithInconsistentPartsSum(lastId, PageRequest.of(0, batchSize));
+        while (!machineIds.isEmpty()) {
+            List<Long> batch = machineIds;
+            transactionOperations.executeWithoutResult(transaction -> machineRepository.recalculatePartsSumsByIdIn(batch));
+            log.warn("PartsSumVerificationServiceImpl::verify - Parts sum repaired for machines {}", batch);
+            status.advance(batch.size());
+            lastId = batch.get(batch.size() - 1);
+            machineIds = machineRepository.findIdsWithInconsistentPartsSum(lastId, PageRequest.of(0, batchSize));
+        }
+
+        if (status.getProcessed() > 0) {
+            companyMonthlyRollupService.rebuild();
+        }
+        status.complete(status.getProcessed() + " machine(s) repaired");
+    }
+}
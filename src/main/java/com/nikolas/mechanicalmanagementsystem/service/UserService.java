@@ -1,9 +1,9 @@
 package com.nikolas.mechanicalmanagementsystem.service;
 
 import com.nikolas.mechanicalmanagementsystem.entity.Company;
-import com.nikolas.mechanicalmanagementsystem.entity.Role;
 import com.nikolas.mechanicalmanagementsystem.entity.User;
 import com.nikolas.mechanicalmanagementsystem.registration.RegistrationRequest;
+import com.nikolas.mechanicalmanagementsystem.security.UserSnapshot;
 import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.validation.BindingResult;
@@ -21,11 +21,12 @@ public interface UserService {
     List<User> getAllUsersExceptCurrentUser(User currentUser);
     Optional<User> findById(Long id);
     User getLoggedInUser();
+    UserSnapshot getLoggedInUserSnapshot();
     User toggleIsAccountNonLocked(Long userId);
     void deleteUserById(Long userId);
     void updateUserDetails(User userDetails, User updatedUser);
     void updateUserRoles(Long userId, List<String> selectedRoles);
-    void removeRolesFromUsers(List<Role> rolesToRemove);
+    void removeRolesFromUsers(List<Long> roleIds);
     List<Company> getWorkplacesForLoggedInUser(String userEmail);
 
 }
@@ -1,6 +1,7 @@
 package com.nikolas.mechanicalmanagementsystem.service;
 
 import com.nikolas.mechanicalmanagementsystem.entity.*;
+import com.nikolas.mechanicalmanagementsystem.security.UserSnapshot;
 import com.nikolas.mechanicalmanagementsystem.utility.EmailSender;
 import com.nikolas.mechanicalmanagementsystem.exception.NotFoundException;
 import com.nikolas.mechanicalmanagementsystem.exception.UnauthorizedException;
@@ -12,6 +13,8 @@ import com.nikolas.mechanicalmanagementsystem.repository.JobApplicationRepositor
 import com.nikolas.mechanicalmanagementsystem.repository.RoleRepository;
 import com.nikolas.mechanicalmanagementsystem.repository.UserRepository;
 import com.nikolas.mechanicalmanagementsystem.security.CustomUserDetails;
+import com.nikolas.mechanicalmanagementsystem.security.CustomUserDetailsService;
+import com.nikolas.mechanicalmanagementsystem.security.PrincipalVersionRegistry;
 import com.nikolas.mechanicalmanagementsystem.utility.UrlUtil;
 import jakarta.mail.MessagingException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -30,7 +33,6 @@ import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
-import java.util.stream.Collectors;
 
 @Service
 @Transactional
@@ -47,6 +49,8 @@ public class UserServiceImpl implements UserService {
     private final RoleService roleService;
     private final ChangePasswordService changePasswordService;
     private final ForgotPasswordService forgotPasswordService;
+    private final CustomUserDetailsService customUserDetailsService;
+    private final PrincipalVersionRegistry principalVersionRegistry;
 
 
 
@@ -167,32 +171,55 @@ public class UserServiceImpl implements UserService {
 
 
     /**
-     * Retrieves the currently logged-in user from the security context.
+     * Retrieves the currently logged-in user. The user is loaded by ID, so within a request
+     * the persistence context returns the same entity for the repeated calls without a query.
      *
      * @return The User object representing the currently logged-in user.
      * @throws UnauthorizedException if the user is not authenticated or user details are not available.
-     * @throws NotFoundException     if the user cannot be found with the retrieved email address.
+     * @throws NotFoundException     if the user no longer exists.
      */
     @Override
     public User getLoggedInUser() {
+        Long userId = getLoggedInUserSnapshot().getId();
+        return findById(userId)
+                .orElseThrow(() -> new NotFoundException("User not found with id: " + userId));
+    }
+
+    /**
+     * Retrieves the snapshot of the currently logged-in user kept in the session, without a query.
+     * The snapshot is rebuilt from the database when the roles or memberships of the user changed since it was built.
+     *
+     * @return The snapshot of the currently logged-in user.
+     * @throws UnauthorizedException if the user is not authenticated or user details are not available.
+     * @throws NotFoundException     if the snapshot is outdated and the user no longer exists.
+     */
+    @Override
+    public UserSnapshot getLoggedInUserSnapshot() {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
 
         // If authentication is null or not authenticated, throw an UnauthorizedException
         if (authentication == null || !authentication.isAuthenticated()) {
-            log.warn("UserServiceImpl::getLoggedInUser - User is not authenticated!");
+            log.warn("UserServiceImpl::getLoggedInUserSnapshot - User is not authenticated!");
             throw new UnauthorizedException("User is not authenticated");
         }
         // If the principal is not an instance of CustomUserDetails, throw an UnauthorizedException
         Object principal = authentication.getPrincipal();
         if (!(principal instanceof CustomUserDetails userDetails)) {
-            log.warn("UserServiceImpl::getLoggedInUser - principal is not an instance of CustomUserDetails!");
+            log.warn("UserServiceImpl::getLoggedInUserSnapshot - principal is not an instance of CustomUserDetails!");
             throw new UnauthorizedException("User details are not available");
         }
 
-        String email = userDetails.getEmail();
-        // Retrieve the user by email address from the repository, or throw a NotFoundException
-        return findByEmail(email)
-                .orElseThrow(() -> new NotFoundException("User not found with email: " + email));
+        UserSnapshot snapshot = userDetails.getSnapshot();
+        // The version is read before the user is loaded, a change committed meanwhile outdates the new snapshot
+        long version = principalVersionRegistry.currentVersion(snapshot.getId());
+        if (version != snapshot.getVersion()) {
+            User user = findById(snapshot.getId())
+                    .orElseThrow(() -> new NotFoundException("User not found with email: " + userDetails.getEmail()));
+            snapshot = customUserDetailsService.createSnapshot(user, version);
+            userDetails.setSnapshot(snapshot);
+            log.info("UserServiceImpl::getLoggedInUserSnapshot - The session data of {} is refreshed", snapshot.getEmail());
+        }
+        return snapshot;
     }
 
     @Override
@@ -251,6 +278,7 @@ public class UserServiceImpl implements UserService {
 
         // Delete the user from the database
         userRepository.delete(user);
+        principalVersionRegistry.invalidate(userId);
         log.info("UserServiceImpl::deleteUserById - The {} user has been deleted from the system!", (user.getLastName() + " " + user.getFirstName()));
     }
 
@@ -306,32 +334,29 @@ public class UserServiceImpl implements UserService {
         }
         // Save the user with updated roles
         saveUser(user);
+        principalVersionRegistry.invalidate(userId);
         // Log the update
         log.info("UserServiceImpl::updateUserRoles - The roles of the user {} have been updated!", user.getLastName() + " " + user.getFirstName());
     }
 
 
     /**
-     * Removes the specified roles from all users who have them.
+     * Removes the specified roles from all users who have them, with one statement on the join table
+     * instead of loading and saving every user. The snapshots of the affected users are invalidated.
      *
-     * @param rolesToRemove The list of roles to be removed from users.
+     * @param roleIds The IDs of the roles to be removed from users.
      */
     @Transactional
     @Override
-    public void removeRolesFromUsers(List<Role> rolesToRemove) {
-        // Iterate through each role to remove
-        for (Role role : rolesToRemove) {
-            // Find all users who have the specified role
-            List<User> usersWithRole  = userRepository.findByRolesContains(role);
-            // Iterate through each user with the role
-            for (User user : usersWithRole ) {
-                // Remove the role from the user's roles
-                user.getRoles().remove(role);
-                // Save the user with updated roles
-                saveUser(user);
-            }
+    public void removeRolesFromUsers(List<Long> roleIds) {
+        if (roleIds.isEmpty()) {
+            return;
         }
-        log.info("UserServiceImpl::removeRolesFromUsers - The roles {} have been removed from all users.", rolesToRemove.stream().map(Role::getRoleName).collect(Collectors.toList()));
+        List<Long> userIds = userRepository.findIdsByRoleIdIn(roleIds);
+        int removedLinks = userRepository.deleteRoleLinksByRoleIdIn(roleIds);
+        userIds.forEach(principalVersionRegistry::invalidate);
+        log.info("UserServiceImpl::removeRolesFromUsers - The roles {} have been removed from {} user(s), {} link(s) deleted.",
+                roleIds, userIds.size(), removedLinks);
     }
 
     public List<Company> getWorkplacesForLoggedInUser(String userEmail) {
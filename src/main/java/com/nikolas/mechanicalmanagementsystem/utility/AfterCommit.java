@@ -0,0 +1,32 @@
+package com.nikolas.mechanicalmanagementsystem.utility;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Runs work once the current transaction is committed, so it only sees or announces committed changes.
+ */
+public class AfterCommit {
+
+    private AfterCommit() {
+    }
+
+    /**
+     * Runs the action after the commit of the current transaction, or at once when there is no transaction.
+     * The action is dropped if the transaction rolls back.
+     *
+     * @param action The work to run.
+     */
+    public static void run(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
@@ -0,0 +1,315 @@
+package com.nikolas.mechanicalmanagementsystem.utility;
+
+import com.nikolas.mechanicalmanagementsystem.dtos.CompanyDirectoryRow;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * Inverted index of the companies for the search of the join directory. The name, the country and the location are
+ * split into words, lower-cased and stripped of accents; the words and the postcode are the tokens of a company.
+ * A query matches the companies having a token starting with each word of the query, the companies with more
+ * whole-word matches first, then by name.
+ * The tokens are kept sorted, so the companies of a prefix are one range of the index, and the companies of a token
+ * are kept sorted by name. The candidates are read by name, and the search stops as soon as no later one can rank
+ * higher, so a prefix matching most companies costs about as much as a rare one.
+ * Searches run in parallel, changes wait for them.
+ */
+public class CompanySearchIndex {
+
+    private static final Pattern NON_WORD = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final Pattern ACCENTS = Pattern.compile("\\p{M}+");
+    // Reading all companies by name is cheaper than merging the tokens of a prefix matching more than 1/8 of them
+    private static final int WALK_ABOVE_FRACTION = 8;
+    private static final LongHashSet NO_IDS = new LongHashSet(List.of());
+    private static final Comparator<Document> BY_NAME = Comparator.<Document, String>comparing(document -> document.sortKey)
+            .thenComparing(document -> document.company.getId());
+    private static final Comparator<Match> WORST_FIRST = Comparator.comparingInt(Match::exactMatches)
+            .thenComparing(Match::document, BY_NAME.reversed());
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final NavigableMap<String, NavigableSet<Document>> companiesByToken = new TreeMap<>();
+    private final Map<Long, Document> documents = new HashMap<>();
+    private final NavigableSet<Document> documentsByName = new TreeSet<>(BY_NAME);
+
+    /**
+     * @param companies The companies to index.
+     */
+    public CompanySearchIndex(Collection<CompanyDirectoryRow> companies) {
+        for (CompanyDirectoryRow company : companies) {
+            add(company);
+        }
+    }
+
+
+    /**
+     * @param query The words to search for, the last one usually incomplete.
+     * @param limit The maximum number of results.
+     * @return The matching companies, the best matches first.
+     */
+    public List<CompanyDirectoryRow> search(String query, int limit) {
+        return search(query, limit, NO_IDS);
+    }
+
+    /**
+     * @param query       The words to search for, the last one usually incomplete.
+     * @param limit       The maximum number of results.
+     * @param excludedIds The IDs of the companies left out of the results.
+     * @return The matching companies, the best matches first.
+     */
+    public List<CompanyDirectoryRow> search(String query, int limit, LongHashSet excludedIds) {
+        List<String> terms = tokenize(query);
+        if (terms.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        PriorityQueue<Match> best = new PriorityQueue<>(WORST_FIRST);
+        lock.readLock().lock();
+        try {
+            // The candidates are the companies of the most selective word of the query
+            int walkAbove = documents.size() / WALK_ABOVE_FRACTION;
+            String rarest = null;
+            int fewest = Integer.MAX_VALUE;
+            for (String term : terms) {
+                int candidates = countUpTo(term, Math.min(fewest, walkAbove + 1));
+                if (candidates < fewest) {
+                    rarest = term;
+                    fewest = candidates;
+                }
+            }
+            Iterator<Document> candidates = fewest <= walkAbove
+                    ? inNameOrder(withPrefix(rarest).values())
+                    : documentsByName.iterator();
+            // No company has more whole-word matches than the words of the query being tokens at all
+            int mostExactMatches = (int) terms.stream().filter(companiesByToken::containsKey).count();
+            Document previous = null;
+            while (candidates.hasNext()) {
+                Document document = candidates.next();
+                // A company having several tokens with the prefix comes once per token
+                if (document == previous) {
+                    continue;
+                }
+                previous = document;
+                if (excludedIds.contains(document.company.getId())) {
+                    continue;
+                }
+                offer(best, document, terms, limit);
+                if (best.size() == limit && best.peek().exactMatches >= mostExactMatches) {
+                    break;
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        List<CompanyDirectoryRow> results = new ArrayList<>(best.size());
+        while (!best.isEmpty()) {
+            results.add(best.poll().document.company);
+        }
+        Collections.reverse(results);
+        return results;
+    }
+
+    /**
+     * Indexes a new company, or indexes a changed company again.
+     *
+     * @param company The company.
+     */
+    public void put(CompanyDirectoryRow company) {
+        lock.writeLock().lock();
+        try {
+            removeDocument(company.getId());
+            add(company);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @param companyId The ID of the deleted company.
+     */
+    public void remove(Long companyId) {
+        lock.writeLock().lock();
+        try {
+            removeDocument(companyId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return The number of indexed companies.
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static void offer(PriorityQueue<Match> best, Document document, List<String> terms, int limit) {
+        int exactMatches = document.match(terms);
+        if (exactMatches < 0) {
+            return;
+        }
+        Match match = new Match(document, exactMatches);
+        if (best.size() < limit) {
+            best.add(match);
+        } else if (WORST_FIRST.compare(match, best.peek()) > 0) {
+            best.poll();
+            best.add(match);
+        }
+    }
+
+    private NavigableMap<String, NavigableSet<Document>> withPrefix(String prefix) {
+        return companiesByToken.subMap(prefix, true, prefix + Character.MAX_VALUE, true);
+    }
+
+    // The number of companies having a token starting with the prefix, counting a company once per token, up to max
+    private int countUpTo(String prefix, int max) {
+        int count = 0;
+        for (Set<Document> candidates : withPrefix(prefix).values()) {
+            count += candidates.size();
+            if (count >= max) {
+                return max;
+            }
+        }
+        return count;
+    }
+
+    // The companies of several tokens merged by name, a company of several of them as many times in a row
+    private static Iterator<Document> inNameOrder(Collection<NavigableSet<Document>> tokens) {
+        if (tokens.size() == 1) {
+            return tokens.iterator().next().iterator();
+        }
+        PriorityQueue<Head> heads = new PriorityQueue<>(Comparator.comparing(Head::document, BY_NAME));
+        for (NavigableSet<Document> candidates : tokens) {
+            Iterator<Document> iterator = candidates.iterator();
+            heads.add(new Head(iterator.next(), iterator));
+        }
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return !heads.isEmpty();
+            }
+
+            @Override
+            public Document next() {
+                Head head = heads.poll();
+                if (head == null) {
+                    throw new NoSuchElementException();
+                }
+                if (head.rest.hasNext()) {
+                    heads.add(new Head(head.rest.next(), head.rest));
+                }
+                return head.document;
+            }
+        };
+    }
+
+    private void add(CompanyDirectoryRow company) {
+        Set<String> tokens = new LinkedHashSet<>();
+        tokens.addAll(tokenize(company.getCompanyName()));
+        tokens.addAll(tokenize(company.getCountry()));
+        tokens.addAll(tokenize(company.getLocation()));
+        if (company.getPostCode() > 0) {
+            tokens.add(String.valueOf(company.getPostCode()));
+        }
+        Document document = new Document(company, tokens.toArray(new String[0]));
+        documents.put(company.getId(), document);
+        documentsByName.add(document);
+        for (String token : document.tokens) {
+            companiesByToken.computeIfAbsent(token, key -> new TreeSet<>(BY_NAME)).add(document);
+        }
+    }
+
+    private void removeDocument(Long companyId) {
+        Document document = documents.remove(companyId);
+        if (document == null) {
+            return;
+        }
+        documentsByName.remove(document);
+        for (String token : document.tokens) {
+            Set<Document> candidates = companiesByToken.get(token);
+            candidates.remove(document);
+            if (candidates.isEmpty()) {
+                companiesByToken.remove(token);
+            }
+        }
+    }
+
+    /**
+     * @param text The text to split.
+     * @return The distinct words of the text, lower-cased and without accents.
+     */
+    static List<String> tokenize(String text) {
+        if (text == null || text.isBlank()) {
+            return List.of();
+        }
+        String normalized = ACCENTS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("").toLowerCase(Locale.ROOT);
+        List<String> tokens = new ArrayList<>();
+        for (String token : NON_WORD.split(normalized)) {
+            if (!token.isEmpty() && !tokens.contains(token)) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    private record Match(Document document, int exactMatches) {
+    }
+
+    private record Head(Document document, Iterator<Document> rest) {
+    }
+
+    private static final class Document {
+        private final CompanyDirectoryRow company;
+        private final String[] tokens;
+        private final String sortKey;
+
+        private Document(CompanyDirectoryRow company, String[] tokens) {
+            this.company = company;
+            this.tokens = tokens;
+            this.sortKey = company.getCompanyName() == null ? "" : company.getCompanyName().toLowerCase(Locale.ROOT);
+        }
+
+        // The number of terms equal to a token, or -1 if a term is not the beginning of any token
+        private int match(List<String> terms) {
+            int exactMatches = 0;
+            for (String term : terms) {
+                boolean prefix = false;
+                for (String token : tokens) {
+                    if (token.equals(term)) {
+                        exactMatches++;
+                        prefix = true;
+                        break;
+                    }
+                    prefix |= token.startsWith(term);
+                }
+                if (!prefix) {
+                    return -1;
+                }
+            }
+            return exactMatches;
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.nikolas.mechanicalmanagementsystem.utility;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.regex.Pattern;
+
+/**
+ * SHA-256 helpers of the content-addressed image storage.
+ */
+public class ContentHash {
+
+    private static final Pattern SHA_256_HEX = Pattern.compile("[0-9a-f]{64}");
+
+    private ContentHash() {
+    }
+
+    public static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform is required to support SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public static String toHex(MessageDigest digest) {
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * @param hash The value to check.
+     * @return {@code true} if the value is a lower case hex SHA-256 hash, safe to use as a file name.
+     */
+    public static boolean isValid(String hash) {
+        return hash != null && SHA_256_HEX.matcher(hash).matches();
+    }
+}
@@ -0,0 +1,106 @@
+package com.nikolas.mechanicalmanagementsystem.utility;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+/**
+ * Downscaling and encoding of images with {@code javax.imageio} and Java2D.
+ */
+public class ImageScaler {
+
+    private static final float JPEG_QUALITY = 0.82f;
+
+    private ImageScaler() {
+    }
+
+    /**
+     * Scales the image down so that its longer side is at most {@code maxDimension} pixels, keeping the aspect ratio.
+     * Large reductions are done in halving steps, a single bilinear step would skip most source pixels and alias.
+     *
+     * @param source       The image to scale.
+     * @param maxDimension The maximum width and height of the result.
+     * @return The scaled image, or the source itself if it already fits.
+     */
+    public static BufferedImage scaleToFit(BufferedImage source, int maxDimension) {
+        int width = source.getWidth();
+        int height = source.getHeight();
+        if (width <= maxDimension && height <= maxDimension) {
+            return source;
+        }
+        double ratio = Math.min((double) maxDimension / width, (double) maxDimension / height);
+        int targetWidth = Math.max(1, (int) Math.round(width * ratio));
+        int targetHeight = Math.max(1, (int) Math.round(height * ratio));
+
+        boolean alpha = source.getColorModel().hasAlpha();
+        BufferedImage current = source;
+        while (width > targetWidth || height > targetHeight) {
+            width = Math.max(targetWidth, width / 2);
+            height = Math.max(targetHeight, height / 2);
+            current = draw(current, width, height, alpha);
+        }
+        return current;
+    }
+
+    /**
+     * Encodes the image as PNG if it has transparency, otherwise as JPEG.
+     *
+     * @param image The image to encode.
+     * @return The encoded bytes.
+     * @throws IOException If the image cannot be encoded.
+     */
+    public static byte[] encode(BufferedImage image) throws IOException {
+        return image.getColorModel().hasAlpha() ? encodePng(image) : encodeJpeg(image);
+    }
+
+    /**
+     * @param image The image that will be passed to {@link #encode(BufferedImage)}.
+     * @return The content type {@link #encode(BufferedImage)} produces for the image.
+     */
+    public static String contentType(BufferedImage image) {
+        return image.getColorModel().hasAlpha() ? "image/png" : "image/jpeg";
+    }
+
+    private static BufferedImage draw(BufferedImage source, int width, int height, boolean alpha) {
+        BufferedImage target = new BufferedImage(width, height, alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = target.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.drawImage(source, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+        return target;
+    }
+
+    private static byte[] encodePng(BufferedImage image) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", out);
+        return out.toByteArray();
+    }
+
+    private static byte[] encodeJpeg(BufferedImage image) throws IOException {
+        // The JPEG writer cannot handle every source type (e.g. indexed colors), draw it onto plain RGB first
+        BufferedImage rgb = image.getType() == BufferedImage.TYPE_INT_RGB
+                ? image : draw(image, image.getWidth(), image.getHeight(), false);
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ImageOutputStream imageOut = ImageIO.createImageOutputStream(out)) {
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(JPEG_QUALITY);
+            writer.setOutput(imageOut);
+            writer.write(null, new IIOImage(rgb, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return out.toByteArray();
+    }
+}
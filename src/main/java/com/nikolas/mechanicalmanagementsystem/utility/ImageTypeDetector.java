@@ -0,0 +1,76 @@
+package com.nikolas.mechanicalmanagementsystem.utility;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Optional;
+
+/**
+ * Detects the type of uploaded images from their first bytes, instead of trusting the content type sent by the client.
+ */
+public class ImageTypeDetector {
+
+    /**
+     * The number of bytes needed to recognize every supported type.
+     */
+    public static final int HEADER_LENGTH = 12;
+
+    private static final byte[] JPEG = {(byte) 0xFF, (byte) 0xD8, (byte) 0xFF};
+    private static final byte[] PNG = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+    private static final byte[] GIF87A = {'G', 'I', 'F', '8', '7', 'a'};
+    private static final byte[] GIF89A = {'G', 'I', 'F', '8', '9', 'a'};
+    private static final byte[] RIFF = {'R', 'I', 'F', 'F'};
+    private static final byte[] WEBP = {'W', 'E', 'B', 'P'};
+
+    private ImageTypeDetector() {
+    }
+
+    /**
+     * Reads the header of the stream and resets it, so the whole content can still be read afterwards.
+     *
+     * @param content A stream supporting mark and reset, positioned at the start of the content.
+     * @return The content type of the image, or empty if it is not a supported image type.
+     * @throws IOException If the stream cannot be read.
+     */
+    public static Optional<String> detect(InputStream content) throws IOException {
+        if (!content.markSupported()) {
+            throw new IllegalArgumentException("The stream must support mark and reset");
+        }
+        content.mark(HEADER_LENGTH);
+        byte[] header = content.readNBytes(HEADER_LENGTH);
+        content.reset();
+        return detect(header);
+    }
+
+    /**
+     * @param header The first bytes of the content, at most {@link #HEADER_LENGTH} are used.
+     * @return The content type of the image, or empty if it is not a supported image type.
+     */
+    public static Optional<String> detect(byte[] header) {
+        if (startsWith(header, 0, JPEG)) {
+            return Optional.of("image/jpeg");
+        }
+        if (startsWith(header, 0, PNG)) {
+            return Optional.of("image/png");
+        }
+        if (startsWith(header, 0, GIF87A) || startsWith(header, 0, GIF89A)) {
+            return Optional.of("image/gif");
+        }
+        // RIFF container: "RIFF", 4 bytes of size, then the format
+        if (startsWith(header, 0, RIFF) && startsWith(header, 8, WEBP)) {
+            return Optional.of("image/webp");
+        }
+        return Optional.empty();
+    }
+
+    private static boolean startsWith(byte[] header, int offset, byte[] signature) {
+        if (header.length < offset + signature.length) {
+            return false;
+        }
+        for (int i = 0; i < signature.length; i++) {
+            if (header[offset + i] != signature[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
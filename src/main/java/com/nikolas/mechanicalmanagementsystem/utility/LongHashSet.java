@@ -0,0 +1,105 @@
+package com.nikolas.mechanicalmanagementsystem.utility;
+
+import java.io.Serializable;
+import java.util.Collection;
+
+/**
+ * Immutable set of {@code long} values, for membership checks by ID without boxing.
+ * The values are stored in an open addressing table at most half full, so a lookup hashes the value
+ * and reads a few neighbouring array slots. The slot value 0 marks an empty slot, 0 itself is kept in a flag.
+ */
+public final class LongHashSet implements Serializable {
+
+    private static final long EMPTY = 0L;
+
+    private final long[] slots;
+    private final boolean containsEmpty;
+    private final int size;
+
+    /**
+     * @param values The values, duplicates and {@code null} elements are left out.
+     */
+    public LongHashSet(Collection<Long> values) {
+        int capacity = 2;
+        while (capacity < values.size() * 2) {
+            capacity <<= 1;
+        }
+        long[] table = new long[capacity];
+        boolean empty = false;
+        int count = 0;
+        for (Long value : values) {
+            if (value == null) {
+                continue;
+            }
+            if (value == EMPTY) {
+                if (!empty) {
+                    empty = true;
+                    count++;
+                }
+            } else if (insert(table, value)) {
+                count++;
+            }
+        }
+        this.slots = table;
+        this.containsEmpty = empty;
+        this.size = count;
+    }
+
+    public boolean contains(long value) {
+        if (value == EMPTY) {
+            return containsEmpty;
+        }
+        int mask = slots.length - 1;
+        for (int i = index(value, mask); ; i = (i + 1) & mask) {
+            long slot = slots[i];
+            if (slot == value) {
+                return true;
+            }
+            if (slot == EMPTY) {
+                return false;
+            }
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder("[");
+        if (containsEmpty) {
+            text.append(EMPTY);
+        }
+        for (long slot : slots) {
+            if (slot != EMPTY) {
+                text.append(text.length() > 1 ? ", " : "").append(slot);
+            }
+        }
+        return text.append(']').toString();
+    }
+
+    // Returns false if the value was already in the table
+    private static boolean insert(long[] table, long value) {
+        int mask = table.length - 1;
+        for (int i = index(value, mask); ; i = (i + 1) & mask) {
+            if (table[i] == value) {
+                return false;
+            }
+            if (table[i] == EMPTY) {
+                table[i] = value;
+                return true;
+            }
+        }
+    }
+
+    // Spreads the sequential IDs over the table
+    private static int index(long value, int mask) {
+        long hash = value * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+}
@@ -0,0 +1,74 @@
+package com.nikolas.mechanicalmanagementsystem.utility;
+
+import java.math.BigDecimal;
+
+/**
+ * Sums money amounts in cents in a {@code long}, without creating an object per addition.
+ * The amount columns have two decimals, so they can be read as cents and added exactly. When a sum would overflow,
+ * or an amount has more decimals, the running sum is moved into a {@code BigDecimal} and the addition continues there,
+ * so the result is always exact.
+ */
+public final class MoneyAccumulator {
+
+    /**
+     * The number of decimals of the amounts added as cents.
+     */
+    public static final int SCALE = 2;
+
+    private long cents;
+    private BigDecimal spilled;
+
+    /**
+     * @param amount An amount in cents.
+     */
+    public void addCents(long amount) {
+        long sum = cents + amount;
+        // Overflow if both operands have the same sign and the sum has the other one
+        if (((cents ^ sum) & (amount ^ sum)) < 0) {
+            spill();
+            sum = amount;
+        }
+        cents = sum;
+    }
+
+    /**
+     * @param amount An amount, ignored if null.
+     */
+    public void add(BigDecimal amount) {
+        if (amount == null) {
+            return;
+        }
+        if (amount.scale() <= SCALE && amount.precision() - amount.scale() <= 16) {
+            addCents(amount.movePointRight(SCALE).longValue());
+        } else {
+            spill();
+            spilled = spilled.add(amount);
+        }
+    }
+
+    /**
+     * @param other Another accumulator, whose sum is added to this one.
+     */
+    public void add(MoneyAccumulator other) {
+        addCents(other.cents);
+        if (other.spilled != null) {
+            spill();
+            spilled = spilled.add(other.spilled);
+        }
+    }
+
+    /**
+     * @return The sum with two decimals, or more if an added amount had more.
+     */
+    public BigDecimal toBigDecimal() {
+        BigDecimal sum = BigDecimal.valueOf(cents, SCALE);
+        return spilled == null ? sum : spilled.add(sum);
+    }
+
+    // Moves the sum in cents into the BigDecimal part
+    private void spill() {
+        BigDecimal sum = BigDecimal.valueOf(cents, SCALE);
+        spilled = spilled == null ? sum : spilled.add(sum);
+        cents = 0;
+    }
+}
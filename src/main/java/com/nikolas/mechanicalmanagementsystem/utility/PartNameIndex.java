@@ -0,0 +1,147 @@
+package com.nikolas.mechanicalmanagementsystem.utility;
+
+import com.nikolas.mechanicalmanagementsystem.dtos.PartSuggestion;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * The part names of one company, sorted case-insensitively, for prefix lookups.
+ * Lookups binary search an immutable array without locking; an added name replaces the array with a copy.
+ * At most {@code maxNames} names are kept, when full the least recently entered name is dropped.
+ */
+public class PartNameIndex {
+
+    private static final Comparator<Entry> BY_KEY = Comparator.comparing(entry -> entry.key);
+
+    private final int maxNames;
+    private volatile Entry[] entries;
+    private long clock;
+
+    /**
+     * @param maxNames The maximum number of names kept.
+     * @param parts    The parts used before, the most recent first. Only the first occurrence of a name is kept.
+     */
+    public PartNameIndex(int maxNames, List<PartSuggestion> parts) {
+        this.maxNames = maxNames;
+        Map<String, Entry> newestByKey = new LinkedHashMap<>();
+        for (int i = 0; i < parts.size() && newestByKey.size() < maxNames; i++) {
+            PartSuggestion part = parts.get(i);
+            String key = toKey(part.getName());
+            if (!key.isEmpty()) {
+                newestByKey.putIfAbsent(key, new Entry(key, part.getName().trim(), part.getLastPrice(), parts.size() - i));
+            }
+        }
+        Entry[] loaded = newestByKey.values().toArray(new Entry[0]);
+        Arrays.sort(loaded, BY_KEY);
+        clock = parts.size();
+        entries = loaded;
+    }
+
+    /**
+     * @param prefix The beginning of the part name, in any case.
+     * @param limit  The maximum number of suggestions.
+     * @return The names starting with the prefix in alphabetical order, with their last prices.
+     */
+    public List<PartSuggestion> suggest(String prefix, int limit) {
+        String key = toKey(prefix);
+        Entry[] current = entries;
+        List<PartSuggestion> suggestions = new ArrayList<>(Math.min(limit, 16));
+        for (int i = lowerBound(current, key); i < current.length && suggestions.size() < limit
+                && current[i].key.startsWith(key); i++) {
+            suggestions.add(new PartSuggestion(current[i].name, current[i].lastPrice));
+        }
+        return suggestions;
+    }
+
+    /**
+     * Adds a part name, or updates the spelling and the last price of a known one.
+     *
+     * @param name  The name of the part.
+     * @param price The price of the part without tax.
+     */
+    public synchronized void record(String name, BigDecimal price) {
+        String key = toKey(name);
+        if (key.isEmpty()) {
+            return;
+        }
+        Entry entry = new Entry(key, name.trim(), price, ++clock);
+        Entry[] current = entries;
+        int index = lowerBound(current, key);
+        if (index < current.length && current[index].key.equals(key)) {
+            Entry[] updated = current.clone();
+            updated[index] = entry;
+            entries = updated;
+            return;
+        }
+        if (current.length >= maxNames) {
+            current = withoutLeastRecent(current);
+            index = lowerBound(current, key);
+        }
+        Entry[] updated = new Entry[current.length + 1];
+        System.arraycopy(current, 0, updated, 0, index);
+        updated[index] = entry;
+        System.arraycopy(current, index, updated, index + 1, current.length - index);
+        entries = updated;
+    }
+
+    /**
+     * @return The number of names kept.
+     */
+    public int size() {
+        return entries.length;
+    }
+
+    private static Entry[] withoutLeastRecent(Entry[] current) {
+        int leastRecent = 0;
+        for (int i = 1; i < current.length; i++) {
+            if (current[i].lastUsed < current[leastRecent].lastUsed) {
+                leastRecent = i;
+            }
+        }
+        Entry[] remaining = new Entry[current.length - 1];
+        System.arraycopy(current, 0, remaining, 0, leastRecent);
+        System.arraycopy(current, leastRecent + 1, remaining, leastRecent, current.length - leastRecent - 1);
+        return remaining;
+    }
+
+    // The index of the first entry whose key is not less than the given key
+    private static int lowerBound(Entry[] current, String key) {
+        int low = 0;
+        int high = current.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (current[middle].key.compareTo(key) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private static String toKey(String name) {
+        return name == null ? "" : name.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static final class Entry {
+        private final String key;
+        private final String name;
+        private final BigDecimal lastPrice;
+        private final long lastUsed;
+
+        private Entry(String key, String name, BigDecimal lastPrice, long lastUsed) {
+            // The same names come up in many companies
+            this.key = key.intern();
+            this.name = name.intern();
+            this.lastPrice = lastPrice;
+            this.lastUsed = lastUsed;
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.nikolas.mechanicalmanagementsystem.utility;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * The tax rate rules of the machine parts, shared by the single machine and the company-wide tax updates.
+ */
+public class TaxRates {
+
+    private static final BigDecimal HUNDRED = BigDecimal.valueOf(100);
+
+    private TaxRates() {
+    }
+
+    /**
+     * @param taxInPercent The tax rate to check.
+     * @throws IllegalArgumentException if the tax rate is null or outside the valid range (0 to 100).
+     */
+    public static void validate(BigDecimal taxInPercent) {
+        if (taxInPercent == null || taxInPercent.compareTo(BigDecimal.ZERO) < 0 || taxInPercent.compareTo(HUNDRED) > 0) {
+            throw new IllegalArgumentException("Invalid tax rate: " + taxInPercent);
+        }
+    }
+
+    /**
+     * The factor the part price is multiplied by to get the unit tax: the percentage divided by 100,
+     * rounded to two decimals with {@link RoundingMode#HALF_EVEN}.
+     *
+     * @param taxInPercent The tax rate in percent.
+     * @return The tax factor.
+     */
+    public static BigDecimal toFactor(BigDecimal taxInPercent) {
+        return taxInPercent.divide(HUNDRED, 2, RoundingMode.HALF_EVEN);
+    }
+}
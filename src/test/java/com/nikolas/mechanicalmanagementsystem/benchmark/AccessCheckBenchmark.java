@@ -0,0 +1,110 @@
+package com.nikolas.mechanicalmanagementsystem.benchmark;
+
+import com.nikolas.mechanicalmanagementsystem.entity.Company;
+import com.nikolas.mechanicalmanagementsystem.entity.CompanyRole;
+import com.nikolas.mechanicalmanagementsystem.entity.Role;
+import com.nikolas.mechanicalmanagementsystem.entity.User;
+import com.nikolas.mechanicalmanagementsystem.utility.LongHashSet;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Machine access check for a user in many companies: walking roles to company roles to companies and searching
+ * the resulting list, like {@code MachineServiceImpl} used to, against a boxed {@code HashSet<Long>} and the
+ * {@link LongHashSet} carried in the user snapshot. Half of the checked company IDs are accessible. Run the main
+ * method; {@code gc.alloc.rate.norm} is the number of bytes allocated per check.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xmx256m"})
+public class AccessCheckBenchmark {
+
+    private static final int PROBES = 1024;
+
+    @Param({"1", "10", "100", "1000"})
+    private int companies;
+
+    private User user;
+    private Set<Long> boxedIds;
+    private LongHashSet companyIds;
+    private Company[] probeCompanies;
+    private long[] probeIds;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        Set<CompanyRole> companyRoles = new HashSet<>();
+        List<Long> ids = new ArrayList<>();
+        for (long id = 1; id <= companies; id++) {
+            CompanyRole companyRole = new CompanyRole();
+            companyRole.setCompany(company(id));
+            companyRoles.add(companyRole);
+            ids.add(id);
+        }
+        Role role = new Role();
+        role.setRoleName("EMPLOYEE");
+        role.setCompanyRoles(companyRoles);
+        user = new User();
+        user.getRoles().add(role);
+        boxedIds = new HashSet<>(ids);
+        companyIds = new LongHashSet(ids);
+
+        // Machines of accessible and inaccessible companies, half each
+        Random random = new Random(42);
+        probeCompanies = new Company[PROBES];
+        probeIds = new long[PROBES];
+        for (int i = 0; i < PROBES; i++) {
+            long id = 1 + random.nextInt(companies * 2);
+            probeCompanies[i] = company(id);
+            probeIds[i] = id;
+        }
+    }
+
+    private static Company company(long id) {
+        Company company = new Company();
+        company.setId(id);
+        return company;
+    }
+
+    @Benchmark
+    public boolean walkRoles() {
+        int i = next++ & (PROBES - 1);
+        List<Company> userCompanies = user.getRoles().stream()
+                .flatMap(role -> role.getCompanyRoles().stream())
+                .map(CompanyRole::getCompany)
+                .toList();
+        return userCompanies.contains(probeCompanies[i]);
+    }
+
+    @Benchmark
+    public boolean boxedSet() {
+        int i = next++ & (PROBES - 1);
+        return boxedIds.contains(probeIds[i]);
+    }
+
+    @Benchmark
+    public boolean longHashSet() {
+        int i = next++ & (PROBES - 1);
+        return companyIds.contains(probeIds[i]);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(AccessCheckBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
@@ -0,0 +1,96 @@
+package com.nikolas.mechanicalmanagementsystem.benchmark;
+
+import com.nikolas.mechanicalmanagementsystem.dtos.CompanyDirectoryRow;
+import com.nikolas.mechanicalmanagementsystem.utility.CompanySearchIndex;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Company search over 100k companies: the {@link CompanySearchIndex} for the type-ahead (10 results) and the search
+ * (100 results), against scanning every company for the typed text, like the filter of the page used to do in the
+ * browser. The queries go from a single letter, matching most companies, to two words. {@code reindex} is the cost
+ * of indexing a changed company. Run the main method.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xmx1g"})
+public class CompanySearchBenchmark {
+
+    private static final int COMPANIES = 100_000;
+    private static final String[] NAME_WORDS = {"Auto", "Autó", "Motor", "Garage", "Szerviz", "Kovács", "Nagy", "Tóth",
+            "Fix", "Diesel", "Truck", "Gumi", "Service", "Express", "Profi", "Mester", "Turbo", "Speed", "Car", "Box"};
+    private static final String[] SUFFIXES = {"Kft.", "Bt.", "Zrt.", "GmbH", "Ltd."};
+    private static final String[] COUNTRIES = {"Hungary", "Austria", "Germany", "Slovakia", "Romania", "Serbia"};
+    private static final String[] LOCATIONS = {"Budapest", "Szeged", "Debrecen", "Pécs", "Győr", "Wien", "Graz",
+            "München", "Bratislava", "Kosice", "Cluj", "Timisoara", "Novi Sad", "Subotica", "Miskolc", "Eger"};
+
+    @Param({"a", "mot", "kovacs sze", "6720"})
+    private String query;
+
+    private List<CompanyDirectoryRow> companies;
+    private CompanySearchIndex index;
+    private String lowerCaseQuery;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        companies = new ArrayList<>(COMPANIES);
+        for (long id = 1; id <= COMPANIES; id++) {
+            String name = NAME_WORDS[random.nextInt(NAME_WORDS.length)] + ' ' + NAME_WORDS[random.nextInt(NAME_WORDS.length)]
+                    + ' ' + id + ' ' + SUFFIXES[random.nextInt(SUFFIXES.length)];
+            companies.add(new CompanyDirectoryRow(id, name, COUNTRIES[random.nextInt(COUNTRIES.length)],
+                    LOCATIONS[random.nextInt(LOCATIONS.length)], "Fő utca " + random.nextInt(200),
+                    1000 + random.nextInt(9000)));
+        }
+        index = new CompanySearchIndex(companies);
+        lowerCaseQuery = query.toLowerCase(Locale.ROOT);
+    }
+
+    @Benchmark
+    public List<CompanyDirectoryRow> suggest() {
+        return index.search(query, 10);
+    }
+
+    @Benchmark
+    public List<CompanyDirectoryRow> search() {
+        return index.search(query, 100);
+    }
+
+    @Benchmark
+    public List<CompanyDirectoryRow> scan() {
+        List<CompanyDirectoryRow> results = new ArrayList<>();
+        for (CompanyDirectoryRow company : companies) {
+            String text = (company.getCompanyName() + ' ' + company.getCountry() + ' ' + company.getLocation() + ' '
+                    + company.getPostCode()).toLowerCase(Locale.ROOT);
+            if (text.contains(lowerCaseQuery) && results.size() < 100) {
+                results.add(company);
+            }
+        }
+        return results;
+    }
+
+    @Benchmark
+    public void reindex() {
+        index.put(companies.get(next++ % COMPANIES));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(CompanySearchBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
@@ -0,0 +1,146 @@
+package com.nikolas.mechanicalmanagementsystem.benchmark;
+
+import com.nikolas.mechanicalmanagementsystem.dtos.StoredContent;
+import com.nikolas.mechanicalmanagementsystem.service.FileSystemImageStorage;
+import com.nikolas.mechanicalmanagementsystem.utility.ContentHash;
+import com.nikolas.mechanicalmanagementsystem.utility.ImageTypeDetector;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.util.FileSystemUtils;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Memory cost of one image upload: reading the whole part with {@code getBytes()} against streaming it into the
+ * image storage. Run the main method; the {@code gc.alloc.rate.norm} column of the GC profiler is the number of bytes
+ * allocated per upload, which is what a burst of concurrent uploads keeps alive on the heap.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xmx256m"})
+public class ImageUploadBenchmark {
+
+    @Param({"1048576", "5242880"})
+    private int imageSize;
+
+    private Path directory;
+    private MultipartFile upload;
+    private FileSystemImageStorage storage;
+
+    @Setup
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("image-upload-benchmark");
+        byte[] content = new byte[imageSize];
+        new Random(42).nextBytes(content);
+        // JPEG signature, the rest does not have to be a valid image
+        content[0] = (byte) 0xFF;
+        content[1] = (byte) 0xD8;
+        content[2] = (byte) 0xFF;
+        Path part = directory.resolve("upload.jpg");
+        Files.write(part, content);
+        upload = new DiskMultipartFile(part);
+        storage = new FileSystemImageStorage(directory.resolve("storage").toString());
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        FileSystemUtils.deleteRecursively(directory);
+    }
+
+    /**
+     * The previous upload path: the whole part is read into a byte array, then hashed and written.
+     */
+    @Benchmark
+    public String readWholePart() throws IOException {
+        byte[] bytes = upload.getBytes();
+        MessageDigest digest = ContentHash.newDigest();
+        digest.update(bytes);
+        String hash = ContentHash.toHex(digest);
+        Files.write(directory.resolve("storage").resolve("incoming").resolve(hash), bytes);
+        return hash;
+    }
+
+    /**
+     * The upload path of {@code ImagesServiceImpl}: type detection on the buffered stream, then streaming into the storage.
+     */
+    @Benchmark
+    public StoredContent streamPart() throws IOException {
+        try (InputStream content = new BufferedInputStream(upload.getInputStream())) {
+            ImageTypeDetector.detect(content).orElseThrow();
+            return storage.store(content);
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(ImageUploadBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+
+    /**
+     * A part buffered on disk by the servlet container, like the parts the application receives.
+     */
+    private static class DiskMultipartFile implements MultipartFile {
+        private final Path path;
+
+        DiskMultipartFile(Path path) {
+            this.path = path;
+        }
+
+        @Override
+        public String getName() {
+            return "image";
+        }
+
+        @Override
+        public String getOriginalFilename() {
+            return path.getFileName().toString();
+        }
+
+        @Override
+        public String getContentType() {
+            return "image/jpeg";
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return getSize() == 0;
+        }
+
+        @Override
+        public long getSize() {
+            return path.toFile().length();
+        }
+
+        @Override
+        public byte[] getBytes() throws IOException {
+            return Files.readAllBytes(path);
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            return Files.newInputStream(path);
+        }
+
+        @Override
+        public void transferTo(File dest) throws IOException {
+            Files.copy(path, dest.toPath());
+        }
+    }
+}
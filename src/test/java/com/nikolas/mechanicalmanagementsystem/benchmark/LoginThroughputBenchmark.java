@@ -0,0 +1,88 @@
+package com.nikolas.mechanicalmanagementsystem.benchmark;
+
+import com.nikolas.mechanicalmanagementsystem.security.BoundedPasswordEncoder;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A login storm next to page views: eight request threads checking passwords and two rendering pages (simulated by a
+ * fixed amount of CPU work), with the passwords checked on the request threads like the plain {@code BCryptPasswordEncoder}
+ * used to, against the {@link BoundedPasswordEncoder} hashing on half of the cores. The time of a login and of a page
+ * is reported per group; the logins per second are the login threads divided by the time of a login.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(value = 1, jvmArgs = {"-Xmx256m"})
+public class LoginThroughputBenchmark {
+
+    private static final int BCRYPT_STRENGTH = 10;
+    // Roughly a millisecond of CPU, a page rendered from loaded data
+    private static final long PAGE_CPU_TOKENS = 200_000;
+
+    private PasswordEncoder requestThreadEncoder;
+    private PasswordEncoder boundedEncoder;
+    private ThreadPoolExecutor hashingExecutor;
+    private String hash;
+
+    @Setup
+    public void setUp() {
+        BCryptPasswordEncoder bcrypt = new BCryptPasswordEncoder(BCRYPT_STRENGTH);
+        int poolSize = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        hashingExecutor = new ThreadPoolExecutor(poolSize, poolSize, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(100));
+        requestThreadEncoder = bcrypt;
+        boundedEncoder = new BoundedPasswordEncoder(bcrypt, hashingExecutor, new SimpleMeterRegistry());
+        hash = bcrypt.encode("password");
+    }
+
+    @TearDown
+    public void tearDown() {
+        hashingExecutor.shutdownNow();
+    }
+
+    @Benchmark
+    @Group("requestThread")
+    @GroupThreads(8)
+    public boolean requestThreadLogin() {
+        return requestThreadEncoder.matches("password", hash);
+    }
+
+    @Benchmark
+    @Group("requestThread")
+    @GroupThreads(2)
+    public void requestThreadPage() {
+        Blackhole.consumeCPU(PAGE_CPU_TOKENS);
+    }
+
+    @Benchmark
+    @Group("bounded")
+    @GroupThreads(8)
+    public boolean boundedLogin() {
+        return boundedEncoder.matches("password", hash);
+    }
+
+    @Benchmark
+    @Group("bounded")
+    @GroupThreads(2)
+    public void boundedPage() {
+        Blackhole.consumeCPU(PAGE_CPU_TOKENS);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(LoginThroughputBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,79 @@
+package com.nikolas.mechanicalmanagementsystem.benchmark;
+
+import com.nikolas.mechanicalmanagementsystem.utility.MoneyAccumulator;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.math.BigDecimal;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Summing report amounts: folding {@code BigDecimal} values one {@code add} at a time, like the reports used to,
+ * against {@link MoneyAccumulator} fed with the same {@code BigDecimal} values or with cents read as {@code long}
+ * columns, like {@code MachineReportRepository}. Run the main method; {@code gc.alloc.rate.norm} is the number of
+ * bytes allocated per sum.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xmx256m"})
+public class MoneyAggregationBenchmark {
+
+    @Param({"1000", "100000"})
+    private int rows;
+
+    private long[] cents;
+    private BigDecimal[] amounts;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        cents = new long[rows];
+        amounts = new BigDecimal[rows];
+        for (int i = 0; i < rows; i++) {
+            // Up to 100,000.00 with two decimals, like the amount columns
+            cents[i] = random.nextInt(10_000_000);
+            amounts[i] = BigDecimal.valueOf(cents[i], 2);
+        }
+    }
+
+    @Benchmark
+    public BigDecimal foldBigDecimals() {
+        BigDecimal total = BigDecimal.ZERO;
+        for (BigDecimal amount : amounts) {
+            total = total.add(amount);
+        }
+        return total;
+    }
+
+    @Benchmark
+    public BigDecimal accumulateBigDecimals() {
+        MoneyAccumulator total = new MoneyAccumulator();
+        for (BigDecimal amount : amounts) {
+            total.add(amount);
+        }
+        return total.toBigDecimal();
+    }
+
+    @Benchmark
+    public BigDecimal accumulateCents() {
+        MoneyAccumulator total = new MoneyAccumulator();
+        for (long amount : cents) {
+            total.addCents(amount);
+        }
+        return total.toBigDecimal();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(MoneyAggregationBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
@@ -0,0 +1,104 @@
+package com.nikolas.mechanicalmanagementsystem.benchmark;
+
+import com.nikolas.mechanicalmanagementsystem.MechanicalManagementSystem;
+import com.nikolas.mechanicalmanagementsystem.entity.Company;
+import com.nikolas.mechanicalmanagementsystem.entity.Machine;
+import com.nikolas.mechanicalmanagementsystem.entity.MachinePart;
+import com.nikolas.mechanicalmanagementsystem.repository.CompanyRepository;
+import com.nikolas.mechanicalmanagementsystem.repository.MachineRepository;
+import com.nikolas.mechanicalmanagementsystem.service.MachinePartService;
+import com.nikolas.mechanicalmanagementsystem.service.MachineService;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Entering 1,000 parts of a machine: one {@code addMachinePartToMachine} call per part, like the single part form,
+ * against one {@code addMachineParts} call, like the multi-row form and the CSV paste. Needs the database of
+ * {@code application.yml}; another one can be given with {@code -Dspring.datasource.url=...} (and username, password).
+ * The parts are added to a new machine of a new company, which are left in the database.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(value = 1, jvmArgs = {"-Xmx512m"})
+public class PartEntryBenchmark {
+
+    private static final int PARTS = 1000;
+
+    private ConfigurableApplicationContext context;
+    private MachinePartService machinePartService;
+    private MachineService machineService;
+    private Machine machine;
+    private List<MachinePart> parts;
+
+    @Setup(Level.Trial)
+    public void startApplication() {
+        context = new SpringApplicationBuilder(MechanicalManagementSystem.class)
+                // the security configuration needs the web context
+                .properties("server.port=0")
+                .run();
+        machinePartService = context.getBean(MachinePartService.class);
+        machineService = context.getBean(MachineService.class);
+
+        Company company = new Company();
+        company.setCompanyName("Part entry benchmark");
+        company.setCountry("Benchmark");
+        company = context.getBean(CompanyRepository.class).save(company);
+        Machine newMachine = new Machine();
+        newMachine.setMachineBrand("Benchmark");
+        newMachine.setMachineModel("Parts");
+        newMachine.setTaxInPercent(new BigDecimal("27"));
+        newMachine.setCompany(company);
+        machine = context.getBean(MachineRepository.class).save(newMachine);
+
+        parts = new ArrayList<>(PARTS);
+        for (int i = 0; i < PARTS; i++) {
+            MachinePart part = new MachinePart();
+            part.setPartName("Part " + i);
+            part.setPartPrice(BigDecimal.valueOf(1000 + i, 2));
+            parts.add(part);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void stopApplication() {
+        context.close();
+    }
+
+    /**
+     * The single part path: a transaction, an insert and a parts sum update per part.
+     */
+    @Benchmark
+    public Machine addPartByPart() {
+        Machine current = machineService.getMachineById(machine.getId());
+        for (MachinePart part : parts) {
+            machinePartService.addMachinePartToMachine(current, part);
+        }
+        return current;
+    }
+
+    /**
+     * The bulk path: one transaction, batched inserts and one parts sum update.
+     */
+    @Benchmark
+    public int addAllParts() {
+        return machinePartService.addMachineParts(machineService.getMachineById(machine.getId()), parts);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(PartEntryBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,94 @@
+package com.nikolas.mechanicalmanagementsystem.config;
+
+import com.nikolas.mechanicalmanagementsystem.entity.Images;
+import com.nikolas.mechanicalmanagementsystem.repository.ImagesRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The drop of the unmapped image columns on an in-memory database with the schema of the entities plus the old columns.
+ */
+@ActiveProfiles("test")
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(ImageSchemaMigration.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:imageschema;MODE=MySQL;NON_KEYWORDS=USER,YEAR,MONTH,VALUE;DATABASE_TO_LOWER=TRUE",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.auto_quote_keyword=true",
+        "spring.sql.init.mode=never"
+})
+class ImageSchemaMigrationTest {
+
+    @Autowired
+    private ImageSchemaMigration imageSchemaMigration;
+    @Autowired
+    private ImagesRepository imagesRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @MockBean
+    private PasswordEncoder passwordEncoder;
+
+    @Test
+    void testDropVariantContentColumn() {
+        // Arrange: a variant of the time the bytes were kept in the row
+        Images image = new Images();
+        image.setName("old");
+        image.setContentHash("a".repeat(64));
+        image.setVariantsDone(true);
+        Long imageId = imagesRepository.save(image).getId();
+        jdbcTemplate.execute("ALTER TABLE image_variants ADD COLUMN content BLOB");
+        jdbcTemplate.update("INSERT INTO image_variants (image_id, variant, type, width, height, content_hash, content_size, content) " +
+                "VALUES (?, 'THUMBNAIL', 'image/jpeg', 320, 160, '', 0, X'FFD8')", imageId);
+
+        // Act
+        imageSchemaMigration.dropVariantContentColumn();
+
+        // Assert: the old variant is gone and the image is processed again
+        assertEquals(0L, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM image_variants", Long.class));
+        assertThrows(DataAccessException.class, () -> jdbcTemplate.queryForObject("SELECT COUNT(content) FROM image_variants", Long.class));
+        assertFalse(imagesRepository.findById(imageId).orElseThrow().isVariantsDone());
+
+        // A second start finds nothing to do
+        assertDoesNotThrow(() -> imageSchemaMigration.dropVariantContentColumn());
+    }
+
+    @Test
+    void testDropBase64ImageColumn() {
+        // Arrange: an image of the time it was inlined as base64
+        Images image = new Images();
+        image.setName("old");
+        image.setContentHash("b".repeat(64));
+        Long imageId = imagesRepository.save(image).getId();
+        jdbcTemplate.execute("ALTER TABLE images ADD COLUMN base64_image LONGTEXT");
+        jdbcTemplate.update("UPDATE images SET base64_image = 'AAEC' WHERE id = ?", imageId);
+
+        // Act
+        imageSchemaMigration.dropUnmappedColumns();
+
+        // Assert: the column is gone, the image is kept
+        assertThrows(DataAccessException.class, () -> jdbcTemplate.queryForObject("SELECT COUNT(base64_image) FROM images", Long.class));
+        assertTrue(imagesRepository.findById(imageId).isPresent());
+
+        // A second start finds nothing to do
+        assertDoesNotThrow(() -> imageSchemaMigration.dropUnmappedColumns());
+    }
+}
@@ -0,0 +1,83 @@
+package com.nikolas.mechanicalmanagementsystem.security;
+
+import com.nikolas.mechanicalmanagementsystem.exception.PasswordHashingBusyException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@ActiveProfiles("test")
+class BoundedPasswordEncoderTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void testEncodeAndMatches() {
+        // Arrange
+        BCryptPasswordEncoder bcrypt = new BCryptPasswordEncoder(4);
+        DelegatingPasswordEncoder delegate = new DelegatingPasswordEncoder("bcrypt", Map.of("bcrypt", bcrypt));
+        delegate.setDefaultPasswordEncoderForMatches(bcrypt);
+        PasswordEncoder passwordEncoder = new BoundedPasswordEncoder(delegate, Runnable::run, meterRegistry);
+        String legacyHash = bcrypt.encode("secret");
+
+        // Act
+        String hash = passwordEncoder.encode("secret");
+
+        // Assert: new hashes are prefixed, the hashes without prefix still match and are upgraded
+        assertTrue(hash.startsWith("{bcrypt}"));
+        assertTrue(passwordEncoder.matches("secret", hash));
+        assertTrue(passwordEncoder.matches("secret", legacyHash));
+        assertFalse(passwordEncoder.matches("wrong", legacyHash));
+        assertFalse(passwordEncoder.upgradeEncoding(hash));
+        assertTrue(passwordEncoder.upgradeEncoding(legacyHash));
+        assertEquals(1, meterRegistry.timer("app.password.hashing", "operation", "encode").count());
+        assertEquals(3, meterRegistry.timer("app.password.hashing", "operation", "matches").count());
+    }
+
+    @Test
+    void testHashingOnExecutorThread() {
+        // Arrange
+        Executor executor = task -> {
+            Thread thread = new Thread(task, "password-hashing-test");
+            thread.start();
+        };
+        PasswordEncoder passwordEncoder = new BoundedPasswordEncoder(new PasswordEncoder() {
+            @Override
+            public String encode(CharSequence rawPassword) {
+                return Thread.currentThread().getName();
+            }
+
+            @Override
+            public boolean matches(CharSequence rawPassword, String encodedPassword) {
+                throw new IllegalStateException("broken hash");
+            }
+        }, executor, meterRegistry);
+
+        // Act and Assert: the result and the exceptions of the hashing come back to the caller
+        assertEquals("password-hashing-test", passwordEncoder.encode("secret"));
+        IllegalStateException exception = assertThrows(IllegalStateException.class, () -> passwordEncoder.matches("secret", "hash"));
+        assertEquals("broken hash", exception.getMessage());
+    }
+
+    @Test
+    void testQueueFull() {
+        // Arrange
+        Executor fullExecutor = task -> {
+            throw new RejectedExecutionException("full");
+        };
+        PasswordEncoder passwordEncoder = new BoundedPasswordEncoder(new BCryptPasswordEncoder(4), fullExecutor, meterRegistry);
+
+        // Act and Assert
+        assertThrows(PasswordHashingBusyException.class, () -> passwordEncoder.matches("secret", "hash"));
+        assertThrows(PasswordHashingBusyException.class, () -> passwordEncoder.encode("secret"));
+        assertEquals(2, meterRegistry.counter("app.password.hashing.rejected").count());
+    }
+}
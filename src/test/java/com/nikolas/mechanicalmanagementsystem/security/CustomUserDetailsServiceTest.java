@@ -0,0 +1,79 @@
+package com.nikolas.mechanicalmanagementsystem.security;
+
+import com.nikolas.mechanicalmanagementsystem.entity.User;
+import com.nikolas.mechanicalmanagementsystem.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ActiveProfiles("test")
+@ExtendWith(MockitoExtension.class)
+class CustomUserDetailsServiceTest {
+    @InjectMocks
+    private CustomUserDetailsService customUserDetailsService;
+    @Mock
+    private UserRepository userRepository;
+    @Mock
+    private PrincipalVersionRegistry principalVersionRegistry;
+
+    private static User user() {
+        User user = new User();
+        user.setId(1L);
+        user.setEmail("user@gmail.com");
+        user.setFirstName("John");
+        user.setLastName("Doe");
+        user.setPassword("$2a$10$hash");
+        user.setEnabled(true);
+        user.setAccountNonLocked(true);
+        return user;
+    }
+
+    @Test
+    void testLoadUserByUsername() {
+        // Arrange
+        when(userRepository.findByEmail("user@gmail.com")).thenReturn(Optional.of(user()));
+        when(principalVersionRegistry.currentVersion(1L)).thenReturn(3L);
+        when(userRepository.findAccessibleCompanyIdsById(1L)).thenReturn(List.of(5L));
+
+        // Act
+        CustomUserDetails userDetails = (CustomUserDetails) customUserDetailsService.loadUserByUsername("user@gmail.com");
+
+        // Assert
+        assertEquals("$2a$10$hash", userDetails.getPassword());
+        assertEquals(3L, userDetails.getSnapshot().getVersion());
+        assertTrue(userDetails.getSnapshot().hasAccessToCompany(5L));
+    }
+
+    @Test
+    void testLoadUserByUsername_NotFound() {
+        // Arrange
+        when(userRepository.findByEmail("user@gmail.com")).thenReturn(Optional.empty());
+
+        // Act and Assert
+        assertThrows(UsernameNotFoundException.class, () -> customUserDetailsService.loadUserByUsername("user@gmail.com"));
+    }
+
+    @Test
+    void testUpdatePassword() {
+        // Arrange
+        CustomUserDetails userDetails = new CustomUserDetails(user(), UserSnapshot.of(user(), List.of(), 0));
+
+        // Act
+        UserDetails updated = customUserDetailsService.updatePassword(userDetails, "{bcrypt}$2a$12$newHash");
+
+        // Assert: the row is updated by ID, the full name is the username
+        verify(userRepository, times(1)).updatePasswordById(1L, "{bcrypt}$2a$12$newHash");
+        assertEquals("{bcrypt}$2a$12$newHash", updated.getPassword());
+    }
+}
@@ -0,0 +1,76 @@
+package com.nikolas.mechanicalmanagementsystem.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@ActiveProfiles("test")
+class LoginAttemptLimiterTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private long now;
+    private LoginAttemptLimiter loginAttemptLimiter;
+
+    @BeforeEach
+    void setUp() {
+        loginAttemptLimiter = new LoginAttemptLimiter(meterRegistry) {
+            @Override
+            protected long nanoTime() {
+                return now;
+            }
+        };
+    }
+
+    @Test
+    void testEmailLimitDecays() {
+        // Arrange: the capacity of the e-mail is 10, 5 tokens a minute come back
+        for (int i = 0; i < 10; i++) {
+            assertTrue(loginAttemptLimiter.tryAcquire("user@gmail.com", "10.0.0.1"));
+        }
+
+        // Act and Assert: the same e-mail in another case and from another address is rejected too
+        assertFalse(loginAttemptLimiter.tryAcquire("User@Gmail.com", "10.0.0.2"));
+        assertTrue(loginAttemptLimiter.tryAcquire("other@gmail.com", "10.0.0.1"));
+        now += TimeUnit.SECONDS.toNanos(12);
+        assertTrue(loginAttemptLimiter.tryAcquire("user@gmail.com", "10.0.0.1"));
+        assertFalse(loginAttemptLimiter.tryAcquire("user@gmail.com", "10.0.0.1"));
+
+        assertEquals(12, meterRegistry.counter("app.login.attempts", "result", "allowed").count());
+        assertEquals(2, meterRegistry.counter("app.login.attempts", "result", "rejected", "key", "email").count());
+    }
+
+    @Test
+    void testIpLimit() {
+        // Arrange: the capacity of an IP address is 50
+        for (int i = 0; i < 50; i++) {
+            assertTrue(loginAttemptLimiter.tryAcquire("user" + i + "@gmail.com", "10.0.0.1"));
+        }
+
+        // Act and Assert
+        assertFalse(loginAttemptLimiter.tryAcquire("new@gmail.com", "10.0.0.1"));
+        assertFalse(loginAttemptLimiter.tryAcquire(null, "10.0.0.1"));
+        assertTrue(loginAttemptLimiter.tryAcquire("new@gmail.com", "10.0.0.2"));
+        assertEquals(2, meterRegistry.counter("app.login.attempts", "result", "rejected", "key", "ip").count());
+    }
+
+    @Test
+    void testBucketsBounded() {
+        // Arrange: 16 stripes of 2 buckets
+        ReflectionTestUtils.setField(loginAttemptLimiter, "maxBuckets", 32);
+
+        // Act
+        for (int i = 0; i < 1000; i++) {
+            loginAttemptLimiter.tryAcquire("user" + i + "@gmail.com", "10.0." + (i / 250) + '.' + (i % 250));
+        }
+
+        // Assert
+        assertTrue(loginAttemptLimiter.bucketCount() <= 32);
+        assertEquals(loginAttemptLimiter.bucketCount(), meterRegistry.get("app.login.buckets").gauge().value());
+    }
+}
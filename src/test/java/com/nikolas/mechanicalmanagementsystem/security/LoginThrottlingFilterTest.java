@@ -0,0 +1,79 @@
+package com.nikolas.mechanicalmanagementsystem.security;
+
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.ActiveProfiles;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ActiveProfiles("test")
+@ExtendWith(MockitoExtension.class)
+class LoginThrottlingFilterTest {
+    @InjectMocks
+    private LoginThrottlingFilter loginThrottlingFilter;
+    @Mock
+    private LoginAttemptLimiter loginAttemptLimiter;
+    @Mock
+    private FilterChain filterChain;
+
+    private static MockHttpServletRequest loginRequest() {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/system/login");
+        request.setContextPath("/system");
+        request.setServletPath("/login");
+        request.setRemoteAddr("10.0.0.1");
+        request.setParameter("username", "user@gmail.com");
+        return request;
+    }
+
+    @Test
+    void testAllowedLogin() throws Exception {
+        // Arrange
+        MockHttpServletRequest request = loginRequest();
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        when(loginAttemptLimiter.tryAcquire("user@gmail.com", "10.0.0.1")).thenReturn(true);
+
+        // Act
+        loginThrottlingFilter.doFilter(request, response, filterChain);
+
+        // Assert
+        verify(filterChain, times(1)).doFilter(request, response);
+    }
+
+    @Test
+    void testRejectedLogin() throws Exception {
+        // Arrange
+        MockHttpServletRequest request = loginRequest();
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        when(loginAttemptLimiter.tryAcquire("user@gmail.com", "10.0.0.1")).thenReturn(false);
+
+        // Act
+        loginThrottlingFilter.doFilter(request, response, filterChain);
+
+        // Assert: the authentication is not reached
+        assertEquals("/system/login?too_many_attempts", response.getRedirectedUrl());
+        verifyNoInteractions(filterChain);
+    }
+
+    @Test
+    void testOtherRequestNotThrottled() throws Exception {
+        // Arrange
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/system/login");
+        request.setContextPath("/system");
+        request.setServletPath("/login");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        // Act
+        loginThrottlingFilter.doFilter(request, response, filterChain);
+
+        // Assert
+        verify(filterChain, times(1)).doFilter(request, response);
+        verifyNoInteractions(loginAttemptLimiter);
+    }
+}
@@ -0,0 +1,67 @@
+package com.nikolas.mechanicalmanagementsystem.service;
+
+import com.nikolas.mechanicalmanagementsystem.dtos.JobStatus;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@ActiveProfiles("test")
+class BackgroundJobServiceImplTest {
+
+    @Test
+    void testStart_CompletesJob() {
+        // Jobs run on the calling thread
+        BackgroundJobServiceImpl backgroundJobService = new BackgroundJobServiceImpl(Runnable::run);
+
+        // Act
+        JobStatus status = backgroundJobService.start("test", job -> job.advance(3));
+
+        // Assert
+        assertEquals(JobStatus.State.COMPLETED, status.getState());
+        assertEquals(3L, status.getProcessed());
+        assertSame(status, backgroundJobService.getJob(status.getId()).orElseThrow());
+    }
+
+    @Test
+    void testStart_FailingJob() {
+        BackgroundJobServiceImpl backgroundJobService = new BackgroundJobServiceImpl(Runnable::run);
+
+        // Act
+        JobStatus status = backgroundJobService.start("test", job -> {
+            throw new IllegalArgumentException("broken");
+        });
+
+        // Assert
+        assertEquals(JobStatus.State.FAILED, status.getState());
+        assertEquals("broken", status.getMessage());
+    }
+
+    @Test
+    void testStart_Rejected() {
+        BackgroundJobServiceImpl backgroundJobService = new BackgroundJobServiceImpl(task -> {
+            throw new RejectedExecutionException();
+        });
+
+        // Act and Assert
+        assertThrows(IllegalStateException.class, () -> backgroundJobService.start("test", job -> { }));
+        assertEquals(JobStatus.State.FAILED, backgroundJobService.getJobs().get(0).getState());
+    }
+
+    @Test
+    void testGetJobs_KeepsMostRecent() {
+        BackgroundJobServiceImpl backgroundJobService = new BackgroundJobServiceImpl(Runnable::run);
+        JobStatus first = backgroundJobService.start("first", job -> { });
+        JobStatus last = null;
+        for (int i = 0; i < BackgroundJobServiceImpl.MAX_TRACKED_JOBS; i++) {
+            last = backgroundJobService.start("job" + i, job -> { });
+        }
+
+        // Act and Assert
+        assertEquals(BackgroundJobServiceImpl.MAX_TRACKED_JOBS, backgroundJobService.getJobs().size());
+        assertSame(last, backgroundJobService.getJobs().get(0));
+        assertTrue(backgroundJobService.getJob(first.getId()).isEmpty());
+    }
+}
@@ -0,0 +1,156 @@
+package com.nikolas.mechanicalmanagementsystem.service;
+
+import com.nikolas.mechanicalmanagementsystem.dtos.JobStatus;
+import com.nikolas.mechanicalmanagementsystem.exception.CompanyNotFoundException;
+import com.nikolas.mechanicalmanagementsystem.repository.*;
+import com.nikolas.mechanicalmanagementsystem.security.PrincipalVersionRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ActiveProfiles("test")
+@ExtendWith(MockitoExtension.class)
+class CompanyDeletionServiceImplTest {
+    @Mock
+    private CompanyRepository companyRepository;
+    @Mock
+    private CompanyRoleRepository companyRoleRepository;
+    @Mock
+    private RoleRepository roleRepository;
+    @Mock
+    private JobApplicationRepository jobApplicationRepository;
+    @Mock
+    private UserRepository userRepository;
+    @Mock
+    private MachineRepository machineRepository;
+    @Mock
+    private MachinePartRepository machinePartRepository;
+    @Mock
+    private ImagesRepository imagesRepository;
+    @Mock
+    private ImageVariantRepository imageVariantRepository;
+    @Mock
+    private UserService userService;
+    @Mock
+    private CompanyMonthlyRollupService companyMonthlyRollupService;
+    @Mock
+    private InvoiceService invoiceService;
+    @Mock
+    private CompanySearchService companySearchService;
+    @Mock
+    private ImageContentReleaseService imageContentReleaseService;
+    @Mock
+    private MachineOwnershipCache machineOwnershipCache;
+    @Mock
+    private PrincipalVersionRegistry principalVersionRegistry;
+    @Mock
+    private BackgroundJobService backgroundJobService;
+
+    private CompanyDeletionServiceImpl companyDeletionService;
+
+    @BeforeEach
+    void setUp() {
+        companyDeletionService = new CompanyDeletionServiceImpl(companyRepository, companyRoleRepository, roleRepository,
+                jobApplicationRepository, userRepository, machineRepository, machinePartRepository, imagesRepository,
+                imageVariantRepository, userService, companyMonthlyRollupService, invoiceService, companySearchService,
+                imageContentReleaseService, machineOwnershipCache, principalVersionRegistry, backgroundJobService,
+                TransactionOperations.withoutTransaction());
+    }
+
+    @Test
+    void testStartDeletion_HidesCompanyAndStartsJob() {
+        // Arrange
+        JobStatus job = new JobStatus("job", "company-5-deletion");
+        when(companyRepository.markDeletedById(5L)).thenReturn(1);
+        when(companyRoleRepository.findRoleIdsByCompanyId(5L)).thenReturn(List.of(11L, 12L));
+        when(userRepository.findIdsByRoleIdIn(List.of(11L, 12L))).thenReturn(List.of(2L, 3L));
+        when(backgroundJobService.start(eq("company-5-deletion"), any())).thenReturn(job);
+
+        // Act
+        JobStatus result = companyDeletionService.startDeletion(5L);
+
+        // Assert
+        assertEquals(job, result);
+        verify(principalVersionRegistry, times(1)).invalidate(2L);
+        verify(principalVersionRegistry, times(1)).invalidate(3L);
+        verify(companySearchService, times(1)).companyDeleted(5L);
+        verifyNoInteractions(machineRepository, userService);
+    }
+
+    @Test
+    void testStartDeletion_AlreadyHiddenCompanyIsPurgedAgain() {
+        // Arrange
+        when(companyRepository.markDeletedById(5L)).thenReturn(0);
+        when(companyRepository.existsById(5L)).thenReturn(true);
+        when(companyRoleRepository.findRoleIdsByCompanyId(5L)).thenReturn(List.of());
+
+        // Act
+        companyDeletionService.startDeletion(5L);
+
+        // Assert
+        verify(backgroundJobService, times(1)).start(eq("company-5-deletion"), any());
+        verifyNoInteractions(userRepository);
+    }
+
+    @Test
+    void testStartDeletion_CompanyNotFound() {
+        // Arrange
+        when(companyRepository.markDeletedById(5L)).thenReturn(0);
+        when(companyRepository.existsById(5L)).thenReturn(false);
+
+        // Act & Assert
+        assertThrows(CompanyNotFoundException.class, () -> companyDeletionService.startDeletion(5L));
+        verify(backgroundJobService, never()).start(anyString(), any());
+        verifyNoInteractions(companySearchService);
+    }
+
+    @Test
+    void testPurgeCompany_DeletesMachinesInChunksThenCompany() {
+        // Arrange
+        List<Long> firstChunk = List.of(1L, 4L);
+        when(companyRoleRepository.findRoleIdsByCompanyId(5L)).thenReturn(List.of(11L, 12L));
+        when(machineRepository.countByCompanyId(5L)).thenReturn(2L);
+        when(machineRepository.findMachineIdsByCompanyId(5L, 0L, PageRequest.of(0, 100))).thenReturn(firstChunk);
+        when(machineRepository.findMachineIdsByCompanyId(5L, 4L, PageRequest.of(0, 100))).thenReturn(List.of());
+        when(imagesRepository.findContentHashesByMachineIdIn(firstChunk)).thenReturn(List.of("a", "b", "a"));
+        when(imageVariantRepository.findContentHashesByMachineIdIn(firstChunk)).thenReturn(List.of("c"));
+        JobStatus status = new JobStatus("job", "company-5-deletion");
+
+        // Act
+        companyDeletionService.purgeCompany(status, 5L);
+
+        // Assert
+        verify(userService, times(1)).removeRolesFromUsers(List.of(11L, 12L));
+        verify(imageVariantRepository, times(1)).deleteByMachineIdIn(firstChunk);
+        verify(imagesRepository, times(1)).deleteByMachineIdIn(firstChunk);
+        verify(machinePartRepository, times(1)).deleteByMachineIdIn(firstChunk);
+        verify(machineRepository, times(1)).deleteByIdIn(firstChunk);
+        verify(imageContentReleaseService, times(1)).releaseIfUnreferenced("a");
+        verify(imageContentReleaseService, times(1)).releaseIfUnreferenced("b");
+        verify(imageContentReleaseService, times(1)).releaseIfUnreferenced("c");
+        verify(machineOwnershipCache, times(1)).evictMachine(4L);
+        verify(jobApplicationRepository, times(1)).deleteByCompanyId(5L);
+        verify(companyRepository, times(1)).deleteEmployeeLinksByCompanyId(5L);
+        verify(companyRoleRepository, times(1)).deleteByCompanyId(5L);
+        verify(roleRepository, times(1)).deleteByIdIn(List.of(11L, 12L));
+        verify(companyMonthlyRollupService, times(1)).deleteByCompanyId(5L);
+        verify(invoiceService, times(1)).deleteByCompanyId(5L);
+        verify(companyRepository, times(1)).deleteMarkedById(5L);
+        assertEquals(2, status.getProcessed());
+        assertEquals("Company deleted with 2 machine(s)", status.getMessage());
+    }
+}
@@ -0,0 +1,160 @@
+package com.nikolas.mechanicalmanagementsystem.service;
+
+import com.nikolas.mechanicalmanagementsystem.dtos.CompanyMachineTotals;
+import com.nikolas.mechanicalmanagementsystem.entity.Company;
+import com.nikolas.mechanicalmanagementsystem.entity.CompanyMonthlyRollup;
+import com.nikolas.mechanicalmanagementsystem.entity.Machine;
+import com.nikolas.mechanicalmanagementsystem.repository.CompanyMonthlyRollupRepository;
+import com.nikolas.mechanicalmanagementsystem.repository.MachineRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ActiveProfiles("test")
+@ExtendWith(MockitoExtension.class)
+class CompanyMonthlyRollupServiceImplTest {
+    @InjectMocks
+    private CompanyMonthlyRollupServiceImpl companyMonthlyRollupServiceImpl;
+    @Mock
+    private CompanyMonthlyRollupRepository rollupRepository;
+    @Mock
+    private MachineRepository machineRepository;
+    private static Machine testMachine;
+
+    @BeforeEach
+    void setUp() {
+        Company testCompany = new Company();
+        testCompany.setId(1L);
+
+        testMachine = new Machine();
+        testMachine.setId(1L);
+        testMachine.setActive(true);
+        testMachine.setCompany(testCompany);
+        testMachine.setRegistrationDate(LocalDateTime.of(2024, 3, 15, 10, 0));
+        testMachine.setMachinePartsSum(BigDecimal.valueOf(40));
+        testMachine.setChargedAmount(BigDecimal.valueOf(100));
+    }
+
+    @Test
+    void testRecordMachineAdded() {
+        // Act
+        companyMonthlyRollupServiceImpl.recordMachineAdded(testMachine);
+
+        // Assert
+        verify(rollupRepository, times(1)).applyDelta(1L, 2024, 3,
+                BigDecimal.valueOf(40), BigDecimal.valueOf(100), BigDecimal.valueOf(60), 1L);
+    }
+
+    @Test
+    void testRecordMachineAdded_InactiveMachine() {
+        testMachine.setActive(false);
+
+        // Act
+        companyMonthlyRollupServiceImpl.recordMachineAdded(testMachine);
+
+        // Assert
+        verifyNoInteractions(rollupRepository);
+    }
+
+    @Test
+    void testRecordMachineRemoved() {
+        // Act
+        companyMonthlyRollupServiceImpl.recordMachineRemoved(testMachine);
+
+        // Assert
+        verify(rollupRepository, times(1)).applyDelta(1L, 2024, 3,
+                BigDecimal.valueOf(-40), BigDecimal.valueOf(-100), BigDecimal.valueOf(-60), -1L);
+    }
+
+    @Test
+    void testRecordMachineChanged() {
+        // Act
+        companyMonthlyRollupServiceImpl.recordMachineChanged(testMachine, BigDecimal.valueOf(30), BigDecimal.valueOf(80));
+
+        // Assert
+        verify(rollupRepository, times(1)).applyDelta(1L, 2024, 3,
+                BigDecimal.valueOf(10), BigDecimal.valueOf(20), BigDecimal.valueOf(10), 0L);
+    }
+
+    @Test
+    void testRecordMachineChanged_NoDifference() {
+        // Act
+        companyMonthlyRollupServiceImpl.recordMachineChanged(testMachine, BigDecimal.valueOf(40), BigDecimal.valueOf(100));
+
+        // Assert
+        verify(rollupRepository, never()).applyDelta(anyLong(), anyInt(), anyInt(), any(), any(), any(), anyLong());
+    }
+
+    @Test
+    void testRecordPartsSumChanged() {
+        // Act
+        companyMonthlyRollupServiceImpl.recordPartsSumChanged(testMachine, BigDecimal.valueOf(-30));
+
+        // Assert: the profit grows by the price of the removed part
+        verify(rollupRepository, times(1)).applyDelta(1L, 2024, 3, BigDecimal.valueOf(-30), BigDecimal.ZERO, BigDecimal.valueOf(30), 0L);
+    }
+
+    @Test
+    void testGetMonthlyTotals_NoCompaniesSelected() {
+        // Act
+        List<CompanyMachineTotals> result = companyMonthlyRollupServiceImpl.getMonthlyTotals(2024, 3, List.of());
+
+        // Assert
+        assertTrue(result.isEmpty());
+        verifyNoInteractions(rollupRepository);
+    }
+
+    @Test
+    void testRefresh() {
+        CompanyMachineTotals totals = new CompanyMachineTotals(1L, BigDecimal.valueOf(40), BigDecimal.valueOf(100), BigDecimal.valueOf(60), 1L);
+        when(machineRepository.sumActiveMachinesByYearAndMonthAndCompanyIdIn(2024, 3, List.of(1L))).thenReturn(List.of(totals));
+
+        // Act
+        companyMonthlyRollupServiceImpl.refresh(1L, 2024, 3);
+
+        // Assert
+        ArgumentCaptor<CompanyMonthlyRollup> captor = ArgumentCaptor.forClass(CompanyMonthlyRollup.class);
+        verify(rollupRepository, times(1)).deleteByCompanyIdAndYearAndMonth(1L, 2024, 3);
+        verify(rollupRepository, times(1)).save(captor.capture());
+        assertEquals(BigDecimal.valueOf(60), captor.getValue().getProfitSum());
+        assertEquals(1L, captor.getValue().getMachineCount());
+    }
+
+    @Test
+    void testRefresh_Company() {
+        when(rollupRepository.insertFromMachinesByCompanyId(1L)).thenReturn(3);
+
+        // Act
+        int rows = companyMonthlyRollupServiceImpl.refresh(1L);
+
+        // Assert
+        assertEquals(3, rows);
+        verify(rollupRepository, times(1)).deleteByCompanyId(1L);
+    }
+
+    @Test
+    void testRebuild() {
+        when(rollupRepository.insertAllFromMachines()).thenReturn(5);
+
+        // Act
+        int rows = companyMonthlyRollupServiceImpl.rebuild();
+
+        // Assert
+        assertEquals(5, rows);
+        verify(rollupRepository, times(1)).deleteAllRows();
+    }
+
+}
@@ -0,0 +1,129 @@
+package com.nikolas.mechanicalmanagementsystem.service;
+
+import com.nikolas.mechanicalmanagementsystem.dtos.CompanyDirectoryRow;
+import com.nikolas.mechanicalmanagementsystem.entity.Company;
+import com.nikolas.mechanicalmanagementsystem.repository.CompanyRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.*;
+
+@ActiveProfiles("test")
+@ExtendWith(MockitoExtension.class)
+class CompanySearchServiceImplTest {
+    @InjectMocks
+    private CompanySearchServiceImpl companySearchService;
+    @Mock
+    private CompanyRepository companyRepository;
+
+    @Test
+    void testSearchMatchesWordPrefixesOfAllFields() {
+        // Arrange
+        when(companyRepository.findAllDirectoryRows()).thenReturn(List.of(
+                new CompanyDirectoryRow(1L, "Kovács Autószerviz", "Hungary", "Szeged", "Fő utca 1", 6720),
+                new CompanyDirectoryRow(2L, "Auto-Fix Kft.", "Hungary", "Budapest", "Váci út 2", 1134),
+                new CompanyDirectoryRow(3L, "Wiener Motoren", "Austria", "Wien", "Ring 3", 1010)));
+
+        // Act
+        List<CompanyDirectoryRow> byName = companySearchService.search(5L, "AUTO", 10);
+        List<CompanyDirectoryRow> byAccentlessName = companySearchService.search(5L, "kovacs", 10);
+        List<CompanyDirectoryRow> byCountryAndLocation = companySearchService.search(5L, "hun bud", 10);
+        List<CompanyDirectoryRow> byPostCode = companySearchService.search(5L, "67", 10);
+        List<CompanyDirectoryRow> noMatch = companySearchService.search(5L, "auto wien", 10);
+
+        // Assert
+        assertEquals(List.of(2L, 1L), byName.stream().map(CompanyDirectoryRow::getId).toList());
+        assertEquals(1L, byAccentlessName.get(0).getId());
+        assertEquals(List.of(2L), byCountryAndLocation.stream().map(CompanyDirectoryRow::getId).toList());
+        assertEquals(List.of(1L), byPostCode.stream().map(CompanyDirectoryRow::getId).toList());
+        assertTrue(noMatch.isEmpty());
+        verify(companyRepository, times(1)).findAllDirectoryRows();
+    }
+
+    @Test
+    void testCompaniesTheUserCannotJoinAreLeftOut() {
+        // Arrange: the user owns company 1 and has applied to company 3
+        when(companyRepository.findAllDirectoryRows()).thenReturn(List.of(
+                new CompanyDirectoryRow(1L, "Own Garage", "Hungary", "Szeged", null, 6720),
+                new CompanyDirectoryRow(2L, "Other Garage", "Hungary", "Szeged", null, 6720),
+                new CompanyDirectoryRow(3L, "Applied Garage", "Hungary", "Szeged", null, 6720)));
+        when(companyRepository.findNotJoinableIdsByUserId(5L)).thenReturn(List.of(1L, 3L));
+
+        // Act
+        List<CompanyDirectoryRow> results = companySearchService.search(5L, "garage", 1);
+
+        // Assert: the limit is filled with joinable companies
+        assertEquals(List.of(2L), results.stream().map(CompanyDirectoryRow::getId).toList());
+    }
+
+    @Test
+    void testWholeWordMatchesComeFirstAndResultsAreLimited() {
+        // Arrange
+        ReflectionTestUtils.setField(companySearchService, "maxResults", 2);
+        when(companyRepository.findAllDirectoryRows()).thenReturn(List.of(
+                new CompanyDirectoryRow(1L, "Alpha Motors", "Hungary", "Pécs", null, 0),
+                new CompanyDirectoryRow(2L, "Motorsport Kft.", "Hungary", "Győr", null, 0),
+                new CompanyDirectoryRow(3L, "Beta Motors", "Hungary", "Eger", null, 0),
+                new CompanyDirectoryRow(4L, "Motorhome Bt.", "Hungary", "Eger", null, 0)));
+
+        // Act
+        List<CompanyDirectoryRow> results = companySearchService.search(5L, "motors", 10);
+        List<CompanyDirectoryRow> prefixResults = companySearchService.search(5L, "motor", 10);
+
+        // Assert
+        assertEquals(List.of(1L, 3L), results.stream().map(CompanyDirectoryRow::getId).toList());
+        assertEquals(List.of(1L, 3L), prefixResults.stream().map(CompanyDirectoryRow::getId).toList());
+        assertTrue(companySearchService.search(5L, " ", 10).isEmpty());
+    }
+
+    @Test
+    void testSavedAndDeletedCompaniesUpdateTheLoadedIndex() {
+        // Arrange
+        when(companyRepository.findAllDirectoryRows()).thenReturn(List.of(
+                new CompanyDirectoryRow(1L, "Old Name", "Hungary", "Szeged", null, 6720),
+                new CompanyDirectoryRow(2L, "Doomed Garage", "Hungary", "Szeged", null, 6720)));
+        companySearchService.suggest(5L, "szeged");
+        Company renamed = createCompany(1L, "New Name");
+        Company created = createCompany(3L, "Fresh Garage");
+
+        // Act
+        companySearchService.companySaved(renamed);
+        companySearchService.companySaved(created);
+        companySearchService.companyDeleted(2L);
+
+        // Assert
+        assertTrue(companySearchService.suggest(5L, "old").isEmpty());
+        assertEquals(List.of(1L), companySearchService.suggest(5L, "new").stream().map(CompanyDirectoryRow::getId).toList());
+        assertEquals(List.of(3L), companySearchService.suggest(5L, "garage").stream().map(CompanyDirectoryRow::getId).toList());
+        verify(companyRepository, times(1)).findAllDirectoryRows();
+    }
+
+    @Test
+    void testChangesBeforeTheFirstSearchDoNotLoadTheIndex() {
+        // Act
+        companySearchService.companySaved(createCompany(1L, "New Name"));
+        companySearchService.companyDeleted(2L);
+
+        // Assert
+        verifyNoInteractions(companyRepository);
+    }
+
+    private Company createCompany(Long id, String companyName) {
+        Company company = new Company();
+        company.setId(id);
+        company.setCompanyName(companyName);
+        company.setCountry("Hungary");
+        company.setLocation("Szeged");
+        company.setPostCode(6720);
+        return company;
+    }
+}
@@ -1,24 +1,31 @@
 package com.nikolas.mechanicalmanagementsystem.service;
 
 import com.nikolas.mechanicalmanagementsystem.dtos.CompanyDTO;
+import com.nikolas.mechanicalmanagementsystem.dtos.CompanyDashboard;
+import com.nikolas.mechanicalmanagementsystem.dtos.CompanyMemberRow;
+import com.nikolas.mechanicalmanagementsystem.dtos.CompanyProfile;
+import com.nikolas.mechanicalmanagementsystem.dtos.PendingApplicationRow;
 import com.nikolas.mechanicalmanagementsystem.entity.*;
 import com.nikolas.mechanicalmanagementsystem.exception.CompanyNotFoundException;
 import com.nikolas.mechanicalmanagementsystem.exception.NotFoundException;
 import com.nikolas.mechanicalmanagementsystem.repository.*;
+import com.nikolas.mechanicalmanagementsystem.security.PrincipalVersionRegistry;
+import com.nikolas.mechanicalmanagementsystem.security.UserSnapshot;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import jakarta.servlet.http.HttpSession;
 import jakarta.transaction.Transactional;
-import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionOperations;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
@@ -34,6 +41,8 @@ import static org.mockito.Mockito.*;
 class CompanyServiceImplTest {
     @InjectMocks
     private CompanyServiceImpl companyServiceImpl;
+    @Spy
+    private OptimisticLockRetry optimisticLockRetry = new OptimisticLockRetry(TransactionOperations.withoutTransaction());
     @Mock
     private CompanyRepository companyRepository;
     @Mock
@@ -49,7 +58,13 @@ class CompanyServiceImplTest {
     @Mock
     private MachineService machineService;
     @Mock
+    private CompanyMonthlyRollupService companyMonthlyRollupService;
+    @Mock
     private HttpSession session;
+    @Mock
+    private PrincipalVersionRegistry principalVersionRegistry;
+    @Mock
+    private CompanySearchService companySearchService;
 
 
 
@@ -107,6 +122,16 @@ class CompanyServiceImplTest {
         assertThrows(CompanyNotFoundException.class, () -> companyServiceImpl.findById(company.getId()));
     }
 
+    @Test
+    public void testFindById_DeletedCompany() {
+        // Arrange
+        company.setDeleted(true);
+        when(companyRepository.findById(company.getId())).thenReturn(Optional.of(company));
+
+        // Act & Assert
+        assertThrows(CompanyNotFoundException.class, () -> companyServiceImpl.findById(company.getId()));
+    }
+
     @Test
     public void testGetAllCompanies() {
         // Arrange
@@ -115,7 +140,7 @@ class CompanyServiceImplTest {
         expectedCompanies.add(company);
         expectedCompanies.add(company2);
 
-        when(companyRepository.findAll()).thenReturn(expectedCompanies);
+        when(companyRepository.findAllByDeletedFalse()).thenReturn(expectedCompanies);
 
         // Act
         List<Company> actualCompanies = companyServiceImpl.getAllCompanies();
@@ -140,7 +165,7 @@ class CompanyServiceImplTest {
         companyWithNoAccess.setCompanyRoles(Set.of(testCompanyRole));
 
         // Act & Assert
-        assertThrows(AccessDeniedException.class, () -> companyServiceImpl.checkAccessRightsToOneCompany(user, companyWithNoAccess));
+        assertThrows(AccessDeniedException.class, () -> companyServiceImpl.checkAccessRightsToOneCompany(snapshotOf(user), companyWithNoAccess));
     }
 
     @Test
@@ -166,7 +191,7 @@ class CompanyServiceImplTest {
         user.setRoles(roles);
 
         // Act & Assert
-        assertDoesNotThrow(() -> companyServiceImpl.checkAccessRightsToOneCompany(user, company));
+        assertDoesNotThrow(() -> companyServiceImpl.checkAccessRightsToOneCompany(snapshotOf(user, company.getId()), company));
         // If no exception is thrown, access is granted
     }
 
@@ -175,7 +200,7 @@ class CompanyServiceImplTest {
         // Arrange
         company.setOwner(loggedInUser);
         // Act
-        boolean result = companyServiceImpl.isLeaderOrDeputyLeader(loggedInUser, company);
+        boolean result = companyServiceImpl.isLeaderOrDeputyLeader(snapshotOf(loggedInUser), company);
 
         // Assert
         assertTrue(result);
@@ -186,7 +211,7 @@ class CompanyServiceImplTest {
         company.setOwner(new User());
         company.setDeputyLeader(loggedInUser);
         // Act
-        boolean result = companyServiceImpl.isLeaderOrDeputyLeader(loggedInUser, company);
+        boolean result = companyServiceImpl.isLeaderOrDeputyLeader(snapshotOf(loggedInUser), company);
 
         // Assert
         assertTrue(result);
@@ -197,8 +222,9 @@ class CompanyServiceImplTest {
         // Arrange
         company.setOwner(loggedInUser);
         User otherUser = new User();
+        otherUser.setId(2L);
         // Act
-        boolean result = companyServiceImpl.isLeaderOrDeputyLeader(otherUser, company);
+        boolean result = companyServiceImpl.isLeaderOrDeputyLeader(snapshotOf(otherUser), company);
         // Assert
         assertFalse(result);
     }
@@ -223,6 +249,7 @@ class CompanyServiceImplTest {
         assertEquals("Updated Company", company.getCompanyName());
         verify(companyRepository, times(1)).findById(1L);
         verify(companyRepository, times(1)).save(any(Company.class));
+        verify(companySearchService).companySaved(company);
     }
 
     @Test
@@ -371,52 +398,6 @@ class CompanyServiceImplTest {
 
     }
 
-    @Test
-    public void testDeleteCompanyById_ExceptionHandling() {
-        when(companyRepository.findById(company.getId())).thenReturn(Optional.empty());
-
-        // Act & Assert
-        RuntimeException exception = assertThrows(RuntimeException.class, () -> companyServiceImpl.deleteCompanyById(company.getId()));
-        assertEquals("Company doesn't exist with id: " + company.getId(), exception.getMessage());
-
-        // Verify no other deletions happened
-        verify(roleRepository, never()).deleteAll(any());
-        verify(companyRoleRepository, never()).deleteAll(any());
-        verify(jobApplicationRepository, never()).deleteAll(any());
-        verify(userService, never()).removeRolesFromUsers(any());
-    }
-
-    @Test
-    public void testDeleteCompanyById_RuntimeException() {
-        // Arrange
-        when(companyRepository.findById(company.getId())).thenReturn(Optional.of(new Company()));
-
-        // Act & Assert
-        RuntimeException exception = assertThrows(RuntimeException.class, () -> companyServiceImpl.deleteCompanyById(company.getId()));
-        assertEquals("Unexpected error occurred while creating company", exception.getMessage());
-
-        // Verify no other deletions happened
-        verify(roleRepository, never()).deleteAll(any());
-        verify(companyRoleRepository, never()).deleteAll(any());
-        verify(jobApplicationRepository, never()).deleteAll(any());
-        verify(userService, never()).removeRolesFromUsers(any());
-    }
-
-    @Test
-    public void testDeleteCompanyById_Success() {
-        when(companyRepository.findById(company.getId())).thenReturn(Optional.of(company));
-
-        // Act
-        companyServiceImpl.deleteCompanyById(company.getId());
-
-        // Assert
-        verify(jobApplicationRepository).deleteAll(company.getJobApplications());
-        verify(userService).removeRolesFromUsers(any());
-        verify(companyRoleRepository).deleteAll(company.getCompanyRoles());
-        verify(roleRepository).deleteAll(any());
-        verify(companyRepository).delete(company);
-    }
-
     @Test
     public void testGetAllCompaniesByUser_AdminUser() {
         // Arrange
@@ -429,14 +410,14 @@ class CompanyServiceImplTest {
         company1.setCompanyName("Test Company1");
 
         List<Company> expectedCompanies = Arrays.asList(company,company1);
-        when(companyRepository.findAll()).thenReturn(expectedCompanies);
+        when(companyRepository.findAllByDeletedFalse()).thenReturn(expectedCompanies);
         // Act
-        List<Company> actualCompanies = companyServiceImpl.getAllCompaniesByUser(adminUser);
+        List<Company> actualCompanies = companyServiceImpl.getAllCompaniesByUser(snapshotOf(adminUser));
         // Assert
         assertEquals(expectedCompanies.size(), actualCompanies.size());
         assertEquals(expectedCompanies, actualCompanies);
         verify(userService, never()).getWorkplacesForLoggedInUser(anyString());
-        verify(companyRepository, times(1)).findAll();
+        verify(companyRepository, times(1)).findAllByDeletedFalse();
     }
 
     @Test
@@ -453,12 +434,12 @@ class CompanyServiceImplTest {
 
         when(userService.getWorkplacesForLoggedInUser(nonAdminUser.getEmail())).thenReturn(expectedCompanies);
         // Act
-        List<Company> actualCompanies = companyServiceImpl.getAllCompaniesByUser(nonAdminUser);
+        List<Company> actualCompanies = companyServiceImpl.getAllCompaniesByUser(snapshotOf(nonAdminUser));
         // Assert
         assertEquals(expectedCompanies.size(), actualCompanies.size());
         assertEquals(expectedCompanies, actualCompanies);
         assertNotEquals(3,actualCompanies.size());
-        verify(companyRepository, never()).findAll();
+        verify(companyRepository, never()).findAllByDeletedFalse();
         verify(userService, times(1)).getWorkplacesForLoggedInUser(anyString());
     }
 
@@ -474,114 +455,66 @@ class CompanyServiceImplTest {
         when(userService.getWorkplacesForLoggedInUser(anyString())).thenThrow(new RuntimeException("Error retrieving workplaces"));
 
         // Act
-        List<Company> result = companyServiceImpl.getAllCompaniesByUser(user);
+        List<Company> result = companyServiceImpl.getAllCompaniesByUser(snapshotOf(user));
 
         // Assert
         assertTrue(result.isEmpty());
         verify(userService, times(1)).getWorkplacesForLoggedInUser(anyString());
-        verify(companyRepository, never()).findAll();
+        verify(companyRepository, never()).findAllByDeletedFalse();
     }
 
     @Test
-    public void testGetJobApplicationsByCompanyId() {
+    void testGetCompanyDashboard_DeputyLeader() {
         // Arrange
-        Long companyId = 1L;
-
-        JobApplication application1 = new JobApplication();
-        application1.setAccepted(false);
-        JobApplication application2 = new JobApplication();
-        application2.setAccepted(true);
-
-        Set<JobApplication> jobApplications = new HashSet<>();
-        jobApplications.add(application1);
-        jobApplications.add(application2);
-
-        Company company = new Company();
-        company.setId(companyId);
-        company.setJobApplications(jobApplications);
-        when(companyRepository.findById(companyId)).thenReturn(Optional.of(company));
+        when(companyRepository.findProfileById(1L)).thenReturn(Optional.of(profileOf(7L, 1L)));
+        when(companyRepository.findEmployeeRowsByCompanyId(1L)).thenReturn(List.of(
+                memberRow(1L, "John"), memberRow(7L, "Owner"), memberRow(3L, "Employee1")));
+        List<PendingApplicationRow> pendingApplications = List.of(
+                new PendingApplicationRow(10L, 4L, "Applicant", "Doe", "applicant@gmail.com", LocalDateTime.now()));
+        when(jobApplicationRepository.findPendingRowsByCompanyId(1L)).thenReturn(pendingApplications);
 
         // Act
-        Set<JobApplication> result = companyServiceImpl.getJobApplicationsByCompanyId(companyId);
-
-        // Assert
-        assertEquals(1, result.size()); // "Only the pending job applications should be returned
-        assertTrue(result.contains(application1)); // Application 1 is pending
-        assertFalse(result.contains(application2)); // Application 2 is accepted
-
-        verify(companyRepository, times(1)).findById(companyId);
-    }
+        CompanyDashboard dashboard = companyServiceImpl.getCompanyDashboard(snapshotOf(loggedInUser, 1L), 1L);
 
-    @Test
-    public void testGetJobApplicationsByCompanyId_CompanyNotFound() {
-        // Arrange
-        Long companyId = 1L;
-        when(companyRepository.findById(companyId)).thenReturn(Optional.empty());
         // Assert
-        assertThrows(CompanyNotFoundException.class, () -> companyServiceImpl.getJobApplicationsByCompanyId(companyId));
-        verify(companyRepository, times(1)).findById(companyId);
+        assertTrue(dashboard.isLeaderOrDeputyLeader());
+        assertEquals("Test Company", dashboard.getProfile().getCompanyName());
+        assertEquals(3, dashboard.getEmployees().size());
+        assertEquals(List.of(3L), dashboard.getColleagues().stream().map(CompanyMemberRow::getId).toList());
+        assertEquals(pendingApplications, dashboard.getPendingApplications());
+        verify(companyRepository, never()).findById(any());
     }
 
     @Test
-    public void testGetEmployeesByCompanyId() {
+    void testGetCompanyDashboard_EmployeeDoesNotReadApplications() {
         // Arrange
-        User testUser = new User();
-        testUser.setFirstName("ALice");
-
-        Set<User> employees = new HashSet<>();
-        employees.add(loggedInUser);
-        employees.add(testUser);
-
-        company.setEmployees(employees);
-
-        when(companyRepository.findById(anyLong())).thenReturn(java.util.Optional.of(company));
+        when(companyRepository.findProfileById(1L)).thenReturn(Optional.of(profileOf(7L, null)));
+        when(companyRepository.findEmployeeRowsByCompanyId(1L)).thenReturn(List.of(memberRow(1L, "John"), memberRow(3L, "Employee1")));
 
         // Act
-        Set<User> result = companyServiceImpl.getEmployeesByCompanyId(company.getId());
+        CompanyDashboard dashboard = companyServiceImpl.getCompanyDashboard(snapshotOf(loggedInUser, 1L), 1L);
 
         // Assert
-        Assertions.assertEquals(employees.size(), result.size());
-        // Asserting that each employee in the result set is contained in the original set
-        for (User employee : result) {
-            Assertions.assertTrue(employees.contains(employee));
-        }
-
-        verify(companyRepository, times(1)).findById(company.getId());
+        assertFalse(dashboard.isLeaderOrDeputyLeader());
+        assertEquals(List.of(3L), dashboard.getColleagues().stream().map(CompanyMemberRow::getId).toList());
+        assertTrue(dashboard.getPendingApplications().isEmpty());
+        verifyNoInteractions(jobApplicationRepository);
     }
 
-
     @Test
-    void testGetAllEmployeesExceptCurrentUserAndOwner() {
-        // Mocking data
-        User testUser = new User();
-        testUser.setFirstName("ALice");
-        testUser.setId(2L);
-
-        User employee = new User();
-        employee.setFirstName("Employee1");
-        employee.setId(3L);
-
-
-        Set<User> employees = new HashSet<>();
-        employees.add(loggedInUser);
-        employees.add(testUser);
-        employees.add(employee);
-
-        company.setOwner(loggedInUser);
-        company.setEmployees(employees);
-
-        // Stubbing repository method
-        when(companyRepository.findById(company.getId())).thenReturn(Optional.of(company));
-
-        // Calling the method under test
-        Set<User> result = companyServiceImpl.getAllEmployeesExceptCurrentUserAndOwner(testUser, company.getId());
+    void testGetCompanyDashboard_AccessDeniedBeforeAnyQuery() {
+        // Act & Assert
+        assertThrows(AccessDeniedException.class, () -> companyServiceImpl.getCompanyDashboard(snapshotOf(loggedInUser, 2L), 1L));
+        verifyNoInteractions(companyRepository, jobApplicationRepository);
+    }
 
-        // Verification
-        assertEquals(1, result.size()); // We expect only one employee to remain
-        assertEquals("Employee1", result.iterator().next().getFirstName()); // Make sure the correct employee remains
+    @Test
+    void testGetCompanyDashboard_CompanyNotFound() {
+        // Arrange
+        when(companyRepository.findProfileById(1L)).thenReturn(Optional.empty());
 
-        // Verify interactions with mock objects
-        verify(companyRepository, times(1)).findById(company.getId());
+        // Act & Assert
+        assertThrows(CompanyNotFoundException.class, () -> companyServiceImpl.getCompanyDashboard(snapshotOf(loggedInUser, 1L), 1L));
     }
 
     @Test
@@ -673,7 +606,7 @@ class CompanyServiceImplTest {
         assertFalse(company.getEmployees().contains(loggedInUser)); // Make sure the employee is removed from the company's employees
 
         // Verify interactions with mock objects
-        verify(companyRepository, times(2)).findById(company.getId());
+        verify(companyRepository, times(1)).findById(company.getId());
         verify(userService, times(1)).findById(loggedInUser.getId());
         verify(roleRepository, times(1)).findAllById(any());
         verify(companyRepository, times(1)).save(company);
@@ -771,6 +704,7 @@ class CompanyServiceImplTest {
         verify(companyRepository, times(1)).findById(company.getId());
         verify(machineService, times(1)).calculateAndSetProfit(machine);
         verify(companyRepository, times(1)).save(company); // Ensure company is saved with new machine
+        verify(companyMonthlyRollupService, times(1)).recordMachineAdded(machine); // Ensure the monthly rollup is updated
 
         // Assert that machine is added to company
         assertTrue(company.getMachines().contains(machine));
@@ -969,8 +903,22 @@ class CompanyServiceImplTest {
         verify(session, times(1)).setAttribute(eq("selectedYear"), eq(specificYear));
     }
 
+    private static CompanyProfile profileOf(Long ownerId, Long deputyLeaderId) {
+        return new CompanyProfile(1L, "Test Company", null, "Hungary", "Szeged", null, 6720, null, null, null,
+                LocalDateTime.now(), ownerId, "Owner", "Doe", deputyLeaderId, deputyLeaderId == null ? null : "John",
+                deputyLeaderId == null ? null : "Doe");
+    }
+
+    private static CompanyMemberRow memberRow(Long id, String firstName) {
+        return new CompanyMemberRow(id, firstName, "Doe", firstName.toLowerCase() + "@gmail.com", LocalDateTime.now());
+    }
+
+    private static UserSnapshot snapshotOf(User user, Long... companyIds) {
+        return UserSnapshot.of(user, List.of(companyIds), 0);
+    }
+
 
 
 
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,75 @@
+package com.nikolas.mechanicalmanagementsystem.service;
+
+import com.nikolas.mechanicalmanagementsystem.dtos.JobStatus;
+import com.nikolas.mechanicalmanagementsystem.repository.MachineRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ActiveProfiles("test")
+@ExtendWith(MockitoExtension.class)
+class CompanyTaxServiceImplTest {
+    @InjectMocks
+    private CompanyTaxServiceImpl companyTaxServiceImpl;
+    @Mock
+    private MachineRepository machineRepository;
+    @Mock
+    private MachineService machineService;
+    @Mock
+    private CompanyMonthlyRollupService companyMonthlyRollupService;
+    @Mock
+    private BackgroundJobService backgroundJobService;
+
+    @Test
+    void testChangeTax_InBatches() {
+        // Arrange: default batch size of 200
+        BigDecimal newTax = BigDecimal.valueOf(27);
+        when(machineRepository.countByCompanyIdAndIsActive(1L, true)).thenReturn(3L);
+        when(machineRepository.findActiveMachineIdsByCompanyId(1L, 0L, PageRequest.of(0, 200))).thenReturn(List.of(4L, 7L));
+        when(machineRepository.findActiveMachineIdsByCompanyId(1L, 7L, PageRequest.of(0, 200))).thenReturn(List.of(9L));
+        when(machineRepository.findActiveMachineIdsByCompanyId(1L, 9L, PageRequest.of(0, 200))).thenReturn(List.of());
+        JobStatus status = new JobStatus("job", "company-1-tax-27");
+
+        // Act
+        companyTaxServiceImpl.changeTax(status, 1L, newTax);
+
+        // Assert: the rollup is refreshed after the last batch
+        InOrder inOrder = inOrder(machineService, companyMonthlyRollupService);
+        inOrder.verify(machineService).applyTaxToMachines(List.of(4L, 7L), newTax);
+        inOrder.verify(machineService).applyTaxToMachines(List.of(9L), newTax);
+        inOrder.verify(companyMonthlyRollupService).refresh(1L);
+        assertEquals(3L, status.getTotal());
+        assertEquals(3L, status.getProcessed());
+        assertEquals(JobStatus.State.COMPLETED, status.getState());
+    }
+
+    @Test
+    void testStartTaxChange_InvalidTaxRate() {
+        // Act and Assert
+        assertThrows(IllegalArgumentException.class, () -> companyTaxServiceImpl.startTaxChange(1L, BigDecimal.valueOf(101)));
+        verify(backgroundJobService, never()).start(any(), any());
+    }
+
+    @Test
+    void testStartTaxChange() {
+        // Arrange
+        JobStatus status = new JobStatus("job", "company-1-tax-20");
+        when(backgroundJobService.start(eq("company-1-tax-20"), any())).thenReturn(status);
+
+        // Act and Assert
+        assertSame(status, companyTaxServiceImpl.startTaxChange(1L, BigDecimal.valueOf(20)));
+    }
+}
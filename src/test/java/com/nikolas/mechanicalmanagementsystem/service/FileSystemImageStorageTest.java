@@ -0,0 +1,60 @@
+package com.nikolas.mechanicalmanagementsystem.service;
+
+import com.nikolas.mechanicalmanagementsystem.dtos.StoredContent;
+import com.nikolas.mechanicalmanagementsystem.exception.NotFoundException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@ActiveProfiles("test")
+class FileSystemImageStorageTest {
+    @TempDir
+    Path directory;
+    private FileSystemImageStorage storage;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        storage = new FileSystemImageStorage(directory.toString());
+    }
+
+    @Test
+    void testStore_SameContentStoredOnce() throws IOException {
+        // Act
+        StoredContent first = storage.store(new ByteArrayInputStream(new byte[]{1, 2, 3}));
+        StoredContent second = storage.store(new ByteArrayInputStream(new byte[]{1, 2, 3}));
+
+        // Assert
+        assertEquals(first.getHash(), second.getHash());
+        assertEquals(3L, first.getSize());
+        assertTrue(Files.isRegularFile(directory.resolve(first.getHash().substring(0, 2))
+                .resolve(first.getHash().substring(2, 4)).resolve(first.getHash())));
+        try (Stream<Path> incoming = Files.list(directory.resolve("incoming"))) {
+            assertEquals(0, incoming.count());
+        }
+    }
+
+    @Test
+    void testLoadAndDelete() throws IOException {
+        StoredContent stored = storage.store(new ByteArrayInputStream(new byte[]{4, 5}));
+
+        // Act and Assert
+        assertArrayEquals(new byte[]{4, 5}, storage.load(stored.getHash()).getContentAsByteArray());
+        storage.delete(stored.getHash());
+        assertFalse(storage.exists(stored.getHash()));
+        assertThrows(NotFoundException.class, () -> storage.load(stored.getHash()));
+    }
+
+    @Test
+    void testLoad_InvalidHash() {
+        assertThrows(IllegalArgumentException.class, () -> storage.load("../../etc/passwd"));
+    }
+}
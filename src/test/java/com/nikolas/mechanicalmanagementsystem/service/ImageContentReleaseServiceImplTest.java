@@ -0,0 +1,99 @@
+package com.nikolas.mechanicalmanagementsystem.service;
+
+import com.nikolas.mechanicalmanagementsystem.repository.ImageContentLockRepository;
+import com.nikolas.mechanicalmanagementsystem.repository.ImageVariantRepository;
+import com.nikolas.mechanicalmanagementsystem.repository.ImagesRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.context.ActiveProfiles;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.*;
+
+@ActiveProfiles("test")
+@ExtendWith(MockitoExtension.class)
+class ImageContentReleaseServiceImplTest {
+    @InjectMocks
+    private ImageContentReleaseServiceImpl imageContentReleaseServiceImpl;
+    @Mock
+    private ImagesRepository imagesRepository;
+    @Mock
+    private ImageVariantRepository imageVariantRepository;
+    @Mock
+    private ImageContentLockRepository imageContentLockRepository;
+    @Mock
+    private ImageStorage imageStorage;
+
+    private static final String HASH = "a".repeat(64);
+
+    @Test
+    void testReleaseIfUnreferenced_Unreferenced() {
+        when(imagesRepository.existsByContentHash(HASH)).thenReturn(false);
+        when(imageVariantRepository.existsByContentHash(HASH)).thenReturn(false);
+
+        // Act
+        imageContentReleaseServiceImpl.releaseIfUnreferenced(HASH);
+
+        // Assert: the checks run under the lock
+        InOrder inOrder = inOrder(imageContentLockRepository, imagesRepository, imageStorage);
+        inOrder.verify(imageContentLockRepository).lock(HASH);
+        inOrder.verify(imagesRepository).existsByContentHash(HASH);
+        inOrder.verify(imageStorage).delete(HASH);
+        verify(imageContentLockRepository, times(1)).deleteByHash(HASH);
+    }
+
+    @Test
+    void testReleaseIfUnreferenced_ReferencedByVariant() {
+        when(imagesRepository.existsByContentHash(HASH)).thenReturn(false);
+        when(imageVariantRepository.existsByContentHash(HASH)).thenReturn(true);
+
+        // Act
+        imageContentReleaseServiceImpl.releaseIfUnreferenced(HASH);
+
+        // Assert
+        verify(imageStorage, never()).delete(HASH);
+        verify(imageContentLockRepository, never()).deleteByHash(HASH);
+    }
+
+    @Test
+    void testReleaseIfUnreferenced_StorageFailureIsLogged() {
+        when(imagesRepository.existsByContentHash(HASH)).thenReturn(false);
+        when(imageVariantRepository.existsByContentHash(HASH)).thenReturn(false);
+        doThrow(new IllegalStateException("disk gone")).when(imageStorage).delete(HASH);
+
+        // Act and Assert
+        assertDoesNotThrow(() -> imageContentReleaseServiceImpl.releaseIfUnreferenced(HASH));
+    }
+
+    @Test
+    void testLockContent_ContentExists() {
+        when(imageStorage.exists(HASH)).thenReturn(true);
+
+        // Act
+        boolean result = imageContentReleaseServiceImpl.lockContent(HASH);
+
+        // Assert
+        assertTrue(result);
+        InOrder inOrder = inOrder(imageContentLockRepository, imageStorage);
+        inOrder.verify(imageContentLockRepository).lock(HASH);
+        inOrder.verify(imageStorage).exists(HASH);
+    }
+
+    @Test
+    void testLockContent_ContentReleased() {
+        when(imageStorage.exists(HASH)).thenReturn(false);
+
+        // Act
+        boolean result = imageContentReleaseServiceImpl.lockContent(HASH);
+
+        // Assert
+        assertFalse(result);
+        verify(imageContentLockRepository, times(1)).lock(HASH);
+    }
+}
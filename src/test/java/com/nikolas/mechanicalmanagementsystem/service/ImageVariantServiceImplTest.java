@@ -0,0 +1,228 @@
+package com.nikolas.mechanicalmanagementsystem.service;
+
+import com.nikolas.mechanicalmanagementsystem.dtos.StoredContent;
+import com.nikolas.mechanicalmanagementsystem.entity.ImageVariant;
+import com.nikolas.mechanicalmanagementsystem.entity.ImageVariantType;
+import com.nikolas.mechanicalmanagementsystem.entity.Images;
+import com.nikolas.mechanicalmanagementsystem.repository.ImageVariantRepository;
+import com.nikolas.mechanicalmanagementsystem.repository.ImagesRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ActiveProfiles("test")
+@ExtendWith(MockitoExtension.class)
+class ImageVariantServiceImplTest {
+    private ImageVariantServiceImpl imageVariantServiceImpl;
+    @Mock
+    private ImagesRepository imagesRepository;
+    @Mock
+    private ImageVariantRepository imageVariantRepository;
+    @Mock
+    private ImageStorage imageStorage;
+    @Mock
+    private ImageContentReleaseService imageContentReleaseService;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+    // Content passed to the image storage, in order
+    private final List<byte[]> storedContents = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        // Real transaction template on a mocked manager, tasks run on the calling thread
+        imageVariantServiceImpl = new ImageVariantServiceImpl(imagesRepository, imageVariantRepository, imageStorage,
+                imageContentReleaseService, new TransactionTemplate(transactionManager), Runnable::run);
+    }
+
+    @Test
+    void testGenerateVariants_LargeImage() throws IOException {
+        // Arrange
+        stubContent(encode(new BufferedImage(2000, 1000, BufferedImage.TYPE_INT_RGB), "jpeg"));
+        stubStore();
+        when(imagesRepository.existsById(1L)).thenReturn(true);
+        when(imagesRepository.getReferenceById(1L)).thenReturn(new Images());
+        when(imageContentReleaseService.lockContent(any())).thenReturn(true);
+
+        // Act
+        imageVariantServiceImpl.generateVariants(1L);
+
+        // Assert
+        ArgumentCaptor<ImageVariant> captor = ArgumentCaptor.forClass(ImageVariant.class);
+        verify(imageVariantRepository, times(2)).save(captor.capture());
+        ImageVariant thumbnail = captor.getAllValues().get(0);
+        assertEquals(ImageVariantType.THUMBNAIL, thumbnail.getVariant());
+        assertEquals(320, thumbnail.getWidth());
+        assertEquals(160, thumbnail.getHeight());
+        assertEquals("image/jpeg", thumbnail.getType());
+        ImageVariant preview = captor.getAllValues().get(1);
+        assertEquals(ImageVariantType.PREVIEW, preview.getVariant());
+        assertEquals(1280, preview.getWidth());
+        assertEquals(640, preview.getHeight());
+        // Only the hash is kept on the variant, the bytes are in the image storage
+        assertEquals("1".repeat(64), preview.getContentHash());
+        assertNotNull(ImageIO.read(new ByteArrayInputStream(storedContents.get(1))));
+        verify(imageContentReleaseService, never()).releaseIfUnreferenced(any());
+        verify(imagesRepository, times(1)).markVariantsDone(1L);
+    }
+
+    @Test
+    void testGenerateVariants_TransparentImageStaysPng() throws IOException {
+        // Arrange
+        stubContent(encode(new BufferedImage(800, 800, BufferedImage.TYPE_INT_ARGB), "png"));
+        stubStore();
+        when(imagesRepository.existsById(1L)).thenReturn(true);
+        when(imageContentReleaseService.lockContent(any())).thenReturn(true);
+
+        // Act
+        imageVariantServiceImpl.generateVariants(1L);
+
+        // Assert: only the thumbnail is smaller than the original
+        ArgumentCaptor<ImageVariant> captor = ArgumentCaptor.forClass(ImageVariant.class);
+        verify(imageVariantRepository, times(1)).save(captor.capture());
+        assertEquals(ImageVariantType.THUMBNAIL, captor.getValue().getVariant());
+        assertEquals("image/png", captor.getValue().getType());
+    }
+
+    @Test
+    void testGenerateVariants_ContentReleasedMeanwhile_StoresItAgain() throws IOException {
+        // Arrange
+        stubContent(encode(new BufferedImage(800, 800, BufferedImage.TYPE_INT_RGB), "jpeg"));
+        stubStore();
+        when(imagesRepository.existsById(1L)).thenReturn(true);
+        when(imageContentReleaseService.lockContent("0".repeat(64))).thenReturn(false);
+
+        // Act
+        imageVariantServiceImpl.generateVariants(1L);
+
+        // Assert: the thumbnail is stored a second time under the lock, then referenced
+        assertEquals(2, storedContents.size());
+        assertArrayEquals(storedContents.get(0), storedContents.get(1));
+        verify(imageVariantRepository, times(1)).save(any());
+        verify(imageContentReleaseService, never()).releaseIfUnreferenced(any());
+    }
+
+    @Test
+    void testGenerateVariants_ImageDeletedMeanwhile_ReleasesContent() throws IOException {
+        // Arrange
+        stubContent(encode(new BufferedImage(800, 800, BufferedImage.TYPE_INT_RGB), "jpeg"));
+        stubStore();
+        when(imagesRepository.existsById(1L)).thenReturn(false);
+
+        // Act
+        imageVariantServiceImpl.generateVariants(1L);
+
+        // Assert
+        verify(imageVariantRepository, never()).save(any());
+        verify(imageContentReleaseService, times(1)).releaseIfUnreferenced("0".repeat(64));
+    }
+
+    @Test
+    void testGenerateVariants_SmallImageNeedsNoVariant() throws IOException {
+        // Arrange
+        stubContent(encode(new BufferedImage(200, 100, BufferedImage.TYPE_INT_RGB), "png"));
+
+        // Act
+        imageVariantServiceImpl.generateVariants(1L);
+
+        // Assert: done, the image is not processed again
+        verify(imageVariantRepository, never()).save(any());
+        verify(imagesRepository, times(1)).markVariantsDone(1L);
+    }
+
+    @Test
+    void testGenerateVariants_UnreadableImage() {
+        // Arrange
+        stubContent(new byte[]{1, 2, 3});
+
+        // Act
+        imageVariantServiceImpl.generateVariants(1L);
+
+        // Assert
+        verify(imageVariantRepository, never()).save(any());
+        verify(imagesRepository, times(1)).markVariantsDone(1L);
+    }
+
+    @Test
+    void testGenerateVariants_StoreFailed_RetriedLater() throws IOException {
+        // Arrange
+        stubContent(encode(new BufferedImage(800, 800, BufferedImage.TYPE_INT_RGB), "jpeg"));
+        when(imageStorage.store(any(InputStream.class))).thenThrow(new IOException("disk full"));
+
+        // Act
+        imageVariantServiceImpl.generateVariants(1L);
+
+        // Assert: not marked done, the next run tries again
+        verify(imageVariantRepository, never()).save(any());
+        verify(imagesRepository, never()).markVariantsDone(any());
+    }
+
+    @Test
+    void testScheduleMissingVariants_WithoutTransaction() {
+        when(imageVariantRepository.findImageIdsWithMissingVariants(1L)).thenReturn(List.of());
+
+        // Act
+        imageVariantServiceImpl.scheduleMissingVariants(1L);
+
+        // Assert
+        verify(imageVariantRepository, times(1)).findImageIdsWithMissingVariants(1L);
+    }
+
+    @Test
+    void testScheduleMissingVariants_RunsAfterCommit() {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            // Act
+            imageVariantServiceImpl.scheduleMissingVariants(1L);
+
+            // Assert: nothing happens before the commit
+            verifyNoInteractions(imageVariantRepository);
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+            verify(imageVariantRepository, times(1)).findImageIdsWithMissingVariants(1L);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    private void stubStore() throws IOException {
+        when(imageStorage.store(any(InputStream.class))).thenAnswer(invocation -> {
+            storedContents.add(invocation.getArgument(0, InputStream.class).readAllBytes());
+            int index = storedContents.size() - 1;
+            return new StoredContent(String.valueOf(index).repeat(64), storedContents.get(index).length);
+        });
+    }
+
+    private void stubContent(byte[] content) {
+        when(imagesRepository.findContentHashById(1L)).thenReturn(Optional.of("d".repeat(64)));
+        when(imageStorage.load("d".repeat(64))).thenReturn(new ByteArrayResource(content));
+    }
+
+    private static byte[] encode(BufferedImage image, String format) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, format, out);
+        return out.toByteArray();
+    }
+
+}
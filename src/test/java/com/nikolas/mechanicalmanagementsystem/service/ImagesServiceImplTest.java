@@ -1,43 +1,67 @@
 package com.nikolas.mechanicalmanagementsystem.service;
 
-import com.nikolas.mechanicalmanagementsystem.entity.Images;
-import com.nikolas.mechanicalmanagementsystem.entity.Machine;
+import com.nikolas.mechanicalmanagementsystem.dtos.ImageMetadata;
+import com.nikolas.mechanicalmanagementsystem.dtos.StoredContent;
+import com.nikolas.mechanicalmanagementsystem.entity.*;
 import com.nikolas.mechanicalmanagementsystem.exception.NotFoundException;
 import com.nikolas.mechanicalmanagementsystem.repository.ImagesRepository;
+import com.nikolas.mechanicalmanagementsystem.security.UserSnapshot;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.Resource;
+import org.springframework.security.access.AccessDeniedException;
 import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionOperations;
 import org.springframework.web.multipart.MaxUploadSizeExceededException;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
 @ActiveProfiles("test")
 @ExtendWith(MockitoExtension.class)
 class ImagesServiceImplTest {
-    @InjectMocks
     private ImagesServiceImpl imagesServiceImpl;
     @Mock
     private ImagesRepository imagesRepository;
     @Mock
     private MachineService machineService;
     @Mock
+    private MachineOwnershipCache machineOwnershipCache;
+    @Mock
+    private ImageVariantService imageVariantService;
+    @Mock
+    private ImageStorage imageStorage;
+    @Mock
+    private ImageContentReleaseService imageContentReleaseService;
+    @Mock
+    private ImageStorageMigrationService imageStorageMigrationService;
+    @Mock
     private static MultipartFile file1;
 
     private static Machine machine;
     private static Images image;
 
+    private static final byte[] JPEG_HEADER = {(byte) 0xFF, (byte) 0xD8, (byte) 0xFF, (byte) 0xE0, 0, 0x10};
+
     @BeforeEach
     void setUp() {
+        // No transaction, files are stored on the calling thread
+        imagesServiceImpl = new ImagesServiceImpl(imagesRepository, machineService, machineOwnershipCache, imageVariantService, imageStorage,
+                imageContentReleaseService, imageStorageMigrationService, TransactionOperations.withoutTransaction(), Runnable::run);
+
         machine = new Machine();
         machine.setMachineBrand("TestBrand");
         machine.setMachineModel("TestModel");
@@ -55,17 +79,50 @@ class ImagesServiceImplTest {
         // Arrange
         List<MultipartFile> files = new ArrayList<>();
 
-        when(file1.getOriginalFilename()).thenReturn("testImage1.jpg");
-        when(file1.getContentType()).thenReturn("image/jpeg");
-        when(file1.getBytes()).thenReturn(new byte[]{});
+        when(file1.getOriginalFilename()).thenReturn("testImage1.png");
+        when(file1.getInputStream()).thenReturn(new ByteArrayInputStream(JPEG_HEADER));
         when(file1.getSize()).thenReturn(1000L); // Smaller than MAX_IMAGE_SIZE
+        when(imageStorage.store(any(InputStream.class))).thenAnswer(invocation -> {
+            // The whole content reaches the storage, the type detection does not consume it
+            assertArrayEquals(JPEG_HEADER, invocation.getArgument(0, InputStream.class).readAllBytes());
+            return new StoredContent("a".repeat(64), JPEG_HEADER.length);
+        });
+        when(imageContentReleaseService.lockContent("a".repeat(64))).thenReturn(true);
         files.add(file1);
 
         // Act & Assert
         assertDoesNotThrow(() -> imagesServiceImpl.uploadAndSaveImage(files, machine));
 
-        // Verify
+        // Verify: only the hash is kept on the image, the type comes from the content
+        Images saved = machine.getImages().get(0);
+        assertEquals("a".repeat(64), saved.getContentHash());
+        assertEquals(JPEG_HEADER.length, saved.getContentSize());
+        assertEquals("image/jpeg", saved.getType());
         verify(machineService, times(1)).saveMachine(machine);
+        verify(imageVariantService, times(1)).scheduleMissingVariants(machine.getId());
+    }
+
+    @Test
+    void testUploadAndSaveImage_ContentReleasedMeanwhile_StoresItAgain() throws IOException {
+        // Arrange
+        List<byte[]> storedContents = new ArrayList<>();
+        when(file1.getInputStream()).thenAnswer(invocation -> new ByteArrayInputStream(JPEG_HEADER));
+        when(imageStorage.store(any(InputStream.class))).thenAnswer(invocation -> {
+            storedContents.add(invocation.getArgument(0, InputStream.class).readAllBytes());
+            return new StoredContent("a".repeat(64), JPEG_HEADER.length);
+        });
+        // A deletion of the same content released it between the store and the transaction
+        when(imageContentReleaseService.lockContent("a".repeat(64))).thenReturn(false);
+
+        // Act
+        imagesServiceImpl.uploadAndSaveImage(List.of(file1), machine);
+
+        // Assert: stored again under the lock, before the image refers to it
+        assertEquals(2, storedContents.size());
+        assertArrayEquals(JPEG_HEADER, storedContents.get(1));
+        assertEquals("a".repeat(64), machine.getImages().get(0).getContentHash());
+        verify(machineService, times(1)).saveMachine(machine);
+        verify(imageContentReleaseService, never()).releaseIfUnreferenced(any());
     }
 
     @Test
@@ -83,11 +140,12 @@ class ImagesServiceImplTest {
     }
 
     @Test
-    void testUploadAndSaveImage_InvalidType() {
+    void testUploadAndSaveImage_InvalidType() throws IOException {
         // Arrange
         List<MultipartFile> files = new ArrayList<>();
 
-        when(file1.getContentType()).thenReturn("application/pdf"); // Not allowed image type
+        // A PDF, whatever content type the client claims
+        when(file1.getInputStream()).thenReturn(new ByteArrayInputStream("%PDF-1.7".getBytes()));
         files.add(file1);
 
         // Assert
@@ -95,6 +153,33 @@ class ImagesServiceImplTest {
 
         // Verify
         verify(machineService, never()).saveMachine(machine);
+        verify(imageStorage, never()).store(any(InputStream.class));
+    }
+
+    @Test
+    void testUploadAndSaveImage_OneInvalidFile_ReleasesStoredContent() throws IOException {
+        // Arrange
+        MultipartFile file2 = mock(MultipartFile.class);
+        when(file1.getInputStream()).thenReturn(new ByteArrayInputStream(JPEG_HEADER));
+        when(file2.getInputStream()).thenReturn(new ByteArrayInputStream("%PDF-1.7".getBytes()));
+        when(imageStorage.store(any(InputStream.class))).thenReturn(new StoredContent("a".repeat(64), 6L));
+
+        // Act and Assert
+        assertThrows(IOException.class, () -> imagesServiceImpl.uploadAndSaveImage(List.of(file1, file2), machine));
+        verify(imageContentReleaseService).releaseIfUnreferenced("a".repeat(64));
+        verify(machineService, never()).saveMachine(machine);
+    }
+
+    @Test
+    void testUploadAndSaveImage_SaveFails_ReleasesStoredContent() throws IOException {
+        // Arrange
+        when(file1.getInputStream()).thenReturn(new ByteArrayInputStream(JPEG_HEADER));
+        when(imageStorage.store(any(InputStream.class))).thenReturn(new StoredContent("a".repeat(64), 6L));
+        doThrow(new IllegalStateException("database down")).when(machineService).saveMachine(machine);
+
+        // Act and Assert
+        assertThrows(IllegalStateException.class, () -> imagesServiceImpl.uploadAndSaveImage(List.of(file1), machine));
+        verify(imageContentReleaseService).releaseIfUnreferenced("a".repeat(64));
     }
 
 
@@ -116,18 +201,20 @@ class ImagesServiceImplTest {
 
     @Test
     void testDeleteImage() {
-        when(imagesRepository.findById(image.getId())).thenReturn(Optional.of(image));
+        when(imagesRepository.findMetadataById(image.getId()))
+                .thenReturn(Optional.of(new ImageMetadata(image.getId(), "TestImage", "image/png", null, 1L, 1L, true)));
 
         // Act
         assertDoesNotThrow(() -> imagesServiceImpl.deleteImage(image.getId()));
 
         // Assert
         verify(imagesRepository, times(1)).deleteById(image.getId());
+        verify(machineOwnershipCache, times(1)).evictImage(image.getId());
     }
 
     @Test
     void testDeleteImage_NotFound() {
-        when(imagesRepository.findById(image.getId())).thenReturn(Optional.empty());
+        when(imagesRepository.findMetadataById(image.getId())).thenReturn(Optional.empty());
 
         // Act & Assert
         NotFoundException exception = assertThrows(NotFoundException.class, () -> imagesServiceImpl.deleteImage(image.getId()));
@@ -138,4 +225,109 @@ class ImagesServiceImplTest {
         verify(imagesRepository, never()).deleteById(anyLong());
     }
 
-}
\ No newline at end of file
+    @Test
+    void testCheckAccessToImage() {
+        // Arrange
+        UserSnapshot user = userOfCompany(1L, "USER");
+        when(machineOwnershipCache.getMachineIdOfImage(image.getId())).thenReturn(3L);
+
+        // Act
+        imagesServiceImpl.checkAccessToImage(user, image.getId());
+
+        // Assert: the check is made on the machine of the image, nothing is loaded
+        verify(machineService, times(1)).checkAccessToMachine(user, 3L);
+        verifyNoInteractions(imagesRepository);
+    }
+
+    @Test
+    void testGetImageMetadataForUser_WithAccess() {
+        // Arrange
+        UserSnapshot user = userOfCompany(2L, "USER");
+        ImageMetadata metadata = new ImageMetadata(1L, "TestImage", "image/png", "b".repeat(64), 1L, 2L, true);
+        when(imagesRepository.findMetadataById(1L)).thenReturn(Optional.of(metadata));
+
+        // Act
+        ImageMetadata result = imagesServiceImpl.getImageMetadataForUser(user, 1L);
+
+        // Assert
+        assertEquals(metadata, result);
+        assertEquals("\"" + "b".repeat(64) + "\"", result.getETag());
+        verifyNoInteractions(imageStorage);
+    }
+
+    @Test
+    void testGetImageMetadataForUser_OtherCompany() {
+        // Arrange
+        UserSnapshot user = userOfCompany(3L, "USER");
+        when(imagesRepository.findMetadataById(1L)).thenReturn(Optional.of(new ImageMetadata(1L, "TestImage", "image/png", "b".repeat(64), 1L, 2L, true)));
+
+        // Act and Assert
+        assertThrows(AccessDeniedException.class, () -> imagesServiceImpl.getImageMetadataForUser(user, 1L));
+    }
+
+    @Test
+    void testGetImageMetadataForUser_InactiveMachineRequiresAdmin() {
+        // Arrange
+        UserSnapshot user = userOfCompany(2L, "USER");
+        when(imagesRepository.findMetadataById(1L)).thenReturn(Optional.of(new ImageMetadata(1L, "TestImage", "image/png", "b".repeat(64), 1L, 2L, false)));
+
+        // Act and Assert
+        assertThrows(AccessDeniedException.class, () -> imagesServiceImpl.getImageMetadataForUser(user, 1L));
+    }
+
+    @Test
+    void testGetImageMetadataForUser_NotFound() {
+        when(imagesRepository.findMetadataById(1L)).thenReturn(Optional.empty());
+
+        // Act and Assert
+        assertThrows(NotFoundException.class, () -> imagesServiceImpl.getImageMetadataForUser(userOfCompany(2L, "USER"), 1L));
+    }
+
+    @Test
+    void testGetImageContent() {
+        Resource content = new ByteArrayResource(new byte[]{1, 2, 3});
+        when(imagesRepository.findContentHashById(1L)).thenReturn(Optional.of("c".repeat(64)));
+        when(imageStorage.load("c".repeat(64))).thenReturn(content);
+
+        // Act and Assert
+        assertSame(content, imagesServiceImpl.getImageContent(1L));
+    }
+
+    @Test
+    void testGetImageContent_NotMigratedYet() {
+        Resource content = new ByteArrayResource(new byte[]{1, 2, 3});
+        when(imagesRepository.findContentHashById(1L)).thenReturn(Optional.empty());
+        when(imageStorageMigrationService.loadLegacyContent(1L)).thenReturn(Optional.of(content));
+
+        // Act and Assert
+        assertSame(content, imagesServiceImpl.getImageContent(1L));
+        verifyNoInteractions(imageStorage);
+    }
+
+    @Test
+    void testGetImageContent_MigratedBetweenReads() {
+        Resource content = new ByteArrayResource(new byte[]{1, 2, 3});
+        when(imagesRepository.findContentHashById(1L)).thenReturn(Optional.empty(), Optional.of("c".repeat(64)));
+        when(imageStorageMigrationService.loadLegacyContent(1L)).thenReturn(Optional.empty());
+        when(imageStorage.load("c".repeat(64))).thenReturn(content);
+
+        // Act and Assert
+        assertSame(content, imagesServiceImpl.getImageContent(1L));
+    }
+
+    @Test
+    void testGetImageContent_NotFound() {
+        when(imagesRepository.findContentHashById(1L)).thenReturn(Optional.empty());
+        when(imageStorageMigrationService.loadLegacyContent(1L)).thenReturn(Optional.empty());
+
+        // Act and Assert
+        assertThrows(NotFoundException.class, () -> imagesServiceImpl.getImageContent(1L));
+        verifyNoInteractions(imageStorage);
+    }
+
+    private static UserSnapshot userOfCompany(Long companyId, String roleName) {
+        return new UserSnapshot(1L, "user@gmail.com", "John", "Doe",
+                Set.of(companyId + "_COMPANY", roleName), Set.of(companyId), 0);
+    }
+
+}
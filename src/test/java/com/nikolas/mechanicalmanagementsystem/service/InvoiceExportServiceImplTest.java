@@ -0,0 +1,164 @@
+package com.nikolas.mechanicalmanagementsystem.service;
+
+import com.nikolas.mechanicalmanagementsystem.dtos.JobStatus;
+import com.nikolas.mechanicalmanagementsystem.entity.Company;
+import com.nikolas.mechanicalmanagementsystem.entity.Invoice;
+import com.nikolas.mechanicalmanagementsystem.exception.MachineNotFoundException;
+import com.nikolas.mechanicalmanagementsystem.exception.NotFoundException;
+import com.nikolas.mechanicalmanagementsystem.repository.MachineRepository;
+import com.nikolas.mechanicalmanagementsystem.security.UserSnapshot;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.io.Resource;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.thymeleaf.ITemplateEngine;
+import org.thymeleaf.context.IContext;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ActiveProfiles("test")
+@ExtendWith(MockitoExtension.class)
+class InvoiceExportServiceImplTest {
+    @Mock
+    private MachineRepository machineRepository;
+    @Mock
+    private InvoiceService invoiceService;
+    @Mock
+    private CompanyService companyService;
+    @Mock
+    private ITemplateEngine templateEngine;
+
+    private InvoiceExportServiceImpl invoiceExportService;
+    private UserSnapshot user;
+
+    @BeforeEach
+    void setUp() {
+        // Jobs and rendering run on the calling thread
+        invoiceExportService = new InvoiceExportServiceImpl(new BackgroundJobServiceImpl(Runnable::run),
+                machineRepository, invoiceService, companyService, templateEngine, Runnable::run);
+
+        user = new UserSnapshot(1L, "john@example.com", "John", "Doe", Set.of("USER"), Set.of(2L), 0);
+        Company company = new Company();
+        company.setId(2L);
+        when(companyService.getAllCompaniesByUser(user)).thenReturn(List.of(company));
+    }
+
+    @AfterEach
+    void tearDown() {
+        invoiceExportService.deleteExports();
+    }
+
+    @Test
+    void testStartExport_WritesEveryInvoiceInOrder() throws IOException {
+        // Arrange: two pages of machines
+        when(machineRepository.countActiveMachinesByYearAndMonthAndCompanyIdIn(2024, 5, List.of(2L))).thenReturn(3L);
+        when(machineRepository.findActiveMachineIdsByYearAndMonthAndCompanyIdIn(eq(2024), eq(5), eq(List.of(2L)), anyLong(), anyInt()))
+                .thenReturn(List.of(10L, 11L), List.of(12L), List.of());
+        for (long machineId = 10; machineId <= 12; machineId++) {
+            Invoice invoice = Invoice.builder().companyId(2L).invoiceNumber(machineId - 9).build();
+            when(invoiceService.getOrIssueInvoiceForExport(machineId, "John Doe")).thenReturn(invoice);
+        }
+        when(templateEngine.process(eq("invoice"), any(IContext.class)))
+                .thenAnswer(invocation -> "<html>" + ((Invoice) invocation.getArgument(1, IContext.class).getVariable("invoice")).getInvoiceNumber() + "</html>");
+
+        // Act: company 3 is not one of the user's companies
+        JobStatus status = invoiceExportService.startExport(user, 2024, 5, List.of(2L, 3L));
+
+        // Assert
+        assertEquals(JobStatus.State.COMPLETED, status.getState());
+        assertEquals("invoices-2024-05", status.getName());
+        assertEquals(3L, status.getTotal());
+        assertEquals(3L, status.getProcessed());
+        ArgumentCaptor<Long> afterIds = ArgumentCaptor.forClass(Long.class);
+        verify(machineRepository, times(3)).findActiveMachineIdsByYearAndMonthAndCompanyIdIn(eq(2024), eq(5), eq(List.of(2L)), afterIds.capture(), anyInt());
+        assertEquals(List.of(0L, 11L, 12L), afterIds.getAllValues());
+
+        List<String> entries = new ArrayList<>();
+        try (ZipInputStream zip = new ZipInputStream(invoiceExportService.getExportFile(user, status.getId()).getInputStream())) {
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                entries.add(entry.getName() + "=" + new String(zip.readAllBytes(), StandardCharsets.UTF_8));
+            }
+        }
+        assertEquals(List.of("invoice-2-1.html=<html>1</html>", "invoice-2-2.html=<html>2</html>", "invoice-2-3.html=<html>3</html>"), entries);
+    }
+
+    @Test
+    void testStartExport_SkipsFailedInvoice() throws IOException {
+        // Arrange: the second machine was deleted since its ID was read
+        when(machineRepository.countActiveMachinesByYearAndMonthAndCompanyIdIn(2024, 5, List.of(2L))).thenReturn(2L);
+        when(machineRepository.findActiveMachineIdsByYearAndMonthAndCompanyIdIn(eq(2024), eq(5), eq(List.of(2L)), anyLong(), anyInt()))
+                .thenReturn(List.of(10L, 11L), List.of());
+        when(invoiceService.getOrIssueInvoiceForExport(10L, "John Doe")).thenReturn(Invoice.builder().companyId(2L).invoiceNumber(1L).build());
+        when(invoiceService.getOrIssueInvoiceForExport(11L, "John Doe")).thenThrow(new MachineNotFoundException("Machine not found with id: 11"));
+        when(templateEngine.process(eq("invoice"), any(IContext.class))).thenReturn("<html></html>");
+
+        // Act
+        JobStatus status = invoiceExportService.startExport(user, 2024, 5, List.of(2L));
+
+        // Assert
+        assertEquals(JobStatus.State.COMPLETED, status.getState());
+        assertEquals("1 invoice(s) exported, 1 skipped", status.getMessage());
+        Resource file = invoiceExportService.getExportFile(user, status.getId());
+        try (InputStream content = file.getInputStream(); ZipInputStream zip = new ZipInputStream(content)) {
+            assertEquals("invoice-2-1.html", zip.getNextEntry().getName());
+            assertNull(zip.getNextEntry());
+        }
+    }
+
+    @Test
+    void testGetExportFile_OtherUser() {
+        // Arrange
+        when(machineRepository.countActiveMachinesByYearAndMonthAndCompanyIdIn(2024, 5, List.of(2L))).thenReturn(0L);
+        JobStatus status = invoiceExportService.startExport(user, 2024, 5, List.of(2L));
+        UserSnapshot otherUser = new UserSnapshot(2L, "jane@example.com", "Jane", "Doe", Set.of("USER"), Set.of(2L), 0);
+
+        // Act and Assert
+        assertNotNull(invoiceExportService.getExportFile(user, status.getId()));
+        assertThrows(NotFoundException.class, () -> invoiceExportService.getExportFile(otherUser, status.getId()));
+        assertThrows(NotFoundException.class, () -> invoiceExportService.getExportStatus(otherUser, status.getId()));
+        assertThrows(NotFoundException.class, () -> invoiceExportService.getExportFile(user, "unknown"));
+    }
+
+    @Test
+    void testStartExport_ForgetsOnlyOwnOldestExports() throws IOException {
+        // Arrange
+        ReflectionTestUtils.setField(invoiceExportService, "maxExportsPerUser", 1);
+        when(machineRepository.countActiveMachinesByYearAndMonthAndCompanyIdIn(anyInt(), anyInt(), eq(List.of(2L)))).thenReturn(0L);
+        UserSnapshot otherUser = new UserSnapshot(2L, "jane@example.com", "Jane", "Doe", Set.of("USER"), Set.of(2L), 0);
+        Company company = new Company();
+        company.setId(2L);
+        when(companyService.getAllCompaniesByUser(otherUser)).thenReturn(List.of(company));
+        JobStatus otherExport = invoiceExportService.startExport(otherUser, 2024, 4, List.of(2L));
+        JobStatus first = invoiceExportService.startExport(user, 2024, 5, List.of(2L));
+        Path firstFile = invoiceExportService.getExportFile(user, first.getId()).getFile().toPath();
+
+        // Act
+        JobStatus second = invoiceExportService.startExport(user, 2024, 6, List.of(2L));
+
+        // Assert: the first export of the user is forgotten and its file deleted, the other user keeps theirs
+        assertThrows(NotFoundException.class, () -> invoiceExportService.getExportFile(user, first.getId()));
+        assertFalse(Files.exists(firstFile));
+        assertNotNull(invoiceExportService.getExportFile(user, second.getId()));
+        assertNotNull(invoiceExportService.getExportFile(otherUser, otherExport.getId()));
+    }
+}
@@ -0,0 +1,151 @@
+package com.nikolas.mechanicalmanagementsystem.service;
+
+import com.nikolas.mechanicalmanagementsystem.entity.Company;
+import com.nikolas.mechanicalmanagementsystem.entity.Invoice;
+import com.nikolas.mechanicalmanagementsystem.entity.Machine;
+import com.nikolas.mechanicalmanagementsystem.entity.MachinePart;
+import com.nikolas.mechanicalmanagementsystem.repository.CompanyRepository;
+import com.nikolas.mechanicalmanagementsystem.repository.InvoiceRepository;
+import com.nikolas.mechanicalmanagementsystem.repository.MachineRepository;
+import com.nikolas.mechanicalmanagementsystem.security.UserSnapshot;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+/**
+ * The issue of invoices on an in-memory database with real transactions: the first request to issue creates the
+ * invoice of a machine, and concurrent first requests issue only one.
+ */
+@ActiveProfiles("test")
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(InvoiceServiceImpl.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:invoices;MODE=MySQL;NON_KEYWORDS=USER,YEAR,MONTH,VALUE;DATABASE_TO_LOWER=TRUE;LOCK_TIMEOUT=10000",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.auto_quote_keyword=true",
+        "spring.sql.init.mode=never"
+})
+class InvoiceIssueConcurrencyTest {
+
+    private static final int THREADS = 8;
+
+    @Autowired
+    private InvoiceService invoiceService;
+    @Autowired
+    private CompanyRepository companyRepository;
+    @Autowired
+    private MachineRepository machineRepository;
+    @Autowired
+    private InvoiceRepository invoiceRepository;
+
+    @MockBean
+    private MachineService machineService;
+    @MockBean
+    private UserService userService;
+    @MockBean
+    private PasswordEncoder passwordEncoder;
+
+    private Company company;
+
+    @BeforeEach
+    void setUp() {
+        company = new Company();
+        company.setCompanyName("Invoice test");
+        company.setCountry("Hungary");
+        company = companyRepository.save(company);
+
+        when(userService.getLoggedInUserSnapshot()).thenReturn(
+                new UserSnapshot(1L, "john@example.com", "John", "Doe", Set.of("COMPANY_USER"), Set.of(company.getId()), 0));
+        // Loaded in the transaction of the service, as the real MachineService does
+        when(machineService.getMachineById(any())).thenAnswer(invocation ->
+                machineRepository.findById(invocation.getArgument(0)).orElseThrow());
+    }
+
+    @Test
+    void testFirstViewIssuesTheInvoice() {
+        // Arrange
+        Long machineId = createMachine();
+
+        // Act
+        Long first = invoiceService.getOrIssueInvoice(machineId);
+        Long second = invoiceService.getOrIssueInvoice(machineId);
+
+        // Assert
+        assertEquals(first, second);
+        Invoice invoice = invoiceRepository.findWithLinesById(first).orElseThrow();
+        assertEquals(1L, invoice.getInvoiceNumber());
+        assertEquals(1, invoice.getLines().size());
+    }
+
+    @Test
+    void testConcurrentFirstViewsIssueOneInvoice() throws Exception {
+        // Arrange
+        Long machineId = createMachine();
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+
+        // Act
+        List<Future<Long>> futures;
+        try {
+            futures = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return invoiceService.getOrIssueInvoice(machineId);
+                }));
+            }
+            start.countDown();
+            Set<Long> invoiceIds = new HashSet<>();
+            for (Future<Long> future : futures) {
+                invoiceIds.add(future.get(60, TimeUnit.SECONDS));
+            }
+
+            // Assert
+            assertEquals(1, invoiceIds.size());
+            assertEquals(1L, invoiceRepository.findAll().stream().filter(invoice -> machineId.equals(invoice.getMachineId())).count());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private Long createMachine() {
+        Machine machine = new Machine();
+        machine.setMachineBrand("Renault");
+        machine.setMachineModel("Megane");
+        machine.setCompany(company);
+        machine.setChargedAmount(new BigDecimal("150.00"));
+        machine.setMachinePartsSum(new BigDecimal("120.00"));
+        MachinePart part = new MachinePart();
+        part.setPartName("Filter");
+        part.setPartPrice(new BigDecimal("100.00"));
+        part.setPartPriceWithTax(new BigDecimal("120.00"));
+        part.setMachine(machine);
+        machine.getMachineParts().add(part);
+        return machineRepository.save(machine).getId();
+    }
+}
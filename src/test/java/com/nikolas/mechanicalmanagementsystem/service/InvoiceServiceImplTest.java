@@ -1,22 +1,27 @@
 package com.nikolas.mechanicalmanagementsystem.service;
 
-import com.nikolas.mechanicalmanagementsystem.dtos.InvoiceDataDTO;
-import com.nikolas.mechanicalmanagementsystem.entity.Company;
-import com.nikolas.mechanicalmanagementsystem.entity.Machine;
-import com.nikolas.mechanicalmanagementsystem.entity.User;
+import com.nikolas.mechanicalmanagementsystem.entity.*;
+import com.nikolas.mechanicalmanagementsystem.exception.InvoiceNotFoundException;
+import com.nikolas.mechanicalmanagementsystem.repository.InvoiceCounterRepository;
+import com.nikolas.mechanicalmanagementsystem.repository.InvoiceRepository;
+import com.nikolas.mechanicalmanagementsystem.security.UserSnapshot;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.access.AccessDeniedException;
 import org.springframework.test.context.ActiveProfiles;
 
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
+import java.math.BigDecimal;
+import java.util.Optional;
+import java.util.Set;
 
-import static org.junit.jupiter.api.Assertions.assertEquals;
-import static org.junit.jupiter.api.Assertions.assertNotNull;
-import static org.mockito.Mockito.when;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
 
 @ActiveProfiles("test")
 @ExtendWith(MockitoExtension.class)
@@ -27,45 +32,215 @@ class InvoiceServiceImplTest {
     private UserService userService;
     @Mock
     private MachineService machineService;
+    @Mock
+    private InvoiceRepository invoiceRepository;
+    @Mock
+    private InvoiceCounterRepository invoiceCounterRepository;
 
-    @Test
-    void testGenerateInvoice() {
-        // Arrange
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy.MM.dd HH:mm");
-        LocalDateTime currentDateTime = LocalDateTime.now();
-
-        String formattedCurrentDate = currentDateTime.format(formatter);
-        String formattedFutureDate = currentDateTime.plusDays(7).format(formatter);
+    private UserSnapshot loggedInUser;
+    private Company company;
+    private Machine machine;
 
-        User loggedInUser = new User();
-        loggedInUser.setFirstName("John");
-        loggedInUser.setLastName("Doe");
+    @BeforeEach
+    void setUp() {
+        User owner = new User();
+        owner.setId(1L);
+        owner.setFirstName("John");
+        owner.setLastName("Doe");
+        loggedInUser = userOfCompany(2L);
 
-        Company company = new Company();
+        company = new Company();
+        company.setId(2L);
         company.setCompanyName("Test Company");
+        company.setOwner(owner);
 
-        Machine machine = new Machine();
+        machine = new Machine();
         machine.setId(1L);
+        machine.setMachineBrand("Brand");
+        machine.setMachineModel("Model");
         machine.setCompany(company);
+        machine.setChargedAmount(new BigDecimal("150.00"));
+        machine.setMachinePartsSum(new BigDecimal("120.00"));
+        MachinePart part = new MachinePart();
+        part.setPartName("Filter");
+        part.setPartPrice(new BigDecimal("100.00"));
+        part.setUnitTax(new BigDecimal("20.00"));
+        part.setTaxInPercent(new BigDecimal("20"));
+        part.setPartPriceWithTax(new BigDecimal("120.00"));
+        machine.getMachineParts().add(part);
+    }
+
+    @Test
+    void testIssueInvoice() {
+        // Arrange
+        when(userService.getLoggedInUserSnapshot()).thenReturn(loggedInUser);
+        when(machineService.getMachineForUser(loggedInUser, 1L)).thenReturn(machine);
+        when(invoiceCounterRepository.findLastNumber(2L)).thenReturn(7L);
+        when(invoiceRepository.save(any(Invoice.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        // Act
+        Invoice invoice = invoiceServiceImpl.issueInvoice(1L);
+
+        // Assert: the snapshot is taken from the machine, numbered from the company's counter
+        assertEquals(7L, invoice.getInvoiceNumber());
+        assertEquals(2L, invoice.getCompanyId());
+        assertEquals(1L, invoice.getMachineId());
+        assertEquals("Test Company", invoice.getCompanyName());
+        assertEquals("John Doe", invoice.getOwnerName());
+        assertNull(invoice.getDeputyLeaderName());
+        assertEquals("John Doe", invoice.getIssuedBy());
+        assertEquals(new BigDecimal("150.00"), invoice.getChargedAmount());
+        assertEquals(invoice.getIssuedAt().plusDays(7), invoice.getDueDate());
+        assertEquals(1, invoice.getLines().size());
+        assertEquals("Filter", invoice.getLines().get(0).getPartName());
+        assertEquals(new BigDecimal("120.00"), invoice.getLines().get(0).getPartPriceWithTax());
+
+        // The counter is locked as late as possible, right before the insert
+        InOrder inOrder = inOrder(invoiceCounterRepository, invoiceRepository);
+        inOrder.verify(invoiceCounterRepository).increment(2L);
+        inOrder.verify(invoiceCounterRepository).findLastNumber(2L);
+        inOrder.verify(invoiceRepository).save(invoice);
+    }
+
+    @Test
+    void testFindLatestInvoiceId_DoesNotIssue() {
+        // Arrange
+        when(userService.getLoggedInUserSnapshot()).thenReturn(loggedInUser);
+        when(invoiceRepository.findLatestIdByMachineId(1L)).thenReturn(Optional.empty());
+
+        // Act
+        Optional<Long> result = invoiceServiceImpl.findLatestInvoiceId(1L);
 
-        // Mock userService getLoggedInUser
-        when(userService.getLoggedInUser()).thenReturn(loggedInUser);
+        // Assert
+        assertTrue(result.isEmpty());
+        verify(machineService, times(1)).checkAccessToMachine(loggedInUser, 1L);
+        verifyNoInteractions(invoiceCounterRepository);
+        verify(invoiceRepository, never()).save(any());
+    }
 
-        // Mock machineService getMachineForUser
-        when(machineService.getMachineForUser(loggedInUser, machine.getId())).thenReturn(machine);
+    @Test
+    void testIssueInvoice_LaterPartChangesDoNotChangeIt() {
+        // Arrange
+        when(userService.getLoggedInUserSnapshot()).thenReturn(loggedInUser);
+        when(machineService.getMachineForUser(loggedInUser, 1L)).thenReturn(machine);
+        when(invoiceRepository.save(any(Invoice.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        Invoice invoice = invoiceServiceImpl.issueInvoice(1L);
 
         // Act
-        InvoiceDataDTO invoiceDataDTO = invoiceServiceImpl.generateInvoice(machine.getId());
+        machine.getMachineParts().get(0).setPartName("Changed");
+        machine.getMachineParts().clear();
 
         // Assert
-        assertNotNull(invoiceDataDTO);
-        assertEquals(loggedInUser.getFirstName(), invoiceDataDTO.getEmployeeFirstName());
-        assertEquals(loggedInUser.getLastName(), invoiceDataDTO.getEmployeeLastName());
-        assertEquals(machine, invoiceDataDTO.getMachine());
-        assertEquals(machine.getCompany(), invoiceDataDTO.getCompany());
-        assertEquals(formattedCurrentDate, invoiceDataDTO.getCurrentDate());
-        assertEquals(formattedFutureDate, invoiceDataDTO.getFutureDate());
+        assertEquals("Filter", invoice.getLines().get(0).getPartName());
+    }
+
+    @Test
+    void testGetOrIssueInvoice_ReturnsLatest() {
+        // Arrange
+        when(userService.getLoggedInUserSnapshot()).thenReturn(loggedInUser);
+        when(invoiceRepository.findLatestIdByMachineId(1L)).thenReturn(Optional.of(5L));
+
+        // Act and Assert
+        assertEquals(5L, invoiceServiceImpl.getOrIssueInvoice(1L));
+        // Only the access is checked, the machine is not loaded
+        verify(machineService).checkAccessToMachine(loggedInUser, 1L);
+        verify(machineService, never()).getMachineForUser(any(), any());
+        verify(invoiceRepository, never()).save(any());
+        // The counter is not locked when the machine already has an invoice
+        verifyNoInteractions(invoiceCounterRepository);
     }
 
+    @Test
+    void testGetOrIssueInvoice_IssuesFirst() {
+        // Arrange
+        when(userService.getLoggedInUserSnapshot()).thenReturn(loggedInUser);
+        when(machineService.getMachineById(1L)).thenReturn(machine);
+        when(invoiceRepository.findLatestIdByMachineId(1L)).thenReturn(Optional.empty());
+        when(invoiceRepository.save(any(Invoice.class))).thenReturn(Invoice.builder().id(9L).build());
+
+        // Act and Assert
+        assertEquals(9L, invoiceServiceImpl.getOrIssueInvoice(1L));
+        // The machine is copied before the counter of the company is locked, then the lookup is repeated
+        InOrder inOrder = inOrder(machineService, invoiceCounterRepository, invoiceRepository);
+        inOrder.verify(invoiceRepository).findLatestIdByMachineId(1L);
+        inOrder.verify(machineService).getMachineById(1L);
+        inOrder.verify(invoiceCounterRepository).lock(2L);
+        inOrder.verify(invoiceRepository).findLatestIdByMachineId(1L);
+        inOrder.verify(invoiceCounterRepository).increment(2L);
+    }
 
-}
\ No newline at end of file
+    @Test
+    void testGetOrIssueInvoice_IssuedConcurrently() {
+        // Arrange: another request issued the invoice while this one waited for the lock
+        when(userService.getLoggedInUserSnapshot()).thenReturn(loggedInUser);
+        when(machineService.getMachineById(1L)).thenReturn(machine);
+        when(invoiceRepository.findLatestIdByMachineId(1L)).thenReturn(Optional.empty(), Optional.of(9L));
+
+        // Act and Assert
+        assertEquals(9L, invoiceServiceImpl.getOrIssueInvoice(1L));
+        verify(invoiceCounterRepository, never()).increment(any());
+        verify(invoiceRepository, never()).save(any());
+    }
+
+    @Test
+    void testGetOrIssueInvoiceForExport_ReturnsLatest() {
+        // Arrange
+        Invoice latest = Invoice.builder().id(5L).build();
+        when(invoiceRepository.findLatestIdByMachineId(1L)).thenReturn(Optional.of(5L));
+        when(invoiceRepository.findWithLinesById(5L)).thenReturn(Optional.of(latest));
+
+        // Act and Assert
+        assertSame(latest, invoiceServiceImpl.getOrIssueInvoiceForExport(1L, "Jane Roe"));
+        verify(invoiceRepository, never()).save(any());
+    }
+
+    @Test
+    void testGetOrIssueInvoiceForExport_IssuesFirst() {
+        // Arrange: the export runs without a logged-in user
+        when(invoiceRepository.findLatestIdByMachineId(1L)).thenReturn(Optional.empty());
+        when(machineService.getMachineById(1L)).thenReturn(machine);
+        when(invoiceCounterRepository.findLastNumber(2L)).thenReturn(3L);
+        when(invoiceRepository.save(any(Invoice.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        // Act
+        Invoice invoice = invoiceServiceImpl.getOrIssueInvoiceForExport(1L, "Jane Roe");
+
+        // Assert
+        assertEquals(3L, invoice.getInvoiceNumber());
+        assertEquals("Jane Roe", invoice.getIssuedBy());
+        assertEquals(1, invoice.getLines().size());
+        verifyNoInteractions(userService);
+    }
+
+    @Test
+    void testGetInvoiceForUser() {
+        // Arrange
+        Invoice invoice = Invoice.builder().id(9L).companyId(2L).build();
+        when(invoiceRepository.findWithLinesById(9L)).thenReturn(Optional.of(invoice));
+
+        // Act and Assert
+        assertSame(invoice, invoiceServiceImpl.getInvoiceForUser(loggedInUser, 9L));
+    }
+
+    @Test
+    void testGetInvoiceForUser_OtherCompany() {
+        // Arrange
+        UserSnapshot otherCompanyUser = userOfCompany(3L);
+        when(invoiceRepository.findWithLinesById(9L)).thenReturn(Optional.of(Invoice.builder().id(9L).companyId(2L).build()));
+
+        // Act and Assert
+        assertThrows(AccessDeniedException.class, () -> invoiceServiceImpl.getInvoiceForUser(otherCompanyUser, 9L));
+    }
+
+    @Test
+    void testGetInvoiceForUser_NotFound() {
+        when(invoiceRepository.findWithLinesById(9L)).thenReturn(Optional.empty());
+
+        // Act and Assert
+        assertThrows(InvoiceNotFoundException.class, () -> invoiceServiceImpl.getInvoiceForUser(loggedInUser, 9L));
+    }
+
+    private static UserSnapshot userOfCompany(Long companyId) {
+        return new UserSnapshot(1L, "john@example.com", "John", "Doe", Set.of("COMPANY_USER"), Set.of(companyId), 0);
+    }
+}
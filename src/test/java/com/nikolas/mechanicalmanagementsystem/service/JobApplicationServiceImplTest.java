@@ -1,9 +1,13 @@
 package com.nikolas.mechanicalmanagementsystem.service;
 
+import com.nikolas.mechanicalmanagementsystem.dtos.CompanyDirectoryPage;
+import com.nikolas.mechanicalmanagementsystem.dtos.CompanyDirectoryRow;
+import com.nikolas.mechanicalmanagementsystem.dtos.CompanyDirectorySort;
 import com.nikolas.mechanicalmanagementsystem.entity.Company;
 import com.nikolas.mechanicalmanagementsystem.entity.JobApplication;
 import com.nikolas.mechanicalmanagementsystem.entity.User;
 import com.nikolas.mechanicalmanagementsystem.exception.AlreadyAppliedException;
+import com.nikolas.mechanicalmanagementsystem.repository.CompanyRepository;
 import com.nikolas.mechanicalmanagementsystem.repository.JobApplicationRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -11,10 +15,12 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.test.context.ActiveProfiles;
 
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
@@ -33,6 +39,8 @@ class JobApplicationServiceImplTest {
     private UserService userService;
     @Mock
     private CompanyService companyService;
+    @Mock
+    private CompanyRepository companyRepository;
 
     private static User user;
     private static Company company1;
@@ -87,22 +95,40 @@ class JobApplicationServiceImplTest {
     @Test
     void testGetCompaniesICanJoin() {
         // Arrange
-        List<Company> allCompanies = new ArrayList<>();
-        Company company2 = new Company();
-        allCompanies.add(company1);
-        allCompanies.add(company2);
+        user.setId(1L);
+        List<CompanyDirectoryRow> rows = List.of(
+                new CompanyDirectoryRow(2L, "Alpha", "Hungary", "Budapest", "Main street", 1000),
+                new CompanyDirectoryRow(3L, "Beta", "Austria", "Vienna", "Ring", 1010));
+        PageRequest pageRequest = PageRequest.of(1, 2, Sort.by(Sort.Direction.DESC, "country").and(Sort.by(Sort.Direction.ASC, "id")));
+        when(companyRepository.findJoinableByUserId(1L, pageRequest)).thenReturn(new PageImpl<>(rows, pageRequest, 5));
 
-        when(companyService.getAllCompanies()).thenReturn(allCompanies);
-        when(jobApplicationServiceImpl.findByEmployeeAndCompany(any(User.class), any(Company.class)))
-                .thenAnswer(invocation -> Optional.empty());
+        // Act
+        CompanyDirectoryPage companiesICanJoin = jobApplicationServiceImpl.getCompaniesICanJoin(user, CompanyDirectorySort.COUNTRY, Sort.Direction.DESC, 1, 2);
+
+        // Assert: one query for the page, the companies are not checked one by one
+        assertEquals(rows, companiesICanJoin.getRows());
+        assertEquals(3, companiesICanJoin.getTotalPages());
+        assertTrue(companiesICanJoin.hasNext());
+        assertTrue(companiesICanJoin.hasPrevious());
+        verifyNoInteractions(jobApplicationRepository, companyService);
+    }
+
+    @Test
+    void testGetCompaniesICanJoin_Defaults() {
+        // Arrange
+        user.setId(1L);
+        PageRequest pageRequest = PageRequest.of(0, JobApplicationServiceImpl.MAX_PAGE_SIZE,
+                Sort.by(Sort.Direction.ASC, "companyName").and(Sort.by(Sort.Direction.ASC, "id")));
+        when(companyRepository.findJoinableByUserId(1L, pageRequest)).thenReturn(new PageImpl<>(List.of(), pageRequest, 0));
 
         // Act
-        List<Company> companiesICanJoin = jobApplicationServiceImpl.getCompaniesICanJoin(user);
+        CompanyDirectoryPage companiesICanJoin = jobApplicationServiceImpl.getCompaniesICanJoin(user, null, null, -1, 10_000);
 
         // Assert
-        assertEquals(2, companiesICanJoin.size());
-        assertTrue(companiesICanJoin.contains(company1));
-        assertTrue(companiesICanJoin.contains(company2));
+        assertEquals(CompanyDirectorySort.NAME, companiesICanJoin.getSort());
+        assertEquals(Sort.Direction.ASC, companiesICanJoin.getDirection());
+        assertFalse(companiesICanJoin.hasNext());
+        assertFalse(companiesICanJoin.hasPrevious());
     }
 
     @Test
@@ -0,0 +1,87 @@
+package com.nikolas.mechanicalmanagementsystem.service;
+
+import com.nikolas.mechanicalmanagementsystem.dtos.MachineOwnership;
+import com.nikolas.mechanicalmanagementsystem.exception.MachineNotFoundException;
+import com.nikolas.mechanicalmanagementsystem.exception.NotFoundException;
+import com.nikolas.mechanicalmanagementsystem.repository.ImagesRepository;
+import com.nikolas.mechanicalmanagementsystem.repository.MachineRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ActiveProfiles("test")
+@ExtendWith(MockitoExtension.class)
+class MachineOwnershipCacheTest {
+    @InjectMocks
+    private MachineOwnershipCache machineOwnershipCache;
+    @Mock
+    private MachineRepository machineRepository;
+    @Mock
+    private ImagesRepository imagesRepository;
+
+    @Test
+    void testGetOwnership_ReadOnce() {
+        // Arrange
+        when(machineRepository.findOwnershipById(1L)).thenReturn(Optional.of(new MachineOwnership(1L, 2L, true)));
+
+        // Act
+        machineOwnershipCache.getOwnership(1L);
+        MachineOwnership ownership = machineOwnershipCache.getOwnership(1L);
+
+        // Assert
+        assertEquals(2L, ownership.getCompanyId());
+        assertTrue(ownership.isActive());
+        verify(machineRepository, times(1)).findOwnershipById(1L);
+    }
+
+    @Test
+    void testGetOwnership_ReadAgainAfterEviction() {
+        // Arrange
+        when(machineRepository.findOwnershipById(1L)).thenReturn(
+                Optional.of(new MachineOwnership(1L, 2L, true)), Optional.of(new MachineOwnership(1L, 2L, false)));
+        machineOwnershipCache.getOwnership(1L);
+
+        // Act
+        machineOwnershipCache.evictMachine(1L);
+
+        // Assert
+        assertFalse(machineOwnershipCache.getOwnership(1L).isActive());
+        verify(machineRepository, times(2)).findOwnershipById(1L);
+    }
+
+    @Test
+    void testGetOwnership_NotFound() {
+        // Arrange
+        when(machineRepository.findOwnershipById(1L)).thenReturn(Optional.empty());
+
+        // Act and Assert: missing machines are not cached
+        assertThrows(MachineNotFoundException.class, () -> machineOwnershipCache.getOwnership(1L));
+        assertThrows(MachineNotFoundException.class, () -> machineOwnershipCache.getOwnership(1L));
+        verify(machineRepository, times(2)).findOwnershipById(1L);
+    }
+
+    @Test
+    void testGetMachineIdOfImage() {
+        // Arrange
+        when(imagesRepository.findMachineIdById(5L)).thenReturn(Optional.of(1L));
+
+        // Act
+        machineOwnershipCache.getMachineIdOfImage(5L);
+        machineOwnershipCache.evictImage(6L);
+        Long machineId = machineOwnershipCache.getMachineIdOfImage(5L);
+
+        // Assert
+        assertEquals(1L, machineId);
+        verify(imagesRepository, times(1)).findMachineIdById(5L);
+        when(imagesRepository.findMachineIdById(6L)).thenReturn(Optional.empty());
+        assertThrows(NotFoundException.class, () -> machineOwnershipCache.getMachineIdOfImage(6L));
+    }
+}
@@ -1,19 +1,25 @@
 package com.nikolas.mechanicalmanagementsystem.service;
 
+import com.nikolas.mechanicalmanagementsystem.entity.Company;
 import com.nikolas.mechanicalmanagementsystem.entity.Machine;
 import com.nikolas.mechanicalmanagementsystem.entity.MachinePart;
-import com.nikolas.mechanicalmanagementsystem.repository.MachineRepository;
+import com.nikolas.mechanicalmanagementsystem.repository.MachinePartRepository;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.test.context.ActiveProfiles;
 
 import java.math.BigDecimal;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ActiveProfiles("test")
@@ -22,33 +28,33 @@ class MachinePartServiceImplTest {
     @InjectMocks
     private MachinePartServiceImpl machinePartServiceImpl;
     @Mock
-    private MachineRepository machineRepository;
+    private MachinePartRepository machinePartRepository;
     @Mock
     private MachineService machineService;
+    @Mock
+    private PartCatalogService partCatalogService;
 
     @Test
     void testAddMachinePartToMachine() {
         // Arrange
-        Machine machine = new Machine();
-        machine.setMachineBrand("Renault");
-        machine.setMachineModel("Megane");
-        machine.setTaxInPercent(new BigDecimal("20"));
+        Machine machine = createMachine();
 
         MachinePart machinePart = new MachinePart();
         machinePart.setPartName("Test Part");
         machinePart.setPartPrice(new BigDecimal("100"));
-        when(machineRepository.save(any())).thenReturn(machine);
 
         // Act
         machinePartServiceImpl.addMachinePartToMachine(machine, machinePart);
 
         // Assert
-        verify(machineRepository, times(1)).save(any(Machine.class));
-        verify(machineService, times(1)).updateMachine(machine);
+        verify(machineService, times(1)).applyPartsSumDelta(machine, new BigDecimal("120.00"));
+        verify(machineService, never()).updateMachine(any());
 
         // Verify the new machine part details
-        assertEquals(1, machine.getMachineParts().size());
-        MachinePart newMachinePart = machine.getMachineParts().get(0);
+        List<MachinePart> savedParts = captureSavedParts();
+        assertEquals(1, savedParts.size());
+        MachinePart newMachinePart = savedParts.get(0);
+        assertEquals(machine, newMachinePart.getMachine());
         assertEquals("Test Part", newMachinePart.getPartName());
         assertEquals(new BigDecimal("100"), newMachinePart.getPartPrice());
         assertEquals(new BigDecimal("20"), newMachinePart.getTaxInPercent());
@@ -56,4 +62,90 @@ class MachinePartServiceImplTest {
         assertEquals(new BigDecimal("120.00"), newMachinePart.getPartPriceWithTax());
     }
 
-}
\ No newline at end of file
+    @Test
+    void testAddMachinePartsAppliesTheSumOnce() {
+        // Arrange
+        Machine machine = createMachine();
+
+        // Act
+        int added = machinePartServiceImpl.addMachineParts(machine, List.of(
+                createPart("Oil filter", "10"), createPart("Brake pads", "40.50")));
+
+        // Assert
+        assertEquals(2, added);
+        assertEquals(2, captureSavedParts().size());
+        verify(machineService, times(1)).applyPartsSumDelta(machine, new BigDecimal("60.6000"));
+        verify(partCatalogService, times(1)).partsAdded(eq(1L), anyList());
+    }
+
+    @Test
+    void testAddMachinePartsRejectsNegativePrice() {
+        // Arrange
+        Machine machine = createMachine();
+
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> machinePartServiceImpl.addMachineParts(machine,
+                List.of(createPart("Oil filter", "10"), createPart("Brake pads", "-1"))));
+        verifyNoInteractions(machinePartRepository, machineService, partCatalogService);
+    }
+
+    @Test
+    void testAddMachinePartsFromCsv() {
+        // Arrange
+        Machine machine = createMachine();
+        String csv = "Oil filter;12,50\n\nBrake pads, front\t45\r\nWiper, rear,7.5\n";
+
+        // Act
+        int added = machinePartServiceImpl.addMachinePartsFromCsv(machine, csv);
+
+        // Assert
+        assertEquals(3, added);
+        List<MachinePart> savedParts = captureSavedParts();
+        assertEquals("Oil filter", savedParts.get(0).getPartName());
+        assertEquals(new BigDecimal("12.50"), savedParts.get(0).getPartPrice());
+        assertEquals("Brake pads, front", savedParts.get(1).getPartName());
+        assertEquals(new BigDecimal("45"), savedParts.get(1).getPartPrice());
+        assertEquals("Wiper, rear", savedParts.get(2).getPartName());
+        assertEquals(new BigDecimal("7.5"), savedParts.get(2).getPartPrice());
+    }
+
+    @Test
+    void testAddMachinePartsFromCsvReportsInvalidLine() {
+        // Arrange
+        Machine machine = createMachine();
+
+        // Act
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> machinePartServiceImpl.addMachinePartsFromCsv(machine, "Oil filter;12\nBrake pads;abc"));
+
+        // Assert
+        assertEquals("Line 2: invalid price abc", e.getMessage());
+        verifyNoInteractions(machinePartRepository, machineService, partCatalogService);
+    }
+
+    private static Machine createMachine() {
+        Company company = new Company();
+        company.setId(1L);
+        Machine machine = new Machine();
+        machine.setCompany(company);
+        machine.setMachineBrand("Renault");
+        machine.setMachineModel("Megane");
+        machine.setTaxInPercent(new BigDecimal("20"));
+        return machine;
+    }
+
+    private static MachinePart createPart(String name, String price) {
+        MachinePart machinePart = new MachinePart();
+        machinePart.setPartName(name);
+        machinePart.setPartPrice(new BigDecimal(price));
+        return machinePart;
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<MachinePart> captureSavedParts() {
+        ArgumentCaptor<List<MachinePart>> captor = ArgumentCaptor.forClass(List.class);
+        verify(machinePartRepository).saveAll(captor.capture());
+        return captor.getValue();
+    }
+
+}
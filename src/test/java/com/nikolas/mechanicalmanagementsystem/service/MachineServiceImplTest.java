@@ -1,20 +1,27 @@
 package com.nikolas.mechanicalmanagementsystem.service;
 
+import com.nikolas.mechanicalmanagementsystem.dtos.*;
 import com.nikolas.mechanicalmanagementsystem.entity.*;
 import com.nikolas.mechanicalmanagementsystem.exception.MachineNotFoundException;
 import com.nikolas.mechanicalmanagementsystem.exception.NotFoundException;
 import com.nikolas.mechanicalmanagementsystem.repository.MachinePartRepository;
+import com.nikolas.mechanicalmanagementsystem.repository.MachineReportRepository;
 import com.nikolas.mechanicalmanagementsystem.repository.MachineRepository;
+import com.nikolas.mechanicalmanagementsystem.security.UserSnapshot;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Sort;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionOperations;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.*;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -25,12 +32,20 @@ import static org.mockito.Mockito.*;
 class MachineServiceImplTest {
     @InjectMocks
     private MachineServiceImpl machineServiceImpl;
+    @Spy
+    private OptimisticLockRetry optimisticLockRetry = new OptimisticLockRetry(TransactionOperations.withoutTransaction());
     @Mock
     private MachineRepository machineRepository;
     @Mock
     private MachinePartRepository machinePartRepository;
+    @Mock
+    private CompanyMonthlyRollupService companyMonthlyRollupService;
+    @Mock
+    private MachineReportRepository machineReportRepository;
+    @Mock
+    private MachineOwnershipCache machineOwnershipCache;
     private static Machine testMachine;
-    private static User loggedInUser;
+    private static UserSnapshot loggedInUser;
 
     @BeforeEach
     void setUp() {
@@ -66,13 +81,15 @@ class MachineServiceImplTest {
         testCompany.setMachines(Set.of(testMachine));
         testCompany.setCompanyRoles(Set.of(companyRole));
 
-        loggedInUser = new User();
-        loggedInUser.setId(1L);
-        loggedInUser.setFirstName("John");
-        loggedInUser.setLastName("Doe");
-        loggedInUser.setEmail("loggedinuser@gmail.com");
-        loggedInUser.setRoles(roles);
-        loggedInUser.setWorkplaces(List.of(testCompany));
+        User user = new User();
+        user.setId(1L);
+        user.setFirstName("John");
+        user.setLastName("Doe");
+        user.setEmail("loggedinuser@gmail.com");
+        user.setRoles(roles);
+        user.setWorkplaces(List.of(testCompany));
+        // The company role gives access to the test company
+        loggedInUser = UserSnapshot.of(user, List.of(testCompany.getId()), 0);
 
     }
 
@@ -100,6 +117,7 @@ class MachineServiceImplTest {
     @Test
     void testGetMachineForUser() {
         // Arrange
+        when(machineOwnershipCache.getOwnership(testMachine.getId())).thenReturn(new MachineOwnership(1L, 1L, true));
         when(machineRepository.findById(testMachine.getId())).thenReturn(Optional.of(testMachine));
 
         // Act
@@ -113,25 +131,39 @@ class MachineServiceImplTest {
     @Test
     void testGetMachineForUser_AccessDenied() {
         // Arrange
-        testMachine.setActive(false);
-        when(machineRepository.findById(testMachine.getId())).thenReturn(Optional.of(testMachine));
+        when(machineOwnershipCache.getOwnership(testMachine.getId())).thenReturn(new MachineOwnership(1L, 1L, false));
 
-        // Assert
+        // Assert: the inactive machine is rejected before it is loaded
         assertThrows(AccessDeniedException.class, () -> machineServiceImpl.getMachineForUser(loggedInUser, testMachine.getId()));
-        verify(machineRepository, times(1)).findById(testMachine.getId());
+        verify(machineRepository, never()).findById(anyLong());
     }
 
     @Test
-    void testCheckAccessRights_WithAccess() {
+    void testCheckAccessToMachine_WithAccess() {
+        // Arrange
+        when(machineOwnershipCache.getOwnership(1L)).thenReturn(new MachineOwnership(1L, 1L, true));
+
+        // Act and Assert
+        assertDoesNotThrow(() -> machineServiceImpl.checkAccessToMachine(loggedInUser, 1L));
+        verifyNoInteractions(machineRepository);
+    }
+
+    @Test
+    void testCheckAccessToMachine_WithNoAccess() {
+        // Arrange
+        when(machineOwnershipCache.getOwnership(2L)).thenReturn(new MachineOwnership(2L, 2L, true));
+
         // Act and Assert
-        assertDoesNotThrow(() -> machineServiceImpl.checkAccessRights(loggedInUser, testMachine));
+        assertThrows(AccessDeniedException.class, () -> machineServiceImpl.checkAccessToMachine(loggedInUser, 2L));
     }
 
     @Test
-    void testCheckAccessRights_WithNoAccess() {
-        Machine newMachine = new Machine();
+    void testCheckAccessToMachine_WithoutCompany() {
+        // Arrange
+        when(machineOwnershipCache.getOwnership(2L)).thenReturn(new MachineOwnership(2L, null, true));
+
         // Act and Assert
-        assertThrows(AccessDeniedException.class, () -> machineServiceImpl.checkAccessRights(loggedInUser, newMachine));
+        assertThrows(AccessDeniedException.class, () -> machineServiceImpl.checkAccessToMachine(loggedInUser, 2L));
     }
 
     @Test
@@ -144,6 +176,7 @@ class MachineServiceImplTest {
         updatedMachine.setMachineModel("NewModel");
         updatedMachine.setDescription("NewDescription");
         updatedMachine.setChargedAmount(BigDecimal.valueOf(200.0));
+        testMachine.setMachinePartsSum(BigDecimal.valueOf(50.0));
 
         when(machineRepository.findById(1L)).thenReturn(Optional.of(testMachine));
         when(machineRepository.save(any(Machine.class))).thenReturn(updatedMachine);
@@ -153,12 +186,17 @@ class MachineServiceImplTest {
 
         // Assert
         verify(machineRepository, times(1)).findById(1L);
-        verify(machineRepository, times(2)).save(any(Machine.class));
+        verify(machineRepository, times(1)).save(any(Machine.class));
+        verify(machineRepository, times(1)).recalculateProfitById(1L);
+        // The parts are not summed again
+        verifyNoInteractions(machinePartRepository);
+        assertEquals(BigDecimal.valueOf(150.0), testMachine.getProfit());
 
         assertEquals("NewBrand", testMachine.getMachineBrand());
         assertEquals("NewModel", testMachine.getMachineModel());
         assertEquals("NewDescription", testMachine.getDescription());
         assertEquals(BigDecimal.valueOf(200.0), testMachine.getChargedAmount());
+        verify(companyMonthlyRollupService, times(1)).recordMachineChanged(any(Machine.class), any(BigDecimal.class), any(BigDecimal.class));
     }
 
     @Test
@@ -173,6 +211,8 @@ class MachineServiceImplTest {
         // Assert
         verify(machineRepository, times(1)).findById(testMachine.getId());
         verify(machineRepository, times(1)).deactivateMachine(testMachine.getId());
+        verify(machineOwnershipCache, times(1)).evictMachine(testMachine.getId());
+        verify(companyMonthlyRollupService, times(1)).recordMachineRemoved(testMachine);
     }
 
     @Test
@@ -186,6 +226,7 @@ class MachineServiceImplTest {
 
         // Verify that no interaction happened with the repository
         verify(machineRepository, never()).deactivateMachine(anyLong());
+        verifyNoInteractions(companyMonthlyRollupService);
     }
 
 
@@ -200,6 +241,7 @@ class MachineServiceImplTest {
         // Assert
         verify(machineRepository, times(1)).findById(testMachine.getId());
         verify(machineRepository, times(1)).deleteById(testMachine.getId());
+        verify(machineOwnershipCache, times(1)).evictMachine(testMachine.getId());
     }
 
     @Test
@@ -217,50 +259,41 @@ class MachineServiceImplTest {
     @Test
     void testUpdateMachinePartsTax_SuccessfulUpdate() {
         // Arrange
-        BigDecimal initialTax = BigDecimal.TEN;
-        testMachine.setTaxInPercent(initialTax);
-
-        List<MachinePart> machineParts = new ArrayList<>();
-
-        MachinePart machinePart1 = new MachinePart();
-        machinePart1.setId(1L);
-        machinePart1.setPartPrice(BigDecimal.valueOf(100));
-        machinePart1.setTaxInPercent(initialTax);
-        machineParts.add(machinePart1);
-
-        MachinePart machinePart2 = new MachinePart();
-        machinePart2.setId(2L);
-        machinePart2.setPartPrice(BigDecimal.valueOf(200));
-        machinePart2.setTaxInPercent(initialTax);
-        machineParts.add(machinePart2);
-
-        testMachine.setMachineParts(machineParts);
-
+        testMachine.setTaxInPercent(BigDecimal.TEN);
+        testMachine.setChargedAmount(BigDecimal.valueOf(500));
+        testMachine.setMachinePartsSum(BigDecimal.valueOf(330));
         BigDecimal newTax = BigDecimal.valueOf(15);
-
         when(machineRepository.findById(1L)).thenReturn(Optional.of(testMachine));
-        when(machineRepository.save(testMachine)).thenReturn(testMachine);
+        when(machinePartRepository.calculateTotalPartPriceByMachineId(1L)).thenReturn(BigDecimal.valueOf(345));
 
         // Act
-        machineServiceImpl.updateMachinePartsTax(testMachine, newTax);
+        machineServiceImpl.updateMachinePartsTax(1L, newTax);
+
+        // Assert: the parts are updated by one statement, with the rate rounded to two decimals
+        verify(machinePartRepository, times(1)).updateTaxByMachineIdIn(List.of(1L), newTax, new BigDecimal("0.15"));
+        verify(machineRepository, times(1)).updateTaxAndRecalculateSumsByIdIn(List.of(1L), newTax);
+        verify(machineRepository, never()).save(any());
+        // The amounts stored by the statements are not written back through the loaded machine
+        assertEquals(BigDecimal.TEN, testMachine.getTaxInPercent());
+        assertEquals(BigDecimal.valueOf(330), testMachine.getMachinePartsSum());
+        verify(companyMonthlyRollupService, times(1)).recordPartsSumChanged(testMachine, BigDecimal.valueOf(15));
+    }
 
-        // Assert
-        assertEquals(newTax, testMachine.getTaxInPercent());
-
-        for (MachinePart part : testMachine.getMachineParts()) {
-            BigDecimal expectedNewUnitTax = part.getPartPrice().multiply(newTax.divide(BigDecimal.valueOf(100)));
-            assertEquals(newTax, part.getTaxInPercent());
-            assertEquals(expectedNewUnitTax, part.getUnitTax());
-            assertEquals(part.getPartPrice().add(expectedNewUnitTax), part.getPartPriceWithTax());
-        }
-        // Print old and new prices
-        for (MachinePart part : testMachine.getMachineParts()) {
-            BigDecimal oldPrice = part.getPartPrice();
-            System.out.println("Old price: " + oldPrice);
-            BigDecimal newPrice = oldPrice.add(part.getUnitTax());
-            System.out.println("New price: " + newPrice);
-        }
-        verify(machineRepository, times(2)).save(testMachine);
+    @Test
+    void testApplyTaxToMachines_RoundsRate() {
+        // Act
+        machineServiceImpl.applyTaxToMachines(List.of(1L, 2L), new BigDecimal("5.5"));
+
+        // Assert: 0.055 rounded half even
+        verify(machinePartRepository, times(1)).updateTaxByMachineIdIn(List.of(1L, 2L), new BigDecimal("5.5"), new BigDecimal("0.06"));
+        verify(machineRepository, times(1)).updateTaxAndRecalculateSumsByIdIn(List.of(1L, 2L), new BigDecimal("5.5"));
+    }
+
+    @Test
+    void testApplyTaxToMachines_NoMachines() {
+        // Act and Assert
+        assertEquals(0, machineServiceImpl.applyTaxToMachines(List.of(), BigDecimal.TEN));
+        verifyNoInteractions(machinePartRepository);
     }
 
     @Test
@@ -269,7 +302,8 @@ class MachineServiceImplTest {
         BigDecimal invalidTaxRate = BigDecimal.valueOf(-10); // Invalid tax rate
 
         // Act & Assert
-        assertThrows(IllegalArgumentException.class, () -> machineServiceImpl.updateMachinePartsTax(testMachine, invalidTaxRate));
+        assertThrows(IllegalArgumentException.class, () -> machineServiceImpl.updateMachinePartsTax(1L, invalidTaxRate));
+        verifyNoInteractions(machineRepository, machinePartRepository);
     }
 
     @Test
@@ -291,110 +325,71 @@ class MachineServiceImplTest {
 
 
     @Test
-    void testCalculateTotalPartsAmountByMonthAndYearAndCompanies() {
-        // Mocking the list of machines
-        List<Machine> machines = new ArrayList<>();
-        Machine machine1 = mock(Machine.class);
-        Machine machine2 = mock(Machine.class);
-        machines.add(machine1);
-        machines.add(machine2);
-
-        // Mocking the parts sum for each machine
-        BigDecimal partsSum1 = BigDecimal.valueOf(100);
-        BigDecimal partsSum2 = BigDecimal.valueOf(200);
-        when(machine1.getMachinePartsSum()).thenReturn(partsSum1);
-        when(machine2.getMachinePartsSum()).thenReturn(partsSum2);
-
-        // Mocking the service method to return the list of machines
-        when(machineServiceImpl.getActiveMachinesByMonthAndYear(1, 2024, List.of(1L, 2L))).thenReturn(machines);
+    void testGetMonthlyMachineSummary() {
+        // Arrange
+        int year = 2024;
+        int month = 1;
+        List<Long> companyIds = List.of(1L, 2L);
+        CompanyMachineTotals company1 = new CompanyMachineTotals(1L, BigDecimal.valueOf(100), BigDecimal.valueOf(150), BigDecimal.valueOf(50), 2L);
+        CompanyMachineTotals company2 = new CompanyMachineTotals(2L, BigDecimal.valueOf(200), BigDecimal.valueOf(250), BigDecimal.valueOf(50), 1L);
+
+        // Mocking the monthly rollup
+        when(companyMonthlyRollupService.getMonthlyTotals(year, month, companyIds)).thenReturn(List.of(company1, company2));
 
         // Act
-        BigDecimal result = machineServiceImpl.calculateTotalPartsAmountByMonthAndYearAndCompanies(1, 2024, List.of(1L, 2L));
+        MonthlyMachineSummary result = machineServiceImpl.getMonthlyMachineSummary(year, month, companyIds);
 
         // Assert
-        assertEquals(BigDecimal.valueOf(300), result);
+        assertEquals(BigDecimal.valueOf(300), result.getTotalPartsAmount());
+        assertEquals(BigDecimal.valueOf(400), result.getTotalChargedAmount());
+        assertEquals(BigDecimal.valueOf(100), result.getTotalProfit());
+        assertEquals(3, result.getMachineCount());
+        assertEquals(company2, result.getCompanyTotals().get(2L));
+        verify(companyMonthlyRollupService, times(1)).getMonthlyTotals(year, month, companyIds);
+        verifyNoInteractions(machineRepository);
     }
 
     @Test
-    void testCalculateTotalChargedAmountByMonthAndYearAndCompanies() {
-
-        // Mocking the list of machines
-        List<Machine> machines = new ArrayList<>();
-        Machine machine1 = mock(Machine.class);
-        Machine machine2 = mock(Machine.class);
-        machines.add(machine1);
-        machines.add(machine2);
-
-        // Mocking the charged amounts for each machine
-        BigDecimal chargedAmount1 = BigDecimal.valueOf(100);
-        BigDecimal chargedAmount2 = BigDecimal.valueOf(200);
-        when(machine1.getChargedAmount()).thenReturn(chargedAmount1);
-        when(machine2.getChargedAmount()).thenReturn(chargedAmount2);
-
-        // Mocking the service method to return the list of machines
-        when(machineServiceImpl.getActiveMachinesByMonthAndYear(1, 2024, List.of(1L, 2L))).thenReturn(machines);
-
+    void testGetMonthlyMachineSummary_NoCompaniesSelected() {
         // Act
-        BigDecimal result = machineServiceImpl.calculateTotalChargedAmountByMonthAndYearAndCompanies(1, 2024, List.of(1L, 2L));
+        MonthlyMachineSummary result = machineServiceImpl.getMonthlyMachineSummary(2024, 1, List.of());
 
         // Assert
-        assertEquals(BigDecimal.valueOf(300), result);
+        assertEquals(BigDecimal.ZERO, result.getTotalPartsAmount());
+        assertEquals(BigDecimal.ZERO, result.getTotalChargedAmount());
+        assertEquals(BigDecimal.ZERO, result.getTotalProfit());
+        assertTrue(result.getCompanyTotals().isEmpty());
+        verifyNoInteractions(machineRepository, companyMonthlyRollupService);
     }
 
     @Test
-    void testCalculateTotalProfitByMonthAndYearAndCompanies() {
-        // Mocking the list of machines
-        List<Machine> machines = new ArrayList<>();
-        Machine machine1 = mock(Machine.class);
-        Machine machine2 = mock(Machine.class);
-        machines.add(machine1);
-        machines.add(machine2);
-
-        // Mocking the charged amounts and parts sum for each machine
-        BigDecimal chargedAmount1 = BigDecimal.valueOf(100);
-        BigDecimal partsSum1 = BigDecimal.valueOf(50);
-        BigDecimal profit1 = chargedAmount1.subtract(partsSum1);
-
-        BigDecimal chargedAmount2 = BigDecimal.valueOf(200);
-        BigDecimal partsSum2 = BigDecimal.valueOf(150);
-        BigDecimal profit2 = chargedAmount2.subtract(partsSum2);
-
-        when(machine1.getChargedAmount()).thenReturn(chargedAmount1);
-        when(machine1.getMachinePartsSum()).thenReturn(partsSum1);
-
-        when(machine2.getChargedAmount()).thenReturn(chargedAmount2);
-        when(machine2.getMachinePartsSum()).thenReturn(partsSum2);
-
-        // Mocking the service method to return the list of machines
-        when(machineServiceImpl.getActiveMachinesByMonthAndYear(1, 2024, List.of(1L, 2L))).thenReturn(machines);
+    void testGetYearlyMachineReport() {
+        // Arrange
+        List<Long> companyIds = List.of(1L, 2L);
+        when(machineReportRepository.findYearlyTotals(companyIds, 2023, 2024)).thenReturn(List.of(
+                new CompanyYearTotals(1L, 2023, new BigDecimal("100.25"), new BigDecimal("150.00"), new BigDecimal("49.75"), 2),
+                new CompanyYearTotals(2L, 2024, new BigDecimal("200.10"), new BigDecimal("250.20"), new BigDecimal("50.10"), 1)));
 
         // Act
-        BigDecimal result = machineServiceImpl.calculateTotalProfitByMonthAndYearAndCompanies(1, 2024, List.of(1L, 2L));
+        YearlyMachineReport result = machineServiceImpl.getYearlyMachineReport(2023, 2024, companyIds);
 
         // Assert
-        assertEquals(profit1.add(profit2), result);
+        assertEquals(2, result.getRows().size());
+        assertEquals(new BigDecimal("300.35"), result.getTotalPartsAmount());
+        assertEquals(new BigDecimal("400.20"), result.getTotalChargedAmount());
+        assertEquals(new BigDecimal("99.85"), result.getTotalProfit());
+        assertEquals(3, result.getMachineCount());
     }
 
     @Test
-    void testGetActiveMachinesByMonthAndYear() {
-        Integer selectedMonth = 1;
-        Integer selectedYear = 2024;
-        List<Long> selectedCompanies = List.of(1L, 2L);
-
-        List<Machine> expectedMachines = new ArrayList<>();
-        Machine machine1 = new Machine();
-        Machine machine2 = new Machine();
-        expectedMachines.add(machine1);
-        expectedMachines.add(machine2);
-
-        // Mocking the repository method to return the list of machines
-        when(machineRepository.findByYearAndMonthAndCompanyIdInAndIsActive(selectedMonth, selectedYear, selectedCompanies, true)).thenReturn(expectedMachines);
-
+    void testGetYearlyMachineReport_NoCompaniesSelected() {
         // Act
-        List<Machine> result = machineServiceImpl.getActiveMachinesByMonthAndYear(selectedMonth, selectedYear, selectedCompanies);
+        YearlyMachineReport result = machineServiceImpl.getYearlyMachineReport(2023, 2024, List.of());
 
         // Assert
-        assertEquals(expectedMachines, result);
+        assertTrue(result.getRows().isEmpty());
+        assertEquals(new BigDecimal("0.00"), result.getTotalProfit());
+        verifyNoInteractions(machineReportRepository);
     }
 
     @Test
@@ -403,21 +398,33 @@ class MachineServiceImplTest {
         MachinePart machinePart = new MachinePart();
         machinePart.setId(2L);
         machinePart.setPartName("Breaks");
+        machinePart.setPartPriceWithTax(new BigDecimal("36.00"));
         machineParts.add(machinePart);
         testMachine.setMachineParts(machineParts);
 
         // Mocking repository methods
         when(machineRepository.findById(testMachine.getId())).thenReturn(Optional.of(testMachine));
         when(machinePartRepository.findById(machinePart.getId())).thenReturn(Optional.of(machinePart));
-        when(machineRepository.save(testMachine)).thenReturn(testMachine);
 
         // Act
         machineServiceImpl.deleteMachinePart(testMachine.getId(), machinePart.getId());
 
-        // Assert
+        // Assert: the price of the part is subtracted, the remaining parts are not summed
         assertFalse(testMachine.getMachineParts().contains(machinePart));
         verify(machinePartRepository, times(1)).delete(machinePart);
-        verify(machineRepository, times(2)).save(testMachine);
+        verify(machineRepository, times(1)).addToPartsSum(1L, new BigDecimal("-36.00"));
+        verify(companyMonthlyRollupService, times(1)).recordPartsSumChanged(testMachine, new BigDecimal("-36.00"));
+        verify(machinePartRepository, never()).calculateTotalPartPriceByMachineId(anyLong());
+        verify(machineRepository, never()).save(any());
+    }
+
+    @Test
+    void testApplyPartsSumDelta_NoChange() {
+        // Act
+        machineServiceImpl.applyPartsSumDelta(testMachine, BigDecimal.ZERO);
+
+        // Assert
+        verifyNoInteractions(machineRepository, companyMonthlyRollupService);
     }
 
     @Test
@@ -435,91 +442,94 @@ class MachineServiceImplTest {
     }
 
     @Test
-    void testConvertImagesToBase64() {
+    void testGetActiveMachinesByYearMonthAndCompanyId() {
         // Arrange
-        Images image1 = new Images();
-        Images image2 = new Images();
-        byte[] imageData1 = "Test image data 1".getBytes();
-        byte[] imageData2 = "Test image data 2".getBytes();
-        image1.setPicByte(imageData1);
-        image2.setPicByte(imageData2);
-        List<Images> images = new ArrayList<>();
-        images.add(image1);
-        images.add(image2);
         Machine machine = new Machine();
-        machine.setImages(images);
+        machine.setActive(false);
+        int year = 2024;
+        int month = 3;
+        List<Long> companyIds = Arrays.asList(1L, 2L, 3L);
+        List<Machine> expectedActiveMachines = Collections.singletonList(testMachine);
+        List<Machine> expectedInactiveMachines = List.of(machine);
+
+        // Mocking repository behavior
+        when(machineRepository.findByYearAndMonthAndCompanyIdInAndIsActive(year, month, companyIds, true))
+                .thenReturn(expectedActiveMachines);
 
         // Act
-        machineServiceImpl.convertImagesToBase64(machine);
+        List<Machine> resultActive = machineServiceImpl.getActiveMachinesByYearMonthAndCompanyId(year, month, companyIds);
 
         // Assert
-        for (Images image : machine.getImages()) {
-            String expectedBase64 = Base64.getEncoder().encodeToString(image.getPicByte());
-            assertEquals(expectedBase64, image.getBase64Image());
-        }
+        assertEquals(expectedActiveMachines, resultActive);
+        assertNotEquals(expectedActiveMachines, expectedInactiveMachines);
+        verify(machineRepository, times(1)).findByYearAndMonthAndCompanyIdInAndIsActive(year, month, companyIds, true);
+        verify(machineRepository, times(0)).findByYearAndMonthAndCompanyIdInAndIsActive(year, month, companyIds, false);
     }
 
     @Test
-    void testConvertImagesToBase64_ImageDataNull() {
+    void testGetActiveMachinePage_HasNextPage() {
         // Arrange
-        List<Images> images = new ArrayList<>();
-        Images image = new Images();
-        image.setPicByte(null); // Null imageData
-        images.add(image);
-        Machine machine = new Machine();
-        machine.setImages(images);
+        List<Long> companyIds = List.of(1L);
+        MachineListRow row1 = new MachineListRow(3L, "A", "A", BigDecimal.ONE, BigDecimal.TEN, BigDecimal.valueOf(9), LocalDateTime.of(2024, 1, 3, 0, 0), null, "Hungary");
+        MachineListRow row2 = new MachineListRow(2L, "B", "B", BigDecimal.ONE, BigDecimal.TEN, BigDecimal.valueOf(7), LocalDateTime.of(2024, 1, 2, 0, 0), null, "Hungary");
+        MachineListRow row3 = new MachineListRow(1L, "C", "C", BigDecimal.ONE, BigDecimal.TEN, BigDecimal.valueOf(5), LocalDateTime.of(2024, 1, 1, 0, 0), null, "Hungary");
+        when(machineRepository.findActiveMachineRowsByYearAndMonth(2024, 1, companyIds, MachineListSort.PROFIT, Sort.Direction.DESC, null, 3))
+                .thenReturn(new ArrayList<>(List.of(row1, row2, row3)));
 
-        // Act and Assert
-        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () -> machineServiceImpl.convertImagesToBase64(machine));
+        // Act
+        MachineListPage page = machineServiceImpl.getActiveMachinePage(2024, 1, companyIds, MachineListSort.PROFIT, Sort.Direction.DESC, null, 2);
 
         // Assert
-        String expectedMessage = "Image data is null or empty.";
-        String actualMessage = exception.getMessage();
-        assert actualMessage.contains(expectedMessage);
+        assertEquals(List.of(row1, row2), page.getRows());
+        assertTrue(page.hasNext());
+        MachineListCursor cursor = MachineListCursor.decode(page.getNextCursor(), MachineListSort.PROFIT);
+        assertEquals(BigDecimal.valueOf(7), cursor.getSortValue());
+        assertEquals(2L, cursor.getId());
     }
 
     @Test
-    void testConvertImagesToBase64_ImageDataEmpty() {
+    void testGetActiveMachinePage_LastPageWithCursor() {
         // Arrange
-        List<Images> images = new ArrayList<>();
-        Machine machine = new Machine();
-        machine.setImages(images);
-        Images image = new Images();
-        images.add(image);
-        image.setPicByte(new byte[0]); // Empty imageData
+        List<Long> companyIds = List.of(1L);
+        LocalDateTime registrationDate = LocalDateTime.of(2024, 1, 2, 10, 30);
+        MachineListRow row = new MachineListRow(1L, "C", "C", BigDecimal.ONE, BigDecimal.TEN, BigDecimal.valueOf(5), registrationDate, null, "Hungary");
+        String cursor = new MachineListCursor(registrationDate, 2L).encode();
+        when(machineRepository.findActiveMachineRowsByYearAndMonth(eq(2024), eq(1), eq(companyIds), eq(MachineListSort.DATE), eq(Sort.Direction.DESC), any(MachineListCursor.class), eq(51)))
+                .thenReturn(List.of(row));
 
-        // Act and Assert
-        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () -> machineServiceImpl.convertImagesToBase64(machine));
+        // Act
+        MachineListPage page = machineServiceImpl.getActiveMachinePage(2024, 1, companyIds, null, null, cursor, 50);
 
         // Assert
-        String expectedMessage = "Image data is null or empty.";
-        String actualMessage = exception.getMessage();
-        assert actualMessage.contains(expectedMessage);
+        assertEquals(List.of(row), page.getRows());
+        assertFalse(page.hasNext());
+        assertEquals(MachineListSort.DATE, page.getSort());
+        assertEquals(Sort.Direction.DESC, page.getDirection());
     }
 
     @Test
-    void testGetActiveMachinesByYearMonthAndCompanyId() {
+    void testGetActiveMachinePage_InvalidCursorStartsFromFirstPage() {
         // Arrange
-        Machine machine = new Machine();
-        machine.setActive(false);
-        int year = 2024;
-        int month = 3;
-        List<Long> companyIds = Arrays.asList(1L, 2L, 3L);
-        List<Machine> expectedActiveMachines = Collections.singletonList(testMachine);
-        List<Machine> expectedInactiveMachines = List.of(machine);
+        List<Long> companyIds = List.of(1L);
+        when(machineRepository.findActiveMachineRowsByYearAndMonth(2024, 1, companyIds, MachineListSort.CHARGED, Sort.Direction.ASC, null, 11))
+                .thenReturn(List.of());
 
-        // Mocking repository behavior
-        when(machineRepository.findByYearAndMonthAndCompanyIdInAndIsActive(year, month, companyIds, true))
-                .thenReturn(expectedActiveMachines);
+        // Act
+        MachineListPage page = machineServiceImpl.getActiveMachinePage(2024, 1, companyIds, MachineListSort.CHARGED, Sort.Direction.ASC, "not-a-cursor", 10);
+
+        // Assert
+        assertTrue(page.getRows().isEmpty());
+        assertFalse(page.hasNext());
+    }
 
+    @Test
+    void testGetActiveMachinePage_NoCompaniesSelected() {
         // Act
-        List<Machine> resultActive = machineServiceImpl.getActiveMachinesByYearMonthAndCompanyId(year, month, companyIds);
+        MachineListPage page = machineServiceImpl.getActiveMachinePage(2024, 1, List.of(), null, null, null, 50);
 
         // Assert
-        assertEquals(expectedActiveMachines, resultActive);
-        assertNotEquals(expectedActiveMachines, expectedInactiveMachines);
-        verify(machineRepository, times(1)).findByYearAndMonthAndCompanyIdInAndIsActive(year, month, companyIds, true);
-        verify(machineRepository, times(0)).findByYearAndMonthAndCompanyIdInAndIsActive(year, month, companyIds, false);
+        assertTrue(page.getRows().isEmpty());
+        verifyNoInteractions(machineRepository);
     }
 
     @Test
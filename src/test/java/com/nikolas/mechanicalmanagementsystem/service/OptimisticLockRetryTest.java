@@ -0,0 +1,67 @@
+package com.nikolas.mechanicalmanagementsystem.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionOperations;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@ActiveProfiles("test")
+class OptimisticLockRetryTest {
+
+    private final OptimisticLockRetry optimisticLockRetry = new OptimisticLockRetry(TransactionOperations.withoutTransaction());
+
+    @Test
+    void testExecuteRetriesAfterConcurrentChange() {
+        // Arrange
+        AtomicInteger attempts = new AtomicInteger();
+
+        // Act
+        String result = optimisticLockRetry.execute("test", () -> {
+            if (attempts.incrementAndGet() < 3) {
+                throw new ObjectOptimisticLockingFailureException("Machine", 1L);
+            }
+            return "done";
+        });
+
+        // Assert
+        assertEquals("done", result);
+        assertEquals(3, attempts.get());
+    }
+
+    @Test
+    void testExecuteGivesUpAfterMaxAttempts() {
+        // Arrange
+        AtomicInteger attempts = new AtomicInteger();
+
+        // Act & Assert
+        assertThrows(ObjectOptimisticLockingFailureException.class, () -> optimisticLockRetry.run("test", () -> {
+            attempts.incrementAndGet();
+            throw new ObjectOptimisticLockingFailureException("Machine", 1L);
+        }));
+        assertEquals(3, attempts.get());
+    }
+
+    @Test
+    void testExecuteDoesNotRetryInsideTransactionOfCaller() {
+        // Arrange
+        AtomicInteger attempts = new AtomicInteger();
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+
+        // Act & Assert
+        try {
+            assertThrows(ObjectOptimisticLockingFailureException.class, () -> optimisticLockRetry.run("test", () -> {
+                attempts.incrementAndGet();
+                throw new ObjectOptimisticLockingFailureException("Machine", 1L);
+            }));
+        } finally {
+            TransactionSynchronizationManager.setActualTransactionActive(false);
+        }
+        assertEquals(1, attempts.get());
+    }
+}
@@ -0,0 +1,189 @@
+package com.nikolas.mechanicalmanagementsystem.service;
+
+import com.nikolas.mechanicalmanagementsystem.entity.Company;
+import com.nikolas.mechanicalmanagementsystem.entity.JobApplication;
+import com.nikolas.mechanicalmanagementsystem.entity.Machine;
+import com.nikolas.mechanicalmanagementsystem.entity.User;
+import com.nikolas.mechanicalmanagementsystem.repository.*;
+import com.nikolas.mechanicalmanagementsystem.security.PrincipalVersionRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionOperations;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+
+/**
+ * Concurrent writers of the same machine and company, on an in-memory database with real transactions: every update
+ * must be kept, the conflicting ones are retried by {@link OptimisticLockRetry}.
+ */
+@ActiveProfiles("test")
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({MachineServiceImpl.class, MachineOwnershipCache.class, CompanyServiceImpl.class, OptimisticLockRetry.class, PrincipalVersionRegistry.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:stress;MODE=MySQL;NON_KEYWORDS=USER,YEAR,MONTH,VALUE;DATABASE_TO_LOWER=TRUE",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.auto_quote_keyword=true",
+        "spring.sql.init.mode=never",
+        "app.optimistic-lock.max-attempts=100",
+        "app.optimistic-lock.backoff-millis=5"
+})
+class OptimisticLockingStressTest {
+
+    private static final int THREADS = 8;
+    private static final int UPDATES_PER_THREAD = 10;
+
+    @Autowired
+    private MachineService machineService;
+    @Autowired
+    private CompanyService companyService;
+    @Autowired
+    private MachineRepository machineRepository;
+    @Autowired
+    private CompanyRepository companyRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private JobApplicationRepository jobApplicationRepository;
+    @Autowired
+    private TransactionOperations transactionOperations;
+
+    @MockBean
+    private CompanyMonthlyRollupService companyMonthlyRollupService;
+    @MockBean
+    private MachineReportRepository machineReportRepository;
+    @MockBean
+    private UserService userService;
+    @MockBean
+    private InvoiceService invoiceService;
+    @MockBean
+    private PasswordEncoder passwordEncoder;
+    @MockBean
+    private CompanySearchService companySearchService;
+
+    @Test
+    void testConcurrentMachineUpdatesKeepTheRollupDifferences() throws Exception {
+        // Arrange
+        Company company = companyRepository.save(createCompany());
+        Machine newMachine = new Machine();
+        newMachine.setMachineBrand("Renault");
+        newMachine.setMachineModel("Megane");
+        newMachine.setCompany(company);
+        Long machineId = machineRepository.save(newMachine).getId();
+
+        // The charged amount differences sent to the rollup by the committed updates
+        BigDecimal[] committedDifference = {BigDecimal.ZERO};
+        doAnswer(invocation -> {
+            Machine machine = invocation.getArgument(0);
+            BigDecimal difference = machine.getChargedAmount().subtract(invocation.getArgument(2, BigDecimal.class));
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    synchronized (committedDifference) {
+                        committedDifference[0] = committedDifference[0].add(difference);
+                    }
+                }
+            });
+            return null;
+        }).when(companyMonthlyRollupService).recordMachineChanged(any(), any(), any());
+
+        // Act
+        runConcurrently(THREADS, thread -> {
+            for (int i = 0; i < UPDATES_PER_THREAD; i++) {
+                Machine form = new Machine();
+                form.setId(machineId);
+                form.setMachineBrand("Renault");
+                form.setMachineModel("Megane");
+                form.setChargedAmount(BigDecimal.valueOf(thread * 1000L + i));
+                machineService.updateMachine(form);
+            }
+        });
+
+        // Assert
+        Machine machine = machineRepository.findById(machineId).orElseThrow();
+        assertEquals(0, machine.getChargedAmount().compareTo(committedDifference[0]));
+        assertEquals(THREADS * UPDATES_PER_THREAD, machine.getVersion().intValue());
+    }
+
+    @Test
+    void testConcurrentlyAcceptedApplicationsAreAllKept() throws Exception {
+        // Arrange
+        Company company = companyRepository.save(createCompany());
+        List<Long> applicationIds = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            User user = new User();
+            user.setFirstName("Employee");
+            user.setLastName(String.valueOf(i));
+            user.setEmail("employee" + i + "@example.com");
+            user.setPassword("password");
+            JobApplication application = new JobApplication();
+            application.setEmployee(userRepository.save(user));
+            application.setCompany(company);
+            applicationIds.add(jobApplicationRepository.save(application).getId());
+        }
+
+        // Act
+        runConcurrently(THREADS, thread -> companyService.acceptJobApplication(applicationIds.get(thread)));
+
+        // Assert
+        int employees = transactionOperations.execute(status ->
+                companyRepository.findById(company.getId()).orElseThrow().getEmployees().size());
+        assertEquals(THREADS, employees);
+    }
+
+    private static Company createCompany() {
+        Company company = new Company();
+        company.setCompanyName("Stress test");
+        company.setCountry("Hungary");
+        return company;
+    }
+
+    // Starts the threads at the same time and fails with the first error of any of them
+    private static void runConcurrently(int threads, ThreadTask task) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                int thread = i;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    task.run(thread);
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private interface ThreadTask {
+        void run(int thread) throws Exception;
+    }
+}
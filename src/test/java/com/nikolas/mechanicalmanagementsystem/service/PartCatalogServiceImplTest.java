@@ -0,0 +1,113 @@
+package com.nikolas.mechanicalmanagementsystem.service;
+
+import com.nikolas.mechanicalmanagementsystem.dtos.PartSuggestion;
+import com.nikolas.mechanicalmanagementsystem.entity.MachinePart;
+import com.nikolas.mechanicalmanagementsystem.repository.MachinePartRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ActiveProfiles("test")
+@ExtendWith(MockitoExtension.class)
+class PartCatalogServiceImplTest {
+    @InjectMocks
+    private PartCatalogServiceImpl partCatalogService;
+    @Mock
+    private MachinePartRepository machinePartRepository;
+
+    @Test
+    void testSuggestLoadsTheCompanyOnce() {
+        // Arrange
+        when(machinePartRepository.findLatestPartsByCompanyId(eq(1L), any())).thenReturn(List.of(
+                new PartSuggestion("Oil filter", new BigDecimal("12.50")),
+                new PartSuggestion("Brake pads", new BigDecimal("45")),
+                new PartSuggestion("oil FILTER", new BigDecimal("10")),
+                new PartSuggestion("Oil pump", new BigDecimal("80"))));
+
+        // Act
+        List<PartSuggestion> suggestions = partCatalogService.suggest(1L, "OI");
+        List<PartSuggestion> again = partCatalogService.suggest(1L, "oil p");
+
+        // Assert
+        assertEquals(List.of("Oil filter", "Oil pump"), suggestions.stream().map(PartSuggestion::getName).toList());
+        assertEquals(new BigDecimal("12.50"), suggestions.get(0).getLastPrice());
+        assertEquals("Oil pump", again.get(0).getName());
+        verify(machinePartRepository, times(1)).findLatestPartsByCompanyId(eq(1L), any());
+    }
+
+    @Test
+    void testPartsAddedUpdatesLoadedCompany() {
+        // Arrange
+        when(machinePartRepository.findLatestPartsByCompanyId(eq(1L), any()))
+                .thenReturn(List.of(new PartSuggestion("Oil filter", new BigDecimal("12.50"))));
+        partCatalogService.suggest(1L, "o");
+
+        // Act
+        partCatalogService.partsAdded(1L, List.of(createPart("Oil filter", "14"), createPart("Spark plug", "6")));
+        partCatalogService.partsAdded(2L, List.of(createPart("Wiper", "7")));
+
+        // Assert
+        assertEquals(new BigDecimal("14"), partCatalogService.suggest(1L, "oil").get(0).getLastPrice());
+        assertEquals("Spark plug", partCatalogService.suggest(1L, "sp").get(0).getName());
+        verify(machinePartRepository, never()).findLatestPartsByCompanyId(eq(2L), any());
+    }
+
+    @Test
+    void testLeastRecentlyUsedCompanyIsEvicted() {
+        // Arrange
+        ReflectionTestUtils.setField(partCatalogService, "maxCompanies", 2);
+        when(machinePartRepository.findLatestPartsByCompanyId(any(), any())).thenReturn(List.of());
+
+        // Act
+        partCatalogService.suggest(1L, "a");
+        partCatalogService.suggest(2L, "a");
+        partCatalogService.suggest(1L, "a");
+        partCatalogService.suggest(3L, "a");
+        partCatalogService.suggest(1L, "a");
+        partCatalogService.suggest(2L, "a");
+
+        // Assert
+        verify(machinePartRepository, times(1)).findLatestPartsByCompanyId(eq(1L), any());
+        verify(machinePartRepository, times(2)).findLatestPartsByCompanyId(eq(2L), any());
+    }
+
+    @Test
+    void testLeastRecentlyEnteredNameIsDroppedWhenFull() {
+        // Arrange
+        ReflectionTestUtils.setField(partCatalogService, "maxNamesPerCompany", 2);
+        when(machinePartRepository.findLatestPartsByCompanyId(eq(1L), any())).thenReturn(List.of(
+                new PartSuggestion("Brake pads", new BigDecimal("45")),
+                new PartSuggestion("Brake disc", new BigDecimal("60")),
+                new PartSuggestion("Brake fluid", new BigDecimal("9"))));
+
+        // Act
+        List<PartSuggestion> loaded = partCatalogService.suggest(1L, "brake");
+        partCatalogService.partsAdded(1L, List.of(createPart("Brake hose", "15")));
+
+        // Assert
+        assertEquals(List.of("Brake disc", "Brake pads"), loaded.stream().map(PartSuggestion::getName).toList());
+        assertEquals(List.of("Brake hose", "Brake pads"),
+                partCatalogService.suggest(1L, "brake").stream().map(PartSuggestion::getName).toList());
+        assertTrue(partCatalogService.suggest(1L, " ").isEmpty());
+    }
+
+    private static MachinePart createPart(String name, String price) {
+        MachinePart machinePart = new MachinePart();
+        machinePart.setPartName(name);
+        machinePart.setPartPrice(new BigDecimal(price));
+        return machinePart;
+    }
+}
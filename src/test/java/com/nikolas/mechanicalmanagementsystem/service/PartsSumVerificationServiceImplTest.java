@@ -0,0 +1,67 @@
+package com.nikolas.mechanicalmanagementsystem.service;
+
+import com.nikolas.mechanicalmanagementsystem.dtos.JobStatus;
+import com.nikolas.mechanicalmanagementsystem.repository.MachineRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.*;
+
+@ActiveProfiles("test")
+@ExtendWith(MockitoExtension.class)
+class PartsSumVerificationServiceImplTest {
+    @Mock
+    private MachineRepository machineRepository;
+    @Mock
+    private CompanyMonthlyRollupService companyMonthlyRollupService;
+    @Mock
+    private BackgroundJobService backgroundJobService;
+
+    private PartsSumVerificationServiceImpl partsSumVerificationService;
+
+    @BeforeEach
+    void setUp() {
+        partsSumVerificationService = new PartsSumVerificationServiceImpl(machineRepository, companyMonthlyRollupService,
+                backgroundJobService, TransactionOperations.withoutTransaction());
+    }
+
+    @Test
+    void testVerify_RepairsInconsistentMachines() {
+        // Arrange
+        when(machineRepository.findIdsWithInconsistentPartsSum(0L, PageRequest.of(0, 200))).thenReturn(List.of(3L, 8L));
+        when(machineRepository.findIdsWithInconsistentPartsSum(8L, PageRequest.of(0, 200))).thenReturn(List.of());
+        JobStatus status = new JobStatus("job", "parts-sum-verification");
+
+        // Act
+        partsSumVerificationService.verify(status);
+
+        // Assert
+        verify(machineRepository, times(1)).recalculatePartsSumsByIdIn(List.of(3L, 8L));
+        verify(companyMonthlyRollupService, times(1)).rebuild();
+        assertEquals("2 machine(s) repaired", status.getMessage());
+    }
+
+    @Test
+    void testVerify_NothingToRepair() {
+        // Arrange
+        when(machineRepository.findIdsWithInconsistentPartsSum(0L, PageRequest.of(0, 200))).thenReturn(List.of());
+        JobStatus status = new JobStatus("job", "parts-sum-verification");
+
+        // Act
+        partsSumVerificationService.verify(status);
+
+        // Assert
+        verify(machineRepository, never()).recalculatePartsSumsByIdIn(anyList());
+        verifyNoInteractions(companyMonthlyRollupService);
+        assertEquals(JobStatus.State.COMPLETED, status.getState());
+    }
+}
@@ -12,6 +12,9 @@ import com.nikolas.mechanicalmanagementsystem.repository.JobApplicationRepositor
 import com.nikolas.mechanicalmanagementsystem.repository.RoleRepository;
 import com.nikolas.mechanicalmanagementsystem.repository.UserRepository;
 import com.nikolas.mechanicalmanagementsystem.security.CustomUserDetails;
+import com.nikolas.mechanicalmanagementsystem.security.CustomUserDetailsService;
+import com.nikolas.mechanicalmanagementsystem.security.PrincipalVersionRegistry;
+import com.nikolas.mechanicalmanagementsystem.security.UserSnapshot;
 import jakarta.mail.MessagingException;
 import jakarta.servlet.http.HttpServletRequest;
 import org.junit.jupiter.api.BeforeEach;
@@ -76,6 +79,10 @@ class UserServiceImplTest {
     private BindingResult bindingResult;
     @Mock
     private RoleService roleService;
+    @Mock
+    private CustomUserDetailsService customUserDetailsService;
+    @Mock
+    private PrincipalVersionRegistry principalVersionRegistry;
 
     private static User user1;
     private static User user2;
@@ -314,8 +321,8 @@ class UserServiceImplTest {
 
     @Test
     void testGetLoggedInUser() {
-        // Set up the email attribute
-        when(customUserDetails.getEmail()).thenReturn(user1.getEmail());
+        // Set up the snapshot kept in the session
+        when(customUserDetails.getSnapshot()).thenReturn(UserSnapshot.of(user1, List.of(), 0));
         // Simulate authentication being successful
         when(authentication.isAuthenticated()).thenReturn(true);
         // Set up the authentication object to return the custom user details
@@ -324,8 +331,8 @@ class UserServiceImplTest {
         when(securityContext.getAuthentication()).thenReturn(authentication);
         // Set the security context in the SecurityContextHolder
         SecurityContextHolder.setContext(securityContext);
-        // Mock the UserRepository to return the user object when findByEmail is called
-        when(userRepository.findByEmail(user1.getEmail())).thenReturn(Optional.of(user1));
+        // Mock the UserRepository to return the user object when findById is called
+        when(userRepository.findById(user1.getId())).thenReturn(Optional.of(user1));
 
         // Call the getLoggedInUser method
         User loggedInUser = userServiceImpl.getLoggedInUser();
@@ -335,6 +342,47 @@ class UserServiceImplTest {
         assertEquals(user1, loggedInUser);
     }
 
+    @Test
+    void testGetLoggedInUserSnapshot_UpToDate() {
+        // Arrange
+        UserSnapshot snapshot = UserSnapshot.of(user1, List.of(2L), 0);
+        when(customUserDetails.getSnapshot()).thenReturn(snapshot);
+        when(authentication.isAuthenticated()).thenReturn(true);
+        when(authentication.getPrincipal()).thenReturn(customUserDetails);
+        when(securityContext.getAuthentication()).thenReturn(authentication);
+        SecurityContextHolder.setContext(securityContext);
+
+        // Act
+        UserSnapshot result = userServiceImpl.getLoggedInUserSnapshot();
+
+        // Assert: the session snapshot is used without loading the user
+        assertSame(snapshot, result);
+        assertTrue(result.hasAccessToCompany(2L));
+        verifyNoInteractions(userRepository, customUserDetailsService);
+    }
+
+    @Test
+    void testGetLoggedInUserSnapshot_RebuiltAfterMembershipChange() {
+        // Arrange
+        UserSnapshot outdated = UserSnapshot.of(user1, List.of(2L), 0);
+        UserSnapshot rebuilt = UserSnapshot.of(user1, List.of(2L, 3L), 4);
+        when(customUserDetails.getSnapshot()).thenReturn(outdated);
+        when(authentication.isAuthenticated()).thenReturn(true);
+        when(authentication.getPrincipal()).thenReturn(customUserDetails);
+        when(securityContext.getAuthentication()).thenReturn(authentication);
+        SecurityContextHolder.setContext(securityContext);
+        when(principalVersionRegistry.currentVersion(user1.getId())).thenReturn(4L);
+        when(userRepository.findById(user1.getId())).thenReturn(Optional.of(user1));
+        when(customUserDetailsService.createSnapshot(user1, 4L)).thenReturn(rebuilt);
+
+        // Act
+        UserSnapshot result = userServiceImpl.getLoggedInUserSnapshot();
+
+        // Assert: the new snapshot replaces the one in the session
+        assertSame(rebuilt, result);
+        verify(customUserDetails).setSnapshot(rebuilt);
+    }
+
     @Test
     void testGetLoggedInUser_UnauthenticatedUser() {
         // Arrange
@@ -519,20 +567,26 @@ class UserServiceImplTest {
     @Test
     void testRemoveRolesFromUsers_WhenDeleteACompany() {
         // Arrange
-        Role roleToRemove = new Role("ROLE_ADMIN");
+        List<Long> roleIds = List.of(3L, 4L);
+        when(userRepository.findIdsByRoleIdIn(roleIds)).thenReturn(List.of(user1.getId()));
+        when(userRepository.deleteRoleLinksByRoleIdIn(roleIds)).thenReturn(2);
 
-        // Mock repository methods
-        when(userRepository.findByRolesContains(roleToRemove)).thenReturn(List.of(user1));
+        // Act
+        userServiceImpl.removeRolesFromUsers(roleIds);
+
+        // Assert
+        verify(userRepository, times(1)).deleteRoleLinksByRoleIdIn(roleIds);
+        verify(principalVersionRegistry, times(1)).invalidate(user1.getId());
+        verify(userRepository, never()).save(any(User.class));
+    }
 
+    @Test
+    void testRemoveRolesFromUsers_NoRoles() {
         // Act
-        System.out.println("User roles before delete a role: " + user1.getRoles().stream().map(Role::getRoleName).toList());
-        userServiceImpl.removeRolesFromUsers(List.of(roleToRemove));
-        System.out.println("User roles after delete a role: " + user1.getRoles().stream().map(Role::getRoleName).toList());
+        userServiceImpl.removeRolesFromUsers(List.of());
 
         // Assert
-        assertFalse(user1.getRoles().contains(roleToRemove));
-        verify(userRepository, times(1)).findByRolesContains(roleToRemove);
-        verify(userRepository, times(1)).save(user1);
+        verifyNoInteractions(userRepository);
     }
 
     @Test
@@ -0,0 +1,44 @@
+package com.nikolas.mechanicalmanagementsystem.utility;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@ActiveProfiles("test")
+class AfterCommitTest {
+
+    @Test
+    void testRun_WithoutTransaction() {
+        // Arrange
+        AtomicInteger runs = new AtomicInteger();
+
+        // Act
+        AfterCommit.run(runs::incrementAndGet);
+
+        // Assert
+        assertEquals(1, runs.get());
+    }
+
+    @Test
+    void testRun_AfterCommit() {
+        // Arrange
+        AtomicInteger runs = new AtomicInteger();
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            // Act
+            AfterCommit.run(runs::incrementAndGet);
+
+            // Assert: nothing happens before the commit
+            assertEquals(0, runs.get());
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+            assertEquals(1, runs.get());
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.nikolas.mechanicalmanagementsystem.utility;
+
+import com.nikolas.mechanicalmanagementsystem.dtos.CompanyDirectoryRow;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@ActiveProfiles("test")
+class CompanySearchIndexTest {
+
+    @Test
+    void testTokenize() {
+        // Act
+        List<String> tokens = CompanySearchIndex.tokenize("  Kovács & Fiai Autószerviz Kft. - KOVÁCS ");
+
+        // Assert
+        assertEquals(List.of("kovacs", "fiai", "autoszerviz", "kft"), tokens);
+        assertTrue(CompanySearchIndex.tokenize(null).isEmpty());
+    }
+
+    @Test
+    void testRarePrefixOfSeveralTokensListsEachCompanyOnceByName() {
+        // Arrange
+        List<CompanyDirectoryRow> companies = new ArrayList<>();
+        for (long id = 1; id <= 100; id++) {
+            companies.add(new CompanyDirectoryRow(id, "Filler " + id, "Hungary", "Budapest", null, 1000));
+        }
+        companies.add(new CompanyDirectoryRow(101L, "Garden Garage", "Hungary", "Eger", null, 3300));
+        companies.add(new CompanyDirectoryRow(102L, "Alpha Garage", "Hungary", "Eger", null, 3300));
+        companies.add(new CompanyDirectoryRow(103L, "Garamond Motors", "Hungary", "Eger", null, 3300));
+        CompanySearchIndex index = new CompanySearchIndex(companies);
+
+        // Act
+        List<CompanyDirectoryRow> results = index.search("gar", 10);
+        List<CompanyDirectoryRow> wholeWordFirst = index.search("garage", 10);
+        List<CompanyDirectoryRow> limited = index.search("hungary", 3);
+
+        // Assert
+        assertEquals(List.of(102L, 103L, 101L), results.stream().map(CompanyDirectoryRow::getId).toList());
+        assertEquals(List.of(102L, 101L), wholeWordFirst.stream().map(CompanyDirectoryRow::getId).toList());
+        assertEquals(List.of("Alpha Garage", "Filler 1", "Filler 10"), limited.stream().map(CompanyDirectoryRow::getCompanyName).toList());
+    }
+
+    @Test
+    void testPutAndRemove() {
+        // Arrange
+        CompanySearchIndex index = new CompanySearchIndex(List.of(
+                new CompanyDirectoryRow(1L, "Old Name", "Hungary", "Szeged", null, 6720)));
+
+        // Act
+        index.put(new CompanyDirectoryRow(1L, "New Name", "Austria", "Wien", null, 1010));
+        index.put(new CompanyDirectoryRow(2L, "Other", "Hungary", "Szeged", null, 6720));
+        index.remove(2L);
+        index.remove(3L);
+
+        // Assert
+        assertEquals(1, index.size());
+        assertTrue(index.search("old", 10).isEmpty());
+        assertTrue(index.search("6720", 10).isEmpty());
+        assertEquals(1L, index.search("wien new", 10).get(0).getId());
+    }
+}
@@ -0,0 +1,59 @@
+package com.nikolas.mechanicalmanagementsystem.utility;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@ActiveProfiles("test")
+class LongHashSetTest {
+
+    @Test
+    void testContains() {
+        // Arrange
+        List<Long> ids = new ArrayList<>();
+        for (long id = 1; id <= 1000; id++) {
+            ids.add(id * 7);
+        }
+
+        // Act
+        LongHashSet set = new LongHashSet(ids);
+
+        // Assert
+        assertEquals(1000, set.size());
+        for (long id = 1; id <= 7000; id++) {
+            assertEquals(id % 7 == 0, set.contains(id), "id " + id);
+        }
+        assertFalse(set.contains(0));
+        assertFalse(set.contains(-7));
+    }
+
+    @Test
+    void testDuplicatesZeroAndNulls() {
+        // Act
+        LongHashSet set = new LongHashSet(Arrays.asList(5L, 0L, null, 5L, 0L, -3L));
+
+        // Assert
+        assertEquals(3, set.size());
+        assertTrue(set.contains(0));
+        assertTrue(set.contains(5));
+        assertTrue(set.contains(-3));
+        assertFalse(set.contains(3));
+    }
+
+    @Test
+    void testEmpty() {
+        // Act
+        LongHashSet set = new LongHashSet(List.of());
+
+        // Assert
+        assertTrue(set.isEmpty());
+        assertFalse(set.contains(0));
+        assertFalse(set.contains(1));
+        assertEquals("[]", set.toString());
+    }
+}
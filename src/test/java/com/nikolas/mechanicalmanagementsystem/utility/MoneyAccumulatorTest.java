@@ -0,0 +1,59 @@
+package com.nikolas.mechanicalmanagementsystem.utility;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@ActiveProfiles("test")
+class MoneyAccumulatorTest {
+
+    @Test
+    void testAddCentsAndAmounts() {
+        // Arrange
+        MoneyAccumulator accumulator = new MoneyAccumulator();
+
+        // Act
+        accumulator.addCents(1050);
+        accumulator.add(new BigDecimal("20.25"));
+        accumulator.add(new BigDecimal("-0.5"));
+        accumulator.add(BigDecimal.valueOf(0.0));
+        accumulator.add((BigDecimal) null);
+
+        // Assert
+        assertEquals(new BigDecimal("30.25"), accumulator.toBigDecimal());
+    }
+
+    @Test
+    void testOverflowFallsBackToBigDecimal() {
+        // Arrange
+        MoneyAccumulator accumulator = new MoneyAccumulator();
+
+        // Act
+        accumulator.addCents(Long.MAX_VALUE);
+        accumulator.addCents(Long.MAX_VALUE);
+        accumulator.addCents(2);
+
+        // Assert
+        BigDecimal expected = BigDecimal.valueOf(Long.MAX_VALUE, 2).multiply(BigDecimal.valueOf(2)).add(new BigDecimal("0.02"));
+        assertEquals(expected, accumulator.toBigDecimal());
+    }
+
+    @Test
+    void testAmountsWithMoreDecimalsAreKeptExact() {
+        // Arrange
+        MoneyAccumulator accumulator = new MoneyAccumulator();
+        MoneyAccumulator other = new MoneyAccumulator();
+
+        // Act
+        accumulator.add(new BigDecimal("2.7135"));
+        accumulator.add(new BigDecimal("1.10"));
+        other.add(new BigDecimal("123456789012345678.90"));
+        accumulator.add(other);
+
+        // Assert
+        assertEquals(new BigDecimal("123456789012345682.7135"), accumulator.toBigDecimal());
+    }
+}